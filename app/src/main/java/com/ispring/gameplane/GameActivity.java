@@ -4,10 +4,20 @@ import android.app.Activity;
 import android.os.Bundle;
 
 import com.ispring.gameplane.game.GameView;
+import com.ispring.gameplane.game.NetSession;
 
 
 public class GameActivity extends Activity {
 
+    //玩家名，高分榜按玩家记录
+    public static final String EXTRA_PROFILE_NAME = "profileName";
+    //联机对战：NET_MODE_HOST时等待另一名玩家加入，NET_MODE_JOIN时加入EXTRA_HOST_NAME上的对战，见NetSession
+    public static final String EXTRA_NET_MODE = "netMode";
+    public static final String EXTRA_HOST_NAME = "hostName";
+    public static final int NET_MODE_NONE = 0;
+    public static final int NET_MODE_HOST = 1;
+    public static final int NET_MODE_JOIN = 2;
+
     private GameView gameView;
 
     @Override
@@ -15,6 +25,7 @@ public class GameActivity extends Activity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_game);
         gameView = (GameView)findViewById(R.id.gameView);
+        gameView.setProfileName(getIntent().getStringExtra(EXTRA_PROFILE_NAME));
         //0:combatAircraft
         //1:explosion
         //2:yellowBullet
@@ -41,7 +52,15 @@ public class GameActivity extends Activity {
                 R.drawable.pause2,
                 R.drawable.bomb
         };
-        gameView.start(bitmapIds);
+        int netMode = getIntent().getIntExtra(EXTRA_NET_MODE, NET_MODE_NONE);
+        if(netMode == NET_MODE_JOIN){
+            gameView.joinNetGame(bitmapIds, getIntent().getStringExtra(EXTRA_HOST_NAME), NetSession.DEFAULT_PORT);
+        }else{
+            gameView.start(bitmapIds);
+            if(netMode == NET_MODE_HOST){
+                gameView.hostNetGame(NetSession.DEFAULT_PORT);
+            }
+        }
     }
 
     @Override
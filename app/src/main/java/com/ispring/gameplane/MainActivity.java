@@ -2,29 +2,61 @@ package com.ispring.gameplane;
 
 import android.app.Activity;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
+import android.widget.EditText;
 
 
 public class MainActivity extends Activity implements Button.OnClickListener {
 
+    private static final String PREFS_NAME = "settings";
+    private static final String KEY_PROFILE_NAME = "profileName";
+    private static final String KEY_HOST_NAME = "hostName";
+
+    private EditText editName;
+    private EditText editHost;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        editName = (EditText)findViewById(R.id.editName);
+        editHost = (EditText)findViewById(R.id.editHost);
+        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        editName.setText(prefs.getString(KEY_PROFILE_NAME, ""));
+        editHost.setText(prefs.getString(KEY_HOST_NAME, ""));
     }
 
     @Override
     public void onClick(View v) {
         int viewId = v.getId();
         if(viewId == R.id.btnGame){
-            startGame();
+            startGame(GameActivity.NET_MODE_NONE);
+        }else if(viewId == R.id.btnHost){
+            startGame(GameActivity.NET_MODE_HOST);
+        }else if(viewId == R.id.btnJoin){
+            if(editHost.getText().toString().trim().length() > 0){
+                startGame(GameActivity.NET_MODE_JOIN);
+            }else{
+                editHost.requestFocus();
+            }
         }
     }
 
-    public void startGame(){
+    public void startGame(int netMode){
+        //记住玩家名和主机地址，空的名字由GameView换成默认的玩家
+        String profileName = editName.getText().toString().trim();
+        String hostName = editHost.getText().toString().trim();
+        SharedPreferences.Editor editor = getSharedPreferences(PREFS_NAME, MODE_PRIVATE).edit();
+        editor.putString(KEY_PROFILE_NAME, profileName);
+        editor.putString(KEY_HOST_NAME, hostName);
+        editor.commit();
         Intent intent = new Intent(this, GameActivity.class);
+        intent.putExtra(GameActivity.EXTRA_PROFILE_NAME, profileName);
+        intent.putExtra(GameActivity.EXTRA_NET_MODE, netMode);
+        intent.putExtra(GameActivity.EXTRA_HOST_NAME, hostName);
         startActivity(intent);
     }
 }
\ No newline at end of file
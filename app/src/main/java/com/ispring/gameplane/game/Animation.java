@@ -0,0 +1,72 @@
+package com.ispring.gameplane.game;
+
+/**
+ * 帧动画，按时间在SpriteSheet的各帧之间切换
+ * MODE_LOOP循环播放，MODE_ONE_SHOT播放一次后停在最后一帧并标记为结束
+ * 每个Sprite持有自己的Animation，SpriteSheet可以在多个Animation之间共享
+ */
+public class Animation {
+
+    public static final int MODE_LOOP = 1;
+    public static final int MODE_ONE_SHOT = 2;
+
+    private final SpriteSheet spriteSheet;
+    private final long frameDurationNanos;//每帧显示的时长
+    private final int mode;
+
+    private long elapsedNanos = 0;//已经播放的时长
+    private int frameIndex = 0;//当前帧
+    private boolean finished = false;
+
+    public Animation(SpriteSheet spriteSheet, long frameDurationNanos, int mode){
+        if(frameDurationNanos <= 0){
+            throw new IllegalArgumentException("frameDurationNanos must be positive");
+        }
+        this.spriteSheet = spriteSheet;
+        this.frameDurationNanos = frameDurationNanos;
+        this.mode = mode;
+    }
+
+    //动画前进deltaNanos的时间
+    public void advance(long deltaNanos){
+        if(finished){
+            return;
+        }
+        elapsedNanos += deltaNanos;
+        long index = elapsedNanos / frameDurationNanos;
+        int frameCount = spriteSheet.getFrameCount();
+        if(index >= frameCount){
+            if(mode == MODE_LOOP){
+                elapsedNanos %= getDurationNanos();
+                index = elapsedNanos / frameDurationNanos;
+            }else{
+                index = frameCount - 1;
+                finished = true;
+            }
+        }
+        frameIndex = (int)index;
+    }
+
+    public void reset(){
+        elapsedNanos = 0;
+        frameIndex = 0;
+        finished = false;
+    }
+
+    public SpriteSheet getSpriteSheet(){
+        return spriteSheet;
+    }
+
+    public int getFrameIndex(){
+        return frameIndex;
+    }
+
+    public boolean isFinished(){
+        return finished;
+    }
+
+    //完整播放一遍的时长
+    public long getDurationNanos(){
+        return frameDurationNanos * spriteSheet.getFrameCount();
+    }
+}
@@ -1,19 +1,16 @@
 package com.ispring.gameplane.game;
 
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Paint;
-import android.graphics.RectF;
-
 /**
- * 走直线的Sprite类，其位置只能直上直下
+ * 自动移动的Sprite类，默认直上直下，设置了MovePath时沿路径移动
  */
 public class AutoSprite extends Sprite {
     //每帧移动的像素数,以向下为正
     private float speed = 2;
+    private MovePath path = null;//移动路径，为null时直线移动
+    private int pathIndex = 0;//路径中下一帧的下标
 
-    public AutoSprite(Bitmap bitmap){
-        super(bitmap);
+    public AutoSprite(Texture texture){
+        super(texture);
     }
 
     public void setSpeed(float speed){
@@ -24,22 +21,43 @@ public class AutoSprite extends Sprite {
         return speed;
     }
 
+    //沿path移动，startIndex用于让编队中的Sprite在同一路径上错开相位
+    public void setPath(MovePath path, int startIndex){
+        this.path = path;
+        this.pathIndex = path != null ? startIndex % path.getLength() : 0;
+    }
+
+    public MovePath getPath(){
+        return path;
+    }
+
+    public int getPathIndex(){
+        return pathIndex;
+    }
+
     @Override
-    protected void beforeDraw(Canvas canvas, Paint paint, GameView gameView) {
-        if(!isDestroyed()){
-            //在y轴方向移动speed像素
-            move(0, speed * gameView.getDensity());
-        }
+    protected void onReset() {
+        path = null;
+        pathIndex = 0;
     }
 
-    protected void afterDraw(Canvas canvas, Paint paint, GameView gameView){
+    @Override
+    protected void beforeDraw(Renderer renderer, Game game) {
         if(!isDestroyed()){
-            //检查Sprite是否超出了Canvas的范围，如果超出，则销毁Sprite
-            RectF canvasRecF = new RectF(0, 0, canvas.getWidth(), canvas.getHeight());
-            RectF spriteRecF = getRectF();
-            if(!RectF.intersects(canvasRecF, spriteRecF)){
-                destroy();
+            if(path != null){
+                //查表得到本帧的位移
+                move(path.getDx(pathIndex), path.getDy(pathIndex));
+                pathIndex = path.next(pathIndex);
+            }else{
+                //在y轴方向移动speed像素
+                move(0, speed * game.getDensity());
             }
         }
     }
+
+    //超出绘制区域范围的Sprite由ViewportCuller销毁
+    @Override
+    public boolean isDespawnOffscreen() {
+        return true;
+    }
 }
\ No newline at end of file
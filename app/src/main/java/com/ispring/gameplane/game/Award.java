@@ -1,54 +1,56 @@
 package com.ispring.gameplane.game;
 
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Paint;
-
 /**
- * 奖品
+ * 奖品，先向下，再向上弹出屏幕，最后落下，移动路径见MovePath.createAwardBounce
  */
 public class Award extends AutoSprite {
-    public static int STATUS_DOWN1 = 1;
-    public static int STATUS_UP2 = 2;
-    public static int STATUS_DOWN3 = 3;
 
-    private int status = STATUS_DOWN1;
+    public Award(Texture texture){
+        super(texture);
+        setSpeed(7);
+    }
 
-    public Award(Bitmap bitmap){
-        super(bitmap);
+    @Override
+    protected void onReset() {
+        super.onReset();
         setSpeed(7);
     }
 
+    //奖品会先向上弹出屏幕再落下，由afterDraw自行决定何时销毁，不由ViewportCuller销毁
+    @Override
+    public boolean isDespawnOffscreen() {
+        return false;
+    }
+
+    @Override
+    public int getCollisionLayer() {
+        return CollisionSystem.LAYER_AWARD;
+    }
+
     @Override
-    protected void afterDraw(Canvas canvas, Paint paint, GameView gameView) {
-        //在afterDraw中不调用super.afterDraw方法
+    public int getBudgetCategory() {
+        return EntityBudget.CATEGORY_AWARD;
+    }
+
+    //被战斗机拾取，由子类决定奖励的内容
+    public void onPickedUp(Game game, CombatAircraft combatAircraft){}
+
+    @Override
+    protected void beforeDraw(Renderer renderer, Game game) {
+        if(getPath() == null){
+            //第一次移动时按生成时设置的速度和屏幕高度取得路径
+            setPath(game.getAwardPath(getSpeed(), renderer.getHeight()), 0);
+        }
+        super.beforeDraw(renderer, game);
+    }
+
+    @Override
+    protected void afterDraw(Renderer renderer, Game game) {
         if(!isDestroyed()){
-            //在绘制一定次数后要改变方向或速度
-            int canvasHeight = canvas.getHeight();
-            if(status != STATUS_DOWN3){
-                float maxY = getY() + getHeight();
-                if(status == STATUS_DOWN1){
-                    //第一次向下
-                    if(maxY >= canvasHeight * 0.25){
-                        //当第一次下降到临界值时改变方向，向上
-                        setSpeed(-5);
-                        status = STATUS_UP2;
-                    }
-                }
-                else if(status == STATUS_UP2){
-                    //第二次向上
-                    if(maxY+this.getSpeed() <= 0){
-                        //第二次上升到临界值时改变方向，向下
-                        setSpeed(13);
-                        status = STATUS_DOWN3;
-                    }
-                }
-            }
-            if(status == STATUS_DOWN3){
-                if(getY() >= canvasHeight){
-                    destroy();
-                }
+            //最后一段向下落出屏幕后销毁
+            if(getPath().isFinished(getPathIndex()) && getY() >= renderer.getHeight()){
+                destroy();
             }
         }
     }
-}
\ No newline at end of file
+}
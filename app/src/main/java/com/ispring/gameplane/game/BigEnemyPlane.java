@@ -1,16 +1,16 @@
 package com.ispring.gameplane.game;
 
-import android.graphics.Bitmap;
-
 /**
  * 大敌机类，体积大，抗打击能力强
  */
 public class BigEnemyPlane extends EnemyPlane {
 
-    public BigEnemyPlane(Bitmap bitmap){
-        super(bitmap);
+    public BigEnemyPlane(Texture texture){
+        super(texture);
         setPower(10);//大敌机抗抵抗能力为10，即需要10颗子弹才能销毁大敌机
         setValue(30000);//销毁一个大敌机可以得30000分
+        setType(WaveTimeline.TYPE_BIG);
+        setFirePattern(EnemyProjectiles.PATTERN_RADIAL, 120);//每隔120帧向四周发射一圈子弹
     }
 
 }
\ No newline at end of file
@@ -1,14 +1,18 @@
 package com.ispring.gameplane.game;
 
-import android.graphics.Bitmap;
-
 /**
  * 炸弹奖励
  */
 public class BombAward extends Award {
 
-    public BombAward(Bitmap bitmap){
-        super(bitmap);
+    public BombAward(Texture texture){
+        super(texture);
+    }
+
+    @Override
+    public void onPickedUp(Game game, CombatAircraft combatAircraft) {
+        combatAircraft.addBomb();
+        game.getEvents().publish(GameEvents.TYPE_AWARD_PICKED_UP, WaveTimeline.TYPE_BOMB_AWARD, 0, this);
     }
 
 }
\ No newline at end of file
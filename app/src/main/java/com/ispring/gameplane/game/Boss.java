@@ -0,0 +1,279 @@
+package com.ispring.gameplane.game;
+
+/**
+ * 首领敌机，由核心、两翼和炮塔等多个部件组成，每个部件有自己的碰撞盒和抗打击能力
+ * 碰撞检测是分层的：子弹先由CollisionSystem与整个首领的外框比较，只有进入外框的子弹才与各部件比较；
+ * 部件按父子关系组织（炮塔位于机翼上），只有子弹位于父部件的碰撞盒内时才检查子部件，
+ * 所以绝大多数子弹只做一次外框检测，首领的开销与普通敌机相差不大
+ * 核心被摧毁时首领爆炸，机翼被摧毁时其上的炮塔一起被摧毁
+ */
+public class Boss extends EnemyPlane {
+
+    //部件的类型
+    public static final int PART_CORE = 0;
+    public static final int PART_WING = 1;
+    public static final int PART_TURRET = 2;
+
+    //首领的尺寸为大敌机纹理的SCALE倍
+    private static final float SCALE = 2;
+
+    /*
+     * 部件的布局：类型、父部件、相对首领外框的left, top, right, bottom（按宽高的比例）、抗打击能力、得分
+     * 子部件必须排在父部件之前，这样被击中时先检查更小的子部件
+     */
+    private static final int[] PART_TYPES = {PART_TURRET, PART_TURRET, PART_WING, PART_WING, PART_CORE};
+    private static final int[] PART_PARENTS = {2, 3, -1, -1, -1};
+    private static final float[][] PART_BOUNDS = {
+            {0.08f, 0.45f, 0.25f, 0.62f},//左炮塔
+            {0.75f, 0.45f, 0.92f, 0.62f},//右炮塔
+            {0.0f, 0.35f, 0.38f, 0.7f},//左翼
+            {0.62f, 0.35f, 1.0f, 0.7f},//右翼
+            {0.35f, 0.2f, 0.65f, 0.85f}//核心
+    };
+    private static final int[] PART_POWERS = {12, 12, 25, 25, 60};
+    private static final int[] PART_VALUES = {8000, 8000, 12000, 12000, 100000};
+
+    //入场后在屏幕上方左右移动
+    private static final float HOVER_TOP = 0.05f;//入场后外框上边缘停在屏幕高度的比例处
+    private static final float HOVER_AMPLITUDE = 60;//左右移动的幅度(dp)
+    private static final int HOVER_PERIOD = 300;//左右移动的周期(帧)
+
+    private final int partCount = PART_TYPES.length;
+    private final int[] partPowers = new int[partCount];
+    private final boolean[] partDestroyed = new boolean[partCount];
+
+    //移动路径由速度和屏幕高度决定，在第一次移动时创建
+    private MovePath hoverPath = null;
+    private float hoverPathSpeed = 0;
+    private int hoverPathHeight = 0;
+
+    public Boss(Texture texture){
+        super(texture);
+        setPower(PART_POWERS[partCount - 1]);
+        setValue(0);//得分按部件计算
+        setType(WaveTimeline.TYPE_BOSS);
+        setFirePattern(EnemyProjectiles.PATTERN_SPIRAL, 6);
+        resetParts();
+    }
+
+    private void resetParts(){
+        for(int i = 0; i < partCount; i++){
+            partPowers[i] = PART_POWERS[i];
+            partDestroyed[i] = false;
+        }
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        resetParts();
+    }
+
+    @Override
+    public float getWidth() {
+        return super.getWidth() * SCALE;
+    }
+
+    @Override
+    public float getHeight() {
+        return super.getHeight() * SCALE;
+    }
+
+    //首领按放大后的尺寸绘制，纹理的掩码不适用，由部件的碰撞盒做精确检测
+    @Override
+    public CollisionMask getCollisionMask() {
+        return null;
+    }
+
+    public int getPartCount(){
+        return partCount;
+    }
+
+    public int getPartType(int part){
+        return PART_TYPES[part];
+    }
+
+    public int getPartPower(int part){
+        return partPowers[part];
+    }
+
+    public boolean isPartDestroyed(int part){
+        return partDestroyed[part];
+    }
+
+    public float getPartLeft(int part){
+        return getX() + PART_BOUNDS[part][0] * getWidth();
+    }
+
+    public float getPartTop(int part){
+        return getY() + PART_BOUNDS[part][1] * getHeight();
+    }
+
+    public float getPartRight(int part){
+        return getX() + PART_BOUNDS[part][2] * getWidth();
+    }
+
+    public float getPartBottom(int part){
+        return getY() + PART_BOUNDS[part][3] * getHeight();
+    }
+
+    @Override
+    protected void beforeDraw(Renderer renderer, Game game) {
+        if(getPath() == null || hoverPathSpeed != getSpeed() || hoverPathHeight != renderer.getHeight()){
+            hoverPath = createHoverPath(getSpeed(), game.getDensity(), renderer.getHeight());
+            hoverPathSpeed = getSpeed();
+            hoverPathHeight = renderer.getHeight();
+            setPath(hoverPath, 0);
+        }
+        super.beforeDraw(renderer, game);
+    }
+
+    //先以speed向下进入屏幕，然后在原处左右移动
+    private MovePath createHoverPath(float speed, float density, int canvasHeight){
+        //生成时下边缘位于屏幕顶端
+        float distance = getHeight() + canvasHeight * HOVER_TOP;
+        int entryFrames = Math.max(1, (int)Math.ceil(distance / (speed * density)));
+        return new MovePath.Builder(density)
+                .line(entryFrames, 0, distance / entryFrames / density)
+                .sine(HOVER_PERIOD, 0, HOVER_AMPLITUDE, HOVER_PERIOD)
+                .buildLoop(entryFrames);
+    }
+
+    //核心发射螺旋子弹，每个炮塔朝战斗机发射扇形子弹
+    @Override
+    protected void fire(Game game) {
+        if(!partDestroyed[partCount - 1]){
+            super.fire(game);
+        }
+        CombatAircraft combatAircraft = game.getCombatAircraft();
+        if(combatAircraft == null || combatAircraft.isCollide() || getFrame() % 60 != 0){
+            return;
+        }
+        float targetX = combatAircraft.getX() + combatAircraft.getWidth() / 2;
+        float targetY = combatAircraft.getY() + combatAircraft.getHeight() / 2;
+        EnemyProjectiles projectiles = game.getEnemyProjectiles();
+        for(int i = 0; i < partCount; i++){
+            if(PART_TYPES[i] == PART_TURRET && !partDestroyed[i]){
+                float x = (getPartLeft(i) + getPartRight(i)) / 2;
+                projectiles.fireAimed(x, getPartBottom(i), targetX, targetY, 4, 3, 6);
+            }
+        }
+    }
+
+    //子弹已经进入外框，再与各部件比较，没有打中任何部件时子弹继续飞行
+    @Override
+    public boolean onBulletHit(Game game, Bullet bullet) {
+        int part = findHitPart(bullet);
+        if(part < 0){
+            return false;
+        }
+        bullet.destroy();
+        damage(game, part, 1);
+        return true;
+    }
+
+    //得到被子弹击中的部件，没有则返回-1
+    private int findHitPart(Sprite bullet){
+        float left = bullet.getX();
+        float top = bullet.getY();
+        float right = bullet.getRight();
+        float bottom = bullet.getBottom();
+        for(int i = 0; i < partCount; i++){
+            if(partDestroyed[i]){
+                continue;
+            }
+            //子部件只在子弹位于父部件内时检查
+            int parent = PART_PARENTS[i];
+            if(parent >= 0 && !overlaps(parent, left, top, right, bottom)){
+                continue;
+            }
+            if(overlaps(i, left, top, right, bottom)){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean overlaps(int part, float left, float top, float right, float bottom){
+        return left < getPartRight(part) && right > getPartLeft(part)
+                && top < getPartBottom(part) && bottom > getPartTop(part);
+    }
+
+    //对部件造成伤害，返回首领是否因此爆炸
+    private boolean damage(Game game, int part, int amount){
+        partPowers[part] -= amount;
+        if(partPowers[part] > 0){
+            return false;
+        }
+        destroyPart(game, part);
+        if(part == partCount - 1){
+            //核心被摧毁，首领爆炸
+            explode(game);
+            return true;
+        }
+        return false;
+    }
+
+    private void destroyPart(Game game, int part){
+        if(partDestroyed[part]){
+            return;
+        }
+        partDestroyed[part] = true;
+        game.addScore(PART_VALUES[part]);
+        float centerX = (getPartLeft(part) + getPartRight(part)) / 2;
+        float centerY = (getPartTop(part) + getPartBottom(part)) / 2;
+        game.getEvents().publish(GameEvents.TYPE_BOSS_PART_DESTROYED, PART_TYPES[part], PART_VALUES[part], centerX, centerY);
+        Explosion explosion = game.obtainExplosion();
+        explosion.centerTo(centerX, centerY);
+        game.addSprite(explosion);
+        //父部件被摧毁时其上的子部件一起被摧毁
+        for(int i = 0; i < partCount; i++){
+            if(PART_PARENTS[i] == part){
+                destroyPart(game, i);
+            }
+        }
+    }
+
+    //炸弹对每个部件造成伤害，而不是直接摧毁首领
+    @Override
+    public void onBomb(Game game) {
+        for(int i = 0; i < partCount; i++){
+            if(!partDestroyed[i] && damage(game, i, 10)){
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void onDraw(Renderer renderer, Game game) {
+        if(isDestroyed() || isCulled() || getTexture() == null || !getVisibility()){
+            return;
+        }
+        Texture texture = getTexture();
+        float x = getX();
+        float y = getY();
+        renderer.drawTexture(texture, 0, 0, texture.getWidth(), texture.getHeight(), x, y, x + getWidth(), y + getHeight());
+        drawDestroyedParts(renderer, x, y, getWidth(), getHeight(), getDestroyedPartMask());
+    }
+
+    //被摧毁的部件的位掩码，第i位表示第i个部件
+    public int getDestroyedPartMask(){
+        int mask = 0;
+        for(int i = 0; i < partCount; i++){
+            if(partDestroyed[i]){
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    //被摧毁的部件显示为暗色，x、y、width、height为首领的外框，网络对战的客户端按快照中的掩码绘制，见NetClient
+    static void drawDestroyedParts(Renderer renderer, float x, float y, float width, float height, int mask){
+        for(int i = 0; i < PART_TYPES.length; i++){
+            if((mask & (1 << i)) != 0){
+                renderer.fillRect(x + PART_BOUNDS[i][0] * width, y + PART_BOUNDS[i][1] * height,
+                        x + PART_BOUNDS[i][2] * width, y + PART_BOUNDS[i][3] * height, 0x80202020);
+            }
+        }
+    }
+}
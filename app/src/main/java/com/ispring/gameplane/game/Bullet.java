@@ -1,15 +1,29 @@
 package com.ispring.gameplane.game;
 
-import android.graphics.Bitmap;
-
 /**
  * 子弹类，从下向上沿直线移动
  */
 public class Bullet extends AutoSprite {
 
-    public Bullet(Bitmap bitmap){
-        super(bitmap);
+    public Bullet(Texture texture){
+        super(texture);
         setSpeed(-10);//负数表示子弹向上飞
     }
 
+    @Override
+    protected void onReset() {
+        super.onReset();
+        setSpeed(-10);
+    }
+
+    @Override
+    public int getCollisionLayer() {
+        return CollisionSystem.LAYER_PLAYER_BULLET;
+    }
+
+    @Override
+    public int getBudgetCategory() {
+        return EntityBudget.CATEGORY_BULLET;
+    }
+
 }
\ No newline at end of file
@@ -1,14 +1,18 @@
 package com.ispring.gameplane.game;
 
-import android.graphics.Bitmap;
-
 /**
  * 子弹奖励
  */
 public class BulletAward extends Award {
 
-    public BulletAward(Bitmap bitmap){
-        super(bitmap);
+    public BulletAward(Texture texture){
+        super(texture);
+    }
+
+    @Override
+    public void onPickedUp(Game game, CombatAircraft combatAircraft) {
+        combatAircraft.startDoubleBullet(game);
+        game.getEvents().publish(GameEvents.TYPE_AWARD_PICKED_UP, WaveTimeline.TYPE_BULLET_AWARD, 0, this);
     }
 
 }
@@ -0,0 +1,136 @@
+package com.ispring.gameplane.game;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.text.TextPaint;
+
+import java.util.List;
+
+/**
+ * 基于Android Canvas的Renderer实现
+ * 纹理编号即bitmaps中的下标，图片在第一次绘制时开始在后台解码，解码完成之前不绘制，见LazyBitmap
+ */
+public class CanvasRenderer implements Renderer {
+
+    private Canvas canvas = null;
+    private List<LazyBitmap> bitmaps;
+    private Paint paint;
+    private TextPaint textPaint;
+    //复用的绘制区域，避免每次绘制都创建对象
+    private Rect srcRect = new Rect();
+    private RectF dstRectF = new RectF();
+
+    public CanvasRenderer(List<LazyBitmap> bitmaps){
+        this.bitmaps = bitmaps;
+        paint = new Paint();
+        paint.setStyle(Paint.Style.FILL);
+        textPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG | Paint.FAKE_BOLD_TEXT_FLAG);
+        textPaint.setColor(0xff000000);
+    }
+
+    //每帧绘制前设置当前的Canvas
+    public void setCanvas(Canvas canvas){
+        this.canvas = canvas;
+    }
+
+    //TextPaint默认的字体大小，未乘以density
+    public float getDefaultTextSize(){
+        return textPaint.getTextSize();
+    }
+
+    @Override
+    public int getWidth() {
+        return canvas.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return canvas.getHeight();
+    }
+
+    @Override
+    public void drawTexture(Texture texture, int srcLeft, int srcTop, int srcRight, int srcBottom,
+                            float dstLeft, float dstTop, float dstRight, float dstBottom) {
+        Bitmap bitmap = bitmaps.get(texture.getId()).get();
+        if(bitmap == null){
+            return;
+        }
+        srcRect.set(srcLeft, srcTop, srcRight, srcBottom);
+        dstRectF.set(dstLeft, dstTop, dstRight, dstBottom);
+        canvas.drawBitmap(bitmap, srcRect, dstRectF, paint);
+    }
+
+    @Override
+    public void drawTexture(Texture texture, float left, float top) {
+        Bitmap bitmap = bitmaps.get(texture.getId()).get();
+        if(bitmap != null){
+            canvas.drawBitmap(bitmap, left, top, paint);
+        }
+    }
+
+    @Override
+    public void fillRect(float left, float top, float right, float bottom, int color) {
+        paint.setStyle(Paint.Style.FILL);
+        paint.setColor(color);
+        canvas.drawRect(left, top, right, bottom, paint);
+    }
+
+    @Override
+    public void strokeRect(float left, float top, float right, float bottom, int color, float strokeWidth) {
+        setStroke(color, strokeWidth);
+        canvas.drawRect(left, top, right, bottom, paint);
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, int color, float strokeWidth) {
+        setStroke(color, strokeWidth);
+        canvas.drawLine(startX, startY, stopX, stopY, paint);
+    }
+
+    private void setStroke(int color, float strokeWidth){
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setColor(color);
+        paint.setStrokeWidth(strokeWidth);
+        paint.setStrokeJoin(Paint.Join.ROUND);
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, float textSize, int color, int align) {
+        textPaint.setTextSize(textSize);
+        textPaint.setColor(color);
+        if(align == ALIGN_CENTER){
+            textPaint.setTextAlign(Paint.Align.CENTER);
+        }else if(align == ALIGN_RIGHT){
+            textPaint.setTextAlign(Paint.Align.RIGHT);
+        }else{
+            textPaint.setTextAlign(Paint.Align.LEFT);
+        }
+        canvas.drawText(text, x, y, textPaint);
+    }
+
+    @Override
+    public void drawPoints(float[] points, int count, float size, int color) {
+        setStroke(color, size);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        canvas.drawPoints(points, 0, count * 2, paint);
+        paint.setStrokeCap(Paint.Cap.BUTT);
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+        canvas.translate(dx, dy);
+    }
+
+    @Override
+    public void save() {
+        canvas.save();
+    }
+
+    @Override
+    public void restore() {
+        canvas.restore();
+    }
+}
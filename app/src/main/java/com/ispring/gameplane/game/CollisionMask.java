@@ -0,0 +1,221 @@
+package com.ispring.gameplane.game;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 像素级碰撞的位掩码，在加载图片时由alpha通道生成一次
+ * 每行按64个像素一组打包到long中，第x个像素对应该行第x/64个long的第x%64位，不透明的像素为1
+ * 两个Sprite的外框相交后，再将两者重叠区域内的行逐个取出64位做AND，结果不为0即像素相交，
+ * 这样透明的边角（如big.png的四角）不会再判定为碰撞，而每次比较处理64个像素
+ */
+public class CollisionMask {
+
+    //alpha大于该值的像素视为不透明
+    public static final int DEFAULT_ALPHA_THRESHOLD = 64;
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] bits;
+
+    public CollisionMask(int width, int height){
+        this.width = width;
+        this.height = height;
+        wordsPerRow = (width + 63) >>> 6;
+        bits = new long[wordsPerRow * height];
+    }
+
+    public int getWidth(){
+        return width;
+    }
+
+    public int getHeight(){
+        return height;
+    }
+
+    public void set(int x, int y){
+        bits[y * wordsPerRow + (x >>> 6)] |= 1L << (x & 63);
+    }
+
+    public boolean get(int x, int y){
+        return (bits[y * wordsPerRow + (x >>> 6)] & (1L << (x & 63))) != 0;
+    }
+
+    /*-------------------------------building-------------------------------------*/
+
+    /*
+     * 由ARGB像素生成width x height的掩码，尺寸不同时按最近邻采样
+     * 设备上由Bitmap.getPixels得到的像素已经按density缩放，尺寸相同；
+     * 无设备运行时由res/drawable中原始尺寸的图片缩放到纹理尺寸
+     */
+    public static CollisionMask fromArgb(int[] argb, int srcWidth, int srcHeight, int width, int height, int alphaThreshold){
+        CollisionMask mask = new CollisionMask(width, height);
+        for(int y = 0; y < height; y++){
+            int srcY = y * srcHeight / height;
+            for(int x = 0; x < width; x++){
+                int srcX = x * srcWidth / width;
+                if((argb[srcY * srcWidth + srcX] >>> 24) > alphaThreshold){
+                    mask.set(x, y);
+                }
+            }
+        }
+        return mask;
+    }
+
+    //从8位RGBA、非隔行扫描的PNG中读取alpha通道并生成掩码，res/drawable中的图片都是这种格式
+    public static CollisionMask fromPng(InputStream in, int width, int height, int alphaThreshold) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] signature = new byte[8];
+        data.readFully(signature);
+        int pngWidth = 0;
+        int pngHeight = 0;
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        while(true){
+            int length = data.readInt();
+            byte[] type = new byte[4];
+            data.readFully(type);
+            byte[] chunk = new byte[length];
+            data.readFully(chunk);
+            data.readInt();//crc
+            String chunkType = new String(type, "US-ASCII");
+            if("IHDR".equals(chunkType)){
+                pngWidth = readInt(chunk, 0);
+                pngHeight = readInt(chunk, 4);
+                if(chunk[8] != 8 || chunk[9] != 6 || chunk[12] != 0){
+                    throw new IOException("only 8-bit non-interlaced RGBA PNG is supported");
+                }
+            }else if("IDAT".equals(chunkType)){
+                compressed.write(chunk);
+            }else if("IEND".equals(chunkType)){
+                break;
+            }
+        }
+        int stride = pngWidth * 4;
+        byte[] raw = new byte[(stride + 1) * pngHeight];
+        Inflater inflater = new Inflater();
+        try{
+            inflater.setInput(compressed.toByteArray());
+            int offset = 0;
+            while(offset < raw.length && !inflater.finished()){
+                int n = inflater.inflate(raw, offset, raw.length - offset);
+                if(n == 0 && inflater.needsInput()){
+                    break;
+                }
+                offset += n;
+            }
+        }catch (DataFormatException e){
+            throw new IOException(e.getMessage());
+        }finally {
+            inflater.end();
+        }
+        int[] argb = new int[pngWidth * pngHeight];
+        byte[] previous = new byte[stride];
+        byte[] current = new byte[stride];
+        for(int y = 0; y < pngHeight; y++){
+            int filter = raw[y * (stride + 1)];
+            System.arraycopy(raw, y * (stride + 1) + 1, current, 0, stride);
+            unfilter(filter, current, previous);
+            for(int x = 0; x < pngWidth; x++){
+                argb[y * pngWidth + x] = (current[x * 4 + 3] & 0xff) << 24;
+            }
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return fromArgb(argb, pngWidth, pngHeight, width, height, alphaThreshold);
+    }
+
+    private static int readInt(byte[] b, int offset){
+        return ((b[offset] & 0xff) << 24) | ((b[offset + 1] & 0xff) << 16) | ((b[offset + 2] & 0xff) << 8) | (b[offset + 3] & 0xff);
+    }
+
+    //还原PNG的行过滤，每个像素4字节
+    private static void unfilter(int filter, byte[] line, byte[] previous){
+        for(int i = 0; i < line.length; i++){
+            int a = i >= 4 ? line[i - 4] & 0xff : 0;
+            int b = previous[i] & 0xff;
+            int c = i >= 4 ? previous[i - 4] & 0xff : 0;
+            int predictor;
+            if(filter == 1){
+                predictor = a;
+            }else if(filter == 2){
+                predictor = b;
+            }else if(filter == 3){
+                predictor = (a + b) >>> 1;
+            }else if(filter == 4){
+                int p = a + b - c;
+                int pa = Math.abs(p - a);
+                int pb = Math.abs(p - b);
+                int pc = Math.abs(p - c);
+                predictor = pa <= pb && pa <= pc ? a : (pb <= pc ? b : c);
+            }else{
+                predictor = 0;
+            }
+            line[i] = (byte)(line[i] + predictor);
+        }
+    }
+
+    /*-------------------------------testing-------------------------------------*/
+
+    //取出第y行从第x个像素开始的64个像素，超出宽度的部分为0
+    private long row64(int y, int x){
+        int base = y * wordsPerRow;
+        int word = x >>> 6;
+        int shift = x & 63;
+        long value = bits[base + word] >>> shift;
+        if(shift != 0 && word + 1 < wordsPerRow){
+            value |= bits[base + word + 1] << (64 - shift);
+        }
+        return value;
+    }
+
+    /*
+     * 掩码a位于(ax, ay)、掩码b位于(bx, by)时是否有不透明的像素重叠
+     * 只遍历两者外框的重叠区域，每行每次比较64个像素
+     */
+    public static boolean overlaps(CollisionMask a, int ax, int ay, CollisionMask b, int bx, int by){
+        int left = Math.max(ax, bx);
+        int top = Math.max(ay, by);
+        int right = Math.min(ax + a.width, bx + b.width);
+        int bottom = Math.min(ay + a.height, by + b.height);
+        if(left >= right || top >= bottom){
+            return false;
+        }
+        for(int y = top; y < bottom; y++){
+            int ya = y - ay;
+            int yb = y - by;
+            for(int x = left; x < right; x += 64){
+                long overlap = a.row64(ya, x - ax) & b.row64(yb, x - bx);
+                int remaining = right - x;
+                if(remaining < 64){
+                    overlap &= (1L << remaining) - 1;
+                }
+                if(overlap != 0){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    //逐像素比较，与overlaps的结果相同，用于校验和性能对比
+    static boolean overlapsPerPixel(CollisionMask a, int ax, int ay, CollisionMask b, int bx, int by){
+        int left = Math.max(ax, bx);
+        int top = Math.max(ay, by);
+        int right = Math.min(ax + a.width, bx + b.width);
+        int bottom = Math.min(ay + a.height, by + b.height);
+        for(int y = top; y < bottom; y++){
+            for(int x = left; x < right; x++){
+                if(a.get(x - ax, y - ay) && b.get(x - bx, y - by)){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,205 @@
+package com.ispring.gameplane.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 碰撞系统，每帧由Game统一执行一次碰撞检测
+ * 每个Sprite通过getCollisionLayer声明自己所在的层，层与层之间是否需要检测由碰撞矩阵决定，
+ * 不会相互作用的层（如子弹与奖品、敌机与敌机）之间完全不做检测；
+ * 检测到碰撞后按层调用对应的回调，例如EnemyPlane.onBulletHit、CombatAircraft.onEnemyHit，
+ * 新增的实体类型只需声明层并在矩阵中登记，而不用再各自扫描一遍所有Sprite
+ * 外框相交后，纹理带有碰撞掩码（见CollisionMask）的Sprite再做像素级检测
+ */
+public class CollisionSystem {
+
+    //碰撞层
+    public static final int LAYER_NONE = -1;//不参与碰撞
+    public static final int LAYER_PLAYER = 0;//战斗机
+    public static final int LAYER_PLAYER_BULLET = 1;//战斗机的子弹
+    public static final int LAYER_ENEMY = 2;//敌机
+    public static final int LAYER_AWARD = 3;//奖品
+    public static final int LAYER_ENEMY_BULLET = 4;//敌机的子弹，存放在EnemyProjectiles中
+    public static final int LAYER_COUNT = 5;
+
+    //碰撞矩阵，masks[a]的第b位表示a层与b层需要检测，矩阵是对称的
+    private final int[] masks = new int[LAYER_COUNT];
+
+    //每帧按层分组的Sprite，列表被复用
+    private final List<List<Sprite>> layers = new ArrayList<List<Sprite>>();
+
+    private boolean pixelAccurate = true;//外框相交后是否再做像素级检测
+
+    //统计
+    private int pairTestCount = 0;//当前帧做过的碰撞检测次数
+    private int hitCount = 0;//当前帧的碰撞次数
+    private int maskTestCount = 0;//当前帧做过的像素级检测次数
+
+    public CollisionSystem(){
+        for(int i = 0; i < LAYER_COUNT; i++){
+            layers.add(new ArrayList<Sprite>());
+        }
+        enable(LAYER_PLAYER_BULLET, LAYER_ENEMY);
+        enable(LAYER_PLAYER, LAYER_ENEMY);
+        enable(LAYER_PLAYER, LAYER_AWARD);
+        enable(LAYER_PLAYER, LAYER_ENEMY_BULLET);
+    }
+
+    //在碰撞矩阵中登记a层与b层需要检测
+    public void enable(int a, int b){
+        masks[a] |= 1 << b;
+        masks[b] |= 1 << a;
+    }
+
+    public void disable(int a, int b){
+        masks[a] &= ~(1 << b);
+        masks[b] &= ~(1 << a);
+    }
+
+    public boolean isEnabled(int a, int b){
+        return (masks[a] & (1 << b)) != 0;
+    }
+
+    public void setPixelAccurate(boolean pixelAccurate){
+        this.pixelAccurate = pixelAccurate;
+    }
+
+    public boolean isPixelAccurate(){
+        return pixelAccurate;
+    }
+
+    //外框检测，通过后再按需做像素级检测
+    private boolean collide(Sprite a, Sprite b){
+        pairTestCount++;
+        if(!a.isCollideWith(b)){
+            return false;
+        }
+        if(!pixelAccurate || a.getCollisionMask() == null || b.getCollisionMask() == null){
+            return true;
+        }
+        maskTestCount++;
+        return a.isPixelCollideWith(b);
+    }
+
+    //对game中的Sprite和战斗机执行一次碰撞检测
+    public void update(Game game){
+        pairTestCount = 0;
+        hitCount = 0;
+        maskTestCount = 0;
+        for(int i = 0; i < LAYER_COUNT; i++){
+            layers.get(i).clear();
+        }
+        List<Sprite> sprites = game.getSprites();
+        for(int i = 0, size = sprites.size(); i < size; i++){
+            add(sprites.get(i));
+        }
+        CombatAircraft combatAircraft = game.getCombatAircraft();
+        if(combatAircraft != null){
+            add(combatAircraft);
+        }
+
+        //按矩阵检测每一对需要检测的层，子弹先于战斗机处理，与原来的绘制顺序一致
+        if(isEnabled(LAYER_PLAYER_BULLET, LAYER_ENEMY)){
+            collideBulletsWithEnemies(game, layers.get(LAYER_PLAYER_BULLET), layers.get(LAYER_ENEMY));
+        }
+        List<Sprite> players = layers.get(LAYER_PLAYER);
+        for(int i = 0, size = players.size(); i < size; i++){
+            CombatAircraft player = (CombatAircraft)players.get(i);
+            if(isEnabled(LAYER_PLAYER, LAYER_ENEMY)){
+                collidePlayerWithEnemies(game, player, layers.get(LAYER_ENEMY));
+            }
+            if(isEnabled(LAYER_PLAYER, LAYER_ENEMY_BULLET)){
+                collidePlayerWithProjectiles(game, player, game.getEnemyProjectiles());
+            }
+            if(isEnabled(LAYER_PLAYER, LAYER_AWARD)){
+                collidePlayerWithAwards(game, player, layers.get(LAYER_AWARD));
+            }
+        }
+    }
+
+    private void add(Sprite s){
+        if(s.isDestroyed()){
+            return;
+        }
+        int layer = s.getCollisionLayer();
+        //与任何层都不需要检测的Sprite不参与分组
+        if(layer != LAYER_NONE && masks[layer] != 0){
+            layers.get(layer).add(s);
+        }
+    }
+
+    private void collideBulletsWithEnemies(Game game, List<Sprite> bullets, List<Sprite> enemies){
+        for(int i = 0, enemyCount = enemies.size(); i < enemyCount; i++){
+            EnemyPlane enemy = (EnemyPlane)enemies.get(i);
+            for(int j = 0, bulletCount = bullets.size(); j < bulletCount; j++){
+                Bullet bullet = (Bullet)bullets.get(j);
+                if(bullet.isDestroyed()){
+                    continue;
+                }
+                if(collide(enemy, bullet)){
+                    if(enemy.onBulletHit(game, bullet)){
+                        hitCount++;
+                    }
+                    if(enemy.isDestroyed()){
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void collidePlayerWithEnemies(Game game, CombatAircraft player, List<Sprite> enemies){
+        for(int i = 0, size = enemies.size(); i < size; i++){
+            EnemyPlane enemy = (EnemyPlane)enemies.get(i);
+            if(enemy.isDestroyed()){
+                continue;
+            }
+            if(collide(player, enemy)){
+                hitCount++;
+                player.onEnemyHit(game, enemy);
+                return;
+            }
+        }
+    }
+
+    private void collidePlayerWithProjectiles(Game game, CombatAircraft player, EnemyProjectiles projectiles){
+        if(player.getCollisionLayer() == LAYER_NONE){
+            return;
+        }
+        pairTestCount += projectiles.getCount();
+        float w = player.getWidth();
+        float h = player.getHeight();
+        //只用机身中部作为判定区域
+        if(projectiles.hitTest(player.getX() + w * 0.3f, player.getY() + h * 0.2f,
+                player.getRight() - w * 0.3f, player.getBottom() - h * 0.3f)){
+            hitCount++;
+            player.onProjectileHit(game);
+        }
+    }
+
+    private void collidePlayerWithAwards(Game game, CombatAircraft player, List<Sprite> awards){
+        for(int i = 0, size = awards.size(); i < size; i++){
+            Award award = (Award)awards.get(i);
+            //战斗机在同一帧中被击中后不再拾取奖品
+            if(award.isDestroyed() || player.getCollisionLayer() == LAYER_NONE){
+                continue;
+            }
+            if(collide(player, award)){
+                hitCount++;
+                player.onAwardHit(game, award);
+            }
+        }
+    }
+
+    public int getPairTestCount(){
+        return pairTestCount;
+    }
+
+    public int getMaskTestCount(){
+        return maskTestCount;
+    }
+
+    public int getHitCount(){
+        return hitCount;
+    }
+}
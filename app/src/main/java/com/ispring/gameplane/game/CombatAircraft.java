@@ -1,11 +1,5 @@
 package com.ispring.gameplane.game;
 
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Paint;
-import android.graphics.Point;
-import android.graphics.RectF;
-
 import java.util.List;
 
 /**
@@ -15,55 +9,79 @@ public class CombatAircraft extends Sprite {
     private boolean collide = false;//标识战斗机是否被击中
     private int bombAwardCount = 0;//可使用的炸弹数
 
+    public static final long FIRE_INTERVAL_NANOS = 7 * Game.FRAME_NANOS;//每隔7帧发射子弹
+
     //双发子弹相关
     private boolean single = true;//标识是否发的是单一的子弹
-    private int doubleTime = 0;//当前已经用双子弹绘制的次数
-    private int maxDoubleTime = 140;//使用双子弹最多绘制的次数
+    public static final long DOUBLE_BULLET_NANOS = 140 * FIRE_INTERVAL_NANOS;//双发子弹持续的时间，即发射140次
 
     //被撞击后闪烁相关
-    private long beginFlushFrame = 0;//要在第beginFlushFrame帧开始闪烁战斗机
     private int flushTime = 0;//已经闪烁的次数
-    private int flushFrequency = 16;//在闪烁的时候，每隔16帧转变战斗机的可见性
+    public static final long FLUSH_INTERVAL_NANOS = 16 * Game.FRAME_NANOS;//在闪烁的时候，每隔16帧转变战斗机的可见性
     private int maxFlushTime = 10;//最大闪烁次数
 
-    public CombatAircraft(Bitmap bitmap){
-        super(bitmap);
+    //定时器所在的游戏，见startFiring
+    private Game game = null;
+
+    private final TimerWheel.Timer fireTimer = new TimerWheel.Timer() {
+        @Override
+        protected void onTimer() {
+            fight(game);
+        }
+    };
+
+    private final TimerWheel.Timer doubleBulletTimer = new TimerWheel.Timer() {
+        @Override
+        protected void onTimer() {
+            single = true;
+        }
+    };
+
+    private final TimerWheel.Timer flushTimer = new TimerWheel.Timer() {
+        @Override
+        protected void onTimer() {
+            flush();
+        }
+    };
+
+    public CombatAircraft(Texture texture){
+        super(texture);
+    }
+
+    //游戏开始时调用，之后由game的定时器每隔FIRE_INTERVAL_NANOS发射子弹
+    public void startFiring(Game game){
+        this.game = game;
+        game.schedulePeriodic(fireTimer, FIRE_INTERVAL_NANOS, FIRE_INTERVAL_NANOS);
     }
 
     @Override
-    protected void beforeDraw(Canvas canvas, Paint paint, GameView gameView) {
+    protected void beforeDraw(Renderer renderer, Game game) {
         if(!isDestroyed()){
-            //确保战斗机完全位于Canvas范围内
-            validatePosition(canvas);
-
-            //每隔7帧发射子弹
-            if(getFrame() % 7 == 0){
-                fight(gameView);
-            }
+            //确保战斗机完全位于绘制区域范围内
+            validatePosition(renderer);
         }
     }
 
-    //确保战斗机完全位于Canvas范围内
-    private void validatePosition(Canvas canvas){
+    //确保战斗机完全位于绘制区域范围内
+    private void validatePosition(Renderer renderer){
         if(getX() < 0){
             setX(0);
         }
         if(getY() < 0){
             setY(0);
         }
-        RectF rectF = getRectF();
-        int canvasWidth = canvas.getWidth();
-        if(rectF.right > canvasWidth){
+        int canvasWidth = renderer.getWidth();
+        if(getRight() > canvasWidth){
             setX(canvasWidth - getWidth());
         }
-        int canvasHeight = canvas.getHeight();
-        if(rectF.bottom > canvasHeight){
+        int canvasHeight = renderer.getHeight();
+        if(getBottom() > canvasHeight){
             setY(canvasHeight - getHeight());
         }
     }
 
     //发射子弹
-    public void fight(GameView gameView){
+    public void fight(Game game){
         //如果战斗机被撞击了或销毁了，那么不会发射子弹
         if(collide || isDestroyed()){
             return;
@@ -73,112 +91,105 @@ public class CombatAircraft extends Sprite {
         float y = getY() - 5;
         if(single){
             //单发模式下发射单发黄色子弹
-            Bitmap yellowBulletBitmap = gameView.getYellowBulletBitmap();
-            Bullet yellowBullet = new Bullet(yellowBulletBitmap);
+            Texture yellowBulletTexture = game.getYellowBulletTexture();
+            Bullet yellowBullet = game.obtainBullet(yellowBulletTexture);
             yellowBullet.moveTo(x, y);
-            gameView.addSprite(yellowBullet);
+            game.addSprite(yellowBullet);
+            game.getEvents().publish(GameEvents.TYPE_PLAYER_FIRED, 1, 0, x, y);
         }
         else{
             //双发模式下发射两发蓝色子弹
             float offset = getWidth() / 4;
             float leftX = x - offset;
             float rightX = x + offset;
-            Bitmap blueBulletBitmap = gameView.getBlueBulletBitmap();
+            Texture blueBulletTexture = game.getBlueBulletTexture();
 
-            Bullet leftBlueBullet = new Bullet(blueBulletBitmap);
+            Bullet leftBlueBullet = game.obtainBullet(blueBulletTexture);
             leftBlueBullet.moveTo(leftX, y);
-            gameView.addSprite(leftBlueBullet);
+            game.addSprite(leftBlueBullet);
 
-            Bullet rightBlueBullet = new Bullet(blueBulletBitmap);
+            Bullet rightBlueBullet = game.obtainBullet(blueBulletTexture);
             rightBlueBullet.moveTo(rightX, y);
-            gameView.addSprite(rightBlueBullet);
-
-            doubleTime++;
-            if(doubleTime >= maxDoubleTime){
-                single = true;
-                doubleTime = 0;
-            }
+            game.addSprite(rightBlueBullet);
+            game.getEvents().publish(GameEvents.TYPE_PLAYER_FIRED, 2, 0, x, y);
         }
     }
 
-    //战斗机如果被击中，执行爆炸效果
-    //具体来说，首先隐藏战斗机，然后创建爆炸效果，爆炸用28帧渲染完成
-    //爆炸效果完全渲染完成后，爆炸效果消失
-    //然后战斗机会进入闪烁模式，战斗机闪烁一定次数后销毁
-    protected void afterDraw(Canvas canvas, Paint paint, GameView gameView){
+    //被击中后的闪烁，每隔FLUSH_INTERVAL_NANOS转变一次可见性，闪烁maxFlushTime次后销毁战斗机
+    private void flush(){
         if(isDestroyed()){
             return;
         }
-
-        //在飞机当前还没有被击中时，要判断是否将要被敌机击中
-        if(!collide){
-            List<EnemyPlane> enemies = gameView.getAliveEnemyPlanes();
-            for(EnemyPlane enemyPlane : enemies){
-                Point p = getCollidePointWithOther(enemyPlane);
-                if(p != null){
-                    //p为战斗机与敌机的碰撞点，如果p不为null，则表明战斗机被敌机击中
-                    explode(gameView);
-                    break;
-                }
-            }
+        boolean visible = getVisibility();
+        setVisibility(!visible);
+        flushTime++;
+        if(flushTime >= maxFlushTime){
+            //如果战斗机闪烁的次数超过了最大的闪烁次数，那么销毁战斗机
+            destroy();
+            game.getEvents().publish(GameEvents.TYPE_GAME_OVER, 0, game.getScore(), this);
         }
+    }
 
-        //beginFlushFrame初始值为0，表示没有进入闪烁模式
-        //如果beginFlushFrame大于0，表示要在第如果beginFlushFrame帧进入闪烁模式
-        if(beginFlushFrame > 0){
-            long frame = getFrame();
-            //如果当前帧数大于等于beginFlushFrame，才表示战斗机进入销毁前的闪烁状态
-            if(frame >= beginFlushFrame){
-                if((frame - beginFlushFrame) % flushFrequency == 0){
-                    boolean visible = getVisibility();
-                    setVisibility(!visible);
-                    flushTime++;
-                    if(flushTime >= maxFlushTime){
-                        //如果战斗机闪烁的次数超过了最大的闪烁次数，那么销毁战斗机
-                        destroy();
-                        //Game.gameOver();
-                    }
-                }
-            }
-        }
+    //销毁后不再发射子弹和闪烁
+    @Override
+    public void destroy() {
+        super.destroy();
+        fireTimer.cancel();
+        doubleBulletTimer.cancel();
+        flushTimer.cancel();
+    }
 
-        //在没有被击中的情况下检查是否获得了道具
-        if(!collide){
-            //检查是否获得炸弹道具
-            List<BombAward> bombAwards = gameView.getAliveBombAwards();
-            for(BombAward bombAward : bombAwards){
-                Point p = getCollidePointWithOther(bombAward);
-                if(p != null){
-                    bombAwardCount++;
-                    bombAward.destroy();
-                    //Game.receiveBombAward();
-                }
-            }
+    //被击中或已销毁后不再参与碰撞
+    @Override
+    public int getCollisionLayer() {
+        return collide || isDestroyed() ? CollisionSystem.LAYER_NONE : CollisionSystem.LAYER_PLAYER;
+    }
 
-            //检查是否获得子弹道具
-            List<BulletAward> bulletAwards = gameView.getAliveBulletAwards();
-            for(BulletAward bulletAward : bulletAwards){
-                Point p = getCollidePointWithOther(bulletAward);
-                if(p != null){
-                    bulletAward.destroy();
-                    single = false;
-                    doubleTime = 0;
-                }
-            }
-        }
+    //战斗机与敌机相交，表明战斗机被敌机击中
+    public void onEnemyHit(Game game, EnemyPlane enemyPlane){
+        explode(game);
     }
 
-    //战斗机爆炸
-    private void explode(GameView gameView){
+    //被敌机的子弹击中
+    public void onProjectileHit(Game game){
+        explode(game);
+    }
+
+    //获得道具
+    public void onAwardHit(Game game, Award award){
+        award.destroy();
+        award.onPickedUp(game, this);
+    }
+
+    //获得炸弹道具
+    public void addBomb(){
+        bombAwardCount++;
+    }
+
+    //获得子弹道具，开始发射双发子弹，在game的定时器上持续DOUBLE_BULLET_NANOS，期间再次获得时重新计时
+    //到期的定时器与道具所在的game一起安排，不依赖startFiring是否已经调用
+    public void startDoubleBullet(Game game){
+        single = false;
+        game.schedule(doubleBulletTimer, DOUBLE_BULLET_NANOS);
+    }
+
+    //战斗机如果被击中，执行爆炸效果
+    //具体来说，首先隐藏战斗机，然后创建爆炸效果，爆炸用28帧渲染完成
+    //爆炸效果完全渲染完成后，爆炸效果消失
+    //然后战斗机会进入闪烁模式，战斗机闪烁一定次数后销毁
+    private void explode(Game game){
         if(!collide){
             collide = true;
             setVisibility(false);
             float centerX = getX() + getWidth() / 2;
             float centerY = getY() + getHeight() / 2;
-            Explosion explosion = new Explosion(gameView.getExplosionBitmap());
+            Explosion explosion = game.obtainExplosion();
             explosion.centerTo(centerX, centerY);
-            gameView.addSprite(explosion);
-            beginFlushFrame = getFrame() + explosion.getExplodeDurationFrame();
+            game.addSprite(explosion);
+            game.getEvents().publish(GameEvents.TYPE_PLAYER_HIT, 0, 0, centerX, centerY);
+            //在爆炸效果的最后一帧之前开始闪烁，与原来按战斗机的帧数计时相同：
+            //碰撞检测在战斗机本帧计数之前，所以从爆炸到开始闪烁经过爆炸时长减一帧
+            game.schedulePeriodic(flushTimer, explosion.getDurationNanos() - Game.FRAME_NANOS, FLUSH_INTERVAL_NANOS);
         }
     }
 
@@ -188,20 +199,28 @@ public class CombatAircraft extends Sprite {
     }
 
     //战斗机使用炸弹
-    public void bomb(GameView gameView){
+    public void bomb(Game game){
         if(collide || isDestroyed()){
             return;
         }
 
         if(bombAwardCount > 0){
-            List<EnemyPlane> enemyPlanes = gameView.getAliveEnemyPlanes();
+            List<EnemyPlane> enemyPlanes = game.getAliveEnemyPlanes();
             for(EnemyPlane enemyPlane : enemyPlanes){
-                enemyPlane.explode(gameView);
+                enemyPlane.onBomb(game);
             }
+            //炸弹同时清除敌机的子弹
+            game.getEnemyProjectiles().clear();
             bombAwardCount--;
+            game.getEvents().publish(GameEvents.TYPE_BOMB_USED, enemyPlanes.size(), 0, this);
         }
     }
 
+    //是否发射单发子弹，获得子弹道具后的一段时间内为双发
+    public boolean isSingle(){
+        return single;
+    }
+
     public boolean isCollide(){
         return collide;
     }
@@ -1,26 +1,27 @@
 package com.ispring.gameplane.game;
 
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Paint;
-import android.graphics.Point;
-
-import java.util.List;
-
 /**
- * 敌机类，从上向下沿直线运动
+ * 敌机类，从上向下沿直线运动，可以按设置的方式发射子弹
  */
 public class EnemyPlane extends AutoSprite {
 
     private int power = 1;//敌机的抗打击能力
+    private int maxPower = 1;//敌机初始的抗打击能力，复用时恢复
     private int value = 0;//打一个敌机的得分
+    private int type = WaveTimeline.TYPE_SMALL;//敌机的类型，用于GameEvents
 
-    public EnemyPlane(Bitmap bitmap){
-        super(bitmap);
+    //发射子弹相关，见EnemyProjectiles
+    private int firePattern = EnemyProjectiles.PATTERN_NONE;//发射方式
+    private int fireInterval = 0;//每隔多少帧发射一次
+    private int fireAngle = 0;//螺旋发射的当前角度
+
+    public EnemyPlane(Texture texture){
+        super(texture);
     }
 
     public void setPower(int power){
         this.power = power;
+        this.maxPower = power;
     }
 
     public int getPower(){
@@ -35,44 +36,98 @@ public class EnemyPlane extends AutoSprite {
         return value;
     }
 
+    public void setType(int type){
+        this.type = type;
+    }
+
+    public int getType(){
+        return type;
+    }
+
+    public void setFirePattern(int firePattern, int fireInterval){
+        this.firePattern = firePattern;
+        this.fireInterval = fireInterval;
+    }
+
+    public int getFirePattern(){
+        return firePattern;
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        power = maxPower;
+        fireAngle = 0;
+    }
+
     @Override
-    protected void afterDraw(Canvas canvas, Paint paint, GameView gameView) {
-        super.afterDraw(canvas, paint, gameView);
-
-        //绘制完成后要检查自身是否被子弹打中
-        if(!isDestroyed()){
-            //敌机在绘制完成后要判断是否被子弹打中
-
-            List<Bullet> bullets = gameView.getAliveBullets();
-            for(Bullet bullet : bullets){
-                //判断敌机是否与子弹相交
-                Point p = getCollidePointWithOther(bullet);
-                if(p != null){
-                    //如果有交点，说明子弹打到了飞机上
-                    bullet.destroy();
-                    power--;
-                    if(power <= 0){
-                        //敌机已经没有能量了，执行爆炸效果
-                        explode(gameView);
-                        return;
-                    }
-                }
+    protected void beforeDraw(Renderer renderer, Game game) {
+        super.beforeDraw(renderer, game);
+        //进入屏幕后才开始发射子弹
+        if(!isDestroyed() && firePattern != EnemyProjectiles.PATTERN_NONE && getY() > 0
+                && getFrame() % fireInterval == 0){
+            fire(game);
+        }
+    }
+
+    //按firePattern从机头发射子弹
+    protected void fire(Game game){
+        EnemyProjectiles projectiles = game.getEnemyProjectiles();
+        float x = getX() + getWidth() / 2;
+        float y = getBottom();
+        if(firePattern == EnemyProjectiles.PATTERN_AIMED){
+            CombatAircraft combatAircraft = game.getCombatAircraft();
+            if(combatAircraft != null && !combatAircraft.isCollide()){
+                float targetX = combatAircraft.getX() + combatAircraft.getWidth() / 2;
+                float targetY = combatAircraft.getY() + combatAircraft.getHeight() / 2;
+                projectiles.fireAimed(x, y, targetX, targetY, 4, 3, 8);
             }
+        }else if(firePattern == EnemyProjectiles.PATTERN_RADIAL){
+            projectiles.fireRadial(x, getY() + getHeight() / 2, 0, 3, 16);
+        }else if(firePattern == EnemyProjectiles.PATTERN_SPIRAL){
+            projectiles.fireRadial(x, getY() + getHeight() / 2, fireAngle, 3, 4);
+            fireAngle += 9;
+        }
+    }
+
+    @Override
+    public int getCollisionLayer() {
+        return CollisionSystem.LAYER_ENEMY;
+    }
+
+    @Override
+    public int getBudgetCategory() {
+        return EntityBudget.CATEGORY_ENEMY;
+    }
+
+    //被子弹打中，由CollisionSystem在敌机与子弹相交时调用，返回子弹是否被消耗
+    public boolean onBulletHit(Game game, Bullet bullet){
+        bullet.destroy();
+        power--;
+        if(power <= 0){
+            //敌机已经没有能量了，执行爆炸效果
+            explode(game);
         }
+        return true;
+    }
+
+    //被战斗机的炸弹击中，普通敌机直接爆炸
+    public void onBomb(Game game){
+        explode(game);
     }
 
     //创建爆炸效果后会销毁敌机
-    public void explode(GameView gameView){
+    public void explode(Game game){
         //创建爆炸效果
         float centerX = getX() + getWidth() / 2;
         float centerY = getY() + getHeight() / 2;
-        Bitmap bitmap = gameView.getExplosionBitmap();
-        Explosion explosion = new Explosion(bitmap);
+        Explosion explosion = game.obtainExplosion();
         explosion.centerTo(centerX, centerY);
-        gameView.addSprite(explosion);
+        game.addSprite(explosion);
 
-        //创建爆炸效果完成后，向GameView中添加得分并销毁敌机
-        gameView.addScore(value);
+        //创建爆炸效果完成后，向Game中添加得分并销毁敌机
+        game.addScore(value);
+        game.getEvents().publish(GameEvents.TYPE_ENEMY_KILLED, type, value, this);
         destroy();
     }
 }
\ No newline at end of file
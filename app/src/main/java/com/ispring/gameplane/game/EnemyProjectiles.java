@@ -0,0 +1,188 @@
+package com.ispring.gameplane.game;
+
+/**
+ * 敌机发射的子弹，数量可以达到上千颗，所以不作为Sprite，而是统一存放在数组中
+ * 每颗子弹只有位置和速度，按x、y交替存放在positions和velocities中（结构体数组拆成数组），
+ * 每帧由update统一移动，由draw通过一次Renderer.drawPoints批量绘制，
+ * 离开屏幕的子弹与最后一颗交换后删除，数组本身就是对象池，游戏过程中不分配内存
+ * 发射方向使用预先计算的正弦表，每颗子弹不做三角函数运算
+ */
+public class EnemyProjectiles {
+
+    //发射方式
+    public static final int PATTERN_NONE = 0;
+    public static final int PATTERN_AIMED = 1;//朝战斗机发射扇形子弹
+    public static final int PATTERN_RADIAL = 2;//向四周发射一圈子弹
+    public static final int PATTERN_SPIRAL = 3;//每次发射的角度不断旋转，形成螺旋
+
+    //一周分为ANGLE_STEPS个方向
+    public static final int ANGLE_STEPS = 256;
+    private static final float[] SIN = new float[ANGLE_STEPS];
+    private static final float[] COS = new float[ANGLE_STEPS];
+
+    static {
+        for(int i = 0; i < ANGLE_STEPS; i++){
+            double angle = 2 * Math.PI * i / ANGLE_STEPS;
+            SIN[i] = (float)Math.sin(angle);
+            COS[i] = (float)Math.cos(angle);
+        }
+    }
+
+    static final int DEFAULT_CAPACITY = 2048;
+    static final int COLOR = 0xffff5030;
+    static final float RADIUS = 3;//子弹半径(dp)
+
+    private final float density;
+    private final float radius;
+    private final float[] positions;
+    private final float[] velocities;
+    private int count = 0;
+    private long droppedCount = 0;//数组已满时未能发射的子弹数
+
+    public EnemyProjectiles(float density){
+        this(density, DEFAULT_CAPACITY);
+    }
+
+    public EnemyProjectiles(float density, int capacity){
+        this.density = density;
+        this.radius = RADIUS * density;
+        positions = new float[capacity * 2];
+        velocities = new float[capacity * 2];
+    }
+
+    /*-------------------------------firing-------------------------------------*/
+
+    //发射一颗子弹，速度单位为dp/帧
+    public void fire(float x, float y, float vx, float vy){
+        if(count * 2 >= positions.length){
+            droppedCount++;
+            return;
+        }
+        int i = count * 2;
+        positions[i] = x;
+        positions[i + 1] = y;
+        velocities[i] = vx * density;
+        velocities[i + 1] = vy * density;
+        count++;
+    }
+
+    //沿ANGLE_STEPS中的第angle个方向发射，0为向右，ANGLE_STEPS/4为向下
+    public void fireAngle(float x, float y, int angle, float speed){
+        angle &= ANGLE_STEPS - 1;
+        fire(x, y, COS[angle] * speed, SIN[angle] * speed);
+    }
+
+    //朝(targetX, targetY)发射count颗子弹，相邻子弹相差spread个方向
+    public void fireAimed(float x, float y, float targetX, float targetY, float speed, int count, int spread){
+        //每次齐射只计算一次方向
+        int angle = toAngle(targetX - x, targetY - y);
+        int first = angle - spread * (count - 1) / 2;
+        for(int i = 0; i < count; i++){
+            fireAngle(x, y, first + i * spread, speed);
+        }
+    }
+
+    //从angle方向开始，向四周均匀发射count颗子弹
+    public void fireRadial(float x, float y, int angle, float speed, int count){
+        for(int i = 0; i < count; i++){
+            fireAngle(x, y, angle + i * ANGLE_STEPS / count, speed);
+        }
+    }
+
+    //将方向向量换算为ANGLE_STEPS中的方向
+    public static int toAngle(float dx, float dy){
+        double angle = Math.atan2(dy, dx);
+        return (int)Math.round(angle / (2 * Math.PI) * ANGLE_STEPS) & (ANGLE_STEPS - 1);
+    }
+
+    /*-------------------------------updating-------------------------------------*/
+
+    //移动所有子弹，并删除离开屏幕的子弹
+    public void update(int width, int height){
+        float[] p = positions;
+        float[] v = velocities;
+        float left = -radius;
+        float top = -radius;
+        float right = width + radius;
+        float bottom = height + radius;
+        int i = 0;
+        int n = count * 2;
+        while(i < n){
+            float x = p[i] + v[i];
+            float y = p[i + 1] + v[i + 1];
+            if(x < left || x > right || y < top || y > bottom){
+                //与最后一颗交换后删除，最后一颗在本次循环中仍会被移动
+                n -= 2;
+                p[i] = p[n];
+                p[i + 1] = p[n + 1];
+                v[i] = v[n];
+                v[i + 1] = v[n + 1];
+                continue;
+            }
+            p[i] = x;
+            p[i + 1] = y;
+            i += 2;
+        }
+        count = n / 2;
+    }
+
+    public void draw(Renderer renderer){
+        if(count > 0){
+            renderer.drawPoints(positions, count, radius * 2, COLOR);
+        }
+    }
+
+    //检查是否有子弹与矩形相交，有则删除该子弹并返回true
+    public boolean hitTest(float left, float top, float right, float bottom){
+        float[] p = positions;
+        //将矩形向外扩展子弹半径，子弹当作点处理
+        float l = left - radius;
+        float t = top - radius;
+        float r = right + radius;
+        float b = bottom + radius;
+        int n = count * 2;
+        for(int i = 0; i < n; i += 2){
+            float x = p[i];
+            float y = p[i + 1];
+            if(x > l && x < r && y > t && y < b){
+                remove(i / 2);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void remove(int index){
+        count--;
+        int i = index * 2;
+        int last = count * 2;
+        positions[i] = positions[last];
+        positions[i + 1] = positions[last + 1];
+        velocities[i] = velocities[last];
+        velocities[i + 1] = velocities[last + 1];
+    }
+
+    public void clear(){
+        count = 0;
+    }
+
+    public int getCount(){
+        return count;
+    }
+
+    public float getX(int index){
+        return positions[index * 2];
+    }
+
+    public float getY(int index){
+        return positions[index * 2 + 1];
+    }
+
+    public int getCapacity(){
+        return positions.length / 2;
+    }
+
+    public long getDroppedCount(){
+        return droppedCount;
+    }
+}
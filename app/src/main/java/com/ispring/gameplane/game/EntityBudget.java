@@ -0,0 +1,162 @@
+package com.ispring.gameplane.game;
+
+/**
+ * 同时存在的Sprite数量上限，按类型分别限制，另有一个总数上限
+ * 长时间发射双发子弹或连续使用炸弹时Sprite的数量不会无限增长，每帧的耗时和内存也就有了上限
+ * 超出上限时按类型处理（由Game执行）：
+ * 子弹达到上限时回收最旧的子弹；爆炸效果只是装饰，达到上限时直接丢弃新的爆炸；
+ * 敌机和奖品达到上限时推迟生成，等到有空位时再生成；
+ * 总数达到上限时先回收最旧的爆炸效果，其次是最旧的子弹，都没有时新的爆炸被丢弃、敌机和奖品推迟生成
+ * 每种处理发生的次数都有计数，用于确认上限是否合适
+ */
+public class EntityBudget {
+
+    //类型
+    public static final int CATEGORY_NONE = -1;//不受限制
+    public static final int CATEGORY_BULLET = 0;//战斗机的子弹
+    public static final int CATEGORY_EXPLOSION = 1;//爆炸效果
+    public static final int CATEGORY_ENEMY = 2;//敌机，包括首领
+    public static final int CATEGORY_AWARD = 3;//奖品
+    public static final int CATEGORY_COUNT = 4;
+
+    //默认上限，正常游戏中子弹不超过30颗，爆炸不超过几个
+    private static final int[] DEFAULT_LIMITS = {48, 16, 40, 4};
+    private static final int DEFAULT_TOTAL_LIMIT = 96;
+
+    private final int[] limits = new int[CATEGORY_COUNT];
+    private int totalLimit = DEFAULT_TOTAL_LIMIT;
+
+    //当前的数量，由Game在移除被销毁的Sprite时重新统计，添加和回收时增减
+    private final int[] counts = new int[CATEGORY_COUNT];
+    private int totalCount = 0;
+    private final int[] peakCounts = new int[CATEGORY_COUNT];
+    private int peakTotalCount = 0;
+
+    //统计
+    private final long[] limitHitCounts = new long[CATEGORY_COUNT];//各类型达到上限的次数
+    private long totalLimitHitCount = 0;//总数达到上限的次数
+    private long recycledBulletCount = 0;//为新的Sprite回收的子弹数
+    private long recycledExplosionCount = 0;//为新的Sprite回收的爆炸数
+    private long droppedExplosionCount = 0;//被丢弃的新爆炸数
+    private long deferredSpawnCount = 0;//敌机和奖品被推迟生成的次数
+
+    public EntityBudget(){
+        System.arraycopy(DEFAULT_LIMITS, 0, limits, 0, CATEGORY_COUNT);
+    }
+
+    public void setLimit(int category, int limit){
+        limits[category] = limit;
+    }
+
+    public int getLimit(int category){
+        return limits[category];
+    }
+
+    public void setTotalLimit(int totalLimit){
+        this.totalLimit = totalLimit;
+    }
+
+    public int getTotalLimit(){
+        return totalLimit;
+    }
+
+    /*-------------------------------counting-------------------------------------*/
+
+    //重新统计之前清零
+    void clearCounts(){
+        for(int i = 0; i < CATEGORY_COUNT; i++){
+            counts[i] = 0;
+        }
+        totalCount = 0;
+    }
+
+    void increase(int category){
+        counts[category]++;
+        totalCount++;
+        if(counts[category] > peakCounts[category]){
+            peakCounts[category] = counts[category];
+        }
+        if(totalCount > peakTotalCount){
+            peakTotalCount = totalCount;
+        }
+    }
+
+    void decrease(int category){
+        counts[category]--;
+        totalCount--;
+    }
+
+    public int getCount(int category){
+        return counts[category];
+    }
+
+    public int getTotalCount(){
+        return totalCount;
+    }
+
+    public int getPeakCount(int category){
+        return peakCounts[category];
+    }
+
+    public int getPeakTotalCount(){
+        return peakTotalCount;
+    }
+
+    boolean isFull(int category){
+        return counts[category] >= limits[category];
+    }
+
+    boolean isTotalFull(){
+        return totalCount >= totalLimit;
+    }
+
+    /*-------------------------------statistics-------------------------------------*/
+
+    void onLimitHit(int category){
+        limitHitCounts[category]++;
+    }
+
+    void onTotalLimitHit(){
+        totalLimitHitCount++;
+    }
+
+    void onRecycled(int category){
+        if(category == CATEGORY_BULLET){
+            recycledBulletCount++;
+        }else if(category == CATEGORY_EXPLOSION){
+            recycledExplosionCount++;
+        }
+    }
+
+    void onExplosionDropped(){
+        droppedExplosionCount++;
+    }
+
+    void onSpawnDeferred(){
+        deferredSpawnCount++;
+    }
+
+    public long getLimitHitCount(int category){
+        return limitHitCounts[category];
+    }
+
+    public long getTotalLimitHitCount(){
+        return totalLimitHitCount;
+    }
+
+    public long getRecycledBulletCount(){
+        return recycledBulletCount;
+    }
+
+    public long getRecycledExplosionCount(){
+        return recycledExplosionCount;
+    }
+
+    public long getDroppedExplosionCount(){
+        return droppedExplosionCount;
+    }
+
+    public long getDeferredSpawnCount(){
+        return deferredSpawnCount;
+    }
+}
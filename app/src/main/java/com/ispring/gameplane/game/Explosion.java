@@ -1,56 +1,67 @@
 package com.ispring.gameplane.game;
 
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Paint;
-import android.graphics.Rect;
-
 /**
  * 爆炸效果类，位置不可变，但是可以显示动态的爆炸效果
  */
 public class Explosion extends Sprite {
 
-    private int segment = 14;//爆炸效果由14个片段组成
-    private int level = 0;//最开始处于爆炸的第0片段
-    private int explodeFrequency = 2;//每个爆炸片段绘制2帧
+    public static final long SEGMENT_NANOS = 2 * Game.FRAME_NANOS;//每个爆炸片段显示2帧的时间
+
+    //绘制完所有的爆炸片段后销毁爆炸效果
+    private final TimerWheel.Timer destroyTimer = new TimerWheel.Timer() {
+        @Override
+        protected void onTimer() {
+            destroy();
+        }
+    };
+
+    //spriteSheet为爆炸效果的精灵图，由14个片段组成
+    public Explosion(SpriteSheet spriteSheet){
+        super(spriteSheet.getTexture());
+        setAnimation(new Animation(spriteSheet, SEGMENT_NANOS, Animation.MODE_ONE_SHOT));
+    }
 
-    public Explosion(Bitmap bitmap){
-        super(bitmap);
+    /*
+     * 在timers上安排播放完后销毁，nowNanos为当前的游戏时间
+     * 爆炸效果从下一次绘制开始播放，在第getDurationNanos()/FRAME_NANOS次绘制之后销毁
+     */
+    public void scheduleDestroy(TimerWheel timers, long nowNanos){
+        timers.scheduleAt(destroyTimer, nowNanos + getDurationNanos(), 0);
     }
 
+    //加入游戏时才安排销毁，从对象池取出而没有加入游戏的爆炸效果不会留下定时器
     @Override
-    public float getWidth() {
-        Bitmap bitmap = getBitmap();
-        if(bitmap != null){
-            return bitmap.getWidth() / segment;
-        }
-        return 0;
+    protected void onAdded(Game game) {
+        scheduleDestroy(game.getTimers(), game.getTimeNanos());
     }
 
+    //从对象池中复用时，之前的安排已经无效
     @Override
-    public Rect getBitmapSrcRec() {
-        Rect rect = super.getBitmapSrcRec();
-        int left = (int)(level * getWidth());
-        rect.offsetTo(left, 0);
-        return rect;
+    protected void onReset() {
+        super.onReset();
+        destroyTimer.cancel();
     }
 
+    //提前销毁（如超出数量上限或游戏结束）时不再需要定时器
     @Override
-    protected void afterDraw(Canvas canvas, Paint paint, GameView gameView) {
-        if(!isDestroyed()){
-            if(getFrame() % explodeFrequency == 0){
-                //level自加1，用于绘制下个爆炸片段
-                level++;
-                if(level >= segment){
-                    //当绘制完所有的爆炸片段后，销毁爆炸效果
-                    destroy();
-                }
-            }
-        }
+    public void destroy() {
+        super.destroy();
+        destroyTimer.cancel();
+    }
+
+    //爆炸效果只是装饰，数量超出上限时首先被丢弃
+    @Override
+    public int getBudgetCategory() {
+        return EntityBudget.CATEGORY_EXPLOSION;
+    }
+
+    //当前处于爆炸的第几个片段
+    public int getLevel(){
+        return getAnimation().getFrameIndex();
     }
 
-    //得到绘制完整爆炸效果需要的帧数，即28帧
-    public int getExplodeDurationFrame(){
-        return segment * explodeFrequency;
+    //绘制完整爆炸效果需要的时间，即28帧
+    public long getDurationNanos(){
+        return getAnimation().getDurationNanos();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,211 @@
+package com.ispring.gameplane.game;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+/**
+ * 帧调度器，由Choreographer的vsync时间戳驱动游戏帧
+ * 游戏逻辑固定以每秒60次的频率推进（原有的速度、帧数都是按60帧调好的），
+ * 在90Hz、120Hz等高刷新率屏幕上只会在部分vsync上推进逻辑，游戏不会因此变快
+ * API 16以下没有Choreographer，此时退化为按刷新周期postDelayed
+ */
+public class FrameScheduler {
+
+    private static final String TAG = "FrameScheduler";
+
+    //游戏逻辑每帧的时长，即1/60秒
+    public static final long TICK_NANOS = Game.FRAME_NANOS;
+
+    public interface Callback {
+        //frameTimeNanos为本次vsync的单调时间，ticks为本次vsync需要推进的逻辑帧数（0或1）
+        void onFrame(long frameTimeNanos, int ticks);
+    }
+
+    private final Callback callback;
+    private Handler handler = null;//低版本上postDelayed使用
+    private Object frameCallback = null;//Choreographer.FrameCallback，低版本上不存在该类，所以用Object保存
+    private Runnable fallbackRunnable = null;
+
+    private boolean running = false;
+    private long refreshPeriodNanos = TICK_NANOS;//屏幕刷新周期
+    private long lastFrameTimeNanos = -1;//上一次vsync的时间
+    private long accumulatorNanos = 0;//尚未被逻辑帧消耗的时间
+
+    //卡顿统计
+    private long frameCount = 0;//收到的vsync次数
+    private long tickCount = 0;//推进的逻辑帧数
+    private long jankFrameCount = 0;//发生过丢帧的vsync次数
+    private long missedVsyncCount = 0;//累计错过的vsync数
+    private long maxFrameIntervalNanos = 0;//最长的帧间隔
+
+    public FrameScheduler(Context context, Callback callback){
+        this(callback, getRefreshRate(context));
+    }
+
+    FrameScheduler(Callback callback, float refreshRate){
+        this.callback = callback;
+        setRefreshRate(refreshRate);
+    }
+
+    private static float getRefreshRate(Context context){
+        WindowManager windowManager = (WindowManager)context.getSystemService(Context.WINDOW_SERVICE);
+        if(windowManager != null && windowManager.getDefaultDisplay() != null){
+            return windowManager.getDefaultDisplay().getRefreshRate();
+        }
+        return 60;
+    }
+
+    public void setRefreshRate(float refreshRate){
+        if(refreshRate < 10){
+            refreshRate = 60;
+        }
+        refreshPeriodNanos = (long)(1000000000L / refreshRate);
+    }
+
+    public long getRefreshPeriodNanos(){
+        return refreshPeriodNanos;
+    }
+
+    public void start(){
+        if(running){
+            return;
+        }
+        running = true;
+        lastFrameTimeNanos = -1;
+        accumulatorNanos = 0;
+        postNextFrame();
+    }
+
+    public void stop(){
+        if(!running){
+            return;
+        }
+        running = false;
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN){
+            removeChoreographerCallback();
+        }else if(fallbackRunnable != null){
+            handler.removeCallbacks(fallbackRunnable);
+        }
+        if(jankFrameCount > 0){
+            Log.d(TAG, "frames=" + frameCount + " ticks=" + tickCount + " jankFrames=" + jankFrameCount
+                    + " missedVsyncs=" + missedVsyncCount + " maxIntervalMs=" + maxFrameIntervalNanos / 1000000f);
+        }
+    }
+
+    public boolean isRunning(){
+        return running;
+    }
+
+    private void postNextFrame(){
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN){
+            postChoreographerCallback();
+        }else{
+            if(fallbackRunnable == null){
+                handler = new Handler(Looper.getMainLooper());
+                fallbackRunnable = new Runnable() {
+                    @Override
+                    public void run() {
+                        doFrame(System.nanoTime());
+                    }
+                };
+            }
+            handler.postDelayed(fallbackRunnable, Math.max(1, refreshPeriodNanos / 1000000));
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postChoreographerCallback(){
+        if(frameCallback == null){
+            frameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    FrameScheduler.this.doFrame(frameTimeNanos);
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback)frameCallback);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void removeChoreographerCallback(){
+        if(frameCallback != null){
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback)frameCallback);
+        }
+    }
+
+    private void doFrame(long frameTimeNanos){
+        if(!running){
+            return;
+        }
+        int ticks = advance(frameTimeNanos);
+        callback.onFrame(frameTimeNanos, ticks);
+        if(running){
+            postNextFrame();
+        }
+    }
+
+    //收到一次vsync，更新卡顿统计，返回需要推进的逻辑帧数
+    int advance(long frameTimeNanos){
+        int ticks = 0;
+        if(lastFrameTimeNanos < 0){
+            //第一帧直接推进一次逻辑
+            ticks = 1;
+        }else{
+            long interval = frameTimeNanos - lastFrameTimeNanos;
+            frameCount++;
+            if(interval > maxFrameIntervalNanos){
+                maxFrameIntervalNanos = interval;
+            }
+            //帧间隔超过1.5个刷新周期，说明错过了vsync
+            if(interval * 2 > refreshPeriodNanos * 3){
+                jankFrameCount++;
+                missedVsyncCount += (interval + refreshPeriodNanos / 2) / refreshPeriodNanos - 1;
+            }
+            accumulatorNanos += interval;
+            //允许半个刷新周期的误差，这样60Hz屏幕上vsync的抖动不会导致漏掉逻辑帧，
+            //提前推进的部分使累计时间变为负数，由之后的vsync补上，所以长期的平均频率仍然是60次每秒
+            if(accumulatorNanos >= TICK_NANOS - refreshPeriodNanos / 2){
+                ticks = 1;
+                accumulatorNanos -= TICK_NANOS;
+                //剩余的时间留给下一次vsync；超过一个逻辑帧说明发生了卡顿或刚从后台恢复，
+                //此时不追帧，直接丢弃，否则下一帧只会更慢
+                if(accumulatorNanos > TICK_NANOS){
+                    accumulatorNanos = 0;
+                }
+            }
+        }
+        lastFrameTimeNanos = frameTimeNanos;
+        tickCount += ticks;
+        return ticks;
+    }
+
+    public long getFrameCount(){
+        return frameCount;
+    }
+
+    public long getTickCount(){
+        return tickCount;
+    }
+
+    public long getJankFrameCount(){
+        return jankFrameCount;
+    }
+
+    public long getMissedVsyncCount(){
+        return missedVsyncCount;
+    }
+
+    public long getMaxFrameIntervalNanos(){
+        return maxFrameIntervalNanos;
+    }
+
+    public long getLastFrameTimeNanos(){
+        return lastFrameTimeNanos;
+    }
+}
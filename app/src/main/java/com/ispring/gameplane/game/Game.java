@@ -0,0 +1,1100 @@
+/*
+ * This is a simple Android game - CombatAircraft
+ * This file holds the simulation of the game.
+ * It owns all the sprites, the score and the status, and does not depend on
+ * any Android class, so that it can also run headless on a plain JVM.
+ * GameView drives it on the device, HeadlessRunner drives it off the device.
+ *
+ * @Package	com.ispring.gameplane.game
+ */
+package com.ispring.gameplane.game;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+
+public class Game {
+
+    /*
+     * Int varaible: STATUS_GAME_STARTED
+     * 				 STATUS_GAME_PAUSED
+     * 				 STATUS_GAME_OVER
+     * 				 STATUS_GAME_DESTROYED
+     * 4 integers variable to represent 4 status of the game.
+     * 1 represents game is started
+     * 2 represents game is paused
+     * 3 represents game is over
+     * 4 represents game if not started yet
+     */
+    public static final int STATUS_GAME_STARTED = 1;
+    public static final int STATUS_GAME_PAUSED = 2;
+    public static final int STATUS_GAME_OVER = 3;
+    public static final int STATUS_GAME_DESTROYED = 4;
+    private int status = STATUS_GAME_DESTROYED;
+
+    /*
+     * Long variable: FRAME_NANOS
+     * The duration of one frame of the game, the game is updated 60 times per second
+     */
+    public static final long FRAME_NANOS = 1000000000L / 60;
+
+    private CombatAircraft combatAircraft = null;
+    private List<Sprite> sprites = new ArrayList<Sprite>();
+    private List<Sprite> spritesNeedAdded = new ArrayList<Sprite>();
+    /*
+     * List: textures
+     * The textures of all the *.png files used in the game, in the order of GameView.start
+     * 0:combatAircraft
+     * 1:explosion
+     * 2:yellowBullet
+     * 3:blueBullet
+     * 4:smallEnemyPlane
+     * 5:middleEnemyPlane
+     * 6:bigEnemyPlane
+     * 7:bombAward
+     * 8:bulletAward
+     * 9:pause1
+     * 10:pause2
+     * 11:bomb
+     */
+    private List<Texture> textures;
+    private SpriteSheet explosionSpriteSheet = null;//The explosion.png has 14 segments
+    private float density;
+    /*
+     * Long variable:	frame
+     * 					score
+     * Frame is the total frame that needed to draw
+     * Score is the total score
+     */
+    private long frame = 0;
+    private long score = 0;
+    private int nextNetId = NetSnapshot.FIRST_SPRITE_ID;//The id of the next added sprite in network snapshots, see NetSnapshot
+    private ViewportCuller culler = new ViewportCuller();
+    private EnemyProjectiles enemyProjectiles;//The bullets fired by enemies, see EnemyProjectiles
+    private CollisionSystem collisionSystem = new CollisionSystem();
+    private Tracer tracer = new Tracer();//Phases of each frame for the timeline, see Tracer
+    private GameEvents events = new GameEvents();//Kills, pickups and scores, dispatched once per frame, see GameEvents
+
+    /*
+     * EntityBudget: budget
+     * The limits of the number of sprites of each type, see EntityBudget
+     *
+     * Boolean variable: randomSpawnDeferred
+     * Whether the last random enemy was deferred because of the budget, it is created as soon as there is room
+     */
+    private EntityBudget budget = new EntityBudget();
+    private boolean randomSpawnDeferred = false;
+
+    /*
+     * TimerWheel: timers
+     * The delayed and periodic actions of the game, e.g. firing bullets, flickering after being hit,
+     * the end of double bullets and the end of explosions. Due timers run once per frame after the
+     * combat aircraft is drawn, see TimerWheel
+     *
+     * Boolean variable: randomSpawnDue
+     * Set by randomSpawnTimer every RANDOM_SPAWN_NANOS, the random enemy is created at the beginning of the next frame
+     */
+    public static final long RANDOM_SPAWN_NANOS = 30 * FRAME_NANOS;
+    private TimerWheel timers = new TimerWheel(FRAME_NANOS, 256);
+    private boolean randomSpawnDue = false;
+    private final TimerWheel.Timer randomSpawnTimer = new TimerWheel.Timer() {
+        @Override
+        protected void onTimer() {
+            randomSpawnDue = true;
+        }
+    };
+
+    /*
+     * Interface: Prefetcher
+     * Told in advance that a texture will be drawn soon, so that its picture can be decoded
+     * in the background before it is needed, see LazyBitmap
+     *
+     * Int variables: PREFETCH_FRAMES, AWARD_PREFETCH_CALLS
+     * How long before the awards of the level or the random awards are created they are prefetched
+     */
+    public interface Prefetcher {
+        void prefetch(Texture texture);
+    }
+    private Prefetcher prefetcher = null;
+    private static final int PREFETCH_FRAMES = 120;
+    private static final int AWARD_PREFETCH_CALLS = 4;
+
+    /*
+     * Random: random
+     * All the randomness of the game comes from this generator, so that the same seed
+     * and the same inputs always give the same game, see InputLog and ScoreVerifier
+     *
+     * InputLog: inputLog
+     * The inputs of the current game, recorded from start
+     */
+    private long seed = 0;
+    private Random random = new Random(0);
+    private InputLog inputLog = null;
+
+    /*
+     * WaveTimeline: waveTimeline
+     * The enemy waves loaded from the level file, see WaveTimeline
+     * If there is no level, enemies are created randomly by createRandomSprites
+     *
+     * Long variable: waveFrame
+     * The current frame of the timeline, it stops while a boss is alive
+     *
+     * Int variable: waveHoldCount
+     * The number of alive bosses
+     */
+    private WaveTimeline waveTimeline = null;
+    private long waveFrame = 0;
+    private int waveHoldCount = 0;
+
+    /*
+     * Map: movePaths
+     * The sampled paths, keyed by the type and the speed, see getMovePath
+     *
+     * MovePath: awardPath
+     * The bouncing path of the awards, it depends on the height of the screen
+     */
+    private HashMap<Integer, MovePath> movePaths = new HashMap<Integer, MovePath>();
+    private MovePath awardPath = null;
+    private float awardPathSpeed = 0;
+    private int awardPathHeight = 0;
+
+    /*
+     * Pools of sprites
+     * Destroyed sprites are recycled into their pool when they are removed,
+     * and are reused when sprites of the same type are created
+     */
+    private SpritePool<SmallEnemyPlane> smallEnemyPlanePool = new SpritePool<SmallEnemyPlane>(new SpritePool.Factory<SmallEnemyPlane>() {
+        @Override
+        public SmallEnemyPlane create(Texture texture) {
+            return new SmallEnemyPlane(texture);
+        }
+    });
+    private SpritePool<MiddleEnemyPlane> middleEnemyPlanePool = new SpritePool<MiddleEnemyPlane>(new SpritePool.Factory<MiddleEnemyPlane>() {
+        @Override
+        public MiddleEnemyPlane create(Texture texture) {
+            return new MiddleEnemyPlane(texture);
+        }
+    });
+    private SpritePool<BigEnemyPlane> bigEnemyPlanePool = new SpritePool<BigEnemyPlane>(new SpritePool.Factory<BigEnemyPlane>() {
+        @Override
+        public BigEnemyPlane create(Texture texture) {
+            return new BigEnemyPlane(texture);
+        }
+    });
+    private SpritePool<Boss> bossPool = new SpritePool<Boss>(new SpritePool.Factory<Boss>() {
+        @Override
+        public Boss create(Texture texture) {
+            return new Boss(texture);
+        }
+    });
+    private SpritePool<BombAward> bombAwardPool = new SpritePool<BombAward>(new SpritePool.Factory<BombAward>() {
+        @Override
+        public BombAward create(Texture texture) {
+            return new BombAward(texture);
+        }
+    });
+    private SpritePool<BulletAward> bulletAwardPool = new SpritePool<BulletAward>(new SpritePool.Factory<BulletAward>() {
+        @Override
+        public BulletAward create(Texture texture) {
+            return new BulletAward(texture);
+        }
+    });
+    private SpritePool<Bullet> bulletPool = new SpritePool<Bullet>(new SpritePool.Factory<Bullet>() {
+        @Override
+        public Bullet create(Texture texture) {
+            return new Bullet(texture);
+        }
+    });
+    private SpritePool<Explosion> explosionPool = new SpritePool<Explosion>(new SpritePool.Factory<Explosion>() {
+        @Override
+        public Explosion create(Texture texture) {
+            return new Explosion(getExplosionSpriteSheet());
+        }
+    });
+
+    public Game(List<Texture> textures, float density){
+        this(textures, density, 0);
+    }
+
+    public Game(List<Texture> textures, float density, long seed){
+        this.seed = seed;
+        this.textures = textures;
+        this.density = density;
+        enemyProjectiles = new EnemyProjectiles(density);
+        //There are at most about 30 bullets and several explosions on the screen
+        bulletPool.prewarm(getYellowBulletTexture(), 32);
+        explosionPool.prewarm(getExplosionTexture(), 8);
+    }
+
+    /*
+     * Function: setWaveTimeline
+     * Use the enemy waves of a level instead of random enemies
+     * The pools are filled in advance so that big waves do not create sprites during the game
+     *
+     * @param WaveTimeline	The compiled level, null to create enemies randomly
+     * @return				None
+     */
+    public void setWaveTimeline(WaveTimeline waveTimeline){
+        this.waveTimeline = waveTimeline;
+        waveFrame = 0;
+        waveHoldCount = 0;
+        if(waveTimeline != null){
+            waveTimeline.rewind();
+            smallEnemyPlanePool.prewarm(textures.get(4), waveTimeline.getPrewarmCount(WaveTimeline.TYPE_SMALL));
+            middleEnemyPlanePool.prewarm(textures.get(5), waveTimeline.getPrewarmCount(WaveTimeline.TYPE_MIDDLE));
+            bigEnemyPlanePool.prewarm(textures.get(6), waveTimeline.getPrewarmCount(WaveTimeline.TYPE_BIG));
+            bombAwardPool.prewarm(textures.get(7), waveTimeline.getPrewarmCount(WaveTimeline.TYPE_BOMB_AWARD));
+            bulletAwardPool.prewarm(textures.get(8), waveTimeline.getPrewarmCount(WaveTimeline.TYPE_BULLET_AWARD));
+            bossPool.prewarm(textures.get(6), waveTimeline.getPrewarmCount(WaveTimeline.TYPE_BOSS));
+            //Sample all the paths of the level before the game starts
+            for(int i = 0; i < waveTimeline.getEventCount(); i++){
+                getMovePath(waveTimeline.getPath(i), waveTimeline.getSpeed(i));
+            }
+        }
+    }
+
+    /*
+     * Function: getMovePath
+     * Get the sampled path of the type and the speed, the path is sampled only once
+     * Straight paths return null, because AutoSprite moves straight without a path
+     *
+     * @param int	The type of the path, see MovePath
+     * @param float	The speed of the sprite
+     * @return		The path
+     */
+    public MovePath getMovePath(int type, float speed){
+        if(type == MovePath.PATH_STRAIGHT){
+            return null;
+        }
+        Integer key = Integer.valueOf(Math.round(speed * 100) * MovePath.PATH_TYPE_COUNT + type);
+        MovePath path = movePaths.get(key);
+        if(path == null){
+            path = MovePath.create(type, speed, density);
+            movePaths.put(key, path);
+        }
+        return path;
+    }
+
+    /*
+     * Function: getAwardPath
+     * Get the bouncing path of the awards
+     *
+     * @param float	The speed of the award when it is created
+     * @param int	The height of the screen
+     * @return		The path
+     */
+    public MovePath getAwardPath(float speed, int canvasHeight){
+        if(awardPath == null || awardPathSpeed != speed || awardPathHeight != canvasHeight){
+            awardPath = MovePath.createAwardBounce(speed, density, canvasHeight);
+            awardPathSpeed = speed;
+            awardPathHeight = canvasHeight;
+        }
+        return awardPath;
+    }
+
+    /*
+     * Function: start
+     * Create the combat aircraft and set the status of the game as started
+     *
+     * @param	None
+     * @Return	None
+     */
+    public void start(){
+        timers.reset(getTimeNanos());
+        combatAircraft = new CombatAircraft(textures.get(0));
+        combatAircraft.startFiring(this);
+        //The first random enemy is created in the first frame
+        randomSpawnDue = true;
+        schedulePeriodic(randomSpawnTimer, RANDOM_SPAWN_NANOS, RANDOM_SPAWN_NANOS);
+        combatAircraft.setNetId(NetSnapshot.AIRCRAFT_ID);
+        nextNetId = NetSnapshot.FIRST_SPRITE_ID;
+        random.setSeed(seed);
+        inputLog = new InputLog(seed, density);
+        status = STATUS_GAME_STARTED;
+    }
+
+    /*
+     * Function: setSeed
+     * Set the seed of the random generator, it takes effect when the game starts
+     *
+     * @param long	The seed
+     * @Return		None
+     */
+    public void setSeed(long seed){
+        this.seed = seed;
+    }
+
+    public long getSeed(){
+        return seed;
+    }
+
+    public InputLog getInputLog(){
+        return inputLog;
+    }
+
+    public void pause(){
+        status = STATUS_GAME_PAUSED;
+    }
+
+    public void resume(){
+        status = STATUS_GAME_STARTED;
+    }
+
+    /*
+     * Function: step
+     * Update all the items by one frame and draw them
+     * If the combat aircraft is destroyed, the status of the game becomes STATUS_GAME_OVER
+     *
+     * @param Renderer	The renderer to draw on
+     * @return			None
+     */
+    public void step(Renderer renderer){
+        tracer.setFrame(frame);
+        events.setFrame(frame);
+        long stepBegin = tracer.begin();
+        /*
+         * At the begining of the game, put the aircraft to the bottome and mif of the screen
+         */
+        if(frame == 0){
+            if(inputLog != null){
+                inputLog.setScreenSize(renderer.getWidth(), renderer.getHeight());
+            }
+            float centerX = renderer.getWidth() / 2;
+            float centerY = renderer.getHeight() - combatAircraft.getHeight() / 2;
+            combatAircraft.centerTo(centerX, centerY);
+        }
+
+        //Create enemy aircraft
+        long t = tracer.begin();
+        if(spritesNeedAdded.size() > 0){
+            sprites.addAll(spritesNeedAdded);
+            spritesNeedAdded.clear();
+        }
+
+        //A fuction about bullets. See detail in the defination of this function.
+        destroyBulletsFrontOfCombatAircraft();
+
+        //A function about enemy aircraft. See detail in the defination of this function.
+        removeDestroyedSprites();
+        t = tracer.split("Game.removeDestroyedSprites", t);
+
+        if(waveTimeline != null){
+            //Create enemy aircraft of the level
+            spawnWaves(renderer.getWidth());
+            t = tracer.split("Game.spawnWaves", t);
+        }else if(randomSpawnDue || randomSpawnDeferred){
+            //Create enemy aircraft every 30 frames
+            randomSpawnDue = false;
+            createRandomSprites(renderer.getWidth());
+            t = tracer.split("Game.createRandomSprites", t);
+        }
+        frame++;
+
+        //Update Sprites. Sprites include enemy aircraft, bullet and bomb
+        boolean detailed = tracer.isDetailed();
+        int size = sprites.size();
+        for(int i = 0; i < size; i++){
+            Sprite s = sprites.get(i);
+            if(!s.isDestroyed()){
+                long spriteBegin = detailed ? tracer.begin() : 0;
+                s.beginDraw(renderer, this);
+                tracer.end(s.getTraceName(), spriteBegin);
+            }
+        }
+        t = tracer.split("Sprite.beforeDraw", t);
+        //Skip the sprites out of the screen, destroy those which never come back
+        culler.setViewport(renderer.getWidth(), renderer.getHeight());
+        culler.cull(sprites);
+        t = tracer.split("ViewportCuller.cull", t);
+        //Draw the sprites in the screen
+        for(int i = 0; i < size; i++){
+            Sprite s = sprites.get(i);
+            if(!s.isDestroyed()){
+                long spriteBegin = detailed ? tracer.begin() : 0;
+                s.onDraw(renderer, this);
+                tracer.end(s.getTraceName(), spriteBegin);
+            }
+        }
+        t = tracer.split("Sprite.onDraw", t);
+        //Check status of Sprites, e.g. whether explosion is finished
+        for(int i = 0; i < size; i++){
+            Sprite s = sprites.get(i);
+            if(!s.isDestroyed()){
+                long spriteBegin = detailed ? tracer.begin() : 0;
+                s.endDraw(renderer, this);
+                tracer.end(s.getTraceName(), spriteBegin);
+            }
+        }
+        t = tracer.split("Sprite.afterDraw", t);
+        //Move the bullets of enemies in one batch
+        enemyProjectiles.update(renderer.getWidth(), renderer.getHeight());
+        t = tracer.split("EnemyProjectiles.update", t);
+        //Check all the collisions once, e.g. whether enemy is hit
+        collisionSystem.update(this);
+        t = tracer.split("CollisionSystem.update", t);
+        removeDestroyedSprites();
+        enemyProjectiles.draw(renderer);
+        t = tracer.split("EnemyProjectiles.draw", t);
+        //Draw the palyer aircraft
+        if(combatAircraft != null){
+            combatAircraft.draw(renderer, this);
+        }
+        t = tracer.split("CombatAircraft.draw", t);
+        //Run the due timers, e.g. the aircraft fires or flickers
+        timers.advanceTo(getTimeNanos());
+        t = tracer.split("TimerWheel.advanceTo", t);
+        if(combatAircraft != null && combatAircraft.isDestroyed()){
+            //If player is attacked, game is over
+            status = STATUS_GAME_OVER;
+        }
+        //Listeners are called here, not inside the collision loops
+        events.dispatch();
+        tracer.end("GameEvents.dispatch", t);
+        if(tracer.isEnabled()){
+            tracer.counter("sprites", sprites.size());
+            tracer.counter("enemyProjectiles", enemyProjectiles.getCount());
+            tracer.counter("collisionPairTests", collisionSystem.getPairTestCount());
+        }
+        tracer.end("Game.step", stepBegin);
+    }
+
+    /*
+     * Function: draw
+     * Draw all the items without updating them
+     *
+     * @param Renderer	The renderer to draw on
+     * @return			None
+     */
+    public void draw(Renderer renderer){
+        for(Sprite s : sprites){
+            s.onDraw(renderer, this);
+        }
+        enemyProjectiles.draw(renderer);
+        if(combatAircraft != null){
+            combatAircraft.onDraw(renderer, this);
+        }
+    }
+
+    /*
+     * Function destroyBulletsFrontOfCombatAircraft
+     * Check the position of bullet by coordinates.
+     * If bullet is on the front of aircraft, delete those bullets.
+     * If player move the aircraft too fast, there will be much bullets are on the front of aircraft which is never happen in reality
+     *
+     * @param	None
+     * @return	None
+     */
+    private void destroyBulletsFrontOfCombatAircraft(){
+        if(combatAircraft != null){
+            float aircraftY = combatAircraft.getY();
+            List<Bullet> aliveBullets = getAliveBullets();
+            for(Bullet bullet : aliveBullets){
+                if(aircraftY <= bullet.getY()){
+                    bullet.destroy();
+                }
+            }
+        }
+    }
+
+    /*
+     * Function: removeDestroyedSprites
+     * Remove destroyed Enemy aircraft, bullets and bombs
+     * The alive sprites are moved forward in one pass and the tail is removed,
+     * so that removing many sprites at once does not shift the list for each of them
+     *
+     * @param	None
+     * @return	None
+     */
+    private void removeDestroyedSprites(){
+        budget.clearCounts();
+        int size = sprites.size();
+        int alive = 0;
+        for(int i = 0; i < size; i++){
+            Sprite s = sprites.get(i);
+            if(!s.isDestroyed()){
+                if(alive != i){
+                    sprites.set(alive, s);
+                }
+                alive++;
+                countInBudget(s);
+            }else{
+                recycle(s);
+            }
+        }
+        for(int i = size - 1; i >= alive; i--){
+            sprites.remove(i);
+        }
+        //The sprites to be added are counted too
+        for(int i = 0; i < spritesNeedAdded.size(); i++){
+            Sprite s = spritesNeedAdded.get(i);
+            if(!s.isDestroyed()){
+                countInBudget(s);
+            }
+        }
+    }
+
+    private void countInBudget(Sprite s){
+        int category = s.getBudgetCategory();
+        if(category != EntityBudget.CATEGORY_NONE){
+            budget.increase(category);
+        }
+    }
+
+    /*
+     * Function: makeRoom
+     * Check the budget before a sprite of the category is added, see EntityBudget
+     * The oldest bullet is recycled for a new bullet, the oldest explosion and then the oldest bullet
+     * are recycled if there are too many sprites in total
+     *
+     * @param int	The category of the new sprite
+     * @return		true if the sprite can be added, otherwise new explosions are dropped and spawns are deferred
+     */
+    private boolean makeRoom(int category){
+        if(category == EntityBudget.CATEGORY_NONE){
+            return true;
+        }
+        if(budget.isFull(category)){
+            budget.onLimitHit(category);
+            if(category != EntityBudget.CATEGORY_BULLET || !recycleOldest(EntityBudget.CATEGORY_BULLET)){
+                return false;
+            }
+        }
+        if(budget.isTotalFull()){
+            budget.onTotalLimitHit();
+            //Explosions are only decorations, they are given up first
+            if(category == EntityBudget.CATEGORY_EXPLOSION){
+                return false;
+            }
+            if(!recycleOldest(EntityBudget.CATEGORY_EXPLOSION) && !recycleOldest(EntityBudget.CATEGORY_BULLET)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Function: recycleOldest
+     * Destroy the oldest alive sprite of the category, it is recycled when destroyed sprites are removed
+     * The sprites are kept in the order they are added, so the first one found is the oldest
+     *
+     * @param int	The category
+     * @return		true if a sprite is destroyed
+     */
+    private boolean recycleOldest(int category){
+        Sprite oldest = findOldest(sprites, category);
+        if(oldest == null){
+            oldest = findOldest(spritesNeedAdded, category);
+        }
+        if(oldest == null){
+            return false;
+        }
+        oldest.destroy();
+        budget.decrease(category);
+        budget.onRecycled(category);
+        return true;
+    }
+
+    private static Sprite findOldest(List<Sprite> list, int category){
+        for(int i = 0, size = list.size(); i < size; i++){
+            Sprite s = list.get(i);
+            if(!s.isDestroyed() && s.getBudgetCategory() == category){
+                return s;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Function: recycle
+     * Put a destroyed sprite back into its pool
+     * If the sprite is a boss, the wave timeline goes on
+     *
+     * @param Sprite	The destroyed sprite
+     * @return			None
+     */
+    private void recycle(Sprite s){
+        if(s.isWaveHolder()){
+            s.setWaveHolder(false);
+            waveHoldCount--;
+        }
+        SpritePool<?> pool = s.getPool();
+        if(pool != null){
+            pool.recycle(s);
+        }
+    }
+
+    /*
+     * Function: spawnWaves
+     * Create the sprites of the level whose frame has come
+     * While a boss is alive the timeline does not go on
+     *
+     * @param int	The width of the screen
+     * @return		None
+     */
+    private void spawnWaves(int canvasWidth){
+        if(waveHoldCount > 0){
+            return;
+        }
+        if(prefetcher != null && waveFrame % 30 == 0){
+            int types = waveTimeline.getTypesDue(waveFrame + PREFETCH_FRAMES);
+            if((types & (1 << WaveTimeline.TYPE_BOMB_AWARD)) != 0){
+                prefetchAward(true);
+            }
+            if((types & (1 << WaveTimeline.TYPE_BULLET_AWARD)) != 0){
+                prefetchAward(false);
+            }
+        }
+        while(waveTimeline.hasDue(waveFrame)){
+            if(!makeRoom(getBudgetCategory(waveTimeline.peekType()))){
+                //Too many sprites, the timeline waits until there is room
+                budget.onSpawnDeferred();
+                return;
+            }
+            int index = waveTimeline.next();
+            Sprite sprite = obtainSprite(waveTimeline.getType(index));
+            float spriteWidth = sprite.getWidth();
+            float spriteHeight = sprite.getHeight();
+            sprite.setX((canvasWidth - spriteWidth) * waveTimeline.getX(index));
+            sprite.setY(-spriteHeight - spriteHeight * waveTimeline.getYOffset(index));
+            if(sprite instanceof AutoSprite){
+                AutoSprite autoSprite = (AutoSprite)sprite;
+                autoSprite.setSpeed(waveTimeline.getSpeed(index));
+                //Awards and bosses create their own paths
+                if(!(sprite instanceof Award) && !(sprite instanceof Boss)){
+                    autoSprite.setPath(getMovePath(waveTimeline.getPath(index), waveTimeline.getSpeed(index)), waveTimeline.getPathPhase(index));
+                }
+            }
+            addSprite(sprite);
+            if(waveTimeline.isHold(index)){
+                //Boss phase, the rest of the timeline waits until the boss is destroyed
+                sprite.setWaveHolder(true);
+                waveHoldCount++;
+                return;
+            }
+        }
+        waveFrame++;
+    }
+
+    /*
+     * Function: prefetchAward
+     * Prefetch the texture of an award that will be created soon
+     * The bomb shown by Hud is prefetched together with the bomb award
+     *
+     * @param boolean	true for the bomb award, false for the bullet award
+     * @return			None
+     */
+    private void prefetchAward(boolean bombAward){
+        if(prefetcher == null){
+            return;
+        }
+        if(bombAward){
+            prefetcher.prefetch(textures.get(7));
+            prefetcher.prefetch(textures.get(11));
+        }else{
+            prefetcher.prefetch(textures.get(8));
+        }
+    }
+
+    /*
+     * Function: getBudgetCategory
+     * Get the category in EntityBudget of the type defined in WaveTimeline
+     *
+     * @param int	The type defined in WaveTimeline
+     * @return		The category
+     */
+    private static int getBudgetCategory(int type){
+        if(type == WaveTimeline.TYPE_BOMB_AWARD || type == WaveTimeline.TYPE_BULLET_AWARD){
+            return EntityBudget.CATEGORY_AWARD;
+        }
+        return EntityBudget.CATEGORY_ENEMY;
+    }
+
+    /*
+     * Function: obtainSprite
+     * Get a sprite of the type from its pool
+     *
+     * @param int	The type defined in WaveTimeline
+     * @return		The sprite
+     */
+    private Sprite obtainSprite(int type){
+        if(type == WaveTimeline.TYPE_SMALL){
+            return smallEnemyPlanePool.obtain(textures.get(4));
+        }else if(type == WaveTimeline.TYPE_MIDDLE){
+            return middleEnemyPlanePool.obtain(textures.get(5));
+        }else if(type == WaveTimeline.TYPE_BIG){
+            return bigEnemyPlanePool.obtain(textures.get(6));
+        }else if(type == WaveTimeline.TYPE_BOSS){
+            //The boss is a bigger big enemy, see Boss
+            return bossPool.obtain(textures.get(6));
+        }else if(type == WaveTimeline.TYPE_BOMB_AWARD){
+            return bombAwardPool.obtain(textures.get(7));
+        }else{
+            return bulletAwardPool.obtain(textures.get(8));
+        }
+    }
+
+    /*
+     * Function: createRandomSprites
+     * Create random Enemy aircraft
+     * Create random bomb
+     * Create double bullets
+     *
+     * @param	None
+     * @return	None
+     */
+    private void createRandomSprites(int canvasWidth){
+        Sprite sprite = null;
+        int speed = 2;
+        int callTime = Math.round(frame / 30);
+        //Prefetch the award several calls before it is created
+        int awardCall = callTime + 1 + AWARD_PREFETCH_CALLS;
+        if(awardCall % 25 == 0){
+            prefetchAward(awardCall % 50 == 0);
+        }
+        boolean award = (callTime + 1) % 25 == 0;
+        //If there are too many sprites, try again in the next frame
+        randomSpawnDeferred = !makeRoom(award ? EntityBudget.CATEGORY_AWARD : EntityBudget.CATEGORY_ENEMY);
+        if(randomSpawnDeferred){
+            budget.onSpawnDeferred();
+            return;
+        }
+        if(award){
+            //create bomb
+            if((callTime + 1) % 50 == 0){
+                sprite = obtainSprite(WaveTimeline.TYPE_BOMB_AWARD);
+            }
+            else{
+                //create double bullet
+                sprite = obtainSprite(WaveTimeline.TYPE_BULLET_AWARD);
+            }
+        }
+        else{
+            /*
+             * Create enemy aircraft
+             * In this game, there are 3 types of enemy
+             * Enemy is defined in class "Sprite"
+             */
+            int[] nums = {0,0,0,0,0,1,0,0,1,0,0,0,0,1,1,1,1,1,1,2};
+            int index = random.nextInt(nums.length);
+            int type = nums[index];
+            //samll enemy, medium enemy or big enemy
+            sprite = obtainSprite(type);
+            if(type != 2){
+                if(random.nextDouble() < 0.33){
+                    speed = 4;
+                }
+            }
+        }
+
+        if(sprite != null){
+            float spriteWidth = sprite.getWidth();
+            float spriteHeight = sprite.getHeight();
+            float x = (float)((canvasWidth - spriteWidth)*random.nextDouble());
+            float y = -spriteHeight;
+            sprite.setX(x);
+            sprite.setY(y);
+            if(sprite instanceof AutoSprite){
+                AutoSprite autoSprite = (AutoSprite)sprite;
+                autoSprite.setSpeed(speed);
+            }
+            addSprite(sprite);
+        }
+    }
+
+    /*
+     * Function: destroy
+     * clean all data if game is over or restart
+     */
+    public void destroy(){
+        status = STATUS_GAME_DESTROYED;
+        frame = 0;
+        score = 0;
+        //destroy aircraft
+        if(combatAircraft != null){
+            combatAircraft.destroy();
+        }
+        combatAircraft = null;
+
+        //destroy enemy,bullet,bomb
+        for(Sprite s : sprites){
+            s.destroy();
+            recycle(s);
+        }
+        sprites.clear();
+        for(Sprite s : spritesNeedAdded){
+            s.destroy();
+            recycle(s);
+        }
+        spritesNeedAdded.clear();
+        events.clear();
+        budget.clearCounts();
+        randomSpawnDeferred = false;
+        randomSpawnDue = false;
+        timers.reset(0);
+        enemyProjectiles.clear();
+        waveFrame = 0;
+        waveHoldCount = 0;
+        if(waveTimeline != null){
+            waveTimeline.rewind();
+        }
+    }
+
+    /*-------------------------------input------------------------------------*/
+
+    public void moveCombatAircraftTo(float centerX, float centerY){
+        if(inputLog != null){
+            inputLog.add(frame, InputLog.TYPE_MOVE, centerX, centerY);
+        }
+        if(combatAircraft != null){
+            combatAircraft.centerTo(centerX, centerY);
+        }
+    }
+
+    public void bomb(){
+        if(inputLog != null){
+            inputLog.add(frame, InputLog.TYPE_BOMB, 0, 0);
+        }
+        if(combatAircraft != null){
+            combatAircraft.bomb(this);
+        }
+    }
+
+    /*-------------------------------public methods-----------------------------------*/
+
+    /*
+     * Function: addSprite
+     * Add Sprite to Sprite class
+     *
+     * @param	None
+     * @return	None
+     */
+    public void addSprite(Sprite sprite){
+        int category = sprite.getBudgetCategory();
+        if(!makeRoom(category)){
+            //Only explosions are dropped here, enemies and awards are deferred before they are created
+            if(category == EntityBudget.CATEGORY_EXPLOSION){
+                budget.onExplosionDropped();
+            }
+            sprite.destroy();
+            recycle(sprite);
+            return;
+        }
+        if(category != EntityBudget.CATEGORY_NONE){
+            budget.increase(category);
+        }
+        sprite.setNetId(nextNetId++);
+        spritesNeedAdded.add(sprite);
+        sprite.onAdded(this);
+    }
+
+    /*
+     * Function: addScore
+     * Add score that will display on the screen
+     *
+     * @param int 	the number of score palyer earned
+     * @return		None
+     */
+    public void addScore(int value){
+        score += value;
+        events.publish(GameEvents.TYPE_SCORE_CHANGED, 0, value);
+    }
+
+    public long getScore(){
+        return score;
+    }
+
+    public long getFrame(){
+        return frame;
+    }
+
+    /*
+     * Function: getTimeNanos
+     * The game time, it advances FRAME_NANOS every frame and stops while the game is paused
+     *
+     * @param	None
+     * @return	long	The game time in nanoseconds
+     */
+    public long getTimeNanos(){
+        return frame * FRAME_NANOS;
+    }
+
+    /*
+     * Function: schedule, schedulePeriodic
+     * Run the timer once after delayNanos of game time, or every periodNanos after that, see TimerWheel
+     *
+     * @param TimerWheel.Timer	The timer to run
+     * @param long				The delay in nanoseconds
+     * @param long				The period in nanoseconds
+     * @return					None
+     */
+    public void schedule(TimerWheel.Timer timer, long delayNanos){
+        timers.scheduleAt(timer, getTimeNanos() + delayNanos, 0);
+    }
+
+    public void schedulePeriodic(TimerWheel.Timer timer, long delayNanos, long periodNanos){
+        if(periodNanos <= 0){
+            throw new IllegalArgumentException("periodNanos must be positive");
+        }
+        timers.scheduleAt(timer, getTimeNanos() + delayNanos, periodNanos);
+    }
+
+    public TimerWheel getTimers(){
+        return timers;
+    }
+
+    public int getStatus(){
+        return status;
+    }
+
+    public float getDensity(){
+        return density;
+    }
+
+    public ViewportCuller getCuller(){
+        return culler;
+    }
+
+    public EnemyProjectiles getEnemyProjectiles(){
+        return enemyProjectiles;
+    }
+
+    public CollisionSystem getCollisionSystem(){
+        return collisionSystem;
+    }
+
+    public GameEvents getEvents(){
+        return events;
+    }
+
+    public void setPrefetcher(Prefetcher prefetcher){
+        this.prefetcher = prefetcher;
+    }
+
+    public EntityBudget getEntityBudget(){
+        return budget;
+    }
+
+    public Tracer getTracer(){
+        return tracer;
+    }
+
+    public CombatAircraft getCombatAircraft(){
+        return combatAircraft;
+    }
+
+    public List<Sprite> getSprites(){
+        return sprites;
+    }
+
+    public Texture getTexture(int index){
+        return textures.get(index);
+    }
+
+    public List<Texture> getTextures(){
+        return textures;
+    }
+
+    public Texture getYellowBulletTexture(){
+        return textures.get(2);
+    }
+
+    public Texture getBlueBulletTexture(){
+        return textures.get(3);
+    }
+
+    public Texture getExplosionTexture(){
+        return textures.get(1);
+    }
+
+    public Bullet obtainBullet(Texture texture){
+        return bulletPool.obtain(texture);
+    }
+
+    //The explosion is destroyed when it has been played, the timer is scheduled when it is added, see Explosion.onAdded
+    public Explosion obtainExplosion(){
+        return explosionPool.obtain(getExplosionTexture());
+    }
+
+    public SpriteSheet getExplosionSpriteSheet(){
+        if(explosionSpriteSheet == null){
+            explosionSpriteSheet = new SpriteSheet(getExplosionTexture(), 14);
+        }
+        return explosionSpriteSheet;
+    }
+
+    /*
+     * Function: getAliveEnemyPlanes
+     * get the data of alive enemy plane
+     *
+     * @param 		None
+     * @return List	return enemy plane list
+     */
+    public List<EnemyPlane> getAliveEnemyPlanes(){
+        List<EnemyPlane> enemyPlanes = new ArrayList<EnemyPlane>();
+        for(Sprite s : sprites){
+            if(!s.isDestroyed() && s instanceof EnemyPlane){
+                EnemyPlane sprite = (EnemyPlane)s;
+                enemyPlanes.add(sprite);
+            }
+        }
+        return enemyPlanes;
+    }
+
+    /*
+     * Function: getAliveBombAwards
+     * get the data of alive bomb
+     *
+     * @param 		None
+     * @return List	return bomb list
+     */
+    public List<BombAward> getAliveBombAwards(){
+        List<BombAward> bombAwards = new ArrayList<BombAward>();
+        for(Sprite s : sprites){
+            if(!s.isDestroyed() && s instanceof BombAward){
+                BombAward bombAward = (BombAward)s;
+                bombAwards.add(bombAward);
+            }
+        }
+        return bombAwards;
+    }
+
+    /*
+     * Function: getAliveBulletAwards
+     * get the data of alive bullet award
+     * There will be random bullet award in this gmae
+     * if player touch it, bullet will upgrade to double bullet
+     *
+     * @param 		None
+     * @return List	return bullet award list
+     */
+    public List<BulletAward> getAliveBulletAwards(){
+        List<BulletAward> bulletAwards = new ArrayList<BulletAward>();
+        for(Sprite s : sprites){
+            if(!s.isDestroyed() && s instanceof BulletAward){
+                BulletAward bulletAward = (BulletAward)s;
+                bulletAwards.add(bulletAward);
+            }
+        }
+        return bulletAwards;
+    }
+
+    /*
+     * Function: getAliveBulletAwards
+     * get the data of alive bullet
+     *
+     * @param 		None
+     * @return List	return bullet list
+     */
+    public List<Bullet> getAliveBullets(){
+        List<Bullet> bullets = new ArrayList<Bullet>();
+        for(Sprite s : sprites){
+            if(!s.isDestroyed() && s instanceof Bullet){
+                Bullet bullet = (Bullet)s;
+                bullets.add(bullet);
+            }
+        }
+        return bullets;
+    }
+}
@@ -0,0 +1,134 @@
+package com.ispring.gameplane.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 游戏事件总线，模拟过程中发生的击毁、拾取、得分等事件写入预先分配的环形缓冲区，
+ * 每帧结束时由Game统一分发给监听者（音效、统计、成就、HUD等）一次
+ * 发布事件只写几个数组元素，不分配内存，也不调用监听者，所以碰撞检测等热点路径的开销与监听者的数量无关
+ * 一帧内发布的事件超过容量时最旧的事件被覆盖，覆盖的数量有计数
+ */
+public class GameEvents {
+
+    //事件类型，arg、value、x、y的含义见各类型的说明
+    public static final int TYPE_ENEMY_KILLED = 1;//敌机被击毁，arg为WaveTimeline中的类型，value为得分，x、y为中心
+    public static final int TYPE_BOSS_PART_DESTROYED = 2;//首领的部件被摧毁，arg为Boss中部件的类型，value为得分
+    public static final int TYPE_AWARD_PICKED_UP = 3;//拾取奖品，arg为WaveTimeline中的类型
+    public static final int TYPE_SCORE_CHANGED = 4;//得分，arg无意义，value为增加的分数
+    public static final int TYPE_PLAYER_FIRED = 5;//战斗机发射子弹，arg为子弹数
+    public static final int TYPE_BOMB_USED = 6;//使用炸弹，arg为受到影响的敌机数
+    public static final int TYPE_PLAYER_HIT = 7;//战斗机被击中
+    public static final int TYPE_GAME_OVER = 8;//战斗机被销毁，游戏结束，value为最终得分
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    public interface Listener {
+        //frame为事件发生的逻辑帧
+        void onGameEvent(int type, int arg, long value, float x, float y, long frame);
+    }
+
+    private final int mask;
+    private final int[] types;
+    private final int[] args;
+    private final long[] values;
+    private final float[] xs;
+    private final float[] ys;
+    private final long[] frames;
+    private long writeSequence = 0;//已发布的事件数
+    private long readSequence = 0;//已分发的事件数
+    private long overwrittenCount = 0;
+
+    private final List<Listener> listeners = new ArrayList<Listener>();
+    private long frame = 0;
+
+    public GameEvents(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    //capacity会向上取整为2的幂
+    public GameEvents(int capacity){
+        int size = 1;
+        while(size < capacity){
+            size <<= 1;
+        }
+        mask = size - 1;
+        types = new int[size];
+        args = new int[size];
+        values = new long[size];
+        xs = new float[size];
+        ys = new float[size];
+        frames = new long[size];
+    }
+
+    public void addListener(Listener listener){
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener){
+        listeners.remove(listener);
+    }
+
+    //之后发布的事件都属于该逻辑帧，由Game每帧设置
+    void setFrame(long frame){
+        this.frame = frame;
+    }
+
+    /*-------------------------------publishing-------------------------------------*/
+
+    public void publish(int type, int arg, long value, float x, float y){
+        int i = (int)writeSequence & mask;
+        types[i] = type;
+        args[i] = arg;
+        values[i] = value;
+        xs[i] = x;
+        ys[i] = y;
+        frames[i] = frame;
+        writeSequence++;
+    }
+
+    public void publish(int type, int arg, long value){
+        publish(type, arg, value, 0, 0);
+    }
+
+    //在Sprite的中心发布事件
+    public void publish(int type, int arg, long value, Sprite sprite){
+        publish(type, arg, value, sprite.getX() + sprite.getWidth() / 2, sprite.getY() + sprite.getHeight() / 2);
+    }
+
+    /*-------------------------------dispatching-------------------------------------*/
+
+    //将上次分发以来的事件按发布顺序分发给所有监听者，由Game每帧调用一次
+    void dispatch(){
+        long capacity = mask + 1;
+        if(writeSequence - readSequence > capacity){
+            overwrittenCount += writeSequence - readSequence - capacity;
+            readSequence = writeSequence - capacity;
+        }
+        int listenerCount = listeners.size();
+        while(readSequence < writeSequence){
+            int i = (int)readSequence & mask;
+            for(int j = 0; j < listenerCount; j++){
+                listeners.get(j).onGameEvent(types[i], args[i], values[i], xs[i], ys[i], frames[i]);
+            }
+            readSequence++;
+        }
+    }
+
+    //丢弃尚未分发的事件
+    void clear(){
+        readSequence = writeSequence;
+    }
+
+    public long getPublishedCount(){
+        return writeSequence;
+    }
+
+    public long getOverwrittenCount(){
+        return overwrittenCount;
+    }
+
+    public int getCapacity(){
+        return mask + 1;
+    }
+}
@@ -1,7 +1,7 @@
 /*
  * This is a simple Android game - CombatAircraft
  * This file is the main file of the game.
- * It initialize almost all items that needed to display on the screen
+ * It hosts the simulation (see Game) on the screen, and handles the touching events
  * 
  * @Package	com.ispring.gameplane.game
  * @author	iSpring
@@ -12,34 +12,47 @@ package com.ispring.gameplane.game;
 
 import android.content.Context;
 import android.content.res.TypedArray;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
-import android.graphics.Paint;
-import android.graphics.Rect;
-import android.graphics.RectF;
-import android.text.TextPaint;
 import android.util.AttributeSet;
+import android.util.Log;
 import android.view.MotionEvent;
 import android.view.View;
 
 import com.ispring.gameplane.R;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 
 public class GameView extends View {
 
-    private Paint paint;
-    private Paint textPaint;
-    private CombatAircraft combatAircraft = null;
-    private List<Sprite> sprites = new ArrayList<Sprite>();
-    private List<Sprite> spritesNeedAdded = new ArrayList<Sprite>();
+    /*
+     * Game:		game
+     * The simulation of the game, see Game
+     * 
+     * Hud:			hud
+     * Draw score, bombs and the score dialog
+     * 
+     * CanvasRenderer:	renderer
+     * Draw game and hud on the Canvas of this view
+     */
+    private Game game = null;
+    private Hud hud;
+    private CanvasRenderer renderer;
     /*
      * Arraylist: List
      * The arraylist stores all the *.png file that needed to use in the game
+     * The pictures are decoded on first use in the background, see LazyBitmap
      * There are 11 numbers, each represent one file.
      * 0:combatAircraft
      * 1:explosion
@@ -54,7 +67,77 @@ public class GameView extends View {
      * 10:pause2
      * 11:bomb
      */
-    private List<Bitmap> bitmaps = new ArrayList<Bitmap>();
+    private List<LazyBitmap> bitmaps = new ArrayList<LazyBitmap>();
+    private List<Texture> textures = new ArrayList<Texture>();
+    /*
+     * Int arrays: STARTUP_TEXTURES, COLLISION_TEXTURES
+     * STARTUP_TEXTURES are decoded as soon as the game starts, in the order of the first frames,
+     * the others (awards, pause2 and bomb) are decoded when the game prefetches them or on first use
+     * COLLISION_TEXTURES need masks for pixel-accurate collision
+     *
+     * ExecutorService: decoder
+     * The background thread that only decodes the pictures, so a picture drawn for the first time
+     * never waits behind file I/O
+     *
+     * ExecutorService: ioExecutor
+     * The background thread for everything else that may block: sounds, leaderboard, replays and traces
+     */
+    private static final int[] STARTUP_TEXTURES = {0, 9, 2, 4, 5, 6, 3, 1};
+    private static final int[] COLLISION_TEXTURES = {0, 2, 3, 4, 5, 6, 7, 8};
+    private ExecutorService decoder;
+    private ExecutorService ioExecutor;
+
+    /*
+     * SoundPoolBackend: soundBackend
+     * SoundEffects: soundEffects
+     * The sound effects are played once per frame after the game is updated, see SoundEffects
+     */
+    private SoundPoolBackend soundBackend = null;
+    private SoundEffects soundEffects = null;
+
+    /*
+     * TelemetryLog: telemetryLog
+     * SessionStats: sessionStats
+     * The stats of the current game, appended to files/sessions.log when the game is over,
+     * the file is written by a background thread, see TelemetryLog
+     */
+    private TelemetryLog telemetryLog = null;
+    private SessionStats sessionStats = null;
+
+    /*
+     * HighScoreTable: highScores
+     * The local leaderboard in files/highscores.bin, opened in the background, null until it is opened
+     * String: profileName
+     * The profile whose scores are recorded
+     */
+    private volatile HighScoreTable highScores = null;
+    private String profileName = DEFAULT_PROFILE_NAME;
+
+    /*
+     * NetSession: netSession
+     * The network game, null if the game is played alone, see hostNetGame and joinNetGame
+     * The host plays the local game as usual while the game of the other player runs in the session,
+     * the client has no local game and shows the frames received from the host
+     * String: netHostName
+     * The host that the client joins, null for the host or a game played alone
+     * Int variable: netPort
+     * The port of the host
+     */
+    private NetSession netSession = null;
+    private String netHostName = null;
+    private int netPort = NetSession.DEFAULT_PORT;
+
+    /*
+     * ReplayRecorder: replayRecorder
+     * The state of every frame of the current game, saved to files/replay.bin in the background when the game is over
+     * Replay: replay
+     * The replay shown instead of the game, null if the game is shown, see showReplay
+     * Int variable: replayFrame
+     * The frame of the replay that is shown
+     */
+    private ReplayRecorder replayRecorder = null;
+    private Replay replay = null;
+    private int replayFrame = 0;
     /*
      * Float variable: density
      * Variable to represent density of screen
@@ -65,61 +148,60 @@ public class GameView extends View {
      * 				 STATUS_GAME_PAUSED
      * 				 STATUS_GAME_OVER
      * 				 STATUS_GAME_DESTROYED
-     * 4 integers variable to represent 4 status of the game.
-     * 1 represents game is started
-     * 2 represents game is paused
-     * 3 represents game is over
-     * 4 represents game if not started yet
+     * See Also:
+     * 			Game
      */
-    public static final int STATUS_GAME_STARTED = 1;
-    public static final int STATUS_GAME_PAUSED = 2;
-    public static final int STATUS_GAME_OVER = 3;
-    public static final int STATUS_GAME_DESTROYED = 4;
-    private int status = STATUS_GAME_DESTROYED;
+    public static final int STATUS_GAME_STARTED = Game.STATUS_GAME_STARTED;
+    public static final int STATUS_GAME_PAUSED = Game.STATUS_GAME_PAUSED;
+    public static final int STATUS_GAME_OVER = Game.STATUS_GAME_OVER;
+    public static final int STATUS_GAME_DESTROYED = Game.STATUS_GAME_DESTROYED;
+
     /*
-     * Long variable:	frame
-     * 					score
-     * Frame is the total frame that needed to draw
-     * Score is the total score
+     * String: DEFAULT_PROFILE_NAME
+     * The profile used when no name (or a blank name) is given, see setProfileName
      */
-    private long frame = 0;
-    private long score = 0;
-    private float fontSize = 12;//Default font size
+    public static final String DEFAULT_PROFILE_NAME = "player";
+
     /*
-     * Float variable:	fontSize2
-     * This size is used for the dialog displayed at the end of the game
+     * GestureRecognizer: gestureRecognizer
+     * Resolve single click, double click and moving from touching events
+     * 
+     * See Also:
+     * 			GestureRecognizer
      */
-    private float fontSize2 = 20;
-    private float borderSize = 2;//Default font size for dialog
+    private GestureRecognizer gestureRecognizer;
+
     /*
-     * Rect variable:	continueRect
-     * The button rectangle for "Restart" and "Continue"
+     * Variables of frame pacing
+     *
+     * frameScheduler:	Drives the game loop by vsync, see FrameScheduler
+     * pendingTicks:	The number of game ticks that onDraw should run,
+     * 					0 means the frame is only redrawn without updating
      */
-    private Rect continueRect = new Rect();
+    private FrameScheduler frameScheduler;
+    private int pendingTicks = 0;
 
     /*
-     * Variables of Touching events
-     * 
-     * TOUCH_MOVE:			Movements
-     * TOUCH_SINGLE_CLICK:  Single Click on screen
-     * TOUCH_DOUBLE_CLICK:  Double Click on screen
+     * Variables of touch prediction
+     *
+     * touchPredictor:			Estimates where the finger will be when the frame is displayed, see TouchPredictor
+     * touchPrediction:			Whether the aircraft is moved to the predicted position instead of the last touch
+     * touchPredictionLeadNanos:	The time from the vsync of a frame to its display
+     * dragging:				Whether the aircraft follows the finger
+     * frameTimeNanos:			The vsync of the frame being drawn
      */
-    private static final int TOUCH_MOVE = 1;
-    private static final int TOUCH_SINGLE_CLICK = 2;
-    private static final int TOUCH_DOUBLE_CLICK = 3;
+    private TouchPredictor touchPredictor = new TouchPredictor();
+    private boolean touchPrediction = true;
+    private long touchPredictionLeadNanos = Game.FRAME_NANOS * 3 / 2;
+    private boolean dragging = false;
+    private long frameTimeNanos = 0;
+
     /*
-     * Variables of differentiate single click and double cilck
-     * 
-     * See Also:
-     * 			Function:	resolveTouchType
-     */
-    private static final int singleClickDurationTime = 200;
-    private static final int doubleClickDurationTime = 300;
-    private long lastSingleClickTime = -1;//The time of last single click
-    private long touchDownTime = -1;//the time of touching down 
-    private long touchUpTime = -1;//the time of touching up
-    private float touchX = -1;//X coordinate of touching position
-    private float touchY = -1;//Y coordiante of touching position
+     * String: TRACE_TAG
+     * Tracing is enabled by "adb shell setprop log.tag.GameTrace DEBUG" before the game starts,
+     * and the trace is written to the external files dir when the game is paused, see Tracer
+     */
+    private static final String TRACE_TAG = "GameTrace";
     
     /*
      * Constructor: GameView
@@ -143,7 +225,7 @@ public class GameView extends View {
 
     /*
      * Function:	init
-     * Initilzes paint tool and font size
+     * Initilzes renderer, hud and font size
      * 
      * @param ArrributeSet	Android variable defined in XML
      * @param int			Android variable defined in XML
@@ -153,17 +235,87 @@ public class GameView extends View {
         final TypedArray a = getContext().obtainStyledAttributes(
                 attrs, R.styleable.GameView, defStyle, 0);
         a.recycle();
-        paint = new Paint();
-        paint.setStyle(Paint.Style.FILL);
-        textPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG | Paint.FAKE_BOLD_TEXT_FLAG);
-        textPaint.setColor(0xff000000);
-        fontSize = textPaint.getTextSize();
-        fontSize *= density;
-        fontSize2 *= density;
-        textPaint.setTextSize(fontSize);
-        borderSize *= density;
+        decoder = newBackgroundExecutor("BitmapDecoder");
+        ioExecutor = newBackgroundExecutor("GameIO");
+        telemetryLog = new TelemetryLog(new File(getContext().getFilesDir(), "sessions.log"));
+        telemetryLog.start();
+        openHighScores(new File(getContext().getFilesDir(), "highscores.bin"));
+        renderer = new CanvasRenderer(bitmaps);
+        float fontSize = renderer.getDefaultTextSize() * density;
+        hud = new Hud(density, fontSize);
+        gestureRecognizer = new GestureRecognizer(new GestureRecognizer.Listener() {
+            @Override
+            public void onMove(float x, float y) {
+                if(netHostName != null){
+                    if(netSession != null){
+                        netSession.moveTo(x, y);
+                    }
+                }else if(replay != null){
+                    //Drag horizontally to scrub through the replay
+                    seekReplay((int)(x / getWidth() * replay.getFrameCount()));
+                }else if(getStatus() == STATUS_GAME_STARTED){
+                    //With prediction the aircraft is moved once per tick, see drawGameStarted
+                    dragging = true;
+                    if(!touchPrediction){
+                        game.moveCombatAircraftTo(x, y);
+                    }
+                }
+            }
+
+            @Override
+            public void onSingleClick(float x, float y) {
+                GameView.this.onSingleClick(x, y);
+            }
+
+            @Override
+            public void onDoubleClick(float x, float y) {
+                if(netHostName != null){
+                    if(netSession != null){
+                        netSession.bomb();
+                    }
+                }else if(getStatus() == STATUS_GAME_STARTED){
+                    //Double click to use bomb
+                    game.bomb();
+                }
+            }
+        });
+        frameScheduler = new FrameScheduler(getContext(), new FrameScheduler.Callback() {
+            @Override
+            public void onFrame(long frameTimeNanos, int ticks) {
+                if(ticks > 0 && netHostName != null){
+                    //The client is updated in the session, only the view is redrawn
+                    invalidate();
+                }else if(ticks > 0 && getStatus() == STATUS_GAME_STARTED){
+                    GameView.this.frameTimeNanos = frameTimeNanos;
+                    if(sessionStats != null){
+                        sessionStats.recordFrame(frameTimeNanos);
+                    }
+                    pendingTicks += ticks;
+                    invalidate();
+                }
+            }
+        });
     }
     
+    /*
+     * Function: newBackgroundExecutor
+     * Create a single low priority daemon thread
+     *
+     * @param String	The name of the thread
+     * @Return			The executor
+     */
+    private static ExecutorService newBackgroundExecutor(final String name){
+        return Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
     /*
      * Function: start
      * Starts the game
@@ -172,12 +324,246 @@ public class GameView extends View {
      * @return		None
      */
     public void start(int[] bitmapIds){
-        destroy();
-        for(int bitmapId : bitmapIds){
-            Bitmap bitmap = BitmapFactory.decodeResource(getResources(), bitmapId);
+        release();
+        loadBitmaps(bitmapIds);
+        game = new Game(textures, density);
+        game.setPrefetcher(new Game.Prefetcher() {
+            @Override
+            public void prefetch(Texture texture) {
+                bitmaps.get(texture.getId()).prefetch();
+            }
+        });
+        game.setWaveTimeline(loadWaveTimeline(R.raw.level1));
+        game.getTracer().setEnabled(Log.isLoggable(TRACE_TAG, Log.DEBUG));
+        loadSounds();
+        game.getEvents().addListener(soundEffects);
+        startWhenBitmapsReady();
+    }
+
+    /*
+     * Function: loadBitmaps
+     * Create the textures of the pictures
+     *
+     * @param int[]	The ID of picture that will be used in this game.
+     * @return		None
+     */
+    private void loadBitmaps(int[] bitmapIds){
+        for(int i = 0; i < bitmapIds.length; i++){
+            //Only the size is read here, the picture is decoded later
+            boolean collidable = contains(COLLISION_TEXTURES, i);
+            LazyBitmap bitmap = new LazyBitmap(getResources(), bitmapIds[i], density, collidable, decoder);
+            Texture texture = new Texture(i, bitmap.getWidth(), bitmap.getHeight());
+            if(collidable){
+                texture.setCollisionMaskLoader(bitmap);
+            }
+            textures.add(texture);
             bitmaps.add(bitmap);
         }
-        startWhenBitmapsReady();
+        for(int index : STARTUP_TEXTURES){
+            if(index < bitmaps.size()){
+                bitmaps.get(index).prefetch();
+            }
+        }
+    }
+
+    /*
+     * Function: hostNetGame
+     * Let another player join the game started by start, see NetHost
+     * The other player gets a game with the same seed and level, which runs in the background,
+     * the scores of both players are shown to both. Restarting only restarts the local game
+     *
+     * @param int	The port to listen on
+     * @return		None
+     */
+    public void hostNetGame(int port){
+        if(game == null || netSession != null){
+            return;
+        }
+        //The remote game runs in the background thread, so it has its own textures
+        List<Texture> remoteTextures = new ArrayList<Texture>();
+        for(int i = 0; i < textures.size(); i++){
+            Texture texture = textures.get(i);
+            Texture remoteTexture = new Texture(texture.getId(), texture.getWidth(), texture.getHeight());
+            if(contains(COLLISION_TEXTURES, i)){
+                remoteTexture.setCollisionMaskLoader(bitmaps.get(i));
+            }
+            remoteTextures.add(remoteTexture);
+        }
+        Game remoteGame = new Game(remoteTextures, density, game.getSeed());
+        remoteGame.setWaveTimeline(loadWaveTimeline(R.raw.level1));
+        remoteGame.start();
+        netSession = NetSession.host(remoteGame, port);
+    }
+
+    /*
+     * Function: joinNetGame
+     * Join the game of another player instead of playing alone, see NetClient
+     * The session is created on the first frame, when the size of the view is known
+     *
+     * @param int[]		The ID of picture that will be used in this game.
+     * @param String	The name or address of the host
+     * @param int		The port of the host
+     * @return			None
+     */
+    public void joinNetGame(int[] bitmapIds, String hostName, int port){
+        release();
+        loadBitmaps(bitmapIds);
+        netHostName = hostName;
+        netPort = port;
+        frameScheduler.start();
+        invalidate();
+    }
+
+    /*
+     * Function: loadSounds
+     * Create the sound effects, the samples are synthesized and loaded into SoundPool in the background
+     *
+     * @param	None
+     * @Return	None
+     */
+    private void loadSounds(){
+        final SoundPoolBackend backend = new SoundPoolBackend();
+        final File dir = getContext().getCacheDir();
+        ioExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                backend.load(dir);
+            }
+        });
+        soundBackend = backend;
+        soundEffects = new SoundEffects(backend);
+    }
+
+    /*
+     * Function: openHighScores
+     * Map the leaderboard file in the background, the file is small but opening it may wait for the disk
+     *
+     * @param File	The leaderboard file
+     * @Return		None
+     */
+    private void openHighScores(final File file){
+        ioExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try{
+                    highScores = HighScoreTable.open(file);
+                }catch (IOException e){
+                    Log.w("GameView", "failed to open high scores", e);
+                }
+            }
+        });
+    }
+
+    /*
+     * Function: setProfileName
+     * Set the profile whose scores are recorded in the leaderboard
+     * The name is trimmed, a null or blank name falls back to DEFAULT_PROFILE_NAME
+     *
+     * @param String	The name of the profile
+     * @Return			None
+     */
+    public void setProfileName(String profileName){
+        String name = profileName != null ? profileName.trim() : "";
+        this.profileName = name.length() > 0 ? name : DEFAULT_PROFILE_NAME;
+    }
+
+    public String getProfileName(){
+        return profileName;
+    }
+
+    /*
+     * Function: recordHighScore
+     * Insert the score into the leaderboard, the mapped file is only forced to disk in the background
+     *
+     * @param	None
+     * @Return	None
+     */
+    private void recordHighScore(){
+        final HighScoreTable table = highScores;
+        if(table == null){
+            return;
+        }
+        int profile = table.getProfile(profileName);
+        if(profile < 0){
+            Log.w("GameView", "no room for profile " + profileName);
+            return;
+        }
+        int rank = table.record(profile, game.getScore(), System.currentTimeMillis());
+        hud.setHighScores(table, rank);
+        ioExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                table.force();
+            }
+        });
+    }
+
+    /*
+     * Function: saveReplay
+     * Save the replay of the current game to files/replay.bin in the background
+     *
+     * @param	None
+     * @Return	None
+     */
+    private void saveReplay(){
+        final ReplayRecorder recorder = replayRecorder;
+        replayRecorder = null;
+        if(recorder == null || recorder.getFrameCount() == 0){
+            return;
+        }
+        final File file = getReplayFile();
+        ioExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try{
+                    recorder.save(file);
+                }catch (IOException e){
+                    Log.w("GameView", "failed to save replay", e);
+                }
+            }
+        });
+    }
+
+    private File getReplayFile(){
+        return new File(getContext().getFilesDir(), "replay.bin");
+    }
+
+    private static boolean contains(int[] values, int value){
+        for(int v : values){
+            if(v == value){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Function: loadWaveTimeline
+     * Compile the level file in res/raw, see WaveTimeline
+     * If the level can not be loaded, enemies are created randomly
+     *
+     * @param int	The id of the level file
+     * @Return		The compiled level, null if failed
+     */
+    private WaveTimeline loadWaveTimeline(int rawId){
+        Reader reader = null;
+        try{
+            reader = new InputStreamReader(getResources().openRawResource(rawId), "UTF-8");
+            return WaveTimeline.compile(reader);
+        }catch (IOException e){
+            Log.w("GameView", "failed to load level", e);
+        }catch (IllegalArgumentException e){
+            Log.w("GameView", "invalid level", e);
+        }finally {
+            if(reader != null){
+                try{
+                    reader.close();
+                }catch (IOException e){
+                    //ignore
+                }
+            }
+        }
+        return null;
     }
     
     /*
@@ -188,9 +574,34 @@ public class GameView extends View {
      * @Return	None
      */
     private void startWhenBitmapsReady(){
-        combatAircraft = new CombatAircraft(bitmaps.get(0));
-        status = STATUS_GAME_STARTED;
-        postInvalidate();//Redraw function built in Android
+        //Every game gets a new seed, the seed and the inputs are enough to verify the score, see ScoreVerifier
+        game.setSeed(System.currentTimeMillis());
+        game.start();
+        hud.setHighScores(null, -1);
+        sessionStats = new SessionStats(game.getSeed(), System.currentTimeMillis());
+        game.getEvents().addListener(sessionStats);
+        replayRecorder = new ReplayRecorder();
+        pendingTicks = 0;
+        frameScheduler.start();//Redraw by vsync, see FrameScheduler
+    }
+
+    /*
+     * Function: finishSession
+     * Append the stats of the current game to the telemetry log, the file is written in the background
+     *
+     * @param boolean	true if the game is over, false if it is abandoned
+     * @Return			None
+     */
+    private void finishSession(boolean completed){
+        if(sessionStats == null){
+            return;
+        }
+        sessionStats.finish(game, System.currentTimeMillis(), completed);
+        game.getEvents().removeListener(sessionStats);
+        if(!telemetryLog.append(sessionStats.toBytes())){
+            Log.w("GameView", "session stats dropped");
+        }
+        sessionStats = null;
     }
     
     /*
@@ -213,7 +624,54 @@ public class GameView extends View {
      * @Return	None
      */
     public void pause(){
-        status = STATUS_GAME_PAUSED;
+        if(game != null){
+            game.pause();
+            soundBackend.pause();
+            if(game.getTracer().isEnabled()){
+                File dir = getContext().getExternalFilesDir(null);
+                final File file = new File(dir != null ? dir : getContext().getFilesDir(), "trace.json");
+                final Game tracedGame = game;
+                //Written in the background, the tracer can be exported while the game records new events
+                ioExecutor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        exportTrace(tracedGame.getTracer(), file);
+                    }
+                });
+            }
+        }
+        frameScheduler.stop();
+        postInvalidate();
+    }
+
+    /*
+     * Function: exportTrace
+     * Write the recorded frames as Chrome Trace Event JSON, which can be opened in Perfetto
+     * The file is written synchronously, call it in the background
+     *
+     * @param Tracer	The tracer to export
+     * @param File		The file to write
+     * @Return			true if the trace is written
+     */
+    private static boolean exportTrace(Tracer tracer, File file){
+        Writer writer = null;
+        try{
+            writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+            tracer.writeJson(writer);
+            Log.i(TRACE_TAG, "trace written to " + file);
+            return true;
+        }catch (IOException e){
+            Log.w(TRACE_TAG, "failed to write trace", e);
+            return false;
+        }finally {
+            if(writer != null){
+                try{
+                    writer.close();
+                }catch (IOException e){
+                    //ignore
+                }
+            }
+        }
     }
 
     /*
@@ -224,8 +682,14 @@ public class GameView extends View {
      * @Return	None
      */
     private void resume(){
-        status = STATUS_GAME_STARTED;
-        postInvalidate();
+        game.resume();
+        soundBackend.resume();
+        if(sessionStats != null){
+            //The paused time is not a frame interval
+            sessionStats.resetFrameClock();
+        }
+        pendingTicks = 0;
+        frameScheduler.start();
     }
 
     /*
@@ -236,7 +700,7 @@ public class GameView extends View {
      * @return long Long variable of score
      */
     private long getScore(){
-        return score;
+        return game != null ? game.getScore() : 0;
     }
 
     /*-------------------------------draw-------------------------------------*/
@@ -250,79 +714,92 @@ public class GameView extends View {
      */
     @Override
     protected void onDraw(Canvas canvas) {
-        if(isSingleClick()){
-            onSingleClick(touchX, touchY);
-        }
-
         super.onDraw(canvas);
 
+        renderer.setCanvas(canvas);
+        if(netHostName != null){
+            drawNetClient();
+            return;
+        }
+        if(replay != null){
+            drawReplay();
+            return;
+        }
+        int status = getStatus();
         if(status == STATUS_GAME_STARTED){
-            drawGameStarted(canvas);
+            Tracer tracer = game.getTracer();
+            long t = tracer.begin();
+            drawGameStarted();
+            tracer.end("GameView.onDraw", t);
         }else if(status == STATUS_GAME_PAUSED){
-            drawGamePaused(canvas);
+            drawGamePaused();
         }else if(status == STATUS_GAME_OVER){
-            drawGameOver(canvas);
+            drawGameOver();
         }
     }
 
     /*
      * Function: drawGameStarted
      * Draw all the items as the game is started
+     * The game is only updated when FrameScheduler has posted a tick,
+     * otherwise (e.g. the system asked for a redraw) the items are just redrawn
      * 
-     * @param Canvas	Paint tool built in Android
-     * @return			None
+     * @param	None
+     * @return	None
      */
-    private void drawGameStarted(Canvas canvas){
-
-        drawScoreAndBombs(canvas);
-
-        /*
-         * At the begining of the game, put the aircraft to the bottome and mif of the screen
-         */
-        if(frame == 0){
-            float centerX = canvas.getWidth() / 2;
-            float centerY = canvas.getHeight() - combatAircraft.getHeight() / 2;
-            combatAircraft.centerTo(centerX, centerY);
+    private void drawGameStarted(){
+        Tracer tracer = game.getTracer();
+        long t = tracer.begin();
+        hud.drawScoreAndBombs(renderer, game);
+        drawOpponent();
+        tracer.end("Hud.drawScoreAndBombs", t);
+
+        if(pendingTicks <= 0){
+            //Redrawn without a tick, shown as a separate event in the trace
+            t = tracer.begin();
+            game.draw(renderer);
+            tracer.end("Game.draw", t);
+            return;
         }
+        pendingTicks = 0;
 
-        //Create enemy aircraft
-        if(spritesNeedAdded.size() > 0){
-            sprites.addAll(spritesNeedAdded);
-            spritesNeedAdded.clear();
+        moveToPredictedTouch();
+        game.step(renderer);
+        if(netSession != null){
+            netSession.setOpponentScore(game.getScore());
         }
-
-        //A fuction about bullets. See detail in the defination of this function.
-        destroyBulletsFrontOfCombatAircraft();
-
-        //A function about enemy aircraft. See detail in the defination of this function.
-        removeDestroyedSprites();
-
-        //Create enemy aircraft every 30 seconds
-        if(frame % 30 == 0){
-            createRandomSprites(canvas.getWidth());
+        t = tracer.begin();
+        soundEffects.setScreenWidth(renderer.getWidth());
+        soundEffects.flush(game.getFrame());
+        tracer.end("SoundEffects.flush", t);
+        t = tracer.begin();
+        replayRecorder.record(game, renderer);
+        tracer.end("ReplayRecorder.record", t);
+        if(game.getStatus() == STATUS_GAME_OVER){
+            //If player is attacked, game is over
+            frameScheduler.stop();
+            finishSession(true);
+            recordHighScore();
+            saveReplay();
+            postInvalidate();
         }
-        frame++;
+    }
 
-        //Check status of Sprites. Sprites include enemy aircraft, bullet and bomb
-        Iterator<Sprite> iterator = sprites.iterator();
-        while (iterator.hasNext()){
-            Sprite s = iterator.next();
-            if(!s.isDestroyed()){
-                s.draw(canvas, paint, this);
-            }
-            //Check whether enemy is destroyed
-            if(s.isDestroyed()){
-                iterator.remove();
-            }
+    /*
+     * Function: moveToPredictedTouch
+     * Move the aircraft to where the finger is predicted to be when this frame is displayed
+     * In measuring mode the prediction is made (and measured) even if it is not used
+     *
+     * @param	None
+     * @return	None
+     */
+    private void moveToPredictedTouch(){
+        if(!dragging || (!touchPrediction && !touchPredictor.isMeasuring())){
+            return;
         }
-        //Draw the palyer aircraft
-        if(combatAircraft != null){
-            combatAircraft.draw(canvas, paint, this);
-            if(combatAircraft.isDestroyed()){
-                //If player is attacked, game is over
-                status = STATUS_GAME_OVER;
-            }
-            postInvalidate();
+        touchPredictor.setBounds(renderer.getWidth(), renderer.getHeight());
+        if(touchPredictor.predict(frameTimeNanos + touchPredictionLeadNanos) && touchPrediction){
+            game.moveCombatAircraftTo(touchPredictor.getPredictedX(), touchPredictor.getPredictedY());
         }
     }
 
@@ -330,248 +807,158 @@ public class GameView extends View {
      * Function: drawGamePaused
      * Draw all the items that will dipaly if the game is paused
      * 
-     * @param	Paint tool built in Android
+     * @param	None
      * @return	None
      */
-    private void drawGamePaused(Canvas canvas){
-        drawScoreAndBombs(canvas);
-        for(Sprite s : sprites){
-            s.onDraw(canvas, paint, this);
-        }
-        if(combatAircraft != null){
-            combatAircraft.onDraw(canvas, paint, this);
-        }
+    private void drawGamePaused(){
+        hud.drawScoreAndBombs(renderer, game);
+        drawOpponent();
+        game.draw(renderer);
 
         //Draw dialog of scores
-        drawScoreDialog(canvas, "缁х画");
-
-        if(lastSingleClickTime > 0){
-            postInvalidate();
-        }
+        hud.drawScoreDialog(renderer, game, "缁х画");
     }
 
     /*
      * Function: drawGameOver
      * Draw all the items that will dispaly if game is over
      * 
-     * @param Canvas 	Paint tool built in Android
-     * @return			None
+     * @param	None
+     * @return	None
      */
-    private void drawGameOver(Canvas canvas){
-        drawScoreDialog(canvas, "閲嶆柊寮�濮�");
-
-        if(lastSingleClickTime > 0){
-            postInvalidate();
-        }
+    private void drawGameOver(){
+        hud.drawScoreDialog(renderer, game, "閲嶆柊寮�濮�", "回放");
+        drawOpponent();
     }
 
     /*
-     * Function: drawScoreDialog
-     * Draw the dialog to show score
-     * 
-     * @param Canvas 	Paint tool built in Android
-     * @param string	
-     * @return			None
-     */
-    private void drawScoreDialog(Canvas canvas, String operation){
-        int canvasWidth = canvas.getWidth();
-        int canvasHeight = canvas.getHeight();
-        float originalFontSize = textPaint.getTextSize();
-        Paint.Align originalFontAlign = textPaint.getTextAlign();
-        int originalColor = paint.getColor();
-        Paint.Style originalStyle = paint.getStyle();
-
-        int w1 = (int)(20.0 / 360.0 * canvasWidth);
-        int w2 = canvasWidth - 2 * w1;
-        int buttonWidth = (int)(140.0 / 360.0 * canvasWidth);
-
-        int h1 = (int)(150.0 / 558.0 * canvasHeight);
-        int h2 = (int)(60.0 / 558.0 * canvasHeight);
-        int h3 = (int)(124.0 / 558.0 * canvasHeight);
-        int h4 = (int)(76.0 / 558.0 * canvasHeight);
-        int buttonHeight = (int)(42.0 / 558.0 * canvasHeight);
-
-        canvas.translate(w1, h1);
-        //background color is white
-        paint.setStyle(Paint.Style.FILL);
-        paint.setColor(0xFFD7DDDE);
-        Rect rect1 = new Rect(0, 0, w2, canvasHeight - 2 * h1);
-        canvas.drawRect(rect1, paint);
-        //draw dialog
-        paint.setStyle(Paint.Style.STROKE);
-        paint.setColor(0xFF515151);
-        paint.setStrokeWidth(borderSize);
-        paint.setStrokeJoin(Paint.Join.ROUND);
-        canvas.drawRect(rect1, paint);
-        textPaint.setTextSize(fontSize2);
-        textPaint.setTextAlign(Paint.Align.CENTER);
-        canvas.drawText("椋炴満澶ф垬鍒嗘暟", w2 / 2, (h2 - fontSize2) / 2 + fontSize2, textPaint);
-        //draw score
-        canvas.translate(0, h2);
-        canvas.drawLine(0, 0, w2, 0, paint);
-        String allScore = String.valueOf(getScore());
-        canvas.drawText(allScore, w2 / 2, (h3 - fontSize2) / 2 + fontSize2, textPaint);
-        canvas.translate(0, h3);
-        canvas.drawLine(0, 0, w2, 0, paint);
-        //draw dialog rectangle
-        Rect rect2 = new Rect();
-        rect2.left = (w2 - buttonWidth) / 2;
-        rect2.right = w2 - rect2.left;
-        rect2.top = (h4 - buttonHeight) / 2;
-        rect2.bottom = h4 - rect2.top;
-        canvas.drawRect(rect2, paint);
-        canvas.translate(0, rect2.top);
-        canvas.drawText(operation, w2 / 2, (buttonHeight - fontSize2) / 2 + fontSize2, textPaint);
-        continueRect = new Rect(rect2);
-        continueRect.left = w1 + rect2.left;
-        continueRect.right = continueRect.left + buttonWidth;
-        continueRect.top = h1 + h2 + h3 + rect2.top;
-        continueRect.bottom = continueRect.top + buttonHeight;
-
-        //reset
-        textPaint.setTextSize(originalFontSize);
-        textPaint.setTextAlign(originalFontAlign);
-        paint.setColor(originalColor);
-        paint.setStyle(originalStyle);
-    }
-
-    /*
-     * Function: drawScoreAndBombs
-     * Draw score on top left corner. Draw the number of bomb on bottom left corner
-     * 
-     * @param Canvas 	Paint tool built in Android
-     * @return			None
+     * Function: drawNetClient
+     * Draw the frame received from the host with the score and bombs of this player and the score of the host
+     *
+     * @param	None
+     * @return	None
      */
-    private void drawScoreAndBombs(Canvas canvas){
-        //Draw the pause button with picture 9
-        Bitmap pauseBitmap = status == STATUS_GAME_STARTED ? bitmaps.get(9) : bitmaps.get(10);
-        RectF pauseBitmapDstRecF = getPauseBitmapDstRecF();
-        float pauseLeft = pauseBitmapDstRecF.left;
-        float pauseTop = pauseBitmapDstRecF.top;
-        canvas.drawBitmap(pauseBitmap, pauseLeft, pauseTop, paint);
-        //draw score dialog
-        float scoreLeft = pauseLeft + pauseBitmap.getWidth() + 20 * density;
-        float scoreTop = fontSize + pauseTop + pauseBitmap.getHeight() / 2 - fontSize / 2;
-        canvas.drawText(score + "", scoreLeft, scoreTop, textPaint);
-
-        //draw bomb
-        if(combatAircraft != null && !combatAircraft.isDestroyed()){
-            int bombCount = combatAircraft.getBombCount();
-            if(bombCount > 0){
-                //bomb icon
-                Bitmap bombBitmap = bitmaps.get(11);
-                float bombTop = canvas.getHeight() - bombBitmap.getHeight();
-                canvas.drawBitmap(bombBitmap, 0, bombTop, paint);
-                //the number of bomb
-                float bombCountLeft = bombBitmap.getWidth() + 10 * density;
-                float bombCountTop = fontSize + bombTop + bombBitmap.getHeight() / 2 - fontSize / 2;
-                canvas.drawText("X " + bombCount, bombCountLeft, bombCountTop, textPaint);
-            }
+    private void drawNetClient(){
+        if(netSession == null){
+            //The host simulates the game on a screen of the same size
+            netSession = NetSession.join(netHostName, netPort, renderer.getWidth(), renderer.getHeight(), density);
         }
+        netSession.draw(renderer, textures);
+        hud.drawScoreAndBombs(renderer, textures, textures.get(9), netSession.getScore(), netSession.getBombCount());
+        drawOpponent();
     }
 
     /*
-     * Function destroyBulletsFrontOfCombatAircraft
-     * Check the position of bullet by coordinates.
-     * If bullet is on the front of aircraft, delete those bullets.
-     * If player move the aircraft too fast, there will be much bullets are on the front of aircraft which is never happen in reality
-     * 
+     * Function: drawOpponent
+     * Draw the state of the network game: the score of the other player, or why there is none
+     *
      * @param	None
      * @return	None
      */
-    private void destroyBulletsFrontOfCombatAircraft(){
-        if(combatAircraft != null){
-            float aircraftY = combatAircraft.getY();
-            List<Bullet> aliveBullets = getAliveBullets();
-            for(Bullet bullet : aliveBullets){
-                if(aircraftY <= bullet.getY()){
-                    bullet.destroy();
-                }
-            }
+    private void drawOpponent(){
+        if(netSession == null){
+            return;
+        }
+        String text;
+        if(netSession.getError() != null){
+            text = "连接失败";
+        }else if(!netSession.isConnected()){
+            text = netSession.isHost() ? "等待对手加入" : "正在连接";
+        }else if(netSession.isHost()){
+            text = "对手 " + netSession.getRemoteScore();
+        }else{
+            text = (netSession.getStatus() == STATUS_GAME_OVER ? "游戏结束  " : "") + "对手 " + netSession.getHostScore();
         }
+        hud.drawOpponent(renderer, text);
     }
 
     /*
-     * Function: removeDestroyedSprites
-     * Remove destroyed Enemy aircraft, bullets and bombs
-     * 
+     * Function: drawReplay
+     * Draw a frame of the replay with the same HUD as the game, the pause button is shown as paused
+     *
      * @param	None
      * @return	None
      */
-    private void removeDestroyedSprites(){
-        Iterator<Sprite> iterator = sprites.iterator();
-        while (iterator.hasNext()){
-            Sprite s = iterator.next();
-            if(s.isDestroyed()){
-                iterator.remove();
-            }
-        }
+    private void drawReplay(){
+        NetSnapshot snapshot = replay.seek(replayFrame);
+        hud.drawScoreAndBombs(renderer, textures, textures.get(10), snapshot.getScore(), snapshot.getBombCount());
+        snapshot.draw(renderer, textures, EnemyProjectiles.RADIUS * density * 2);
     }
 
+    /*-------------------------------replay------------------------------------*/
+
     /*
-     * Function: createRandomSprites
-     * Create random Enemy aircraft
-     * Create random bomb
-     * Create double bullets
-     * 
+     * Function: showLastReplay
+     * Show the replay of the last finished game, opened in the background
+     * The last frame (the death) is shown first
+     *
      * @param	None
      * @return	None
      */
-    private void createRandomSprites(int canvasWidth){
-        Sprite sprite = null;
-        int speed = 2;
-        int callTime = Math.round(frame / 30);
-        if((callTime + 1) % 25 == 0){
-            //create bomb
-            if((callTime + 1) % 50 == 0){
-                sprite = new BombAward(bitmaps.get(7));
-            }
-            else{
-                //create double bullet
-                sprite = new BulletAward(bitmaps.get(8));
-            }
-        }
-        else{
-            /*
-             * Create enemy aircraft
-             * In this game, there are 3 types of enemy
-             * Enemy is defined in class "Sprite"
-             */
-            int[] nums = {0,0,0,0,0,1,0,0,1,0,0,0,0,1,1,1,1,1,1,2};
-            int index = (int)Math.floor(nums.length*Math.random());
-            int type = nums[index];
-            if(type == 0){
-                //samll enemy
-                sprite = new SmallEnemyPlane(bitmaps.get(4));
-            }
-            else if(type == 1){
-                //medium enemy
-                sprite = new MiddleEnemyPlane(bitmaps.get(5));
-            }
-            else if(type == 2){
-                //big enemy
-                sprite = new BigEnemyPlane(bitmaps.get(6));
-            }
-            if(type != 2){
-                if(Math.random() < 0.33){
-                    speed = 4;
+    public void showLastReplay(){
+        final File file = getReplayFile();
+        //Submitted after saveReplay, so the file is complete when it is opened
+        ioExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try{
+                    final Replay opened = Replay.open(file);
+                    post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if(getStatus() == STATUS_GAME_OVER){
+                                showReplay(opened);
+                            }
+                        }
+                    });
+                }catch (IOException e){
+                    Log.w("GameView", "failed to open replay", e);
                 }
             }
+        });
+    }
+
+    /*
+     * Function: showReplay
+     * Show a replay instead of the game, starting from its last frame
+     * Drag to scrub through it, click to go back to the game
+     *
+     * @param Replay	The replay to show
+     * @return			None
+     */
+    public void showReplay(Replay replay){
+        if(replay.getFrameCount() == 0){
+            return;
         }
+        this.replay = replay;
+        replayFrame = replay.getFrameCount() - 1;
+        invalidate();
+    }
 
-        if(sprite != null){
-            float spriteWidth = sprite.getWidth();
-            float spriteHeight = sprite.getHeight();
-            float x = (float)((canvasWidth - spriteWidth)*Math.random());
-            float y = -spriteHeight;
-            sprite.setX(x);
-            sprite.setY(y);
-            if(sprite instanceof AutoSprite){
-                AutoSprite autoSprite = (AutoSprite)sprite;
-                autoSprite.setSpeed(speed);
-            }
-            addSprite(sprite);
+    /*
+     * Function: seekReplay
+     * Show the given frame of the replay, the frame is decoded from the nearest keyframe, see Replay
+     *
+     * @param int	The frame, clamped to the replay
+     * @return		None
+     */
+    public void seekReplay(int frame){
+        if(replay == null){
+            return;
         }
+        replayFrame = Math.max(0, Math.min(replay.getFrameCount() - 1, frame));
+        invalidate();
+    }
+
+    public void stopReplay(){
+        if(replay != null){
+            replay = null;
+            invalidate();
+        }
+    }
+
+    public boolean isShowingReplay(){
+        return replay != null;
     }
 
     /*-------------------------------touch------------------------------------*/
@@ -579,112 +966,49 @@ public class GameView extends View {
     /*
      * Function: onTouchEvent
      * Define what event will happen as player click screen
-     * Inlcudes both single click and double click
+     * Inlcudes both single click and double click, see GestureRecognizer
+     * Double click is only resolved while the game is started (to use bomb),
+     * otherwise single click is dispatched as soon as the finger is up
      * 
      * @param MotionEvent	Event variable
      * @return bool			true if palyer never touch the screen
      */
     @Override
     public boolean onTouchEvent(MotionEvent event){
-        int touchType = resolveTouchType(event);
-        if(status == STATUS_GAME_STARTED){
-            if(touchType == TOUCH_MOVE){
-                if(combatAircraft != null){
-                    combatAircraft.centerTo(touchX, touchY);
-                }
-            }else if(touchType == TOUCH_DOUBLE_CLICK){
-                if(status == STATUS_GAME_STARTED){
-                    if(combatAircraft != null){
-                        //Double click to use bomb
-                        combatAircraft.bomb(this);
-                    }
-                }
-            }
-        }else if(status == STATUS_GAME_PAUSED){
-            if(lastSingleClickTime > 0){
-                postInvalidate();
-            }
-        }else if(status == STATUS_GAME_OVER){
-            if(lastSingleClickTime > 0){
-                postInvalidate();
+        int action = event.getAction() & MotionEvent.ACTION_MASK;
+        if(action == MotionEvent.ACTION_DOWN){
+            gestureRecognizer.setDoubleClickEnabled(getStatus() == STATUS_GAME_STARTED || netHostName != null);
+            touchPredictor.reset();
+            dragging = false;
+        }
+        if(action == MotionEvent.ACTION_DOWN || action == MotionEvent.ACTION_MOVE){
+            addTouchSamples(event);
+        }
+        gestureRecognizer.onTouchEvent(event);
+        if(action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL){
+            if(dragging && touchPredictor.isMeasuring()){
+                Log.i("GameView", "touch prediction: " + touchPredictor);
             }
+            touchPredictor.reset();
+            dragging = false;
         }
         return true;
     }
 
     /*
-     * Function: resolveTouchType
-     * Define single click and double click
-     * 
+     * Function: addTouchSamples
+     * Feed the touch samples batched in the event (the historical ones first) to the predictor
+     * Event times are in the uptime clock, which is the same monotonic clock as the vsync time
+     *
      * @param MotionEvent	Event variable
-     * @return int			return touchtype
-     */
-    private int resolveTouchType(MotionEvent event){
-        int touchType = -1;
-        int action = event.getAction();
-        touchX = event.getX();
-        touchY = event.getY();
-        if(action == MotionEvent.ACTION_MOVE){
-            long deltaTime = System.currentTimeMillis() - touchDownTime;
-            if(deltaTime > singleClickDurationTime){
-                touchType = TOUCH_MOVE;
-            }
-        }else if(action == MotionEvent.ACTION_DOWN){
-            //record the time that player touching the screen
-            touchDownTime = System.currentTimeMillis();
-        }else if(action == MotionEvent.ACTION_UP){
-            //record the time player's finger leave scrren
-            touchUpTime = System.currentTimeMillis();
-            //count the delta time of touching down and up
-            long downUpDurationTime = touchUpTime - touchDownTime;
-            /*
-             * if the delta time is less than 200ms, we define it as single click
-             * if the delta time of two single click is less than 300ms, we define it as double click
-             */
-            if(downUpDurationTime <= singleClickDurationTime){
-                //record the delta time of two single click
-                long twoClickDurationTime = touchUpTime - lastSingleClickTime;
-
-                if(twoClickDurationTime <=  doubleClickDurationTime){
-                    touchType = TOUCH_DOUBLE_CLICK;
-                    //reset data for next clicking
-                    lastSingleClickTime = -1;
-                    touchDownTime = -1;
-                    touchUpTime = -1;
-                }else{
-                    lastSingleClickTime = touchUpTime;
-                }
-            }
-        }
-        return touchType;
-    }
-
-    /*
-     * Function: isSingleClick
-     * Check the clicking is single click or not
-     * 
-     * @param		None
-     * @return bool	true if the click is single click
-     */
-    private boolean isSingleClick(){
-        boolean singleClick = false;
-        if(lastSingleClickTime > 0){
-            //count the delta time from last single click to now
-            long deltaTime = System.currentTimeMillis() - lastSingleClickTime;
-
-            if(deltaTime >= doubleClickDurationTime){
-            	/*
-            	 * if the delta time greater than the time needed for double click
-            	 * we define it as a single click
-            	 */
-                singleClick = true;
-                //reset data for next clicking event
-                lastSingleClickTime = -1;
-                touchDownTime = -1;
-                touchUpTime = -1;
-            }
+     * @return				None
+     */
+    private void addTouchSamples(MotionEvent event){
+        int historySize = event.getHistorySize();
+        for(int h = 0; h < historySize; h++){
+            touchPredictor.addSample(event.getHistoricalEventTime(h) * 1000000L, event.getHistoricalX(h), event.getHistoricalY(h));
         }
-        return singleClick;
+        touchPredictor.addSample(event.getEventTime() * 1000000L, event.getX(), event.getY());
     }
 
     /*
@@ -698,6 +1022,16 @@ public class GameView extends View {
      * @return 			None
      */
     private void onSingleClick(float x, float y){
+        if(netHostName != null){
+            //The client can not pause, a click redraws again if the view was paused
+            frameScheduler.start();
+            return;
+        }
+        if(replay != null){
+            stopReplay();
+            return;
+        }
+        int status = getStatus();
         if(status == STATUS_GAME_STARTED){
             if(isClickPause(x, y)){
                 //pause button is clicked
@@ -712,6 +1046,9 @@ public class GameView extends View {
             if(isClickRestartButton(x, y)){
                 //restart button is clicked
                 restart();
+            }else if(hud.isClickReplayButton(x, y)){
+                //replay button is clicked, the replay is saved when the game is over
+                showLastReplay();
             }
         }
     }
@@ -725,8 +1062,7 @@ public class GameView extends View {
      * @return bool		true if coordination of single slick is in the range of pause button
      */
     private boolean isClickPause(float x, float y){
-        RectF pauseRecF = getPauseBitmapDstRecF();
-        return pauseRecF.contains(x, y);
+        return hud.isClickPause(game, x, y);
     }
 
     /*
@@ -738,7 +1074,7 @@ public class GameView extends View {
      * @return bool		true if coordination of single slick is in the range of continue button
      */
     private boolean isClickContinueButton(float x, float y){
-        return continueRect.contains((int)x, (int)y);
+        return hud.isClickContinueButton(x, y);
     }
 
     /*
@@ -750,24 +1086,7 @@ public class GameView extends View {
      * @return bool		true if coordination of single slick is in the range of restart button
      */
     private boolean isClickRestartButton(float x, float y){
-        return continueRect.contains((int)x, (int)y);
-    }
-
-    /*
-     * Function: getPauseBitmapDstRecF
-     * Set the range of pause buuton
-     * 
-     * @param	None
-     * @return	None
-     */
-    private RectF getPauseBitmapDstRecF(){
-        Bitmap pauseBitmap = status == STATUS_GAME_STARTED ? bitmaps.get(9) : bitmaps.get(10);
-        RectF recF = new RectF();
-        recF.left = 15 * density;
-        recF.top = 15 * density;
-        recF.right = recF.left + pauseBitmap.getWidth();
-        recF.bottom = recF.top + pauseBitmap.getHeight();
-        return recF;
+        return hud.isClickContinueButton(x, y);
     }
 
     /*-------------------------------destroy------------------------------------*/
@@ -776,150 +1095,97 @@ public class GameView extends View {
      * clean all data and pictures if game is over or restart
      */
     private void destroyNotRecyleBitmaps(){
-        status = STATUS_GAME_DESTROYED;
-        frame = 0;
-        score = 0;
-        //destroy aircraft
-        if(combatAircraft != null){
-            combatAircraft.destroy();
+        if(gestureRecognizer != null){
+            gestureRecognizer.cancel();
         }
-        combatAircraft = null;
-
-        //destroy enemy,bullet,bomb
-        for(Sprite s : sprites){
-            s.destroy();
+        if(frameScheduler != null){
+            frameScheduler.stop();
+        }
+        pendingTicks = 0;
+        replayRecorder = null;
+        replay = null;
+        if(game != null){
+            finishSession(false);
+            game.destroy();
+        }
+        if(soundEffects != null){
+            soundEffects.stopAll();
         }
-        sprites.clear();
     }
 
     /*
-     * Function: destroy
-     * Release resources
+     * Function: release
+     * Release the game and the pictures, the view can be started again
      */
-    public void destroy(){
+    private void release(){
         destroyNotRecyleBitmaps();
+        if(netSession != null){
+            netSession.close();
+            netSession = null;
+        }
+        netHostName = null;
 
-        for(Bitmap bitmap : bitmaps){
-            bitmap.recycle();
+        for(LazyBitmap bitmap : bitmaps){
+            bitmap.release();
+        }
+        if(soundBackend != null){
+            soundBackend.release();
+            soundBackend = null;
+            soundEffects = null;
         }
         bitmaps.clear();
+        textures.clear();
+        game = null;
     }
 
-    /*-------------------------------public methods-----------------------------------*/
-
     /*
-     * Function: addSprite
-     * Add Sprite to Sprite class
-     * 
-     * @param	None
-     * @return	None
+     * Function: destroy
+     * Release resources and stop the background threads, the view can not be started again
+     * Tasks already submitted (e.g. saving the replay) and records already appended to the telemetry log still run
      */
-    public void addSprite(Sprite sprite){
-        spritesNeedAdded.add(sprite);
+    public void destroy(){
+        release();
+        decoder.shutdown();
+        ioExecutor.shutdown();
+        if(telemetryLog != null){
+            telemetryLog.close();
+        }
     }
 
-    /*
-     * Function: addScore
-     * Add score that will display on the screen
-     * 
-     * @param int 	the number of score palyer earned
-     * @return		None
-     */
-    public void addScore(int value){
-        score += value;
-    }
+    /*-------------------------------public methods-----------------------------------*/
 
     public int getStatus(){
-        return status;
+        return game != null ? game.getStatus() : STATUS_GAME_DESTROYED;
     }
 
     public float getDensity(){
         return density;
     }
 
-    public Bitmap getYellowBulletBitmap(){
-        return bitmaps.get(2);
+    public Game getGame(){
+        return game;
     }
 
-    public Bitmap getBlueBulletBitmap(){
-        return bitmaps.get(3);
+    public FrameScheduler getFrameScheduler(){
+        return frameScheduler;
     }
 
-    public Bitmap getExplosionBitmap(){
-        return bitmaps.get(1);
+    //Move the aircraft to the predicted touch position (default) or to the last touch
+    public void setTouchPrediction(boolean enabled){
+        touchPrediction = enabled;
     }
 
-    /*
-     * Function: getAliveEnemyPlanes
-     * get the data of alive enemy plane
-     * 
-     * @param 		None
-     * @return List	return enemy plane list
-     */
-    public List<EnemyPlane> getAliveEnemyPlanes(){
-        List<EnemyPlane> enemyPlanes = new ArrayList<EnemyPlane>();
-        for(Sprite s : sprites){
-            if(!s.isDestroyed() && s instanceof EnemyPlane){
-                EnemyPlane sprite = (EnemyPlane)s;
-                enemyPlanes.add(sprite);
-            }
-        }
-        return enemyPlanes;
-    }
-
-    /*
-     * Function: getAliveBombAwards
-     * get the data of alive bomb
-     * 
-     * @param 		None
-     * @return List	return bomb list
-     */
-    public List<BombAward> getAliveBombAwards(){
-        List<BombAward> bombAwards = new ArrayList<BombAward>();
-        for(Sprite s : sprites){
-            if(!s.isDestroyed() && s instanceof BombAward){
-                BombAward bombAward = (BombAward)s;
-                bombAwards.add(bombAward);
-            }
-        }
-        return bombAwards;
+    //The time from vsync to display that is predicted ahead, 1.5 frames by default
+    public void setTouchPredictionLead(long leadNanos){
+        touchPredictionLeadNanos = leadNanos;
     }
 
-    /*
-     * Function: getAliveBulletAwards
-     * get the data of alive bullet award
-     * There will be random bullet award in this gmae
-     * if player touch it, bullet will upgrade to double bullet
-     * 
-     * @param 		None
-     * @return List	return bullet award list
-     */
-    public List<BulletAward> getAliveBulletAwards(){
-        List<BulletAward> bulletAwards = new ArrayList<BulletAward>();
-        for(Sprite s : sprites){
-            if(!s.isDestroyed() && s instanceof BulletAward){
-                BulletAward bulletAward = (BulletAward)s;
-                bulletAwards.add(bulletAward);
-            }
-        }
-        return bulletAwards;
+    //Log the predicted-vs-actual error and the latency saved at the end of every drag
+    public void setTouchPredictionMeasuring(boolean measuring){
+        touchPredictor.setMeasuring(measuring);
     }
 
-    /*
-     * Function: getAliveBulletAwards
-     * get the data of alive bullet
-     * 
-     * @param 		None
-     * @return List	return bullet list
-     */
-    public List<Bullet> getAliveBullets(){
-        List<Bullet> bullets = new ArrayList<Bullet>();
-        for(Sprite s : sprites){
-            if(!s.isDestroyed() && s instanceof Bullet){
-                Bullet bullet = (Bullet)s;
-                bullets.add(bullet);
-            }
-        }
-        return bullets;
+    public TouchPredictor getTouchPredictor(){
+        return touchPredictor;
     }
-}
\ No newline at end of file
+}
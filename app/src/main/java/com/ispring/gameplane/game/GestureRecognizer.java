@@ -0,0 +1,106 @@
+package com.ispring.gameplane.game;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.MotionEvent;
+
+/**
+ * 手势识别，由MotionEvent.getEventTime()的时间驱动，从而合成单击、双击和拖动事件
+ * 一次单击由ACTION_DOWN和ACTION_UP合成，两者间隔不超过200毫秒；
+ * 两次单击的间隔不超过300毫秒则合成一次双击
+ * 单击需要等双击的时间窗口结束后才能确定，这里用Handler在窗口结束时派发，而不是在onDraw中轮询，
+ * 所以单击的派发不依赖重绘；不需要双击时（setDoubleClickEnabled(false)），单击在ACTION_UP时立即派发
+ */
+public class GestureRecognizer {
+
+    public interface Listener {
+        //手指按下超过200毫秒后的拖动
+        void onMove(float x, float y);
+
+        void onSingleClick(float x, float y);
+
+        void onDoubleClick(float x, float y);
+    }
+
+    private static final int singleClickDurationTime = 200;
+    private static final int doubleClickDurationTime = 300;
+
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private boolean doubleClickEnabled = true;
+
+    private long touchDownTime = -1;//the time of touching down
+    private long lastSingleClickTime = -1;//The time of last single click, which is waiting for the second click
+    private float lastSingleClickX = -1;
+    private float lastSingleClickY = -1;
+
+    //双击时间窗口结束时派发等待中的单击
+    private final Runnable singleClickTimeout = new Runnable() {
+        @Override
+        public void run() {
+            if(lastSingleClickTime > 0){
+                lastSingleClickTime = -1;
+                touchDownTime = -1;
+                listener.onSingleClick(lastSingleClickX, lastSingleClickY);
+            }
+        }
+    };
+
+    public GestureRecognizer(Listener listener){
+        this.listener = listener;
+    }
+
+    //不需要识别双击时单击可以立即派发，例如游戏暂停和结束时
+    public void setDoubleClickEnabled(boolean doubleClickEnabled){
+        this.doubleClickEnabled = doubleClickEnabled;
+    }
+
+    public void onTouchEvent(MotionEvent event){
+        int action = event.getAction() & MotionEvent.ACTION_MASK;
+        float x = event.getX();
+        float y = event.getY();
+        long eventTime = event.getEventTime();
+        if(action == MotionEvent.ACTION_MOVE){
+            if(eventTime - touchDownTime > singleClickDurationTime){
+                listener.onMove(x, y);
+            }
+        }else if(action == MotionEvent.ACTION_DOWN){
+            //record the time that player touching the screen
+            touchDownTime = eventTime;
+        }else if(action == MotionEvent.ACTION_UP){
+            //if the delta time of touching down and up is less than 200ms, it is a click
+            if(touchDownTime > 0 && eventTime - touchDownTime <= singleClickDurationTime){
+                onClick(x, y, eventTime);
+            }
+        }else if(action == MotionEvent.ACTION_CANCEL){
+            cancel();
+        }
+    }
+
+    private void onClick(float x, float y, long upTime){
+        if(!doubleClickEnabled){
+            cancel();
+            listener.onSingleClick(x, y);
+            return;
+        }
+        if(lastSingleClickTime > 0 && upTime - lastSingleClickTime <= doubleClickDurationTime){
+            //if the delta time of two single click is less than 300ms, it is a double click
+            cancel();
+            listener.onDoubleClick(x, y);
+        }else{
+            //wait for the second click, dispatch the single click when the window of double click ends
+            handler.removeCallbacks(singleClickTimeout);
+            lastSingleClickTime = upTime;
+            lastSingleClickX = x;
+            lastSingleClickY = y;
+            handler.postAtTime(singleClickTimeout, upTime + doubleClickDurationTime);
+        }
+    }
+
+    //reset data for next clicking
+    public void cancel(){
+        handler.removeCallbacks(singleClickTimeout);
+        lastSingleClickTime = -1;
+        touchDownTime = -1;
+    }
+}
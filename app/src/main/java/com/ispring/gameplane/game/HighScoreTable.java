@@ -0,0 +1,310 @@
+package com.ispring.gameplane.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 本地排行榜，保存在固定布局的内存映射文件中
+ * 文件包含总榜和每个玩家（profile）各自的前capacity名，每条记录为分数和时间
+ * 记录一局的分数只是在映射的内存中插入两个有序的定长数组，与capacity成正比，不做系统调用也不fsync；
+ * 写入的内容在进程被杀死后仍然由系统写回文件，只有断电等情况会丢失，需要时在后台线程中调用force
+ * 读取直接访问映射的内存，不复制也不创建对象（玩家名除外）
+ * 写入前后各把generation加1，打开文件时generation为奇数说明上次写入被中断，此时重新整理各个列表
+ *
+ * 文件布局（大端序）：
+ * [文件头 HEADER_SIZE字节] magic, version, capacity, maxProfiles, generation
+ * [maxProfiles个玩家] 玩家名(NAME_LENGTH个char), 局数, 记录数, capacity条[分数(long), 时间(long)]
+ * [总榜] 记录数, capacity条[分数(long), 时间(long), 玩家(int), 保留(int)]
+ * 只有一个线程写入（游戏结束时的UI线程）
+ */
+public class HighScoreTable {
+
+    private static final int MAGIC = 0x47504831;//"GPH1"
+    private static final int VERSION = 1;
+
+    public static final int DEFAULT_CAPACITY = 10;
+    public static final int DEFAULT_MAX_PROFILES = 8;
+    public static final int NAME_LENGTH = 16;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_VERSION = 4;
+    private static final int OFFSET_CAPACITY = 8;
+    private static final int OFFSET_MAX_PROFILES = 12;
+    private static final int OFFSET_GENERATION = 16;
+
+    //玩家
+    private static final int PROFILE_NAME = 0;
+    private static final int PROFILE_GAMES = NAME_LENGTH * 2;
+    private static final int PROFILE_COUNT = PROFILE_GAMES + 4;
+    private static final int PROFILE_ENTRIES = PROFILE_COUNT + 4;
+    private static final int PROFILE_ENTRY_SIZE = 16;
+
+    //总榜
+    private static final int GLOBAL_ENTRIES = 8;
+    private static final int GLOBAL_ENTRY_SIZE = 24;
+
+    private final int capacity;
+    private final int maxProfiles;
+    private final int profileSize;
+    private final int globalOffset;
+    private final MappedByteBuffer buffer;
+
+    private HighScoreTable(MappedByteBuffer buffer, int capacity, int maxProfiles){
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.maxProfiles = maxProfiles;
+        profileSize = PROFILE_ENTRIES + capacity * PROFILE_ENTRY_SIZE;
+        globalOffset = HEADER_SIZE + maxProfiles * profileSize;
+    }
+
+    private static int getFileSize(int capacity, int maxProfiles){
+        return HEADER_SIZE + maxProfiles * (PROFILE_ENTRIES + capacity * PROFILE_ENTRY_SIZE)
+                + GLOBAL_ENTRIES + capacity * GLOBAL_ENTRY_SIZE;
+    }
+
+    public static HighScoreTable open(File file) throws IOException {
+        return open(file, DEFAULT_CAPACITY, DEFAULT_MAX_PROFILES);
+    }
+
+    //打开或创建排行榜文件，文件的布局与参数不一致时清空
+    public static HighScoreTable open(File file, int capacity, int maxProfiles) throws IOException {
+        int size = getFileSize(capacity, maxProfiles);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        MappedByteBuffer buffer;
+        try{
+            boolean valid = raf.length() == size;
+            if(!valid){
+                raf.setLength(size);
+            }
+            //映射在关闭文件后仍然有效
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if(valid){
+                valid = buffer.getInt(OFFSET_MAGIC) == MAGIC && buffer.getInt(OFFSET_VERSION) == VERSION
+                        && buffer.getInt(OFFSET_CAPACITY) == capacity && buffer.getInt(OFFSET_MAX_PROFILES) == maxProfiles;
+            }
+            HighScoreTable table = new HighScoreTable(buffer, capacity, maxProfiles);
+            if(!valid){
+                table.format();
+            }else if((buffer.getInt(OFFSET_GENERATION) & 1) != 0){
+                table.repair();
+            }
+            return table;
+        }finally {
+            raf.close();
+        }
+    }
+
+    private void format(){
+        for(int i = 0; i < buffer.capacity(); i++){
+            buffer.put(i, (byte)0);
+        }
+        buffer.putInt(OFFSET_MAGIC, MAGIC);
+        buffer.putInt(OFFSET_VERSION, VERSION);
+        buffer.putInt(OFFSET_CAPACITY, capacity);
+        buffer.putInt(OFFSET_MAX_PROFILES, maxProfiles);
+        buffer.putInt(OFFSET_GENERATION, 0);
+    }
+
+    /*-------------------------------profiles-------------------------------------*/
+
+    //查找玩家，不存在时占用一个空位，没有空位时返回-1；玩家名超过NAME_LENGTH的部分被截掉
+    //第一个字符为0的槽位表示空位，所以玩家名不能为空，也不能以'\0'开头
+    public int getProfile(String name){
+        if(name.length() == 0 || name.charAt(0) == 0){
+            throw new IllegalArgumentException("empty profile name");
+        }
+        if(name.length() > NAME_LENGTH){
+            name = name.substring(0, NAME_LENGTH);
+        }
+        int empty = -1;
+        for(int profile = 0; profile < maxProfiles; profile++){
+            int offset = getProfileOffset(profile);
+            if(buffer.getChar(offset + PROFILE_NAME) == 0){
+                if(empty < 0){
+                    empty = profile;
+                }
+            }else if(nameEquals(offset, name)){
+                return profile;
+            }
+        }
+        if(empty >= 0){
+            int offset = getProfileOffset(empty);
+            for(int i = 0; i < NAME_LENGTH; i++){
+                buffer.putChar(offset + PROFILE_NAME + i * 2, i < name.length() ? name.charAt(i) : 0);
+            }
+        }
+        return empty;
+    }
+
+    private boolean nameEquals(int offset, String name){
+        for(int i = 0; i < NAME_LENGTH; i++){
+            char c = buffer.getChar(offset + PROFILE_NAME + i * 2);
+            if(i < name.length() ? c != name.charAt(i) : c != 0){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getProfileName(int profile){
+        int offset = getProfileOffset(profile);
+        StringBuilder sb = new StringBuilder(NAME_LENGTH);
+        for(int i = 0; i < NAME_LENGTH; i++){
+            char c = buffer.getChar(offset + PROFILE_NAME + i * 2);
+            if(c == 0){
+                break;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private int getProfileOffset(int profile){
+        return HEADER_SIZE + profile * profileSize;
+    }
+
+    /*-------------------------------updating-------------------------------------*/
+
+    //记录一局的分数，返回在总榜中的名次（从0开始），未进入总榜时返回-1
+    public int record(int profile, long score, long timeMillis){
+        int generation = buffer.getInt(OFFSET_GENERATION);
+        buffer.putInt(OFFSET_GENERATION, generation + 1);
+
+        int profileOffset = getProfileOffset(profile);
+        buffer.putInt(profileOffset + PROFILE_GAMES, buffer.getInt(profileOffset + PROFILE_GAMES) + 1);
+        insert(profileOffset + PROFILE_COUNT, profileOffset + PROFILE_ENTRIES, PROFILE_ENTRY_SIZE, score, timeMillis, -1);
+        int rank = insert(globalOffset, globalOffset + GLOBAL_ENTRIES, GLOBAL_ENTRY_SIZE, score, timeMillis, profile);
+
+        buffer.putInt(OFFSET_GENERATION, generation + 2);
+        return rank;
+    }
+
+    //在有序的列表中插入一条记录，分数相同时先到的在前，返回插入的位置，没有进入前capacity名时返回-1
+    private int insert(int countOffset, int entriesOffset, int entrySize, long score, long timeMillis, int profile){
+        int count = buffer.getInt(countOffset);
+        int position = count;
+        while(position > 0 && buffer.getLong(entriesOffset + (position - 1) * entrySize) < score){
+            position--;
+        }
+        if(position >= capacity){
+            return -1;
+        }
+        //从后往前移动，中断时最多留下一条重复的记录，repair时删除
+        int last = Math.min(count, capacity - 1);
+        for(int i = last; i > position; i--){
+            copyEntry(entriesOffset, entrySize, i - 1, i);
+        }
+        int offset = entriesOffset + position * entrySize;
+        buffer.putLong(offset, score);
+        buffer.putLong(offset + 8, timeMillis);
+        if(entrySize == GLOBAL_ENTRY_SIZE){
+            buffer.putInt(offset + 16, profile);
+        }
+        if(count < capacity){
+            buffer.putInt(countOffset, count + 1);
+        }
+        return position;
+    }
+
+    private void copyEntry(int entriesOffset, int entrySize, int from, int to){
+        int fromOffset = entriesOffset + from * entrySize;
+        int toOffset = entriesOffset + to * entrySize;
+        for(int i = 0; i < entrySize; i += 4){
+            buffer.putInt(toOffset + i, buffer.getInt(fromOffset + i));
+        }
+    }
+
+    //上次写入被中断后整理各个列表：修正记录数，删除移动时留下的重复记录
+    private void repair(){
+        for(int profile = 0; profile < maxProfiles; profile++){
+            int offset = getProfileOffset(profile);
+            repairList(offset + PROFILE_COUNT, offset + PROFILE_ENTRIES, PROFILE_ENTRY_SIZE);
+        }
+        repairList(globalOffset, globalOffset + GLOBAL_ENTRIES, GLOBAL_ENTRY_SIZE);
+        int generation = buffer.getInt(OFFSET_GENERATION);
+        buffer.putInt(OFFSET_GENERATION, generation + 1);
+    }
+
+    private void repairList(int countOffset, int entriesOffset, int entrySize){
+        int count = Math.max(0, Math.min(capacity, buffer.getInt(countOffset)));
+        //记录数可能还没有加1，检查其后的一条是否是移动留下的
+        if(count < capacity && count > 0 && entryEquals(entriesOffset, entrySize, count - 1, count)){
+            count++;
+        }
+        int kept = 0;
+        for(int i = 0; i < count; i++){
+            if(kept > 0 && entryEquals(entriesOffset, entrySize, kept - 1, i)){
+                continue;
+            }
+            if(kept > 0 && buffer.getLong(entriesOffset + (kept - 1) * entrySize) < buffer.getLong(entriesOffset + i * entrySize)){
+                //顺序错误的记录无法确定是否有效，丢弃
+                continue;
+            }
+            if(kept != i){
+                copyEntry(entriesOffset, entrySize, i, kept);
+            }
+            kept++;
+        }
+        buffer.putInt(countOffset, kept);
+    }
+
+    private boolean entryEquals(int entriesOffset, int entrySize, int a, int b){
+        int offsetA = entriesOffset + a * entrySize;
+        int offsetB = entriesOffset + b * entrySize;
+        return buffer.getLong(offsetA) == buffer.getLong(offsetB) && buffer.getLong(offsetA + 8) == buffer.getLong(offsetB + 8);
+    }
+
+    //把修改写回磁盘，会阻塞，不要在UI线程中调用
+    public void force(){
+        buffer.force();
+    }
+
+    /*-------------------------------reading-------------------------------------*/
+
+    public int getCapacity(){
+        return capacity;
+    }
+
+    public int getMaxProfiles(){
+        return maxProfiles;
+    }
+
+    //总榜的记录数
+    public int getCount(){
+        return buffer.getInt(globalOffset);
+    }
+
+    public long getScore(int rank){
+        return buffer.getLong(globalOffset + GLOBAL_ENTRIES + rank * GLOBAL_ENTRY_SIZE);
+    }
+
+    public long getTime(int rank){
+        return buffer.getLong(globalOffset + GLOBAL_ENTRIES + rank * GLOBAL_ENTRY_SIZE + 8);
+    }
+
+    public int getProfileOf(int rank){
+        return buffer.getInt(globalOffset + GLOBAL_ENTRIES + rank * GLOBAL_ENTRY_SIZE + 16);
+    }
+
+    //玩家玩过的局数
+    public int getGames(int profile){
+        return buffer.getInt(getProfileOffset(profile) + PROFILE_GAMES);
+    }
+
+    //玩家自己的记录数
+    public int getCount(int profile){
+        return buffer.getInt(getProfileOffset(profile) + PROFILE_COUNT);
+    }
+
+    public long getScore(int profile, int rank){
+        return buffer.getLong(getProfileOffset(profile) + PROFILE_ENTRIES + rank * PROFILE_ENTRY_SIZE);
+    }
+
+    public long getTime(int profile, int rank){
+        return buffer.getLong(getProfileOffset(profile) + PROFILE_ENTRIES + rank * PROFILE_ENTRY_SIZE + 8);
+    }
+}
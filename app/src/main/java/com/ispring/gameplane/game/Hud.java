@@ -0,0 +1,284 @@
+package com.ispring.gameplane.game;
+
+import java.util.List;
+
+/**
+ * HUD，绘制分数、暂停按钮、炸弹数量以及分数对话框
+ * 通过Renderer绘制，同时记录按钮的位置用于判断点击
+ */
+public class Hud {
+
+    private float density;
+    private float fontSize;//Default font size
+    /*
+     * Float variable:	fontSize2
+     * This size is used for the dialog displayed at the end of the game
+     */
+    private float fontSize2 = 20;
+    private float borderSize = 2;//Default font size for dialog
+    private int textColor = 0xff000000;
+    private int highlightColor = 0xffcc3333;
+    /*
+     * The top scores shown below the score when the game is over, see HighScoreTable
+     * highlightRank is the rank of this game, -1 if it is not in the table
+     */
+    private static final int HIGH_SCORE_ROWS = 3;
+    private HighScoreTable highScores = null;
+    private int highlightRank = -1;
+    /*
+     * The button rectangle for "Restart" and "Continue"
+     */
+    private int continueLeft = 0;
+    private int continueTop = 0;
+    private int continueRight = 0;
+    private int continueBottom = 0;
+    /*
+     * The button rectangle for "Replay", empty if the dialog has no such button
+     */
+    private int replayLeft = 0;
+    private int replayTop = 0;
+    private int replayRight = 0;
+    private int replayBottom = 0;
+
+    public Hud(float density, float fontSize){
+        this.density = density;
+        this.fontSize = fontSize;
+        fontSize2 *= density;
+        borderSize *= density;
+    }
+
+    /*
+     * Function: setHighScores
+     * Set the table shown in the score dialog
+     *
+     * @param HighScoreTable	The table, null to show the score only
+     * @param int				The rank to highlight, -1 for none
+     * @return					None
+     */
+    public void setHighScores(HighScoreTable highScores, int highlightRank){
+        this.highScores = highScores;
+        this.highlightRank = highlightRank;
+    }
+
+    /*
+     * Function: drawScoreDialog
+     * Draw the dialog to show score
+     *
+     * @param Renderer 	The renderer to draw on
+     * @param Game		The game whose score is shown
+     * @param string
+     * @return			None
+     */
+    public void drawScoreDialog(Renderer renderer, Game game, String operation){
+        drawScoreDialog(renderer, game, operation, null);
+    }
+
+    /*
+     * Function: drawScoreDialog
+     * Draw the dialog to show score with a second button on the right, e.g. "Replay" when the game is over
+     *
+     * @param Renderer 	The renderer to draw on
+     * @param Game		The game whose score is shown
+     * @param String	The text of the continue/restart button
+     * @param String	The text of the replay button, null for no replay button
+     * @return			None
+     */
+    public void drawScoreDialog(Renderer renderer, Game game, String operation, String replayOperation){
+        int canvasWidth = renderer.getWidth();
+        int canvasHeight = renderer.getHeight();
+
+        int w1 = (int)(20.0 / 360.0 * canvasWidth);
+        int w2 = canvasWidth - 2 * w1;
+        int buttonWidth = (int)(140.0 / 360.0 * canvasWidth);
+
+        int h1 = (int)(150.0 / 558.0 * canvasHeight);
+        int h2 = (int)(60.0 / 558.0 * canvasHeight);
+        int h3 = (int)(124.0 / 558.0 * canvasHeight);
+        int h4 = (int)(76.0 / 558.0 * canvasHeight);
+        int buttonHeight = (int)(42.0 / 558.0 * canvasHeight);
+
+        renderer.save();
+        renderer.translate(w1, h1);
+        //background color is white
+        int dialogHeight = canvasHeight - 2 * h1;
+        renderer.fillRect(0, 0, w2, dialogHeight, 0xFFD7DDDE);
+        //draw dialog
+        int borderColor = 0xFF515151;
+        renderer.strokeRect(0, 0, w2, dialogHeight, borderColor, borderSize);
+        renderer.drawText("椋炴満澶ф垬鍒嗘暟", w2 / 2, (h2 - fontSize2) / 2 + fontSize2, fontSize2, textColor, Renderer.ALIGN_CENTER);
+        //draw score
+        renderer.translate(0, h2);
+        renderer.drawLine(0, 0, w2, 0, borderColor, borderSize);
+        String allScore = String.valueOf(game.getScore());
+        int rows = highScores != null ? Math.min(HIGH_SCORE_ROWS, highScores.getCount()) : 0;
+        if(rows == 0){
+            renderer.drawText(allScore, w2 / 2, (h3 - fontSize2) / 2 + fontSize2, fontSize2, textColor, Renderer.ALIGN_CENTER);
+        }else{
+            //The score and the top scores below it are centered together
+            float lineHeight = fontSize * 1.4f;
+            float top = (h3 - fontSize2 - rows * lineHeight) / 2 + fontSize2;
+            renderer.drawText(allScore, w2 / 2, top, fontSize2, textColor, Renderer.ALIGN_CENTER);
+            for(int rank = 0; rank < rows; rank++){
+                String line = (rank + 1) + ".  " + highScores.getScore(rank);
+                int color = rank == highlightRank ? highlightColor : textColor;
+                renderer.drawText(line, w2 / 2, top + (rank + 1) * lineHeight, fontSize, color, Renderer.ALIGN_CENTER);
+            }
+        }
+        renderer.translate(0, h3);
+        renderer.drawLine(0, 0, w2, 0, borderColor, borderSize);
+        //draw dialog rectangle
+        int buttonLeft = (w2 - buttonWidth) / 2;
+        int buttonTop = (h4 - buttonHeight) / 2;
+        float textTop = (buttonHeight - fontSize2) / 2 + fontSize2;
+        int replayButtonLeft = 0;
+        if(replayOperation == null){
+            renderer.strokeRect(buttonLeft, buttonTop, w2 - buttonLeft, h4 - buttonTop, borderColor, borderSize);
+            renderer.translate(0, buttonTop);
+            renderer.drawText(operation, w2 / 2, textTop, fontSize2, textColor, Renderer.ALIGN_CENTER);
+        }else{
+            //Two buttons side by side
+            int gap = (int)(10.0 / 360.0 * canvasWidth);
+            buttonLeft = (w2 - 2 * buttonWidth - gap) / 2;
+            replayButtonLeft = buttonLeft + buttonWidth + gap;
+            renderer.strokeRect(buttonLeft, buttonTop, buttonLeft + buttonWidth, buttonTop + buttonHeight, borderColor, borderSize);
+            renderer.strokeRect(replayButtonLeft, buttonTop, replayButtonLeft + buttonWidth, buttonTop + buttonHeight, borderColor, borderSize);
+            renderer.translate(0, buttonTop);
+            renderer.drawText(operation, buttonLeft + buttonWidth / 2, textTop, fontSize2, textColor, Renderer.ALIGN_CENTER);
+            renderer.drawText(replayOperation, replayButtonLeft + buttonWidth / 2, textTop, fontSize2, textColor, Renderer.ALIGN_CENTER);
+        }
+        renderer.restore();
+
+        continueLeft = w1 + buttonLeft;
+        continueRight = continueLeft + buttonWidth;
+        continueTop = h1 + h2 + h3 + buttonTop;
+        continueBottom = continueTop + buttonHeight;
+        if(replayOperation == null){
+            replayLeft = replayRight = replayTop = replayBottom = 0;
+        }else{
+            replayLeft = w1 + replayButtonLeft;
+            replayRight = replayLeft + buttonWidth;
+            replayTop = continueTop;
+            replayBottom = continueBottom;
+        }
+    }
+
+    /*
+     * Function: drawScoreAndBombs
+     * Draw score on top left corner. Draw the number of bomb on bottom left corner
+     *
+     * @param Renderer 	The renderer to draw on
+     * @param Game		The game whose score and bombs are shown
+     * @return			None
+     */
+    public void drawScoreAndBombs(Renderer renderer, Game game){
+        CombatAircraft combatAircraft = game.getCombatAircraft();
+        int bombCount = combatAircraft != null && !combatAircraft.isDestroyed() ? combatAircraft.getBombCount() : 0;
+        drawScoreAndBombs(renderer, game.getTextures(), getPauseTexture(game), game.getScore(), bombCount);
+    }
+
+    /*
+     * Function: drawScoreAndBombs
+     * Draw score and bombs that are not taken from a running game, e.g. a frame of a replay
+     *
+     * @param Renderer 	The renderer to draw on
+     * @param List		The textures of the game, the bomb icon is picture 11
+     * @param Texture	The pause/continue button
+     * @param long		The score
+     * @param int		The number of bombs
+     * @return			None
+     */
+    public void drawScoreAndBombs(Renderer renderer, List<Texture> textures, Texture pauseTexture, long score, int bombCount){
+        //Draw the pause button with picture 9
+        float pauseLeft = getPauseLeft();
+        float pauseTop = getPauseTop();
+        renderer.drawTexture(pauseTexture, pauseLeft, pauseTop);
+        //draw score dialog
+        float scoreLeft = pauseLeft + pauseTexture.getWidth() + 20 * density;
+        float scoreTop = fontSize + pauseTop + pauseTexture.getHeight() / 2 - fontSize / 2;
+        renderer.drawText(score + "", scoreLeft, scoreTop, fontSize, textColor, Renderer.ALIGN_LEFT);
+
+        //draw bomb
+        if(bombCount > 0){
+            //bomb icon
+            Texture bombTexture = textures.get(11);
+            float bombTop = renderer.getHeight() - bombTexture.getHeight();
+            renderer.drawTexture(bombTexture, 0, bombTop);
+            //the number of bomb
+            float bombCountLeft = bombTexture.getWidth() + 10 * density;
+            float bombCountTop = fontSize + bombTop + bombTexture.getHeight() / 2 - fontSize / 2;
+            renderer.drawText("X " + bombCount, bombCountLeft, bombCountTop, fontSize, textColor, Renderer.ALIGN_LEFT);
+        }
+    }
+
+    /*
+     * Function: drawOpponent
+     * Draw a line about the other player of a network game at the top right, e.g. the score of the opponent
+     *
+     * @param Renderer 	The renderer to draw on
+     * @param String	The text to draw
+     * @return			None
+     */
+    public void drawOpponent(Renderer renderer, String text){
+        float right = renderer.getWidth() - getPauseLeft();
+        float top = fontSize + getPauseTop();
+        renderer.drawText(text, right, top, fontSize, textColor, Renderer.ALIGN_RIGHT);
+    }
+
+    /*
+     * Function: isClickPause
+     * Check whether pause button is clicked
+     *
+     * @param Game		The game whose pause button is checked
+     * @param float		X coordiante of this single click
+     * @param float		Y coordiante of this single click
+     * @return bool		true if coordination of single slick is in the range of pause button
+     */
+    public boolean isClickPause(Game game, float x, float y){
+        Texture pauseTexture = getPauseTexture(game);
+        float left = getPauseLeft();
+        float top = getPauseTop();
+        return x >= left && x < left + pauseTexture.getWidth() && y >= top && y < top + pauseTexture.getHeight();
+    }
+
+    /*
+     * Function: isClickContinueButton
+     * Check whether continue/restart button of the score dialog is clicked
+     *
+     * @param float		X coordiante of this single click
+     * @param float		Y coordiante of this single click
+     * @return bool		true if coordination of single slick is in the range of continue button
+     */
+    public boolean isClickContinueButton(float x, float y){
+        int ix = (int)x;
+        int iy = (int)y;
+        return continueLeft < continueRight && continueTop < continueBottom
+                && ix >= continueLeft && ix < continueRight && iy >= continueTop && iy < continueBottom;
+    }
+
+    private Texture getPauseTexture(Game game){
+        return game.getStatus() == Game.STATUS_GAME_STARTED ? game.getTexture(9) : game.getTexture(10);
+    }
+
+    /*
+     * Function: isClickReplayButton
+     * Check whether the replay button of the score dialog is clicked
+     *
+     * @param float		X coordiante of this single click
+     * @param float		Y coordiante of this single click
+     * @return bool		true if coordination of single slick is in the range of replay button
+     */
+    public boolean isClickReplayButton(float x, float y){
+        int ix = (int)x;
+        int iy = (int)y;
+        return replayLeft < replayRight && replayTop < replayBottom
+                && ix >= replayLeft && ix < replayRight && iy >= replayTop && iy < replayBottom;
+    }
+
+    private float getPauseLeft(){
+        return 15 * density;
+    }
+
+    private float getPauseTop(){
+        return 15 * density;
+    }
+}
@@ -0,0 +1,144 @@
+package com.ispring.gameplane.game;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 一局游戏的输入记录，与随机数种子一起就可以重现整局游戏
+ * 游戏逻辑是确定的：相同的种子、屏幕尺寸和在相同帧上的相同输入，得到完全相同的过程和分数，
+ * 所以ScoreVerifier可以在服务器上重新模拟整局游戏来校验提交的分数
+ * 每个输入记录发生在第几帧（即此前已经推进的逻辑帧数）、类型和坐标
+ */
+public class InputLog {
+
+    public static final int TYPE_MOVE = 1;//移动战斗机，x、y为战斗机中心
+    public static final int TYPE_BOMB = 2;//使用炸弹
+
+    private static final int MAGIC = 0x47504c31;//"GPL1"
+
+    private final long seed;
+    private final float density;
+    private int width = 0;//屏幕尺寸，在第一帧时记录
+    private int height = 0;
+
+    private int count = 0;
+    private long[] frames = new long[256];
+    private byte[] types = new byte[256];
+    private float[] xs = new float[256];
+    private float[] ys = new float[256];
+
+    public InputLog(long seed, float density){
+        this.seed = seed;
+        this.density = density;
+    }
+
+    public void add(long frame, int type, float x, float y){
+        if(count == frames.length){
+            int capacity = count * 2;
+            long[] newFrames = new long[capacity];
+            byte[] newTypes = new byte[capacity];
+            float[] newXs = new float[capacity];
+            float[] newYs = new float[capacity];
+            System.arraycopy(frames, 0, newFrames, 0, count);
+            System.arraycopy(types, 0, newTypes, 0, count);
+            System.arraycopy(xs, 0, newXs, 0, count);
+            System.arraycopy(ys, 0, newYs, 0, count);
+            frames = newFrames;
+            types = newTypes;
+            xs = newXs;
+            ys = newYs;
+        }
+        frames[count] = frame;
+        types[count] = (byte)type;
+        xs[count] = x;
+        ys[count] = y;
+        count++;
+    }
+
+    public void setScreenSize(int width, int height){
+        this.width = width;
+        this.height = height;
+    }
+
+    public long getSeed(){
+        return seed;
+    }
+
+    public float getDensity(){
+        return density;
+    }
+
+    public int getWidth(){
+        return width;
+    }
+
+    public int getHeight(){
+        return height;
+    }
+
+    public int getCount(){
+        return count;
+    }
+
+    public long getFrame(int index){
+        return frames[index];
+    }
+
+    public int getType(int index){
+        return types[index];
+    }
+
+    public float getX(int index){
+        return xs[index];
+    }
+
+    public float getY(int index){
+        return ys[index];
+    }
+
+    //帧号按与上一条的差值写入，移动事件连续发生时差值很小
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeLong(seed);
+        out.writeFloat(density);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeInt(count);
+        long lastFrame = 0;
+        for(int i = 0; i < count; i++){
+            out.writeInt((int)(frames[i] - lastFrame));
+            out.writeByte(types[i]);
+            if(types[i] == TYPE_MOVE){
+                out.writeFloat(xs[i]);
+                out.writeFloat(ys[i]);
+            }
+            lastFrame = frames[i];
+        }
+    }
+
+    public static InputLog read(DataInputStream in) throws IOException {
+        if(in.readInt() != MAGIC){
+            throw new IOException("not an input log");
+        }
+        InputLog log = new InputLog(in.readLong(), in.readFloat());
+        log.setScreenSize(in.readInt(), in.readInt());
+        int count = in.readInt();
+        if(count < 0){
+            throw new IOException("invalid input count " + count);
+        }
+        long frame = 0;
+        for(int i = 0; i < count; i++){
+            frame += in.readInt();
+            int type = in.readByte();
+            float x = 0;
+            float y = 0;
+            if(type == TYPE_MOVE){
+                x = in.readFloat();
+                y = in.readFloat();
+            }
+            log.add(frame, type, x, y);
+        }
+        return log;
+    }
+}
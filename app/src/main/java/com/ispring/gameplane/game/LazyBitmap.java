@@ -0,0 +1,178 @@
+package com.ispring.gameplane.game;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 延迟解码的图片，创建时只读取图片的尺寸，第一次使用或收到预取提示时才在后台线程中解码
+ * 纹理的尺寸在创建时就已确定，所以游戏逻辑不需要等待解码；
+ * 绘制时如果图片还没有解码完成，则开始解码并跳过这次绘制，UI线程不会等待后台线程，
+ * 需要像素级碰撞的图片在解码的同时生成碰撞掩码，纹理第一次取掩码时会等待，
+ * 这样掩码是否就绪不影响碰撞结果，重放校验得到的分数不变（见ScoreVerifier）
+ * executor应当只用于解码图片，否则第一次出现的纹理要排在其他任务（例如写文件）之后
+ */
+public class LazyBitmap implements Texture.CollisionMaskLoader {
+
+    private static final String TAG = "LazyBitmap";
+
+    private final Resources resources;
+    private final int resId;
+    private final boolean collidable;//是否需要生成碰撞掩码
+    private final ExecutorService executor;
+    private final int width;
+    private final int height;
+
+    private Future<Bitmap> future = null;
+    private boolean released = false;
+    private volatile Bitmap bitmap = null;
+    private volatile CollisionMask collisionMask = null;
+
+    /*
+     * 读取图片的原始尺寸，按density计算解码后的尺寸，与BitmapFactory.decodeResource对drawable目录中图片的缩放一致
+     * executor为解码使用的后台线程
+     */
+    public LazyBitmap(Resources resources, int resId, float density, boolean collidable, ExecutorService executor){
+        this.resources = resources;
+        this.resId = resId;
+        this.collidable = collidable;
+        this.executor = executor;
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        BitmapFactory.decodeResource(resources, resId, options);
+        width = (int)(options.outWidth * density + 0.5f);
+        height = (int)(options.outHeight * density + 0.5f);
+    }
+
+    public int getWidth(){
+        return width;
+    }
+
+    public int getHeight(){
+        return height;
+    }
+
+    //预取提示，在后台线程中开始解码，已经开始或已经释放时不做任何事
+    public synchronized void prefetch(){
+        if(future == null && !released){
+            future = executor.submit(new Callable<Bitmap>() {
+                @Override
+                public Bitmap call() {
+                    return decode();
+                }
+            });
+        }
+    }
+
+    private Bitmap decode(){
+        Bitmap decoded = BitmapFactory.decodeResource(resources, resId);
+        if(decoded == null){
+            Log.w(TAG, "failed to decode " + resId);
+            return null;
+        }
+        CollisionMask mask = collidable ? createCollisionMask(decoded) : null;
+        synchronized (this){
+            //解码过程中已经释放，丢弃结果
+            if(released){
+                decoded.recycle();
+                return null;
+            }
+            collisionMask = mask;
+            bitmap = decoded;
+        }
+        return decoded;
+    }
+
+    //由未缩放的图片按最近邻采样生成掩码，与HeadlessRunner由PNG生成的掩码相同
+    private CollisionMask createCollisionMask(Bitmap scaled){
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+        Bitmap source = BitmapFactory.decodeResource(resources, resId, options);
+        if(source == null){
+            return null;
+        }
+        int sourceWidth = source.getWidth();
+        int sourceHeight = source.getHeight();
+        int[] pixels = new int[sourceWidth * sourceHeight];
+        source.getPixels(pixels, 0, sourceWidth, 0, 0, sourceWidth, sourceHeight);
+        source.recycle();
+        return CollisionMask.fromArgb(pixels, sourceWidth, sourceHeight, scaled.getWidth(), scaled.getHeight(),
+                CollisionMask.DEFAULT_ALPHA_THRESHOLD);
+    }
+
+    //绘制时使用，不等待：已经解码完成时返回图片，否则开始解码并返回null
+    public Bitmap get(){
+        Bitmap b = bitmap;
+        if(b == null){
+            prefetch();
+        }
+        return b;
+    }
+
+    //不等待也不开始解码，还没有解码完成时返回null
+    public Bitmap peek(){
+        return bitmap;
+    }
+
+    public boolean isLoaded(){
+        return bitmap != null;
+    }
+
+    @Override
+    public CollisionMask loadCollisionMask() {
+        await();
+        return collisionMask;
+    }
+
+    private void await(){
+        Future<Bitmap> f;
+        synchronized (this){
+            prefetch();
+            f = future;
+        }
+        if(f == null){
+            //released
+            return;
+        }
+        boolean interrupted = false;
+        while(true){
+            try{
+                f.get();
+                break;
+            }catch (InterruptedException e){
+                interrupted = true;
+            }catch (ExecutionException e){
+                Log.w(TAG, "failed to decode " + resId, e.getCause());
+                break;
+            }catch (CancellationException e){
+                //released
+                break;
+            }
+        }
+        if(interrupted){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //释放图片，之后不能再使用；正在进行的解码完成后丢弃结果
+    public synchronized void release(){
+        released = true;
+        if(future != null){
+            future.cancel(false);
+            future = null;
+        }
+        Bitmap b = bitmap;
+        bitmap = null;
+        if(b != null){
+            b.recycle();
+        }
+    }
+}
@@ -1,16 +1,16 @@
 package com.ispring.gameplane.game;
 
-import android.graphics.Bitmap;
-
 /**
  * 中敌机类，体积中等，抗打击能力中等
  */
 public class MiddleEnemyPlane extends EnemyPlane {
 
-    public MiddleEnemyPlane(Bitmap bitmap){
-        super(bitmap);
+    public MiddleEnemyPlane(Texture texture){
+        super(texture);
         setPower(4);//中敌机抗抵抗能力为4，即需要4颗子弹才能销毁中敌机
         setValue(6000);//销毁一个中敌机可以得6000分
+        setType(WaveTimeline.TYPE_MIDDLE);
+        setFirePattern(EnemyProjectiles.PATTERN_AIMED, 90);//每隔90帧朝战斗机发射3颗子弹
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,202 @@
+package com.ispring.gameplane.game;
+
+/**
+ * 预先采样的移动路径，保存每一帧的位移(dx, dy)，单位为像素，已乘以density
+ * 曲线、正弦、俯冲等路径在创建时计算一次，沿路径移动的Sprite每帧只需查表并累加位移，不再做三角函数运算
+ * 路径走完后，循环路径从loopIndex处重新开始，非循环路径保持最后一帧的位移继续移动
+ * 走直线的AutoSprite等价于straight路径（只有一帧且一直保持），所以没有设置路径时仍按原来的方式直线移动
+ */
+public class MovePath {
+
+    //内置路径的类型，关卡文件中的名字见WaveTimeline
+    public static final int PATH_STRAIGHT = 0;//直线向下
+    public static final int PATH_SINE = 1;//一边向下一边左右摆动
+    public static final int PATH_DIVE = 2;//缓慢下降后加速俯冲
+    public static final int PATH_CURVE_LEFT = 3;//从上方进入后向左弯出
+    public static final int PATH_CURVE_RIGHT = 4;//从上方进入后向右弯出
+    public static final int PATH_TYPE_COUNT = 5;
+
+    //正弦路径的振幅(dp)和周期(帧)
+    private static final float SINE_AMPLITUDE = 40;
+    private static final int SINE_PERIOD = 120;
+
+    private final float[] dxs;
+    private final float[] dys;
+    private final int loopIndex;//走完后下一帧的下标
+    private final boolean looping;
+
+    private MovePath(float[] dxs, float[] dys, int loopIndex, boolean looping){
+        this.dxs = dxs;
+        this.dys = dys;
+        this.loopIndex = loopIndex;
+        this.looping = looping;
+    }
+
+    public float getDx(int index){
+        return dxs[index];
+    }
+
+    public float getDy(int index){
+        return dys[index];
+    }
+
+    //index帧之后的下标
+    public int next(int index){
+        index++;
+        return index < dxs.length ? index : loopIndex;
+    }
+
+    public int getLength(){
+        return dxs.length;
+    }
+
+    //非循环路径是否已经走完，走完后保持最后一帧的位移
+    public boolean isFinished(int index){
+        return !looping && index == dxs.length - 1;
+    }
+
+    public boolean isLooping(){
+        return looping;
+    }
+
+    /*-------------------------------built-in paths-------------------------------------*/
+
+    //创建内置路径，speed为向下的速度（dp/帧）
+    public static MovePath create(int type, float speed, float density){
+        Builder builder = new Builder(density);
+        if(type == PATH_SINE){
+            builder.sine(SINE_PERIOD, speed, SINE_AMPLITUDE, SINE_PERIOD);
+            return builder.buildLoop(0);
+        }else if(type == PATH_DIVE){
+            builder.line(60, 0, speed)
+                    .line(20, 0, 0)
+                    .accelerate(40, 0, speed, 0, speed * 4)
+                    .line(1, 0, speed * 4);
+        }else if(type == PATH_CURVE_LEFT || type == PATH_CURVE_RIGHT){
+            float side = type == PATH_CURVE_LEFT ? -1 : 1;
+            //贝塞尔曲线的长度约为400dp，按speed走完
+            int frames = Math.max(1, Math.round(400 / speed));
+            builder.curve(frames, 0, 200, side * 150, 250, side * 150, 400)
+                    .line(1, side * speed, speed);
+        }else{
+            builder.line(1, 0, speed);
+        }
+        return builder.build();
+    }
+
+    /*
+     * 奖品的移动路径，与原来的三段式状态机相同：
+     * 先以speed向下，直到下边缘到达屏幕高度的1/4，然后以5向上直到离开屏幕，最后以13向下落出屏幕
+     * 奖品生成时下边缘位于屏幕顶端，所以各段的帧数在创建时就可以算出
+     */
+    public static MovePath createAwardBounce(float speed, float density, int canvasHeight){
+        Builder builder = new Builder(density);
+        //下边缘到达canvasHeight/4所需的帧数
+        int downFrames = Math.max(1, (int)Math.ceil(canvasHeight * 0.25 / (speed * density)));
+        float bottom = downFrames * speed * density;
+        //向上时，下边缘加上速度不大于0时改变方向
+        int upFrames = Math.max(1, (int)Math.ceil((bottom - 5) / (5 * density)));
+        return builder.line(downFrames, 0, speed)
+                .line(upFrames, 0, -5)
+                .line(1, 0, 13)
+                .build();
+    }
+
+    /*-------------------------------building-------------------------------------*/
+
+    /**
+     * 逐段采样路径，参数的单位为dp，帧数为该段的持续时间
+     */
+    public static class Builder {
+        private final float density;
+        private float[] dxs = new float[64];
+        private float[] dys = new float[64];
+        private int length = 0;
+
+        public Builder(float density){
+            this.density = density;
+        }
+
+        //匀速直线
+        public Builder line(int frames, float vx, float vy){
+            for(int i = 0; i < frames; i++){
+                add(vx, vy);
+            }
+            return this;
+        }
+
+        //速度从(vx0, vy0)线性变化到(vx1, vy1)
+        public Builder accelerate(int frames, float vx0, float vy0, float vx1, float vy1){
+            for(int i = 0; i < frames; i++){
+                float t = (i + 1) / (float)frames;
+                add(vx0 + (vx1 - vx0) * t, vy0 + (vy1 - vy0) * t);
+            }
+            return this;
+        }
+
+        //以vy向下，同时水平方向按正弦摆动
+        public Builder sine(int frames, float vy, float amplitude, int period){
+            float lastX = 0;
+            for(int i = 0; i < frames; i++){
+                float x = amplitude * (float)Math.sin(2 * Math.PI * (i + 1) / period);
+                add(x - lastX, vy);
+                lastX = x;
+            }
+            return this;
+        }
+
+        //从当前位置出发的三次贝塞尔曲线，控制点和终点为相对当前位置的偏移
+        public Builder curve(int frames, float x1, float y1, float x2, float y2, float x3, float y3){
+            float lastX = 0;
+            float lastY = 0;
+            for(int i = 0; i < frames; i++){
+                float t = (i + 1) / (float)frames;
+                float u = 1 - t;
+                float b1 = 3 * u * u * t;
+                float b2 = 3 * u * t * t;
+                float b3 = t * t * t;
+                float x = b1 * x1 + b2 * x2 + b3 * x3;
+                float y = b1 * y1 + b2 * y2 + b3 * y3;
+                add(x - lastX, y - lastY);
+                lastX = x;
+                lastY = y;
+            }
+            return this;
+        }
+
+        private void add(float dx, float dy){
+            if(length == dxs.length){
+                float[] newDxs = new float[length * 2];
+                float[] newDys = new float[length * 2];
+                System.arraycopy(dxs, 0, newDxs, 0, length);
+                System.arraycopy(dys, 0, newDys, 0, length);
+                dxs = newDxs;
+                dys = newDys;
+            }
+            dxs[length] = dx * density;
+            dys[length] = dy * density;
+            length++;
+        }
+
+        //走完后保持最后一帧的位移
+        public MovePath build(){
+            return create(length - 1, false);
+        }
+
+        //走完后从loopIndex重新开始
+        public MovePath buildLoop(int loopIndex){
+            return create(loopIndex, true);
+        }
+
+        private MovePath create(int loopIndex, boolean looping){
+            if(length == 0){
+                throw new IllegalStateException("empty path");
+            }
+            float[] resultDxs = new float[length];
+            float[] resultDys = new float[length];
+            System.arraycopy(dxs, 0, resultDxs, 0, length);
+            System.arraycopy(dys, 0, resultDys, 0, length);
+            return new MovePath(resultDxs, resultDys, loopIndex, looping);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.ispring.gameplane.game;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 网络对战的客户端，不运行Game，只把输入发给主机（见NetHost），并显示主机发来的快照
+ * 快照每2帧到达一次，绘制时落后最新的快照INTERPOLATION_FRAMES帧，在前后两个快照之间插值，丢失一两个快照也能平滑显示
+ * 战斗机由本地预测：与主机的处理相同，直接移动到最新输入的位置，不等待主机确认
+ * 输入带有递增的序号，主机在快照中确认已应用的最后一个输入，未确认的输入在之后的每个包中重复发送，丢包不会丢失输入
+ * 从发送输入到收到确认的时间作为端到端延迟统计
+ * 每帧调用一次update和draw；Android上不能在UI线程中使用网络，update需要在单独的线程中调用，见NetSession
+ */
+public class NetClient {
+
+    //绘制时落后最新快照的帧数，为快照间隔的3倍
+    public static final int INTERPOLATION_FRAMES = NetHost.SNAPSHOT_INTERVAL * 3;
+    private static final int MAX_PENDING_INPUTS = 64;
+    private static final int HELLO_INTERVAL = 10;//收到快照前每10帧发送一次HELLO
+    private static final int KEEPALIVE_INTERVAL = 15;//没有新的输入和确认时每15帧发送一次确认
+
+    private final DatagramChannel channel;
+    private final int width;
+    private final int height;
+    private final float projectileSize;
+
+    private final NetSnapshot.History history = new NetSnapshot.History(NetHost.HISTORY_SIZE);
+    private NetSnapshot latest = null;
+    private int latestSequence = 0;
+    private int sentAck = 0;//上次发送的确认
+
+    //未确认的输入，序号从firstPendingInput开始连续
+    private int nextInput = 1;
+    private int firstPendingInput = 1;
+    private int pendingCount = 0;
+    private final int[] pendingTypes = new int[MAX_PENDING_INPUTS];
+    private final int[] pendingXs = new int[MAX_PENDING_INPUTS];
+    private final int[] pendingYs = new int[MAX_PENDING_INPUTS];
+    private final long[] pendingFrames = new long[MAX_PENDING_INPUTS];//第一次发送时本地的帧
+    private final long[] pendingNanos = new long[MAX_PENDING_INPUTS];//第一次发送的时间，0表示尚未发送
+
+    //预测的战斗机中心
+    private boolean predicted = false;
+    private float predictedX = 0;
+    private float predictedY = 0;
+
+    private long frame = 0;//本地的帧
+    private long lastSendFrame = 0;
+    private double renderFrame = -1;//绘制的主机帧，可以是小数
+
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(NetHost.MAX_PACKET_SIZE * 64);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(NetHost.MAX_PACKET_SIZE);
+
+    //模拟丢包，用于测试
+    private float lossRate = 0;
+    private final Random lossRandom = new Random(2);
+
+    //统计
+    private long packetsSent = 0;
+    private long bytesSent = 0;
+    private long snapshotsReceived = 0;
+    private long bytesReceived = 0;
+    private long staleSnapshotCount = 0;//比已收到的更旧的快照
+    private long undecodableSnapshotCount = 0;//基准已不存在的快照
+    private long droppedInputCount = 0;//未确认的输入太多而丢弃的输入
+    private long latencyCount = 0;
+    private long latencyFramesSum = 0;
+    private long maxLatencyFrames = 0;
+    private long latencyNanosSum = 0;
+    private long maxLatencyNanos = 0;
+
+    //width、height为本地屏幕的尺寸，主机按该尺寸模拟；density用于绘制敌机子弹
+    public NetClient(SocketAddress host, int width, int height, float density) throws IOException {
+        this.width = width;
+        this.height = height;
+        this.projectileSize = EnemyProjectiles.RADIUS * density * 2;
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.connect(host);
+    }
+
+    void setLossRate(float lossRate){
+        this.lossRate = lossRate;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /*-------------------------------input-------------------------------------*/
+
+    public void moveTo(float centerX, float centerY){
+        addInput(InputLog.TYPE_MOVE, centerX, centerY);
+        predicted = true;
+        predictedX = centerX;
+        predictedY = centerY;
+    }
+
+    public void bomb(){
+        addInput(InputLog.TYPE_BOMB, 0, 0);
+    }
+
+    private void addInput(int type, float x, float y){
+        if(pendingCount == MAX_PENDING_INPUTS){
+            //长时间没有确认，丢弃最旧的输入
+            droppedInputCount++;
+            firstPendingInput++;
+            pendingCount--;
+        }
+        int i = (nextInput++) % MAX_PENDING_INPUTS;
+        pendingTypes[i] = type;
+        pendingXs[i] = NetSnapshot.quantize(x);
+        pendingYs[i] = NetSnapshot.quantize(y);
+        pendingNanos[i] = 0;
+        pendingCount++;
+    }
+
+    /*-------------------------------update-------------------------------------*/
+
+    //每帧调用一次：接收快照，发送输入和确认，推进绘制的时间
+    public void update() throws IOException {
+        frame++;
+        receive();
+        if(latest == null){
+            if(frame % HELLO_INTERVAL == 1){
+                sendHello();
+            }
+        }else if(pendingCount > 0 || sentAck != latestSequence || frame - lastSendFrame >= KEEPALIVE_INTERVAL){
+            sendInput();
+        }
+        advanceRenderFrame();
+    }
+
+    //绘制的时间每帧前进1，并逐渐向最新快照减去插值延迟的位置靠拢，相差太多时直接跳过去
+    private void advanceRenderFrame(){
+        if(latest == null){
+            return;
+        }
+        double target = latest.getFrame() - INTERPOLATION_FRAMES;
+        if(renderFrame < 0 || Math.abs(renderFrame + 1 - target) > INTERPOLATION_FRAMES * 2){
+            renderFrame = target;
+        }else{
+            renderFrame += 1;
+            renderFrame += (target - renderFrame) * 0.1;
+        }
+        renderFrame = Math.min(renderFrame, latest.getFrame());
+    }
+
+    private void receive() throws IOException {
+        while(true){
+            receiveBuffer.clear();
+            if(channel.receive(receiveBuffer) == null){
+                return;
+            }
+            receiveBuffer.flip();
+            bytesReceived += receiveBuffer.remaining();
+            try{
+                if(receiveBuffer.get() == NetHost.PACKET_SNAPSHOT){
+                    onSnapshot(receiveBuffer);
+                }
+            }catch (BufferUnderflowException e){
+                undecodableSnapshotCount++;
+            }
+        }
+    }
+
+    private void onSnapshot(ByteBuffer in){
+        int sequence = NetSnapshot.readSequence(in);
+        int baselineSequence = NetSnapshot.readSequence(in);
+        if(sequence <= latestSequence){
+            staleSnapshotCount++;
+            return;
+        }
+        NetSnapshot baseline = null;
+        if(baselineSequence != 0){
+            baseline = history.get(baselineSequence);
+            //基准不存在，或者会被新的快照覆盖
+            if(baseline == null || sequence - baselineSequence >= history.getSize()){
+                undecodableSnapshotCount++;
+                return;
+            }
+        }
+        NetSnapshot snapshot = history.obtain(sequence);
+        snapshot.read(in, sequence, baseline);
+        latest = snapshot;
+        latestSequence = sequence;
+        snapshotsReceived++;
+        acknowledgeInputs(snapshot.getLastInput());
+    }
+
+    //主机已应用到lastInput为止的输入，从未确认的输入中删除并统计延迟
+    private void acknowledgeInputs(int lastInput){
+        long now = System.nanoTime();
+        while(pendingCount > 0 && firstPendingInput <= lastInput){
+            int i = firstPendingInput % MAX_PENDING_INPUTS;
+            if(pendingNanos[i] != 0){
+                long frames = frame - pendingFrames[i];
+                long nanos = now - pendingNanos[i];
+                latencyCount++;
+                latencyFramesSum += frames;
+                maxLatencyFrames = Math.max(maxLatencyFrames, frames);
+                latencyNanosSum += nanos;
+                maxLatencyNanos = Math.max(maxLatencyNanos, nanos);
+            }
+            firstPendingInput++;
+            pendingCount--;
+        }
+    }
+
+    private void sendHello() throws IOException {
+        sendBuffer.clear();
+        sendBuffer.put((byte)NetHost.PACKET_HELLO);
+        NetSnapshot.writeVarint(sendBuffer, width);
+        NetSnapshot.writeVarint(sendBuffer, height);
+        send();
+    }
+
+    private void sendInput() throws IOException {
+        sendBuffer.clear();
+        sendBuffer.put((byte)NetHost.PACKET_INPUT);
+        NetSnapshot.writeVarint(sendBuffer, latestSequence);
+        NetSnapshot.writeVarint(sendBuffer, firstPendingInput);
+        NetSnapshot.writeVarint(sendBuffer, pendingCount);
+        long now = System.nanoTime();
+        for(int k = 0; k < pendingCount; k++){
+            int i = (firstPendingInput + k) % MAX_PENDING_INPUTS;
+            sendBuffer.put((byte)pendingTypes[i]);
+            if(pendingTypes[i] == InputLog.TYPE_MOVE){
+                NetSnapshot.writeVarint(sendBuffer, NetSnapshot.zigzag(pendingXs[i]));
+                NetSnapshot.writeVarint(sendBuffer, NetSnapshot.zigzag(pendingYs[i]));
+            }
+            if(pendingNanos[i] == 0){
+                pendingNanos[i] = now;
+                pendingFrames[i] = frame;
+            }
+        }
+        sentAck = latestSequence;
+        lastSendFrame = frame;
+        send();
+    }
+
+    private void send() throws IOException {
+        sendBuffer.flip();
+        packetsSent++;
+        bytesSent += sendBuffer.remaining();
+        if(lossRate > 0 && lossRandom.nextFloat() < lossRate){
+            return;
+        }
+        channel.write(sendBuffer);
+    }
+
+    /*-------------------------------drawing-------------------------------------*/
+
+    //按插值后的快照绘制，顺序与Game.draw相同：Sprite、敌机子弹、战斗机
+    public void draw(Renderer renderer, List<Texture> textures){
+        if(latest == null){
+            return;
+        }
+        //renderFrame前后的两个快照
+        NetSnapshot from = null;
+        NetSnapshot to = null;
+        for(int sequence = latestSequence; sequence > latestSequence - history.getSize() && sequence > 0; sequence--){
+            NetSnapshot snapshot = history.get(sequence);
+            if(snapshot == null){
+                continue;
+            }
+            if(snapshot.getFrame() <= renderFrame){
+                if(from == null || snapshot.getFrame() > from.getFrame()){
+                    from = snapshot;
+                }
+            }else if(to == null || snapshot.getFrame() < to.getFrame()){
+                to = snapshot;
+            }
+        }
+        if(from == null){
+            from = to;
+            to = null;
+        }
+        float t = to != null ? (float)((renderFrame - from.getFrame()) / (to.getFrame() - from.getFrame())) : 0;
+
+        int aircraft = -1;
+        int j = 0;
+        for(int i = 0; i < from.getCount(); i++){
+            int id = from.getId(i);
+            if(id == NetSnapshot.AIRCRAFT_ID){
+                aircraft = i;
+                continue;
+            }
+            float x = from.getX(i);
+            float y = from.getY(i);
+            if(to != null){
+                int k = to.indexOf(id, j);
+                if(k >= 0){
+                    j = k;
+                    x += (to.getX(k) - x) * t;
+                    y += (to.getY(k) - y) * t;
+                }
+            }
+            from.drawEntity(renderer, textures, i, x, y);
+        }
+
+        from.drawProjectiles(renderer, projectileSize);
+
+        if(aircraft >= 0){
+            float x = from.getX(aircraft);
+            float y = from.getY(aircraft);
+            if(predicted){
+                x = predictedX - from.getWidth(aircraft) / 2;
+                y = predictedY - from.getHeight(aircraft) / 2;
+            }
+            from.drawEntity(renderer, textures, aircraft, x, y);
+        }
+    }
+
+    /*-------------------------------accessors-------------------------------------*/
+
+    public boolean isConnected(){
+        return latest != null;
+    }
+
+    //最新的快照，用于显示得分、炸弹数和游戏状态
+    public NetSnapshot getLatestSnapshot(){
+        return latest;
+    }
+
+    public double getRenderFrame(){
+        return renderFrame;
+    }
+
+    public long getPacketsSent(){
+        return packetsSent;
+    }
+
+    public long getBytesSent(){
+        return bytesSent;
+    }
+
+    public long getSnapshotsReceived(){
+        return snapshotsReceived;
+    }
+
+    public long getBytesReceived(){
+        return bytesReceived;
+    }
+
+    public long getStaleSnapshotCount(){
+        return staleSnapshotCount;
+    }
+
+    public long getUndecodableSnapshotCount(){
+        return undecodableSnapshotCount;
+    }
+
+    public long getDroppedInputCount(){
+        return droppedInputCount;
+    }
+
+    public long getLatencyCount(){
+        return latencyCount;
+    }
+
+    //从第一次发送输入到收到确认的平均帧数
+    public float getAverageLatencyFrames(){
+        return latencyCount > 0 ? latencyFramesSum / (float)latencyCount : 0;
+    }
+
+    public long getMaxLatencyFrames(){
+        return maxLatencyFrames;
+    }
+
+    public float getAverageLatencyMillis(){
+        return latencyCount > 0 ? latencyNanosSum / 1e6f / latencyCount : 0;
+    }
+
+    public float getMaxLatencyMillis(){
+        return maxLatencyNanos / 1e6f;
+    }
+}
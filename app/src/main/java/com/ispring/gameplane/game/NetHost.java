@@ -0,0 +1,243 @@
+package com.ispring.gameplane.game;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Random;
+
+/**
+ * 网络对战的主机，为远程玩家运行权威的Game，客户端只发送输入、显示收到的快照（见NetClient）
+ * 两名玩家的Game使用相同的种子和关卡，敌机完全相同，比较谁的得分更高；主机玩家的Game由主机自己推进，
+ * 其得分随快照发给客户端
+ * 每帧调用一次step：接收客户端的输入并按序号应用到远程玩家的Game，推进一帧，每SNAPSHOT_INTERVAL帧发送一次快照
+ * 快照相对客户端最近确认的快照做差量编码，客户端没有确认或确认的快照已被覆盖时发送完整的快照
+ * 使用非阻塞的DatagramChannel，step不会等待网络；Android上不能在UI线程中使用网络，需要在单独的线程中调用，见NetSession
+ *
+ * 数据包格式（每个包的第一个字节为类型，整数为NetSnapshot中的变长整数）：
+ * PACKET_HELLO：客户端屏幕的宽、高，在收到第一个快照前重复发送
+ * PACKET_INPUT：已收到的最新快照序号、第一个输入的序号、输入数，每个输入为类型和坐标，未确认的输入重复发送
+ * PACKET_SNAPSHOT：NetSnapshot.write的内容
+ */
+public class NetHost {
+
+    static final int PACKET_HELLO = 1;
+    static final int PACKET_INPUT = 2;
+    static final int PACKET_SNAPSHOT = 3;
+
+    //快照不超过该大小，避免IP分片，超出的敌机子弹不发送
+    public static final int MAX_PACKET_SIZE = 1200;
+    public static final int SNAPSHOT_INTERVAL = 2;//每2帧发送一次快照，即30次每秒
+    static final int HISTORY_SIZE = 32;
+
+    private final Game game;
+    private long opponentScore = 0;
+    private final DatagramChannel channel;
+    private SocketAddress client = null;
+    private Renderer renderer = null;//与客户端屏幕尺寸相同，只提供尺寸
+
+    private long tick = 0;
+    private int sequence = 0;//最后发送的快照的序号
+    private int ackedSnapshot = 0;//客户端确认收到的最新快照
+    private int lastInput = 0;//已应用的最后一个输入
+    private final NetSnapshot.History history = new NetSnapshot.History(HISTORY_SIZE);
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(MAX_PACKET_SIZE * 2);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(64 * 1024);
+
+    //模拟丢包，用于测试
+    private float lossRate = 0;
+    private final Random lossRandom = new Random(1);
+
+    //统计
+    private long packetsSent = 0;
+    private long bytesSent = 0;
+    private long fullSnapshotCount = 0;
+    private long oversizedCount = 0;//超过MAX_PACKET_SIZE的快照数
+    private long droppedProjectileCount = 0;
+    private long packetsReceived = 0;
+    private long bytesReceived = 0;
+    private long invalidPacketCount = 0;
+
+    //game为远程玩家的Game，调用前已设置种子、关卡并调用了start；port为0时由系统分配
+    public NetHost(Game game, int port) throws IOException {
+        this.game = game;
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.socket().bind(new InetSocketAddress(port));
+    }
+
+    public int getPort(){
+        return channel.socket().getLocalPort();
+    }
+
+    //主机玩家的得分，随之后的快照发给客户端；主机玩家的Game在另一个线程中运行，所以只传入得分
+    public void setOpponentScore(long opponentScore){
+        this.opponentScore = opponentScore;
+    }
+
+    public boolean isConnected(){
+        return client != null;
+    }
+
+    public Game getGame(){
+        return game;
+    }
+
+    void setLossRate(float lossRate){
+        this.lossRate = lossRate;
+    }
+
+    //每帧调用一次
+    public void step() throws IOException {
+        receive();
+        if(client == null){
+            return;
+        }
+        if(game.getStatus() == Game.STATUS_GAME_STARTED){
+            game.step(renderer);
+        }
+        tick++;
+        if(tick % SNAPSHOT_INTERVAL == 0){
+            sendSnapshot();
+        }
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /*-------------------------------receiving-------------------------------------*/
+
+    private void receive() throws IOException {
+        while(true){
+            receiveBuffer.clear();
+            SocketAddress address = channel.receive(receiveBuffer);
+            if(address == null){
+                return;
+            }
+            receiveBuffer.flip();
+            packetsReceived++;
+            bytesReceived += receiveBuffer.remaining();
+            try{
+                int type = receiveBuffer.get();
+                if(type == PACKET_HELLO){
+                    onHello(address, receiveBuffer);
+                }else if(type == PACKET_INPUT && address.equals(client)){
+                    onInput(receiveBuffer);
+                }else{
+                    invalidPacketCount++;
+                }
+            }catch (BufferUnderflowException e){
+                invalidPacketCount++;
+            }
+        }
+    }
+
+    private void onHello(SocketAddress address, ByteBuffer in){
+        int width = NetSnapshot.readVarint(in);
+        int height = NetSnapshot.readVarint(in);
+        if(client == null){
+            //只接受第一个客户端
+            client = address;
+            renderer = new NullRenderer(width, height);
+        }
+    }
+
+    private void onInput(ByteBuffer in){
+        int ack = NetSnapshot.readVarint(in);
+        if(ack > ackedSnapshot && ack <= sequence){
+            ackedSnapshot = ack;
+        }
+        int firstInput = NetSnapshot.readVarint(in);
+        int count = NetSnapshot.readVarint(in);
+        for(int k = 0; k < count; k++){
+            int type = in.get();
+            float x = 0;
+            float y = 0;
+            if(type == InputLog.TYPE_MOVE){
+                x = NetSnapshot.dequantize(NetSnapshot.unzigzag(NetSnapshot.readVarint(in)));
+                y = NetSnapshot.dequantize(NetSnapshot.unzigzag(NetSnapshot.readVarint(in)));
+            }
+            int seq = firstInput + k;
+            if(seq != lastInput + 1){
+                //已经应用过的重复输入
+                continue;
+            }
+            //游戏结束后的输入只确认，不应用
+            lastInput = seq;
+            if(game.getStatus() != Game.STATUS_GAME_STARTED){
+                continue;
+            }
+            if(type == InputLog.TYPE_MOVE){
+                game.moveCombatAircraftTo(x, y);
+            }else if(type == InputLog.TYPE_BOMB){
+                game.bomb();
+            }
+        }
+    }
+
+    /*-------------------------------sending-------------------------------------*/
+
+    private void sendSnapshot() throws IOException {
+        sequence++;
+        NetSnapshot snapshot = history.obtain(sequence);
+        snapshot.capture(game, sequence, opponentScore, lastInput);
+        //确认的快照已被覆盖时返回null，发送完整的快照
+        NetSnapshot baseline = history.get(ackedSnapshot);
+        if(baseline == null){
+            fullSnapshotCount++;
+        }
+        sendBuffer.clear();
+        sendBuffer.put((byte)PACKET_SNAPSHOT);
+        droppedProjectileCount += snapshot.write(sendBuffer, baseline, MAX_PACKET_SIZE);
+        sendBuffer.flip();
+        if(sendBuffer.remaining() > MAX_PACKET_SIZE){
+            oversizedCount++;
+        }
+        packetsSent++;
+        bytesSent += sendBuffer.remaining();
+        if(lossRate > 0 && lossRandom.nextFloat() < lossRate){
+            return;
+        }
+        channel.send(sendBuffer, client);
+    }
+
+    //已发送的快照，用于测试
+    NetSnapshot getSentSnapshot(int sequence){
+        return history.get(sequence);
+    }
+
+    public long getPacketsSent(){
+        return packetsSent;
+    }
+
+    public long getBytesSent(){
+        return bytesSent;
+    }
+
+    public long getFullSnapshotCount(){
+        return fullSnapshotCount;
+    }
+
+    public long getOversizedCount(){
+        return oversizedCount;
+    }
+
+    public long getDroppedProjectileCount(){
+        return droppedProjectileCount;
+    }
+
+    public long getPacketsReceived(){
+        return packetsReceived;
+    }
+
+    public long getBytesReceived(){
+        return bytesReceived;
+    }
+
+    public long getInvalidPacketCount(){
+        return invalidPacketCount;
+    }
+}
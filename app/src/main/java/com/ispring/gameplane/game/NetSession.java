@@ -0,0 +1,210 @@
+package com.ispring.gameplane.game;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * 在后台线程中按每秒60帧驱动网络对战的主机（NetHost）或客户端（NetClient），Android上不能在UI线程中使用网络
+ * 套接字在后台线程中打开和关闭，主机名也在后台线程中解析；
+ * UI线程通过本类的方法传入输入和主机玩家的得分、绘制客户端的画面，这些方法与后台线程的每一帧在本对象上同步，
+ * 所以NetHost和NetClient仍然只需要单线程使用
+ * 后台线程按固定的间隔推进，某一帧晚了时下一帧相应提前，落后超过一帧时不再追赶
+ * 打开套接字或收发出错时后台线程结束，getError返回错误
+ */
+public class NetSession {
+
+    public static final int DEFAULT_PORT = 47600;
+
+    //主机：远程玩家的Game和监听的端口
+    private final Game remoteGame;
+    private final int port;
+    //客户端：主机的地址和本地屏幕
+    private final String hostName;
+    private final int width;
+    private final int height;
+    private final float density;
+
+    private NetHost host = null;
+    private NetClient client = null;
+    private volatile long opponentScore = 0;
+
+    private final Thread thread;
+    private volatile boolean closed = false;
+    private volatile IOException error = null;
+
+    private NetSession(Game remoteGame, int port, String hostName, int width, int height, float density){
+        this.remoteGame = remoteGame;
+        this.port = port;
+        this.hostName = hostName;
+        this.width = width;
+        this.height = height;
+        this.density = density;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runLoop();
+            }
+        }, "NetSession");
+        thread.setDaemon(true);
+    }
+
+    //作为主机运行remoteGame，调用前已设置种子、关卡并调用了start，之后只能在后台线程中使用；port为0时由系统分配
+    public static NetSession host(Game remoteGame, int port){
+        NetSession session = new NetSession(remoteGame, port, null, 0, 0, 0);
+        session.thread.start();
+        return session;
+    }
+
+    //连接hostName上的主机，width、height为本地屏幕的尺寸，见NetClient
+    public static NetSession join(String hostName, int port, int width, int height, float density){
+        NetSession session = new NetSession(null, port, hostName, width, height, density);
+        session.thread.start();
+        return session;
+    }
+
+    //结束后台线程，不等待；线程在当前帧结束后关闭套接字
+    public void close(){
+        closed = true;
+        thread.interrupt();
+    }
+
+    /*-------------------------------background thread-------------------------------------*/
+
+    private void runLoop(){
+        try{
+            open();
+            long next = System.nanoTime();
+            while(!closed){
+                synchronized (this){
+                    if(host != null){
+                        host.setOpponentScore(opponentScore);
+                        host.step();
+                    }else{
+                        client.update();
+                    }
+                }
+                next += Game.FRAME_NANOS;
+                long sleep = next - System.nanoTime();
+                if(sleep > 0){
+                    Thread.sleep(sleep / 1000000, (int)(sleep % 1000000));
+                }else if(sleep < -Game.FRAME_NANOS){
+                    next = System.nanoTime();
+                }
+            }
+        }catch (IOException e){
+            if(!closed){
+                error = e;
+            }
+        }catch (InterruptedException e){
+            //closed
+        }finally {
+            closeChannels();
+        }
+    }
+
+    private void open() throws IOException {
+        if(remoteGame != null){
+            NetHost opened = new NetHost(remoteGame, port);
+            synchronized (this){
+                host = opened;
+            }
+        }else{
+            InetSocketAddress address = new InetSocketAddress(hostName, port);
+            if(address.isUnresolved()){
+                throw new IOException("unknown host " + hostName);
+            }
+            NetClient opened = new NetClient(address, width, height, density);
+            synchronized (this){
+                client = opened;
+            }
+        }
+    }
+
+    private synchronized void closeChannels(){
+        try{
+            if(host != null){
+                host.close();
+            }
+            if(client != null){
+                client.close();
+            }
+        }catch (IOException e){
+            //ignore
+        }
+    }
+
+    /*-------------------------------UI thread-------------------------------------*/
+
+    public boolean isHost(){
+        return remoteGame != null;
+    }
+
+    //主机：客户端已连接；客户端：已收到第一个快照
+    public synchronized boolean isConnected(){
+        return host != null ? host.isConnected() : client != null && client.isConnected();
+    }
+
+    //后台线程因错误结束时返回该错误
+    public IOException getError(){
+        return error;
+    }
+
+    //主机监听的端口，套接字打开前为0
+    public synchronized int getPort(){
+        return host != null ? host.getPort() : 0;
+    }
+
+    //主机：主机玩家当前的得分，随快照发给客户端
+    public void setOpponentScore(long opponentScore){
+        this.opponentScore = opponentScore;
+    }
+
+    //主机：远程玩家的得分
+    public synchronized long getRemoteScore(){
+        return remoteGame != null ? remoteGame.getScore() : 0;
+    }
+
+    //客户端：移动战斗机，见NetClient.moveTo
+    public synchronized void moveTo(float centerX, float centerY){
+        if(client != null){
+            client.moveTo(centerX, centerY);
+        }
+    }
+
+    public synchronized void bomb(){
+        if(client != null){
+            client.bomb();
+        }
+    }
+
+    //客户端：绘制最新的画面，之后可以用getScore等取得同一时刻的得分、炸弹数和状态
+    public synchronized void draw(Renderer renderer, List<Texture> textures){
+        if(client != null){
+            client.draw(renderer, textures);
+        }
+    }
+
+    //客户端：远程玩家（即本地）的得分
+    public synchronized long getScore(){
+        NetSnapshot snapshot = client != null ? client.getLatestSnapshot() : null;
+        return snapshot != null ? snapshot.getScore() : 0;
+    }
+
+    //客户端：主机玩家的得分
+    public synchronized long getHostScore(){
+        NetSnapshot snapshot = client != null ? client.getLatestSnapshot() : null;
+        return snapshot != null ? snapshot.getOpponentScore() : 0;
+    }
+
+    public synchronized int getBombCount(){
+        NetSnapshot snapshot = client != null ? client.getLatestSnapshot() : null;
+        return snapshot != null ? snapshot.getBombCount() : 0;
+    }
+
+    //客户端：远程玩家的Game的状态，还没有收到快照时为STATUS_GAME_STARTED
+    public synchronized int getStatus(){
+        NetSnapshot snapshot = client != null ? client.getLatestSnapshot() : null;
+        return snapshot != null ? snapshot.getStatus() : Game.STATUS_GAME_STARTED;
+    }
+}
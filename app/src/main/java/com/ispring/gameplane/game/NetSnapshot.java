@@ -0,0 +1,670 @@
+package com.ispring.gameplane.game;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 游戏状态的快照，用于网络对战中主机发给客户端的状态，以及可以定位到任意帧的回放（见ReplayRecorder）
+ * 每个实体（Sprite或战斗机）记录编号、纹理、纹理中绘制的区域（爆炸效果的片段也由此体现）、首领被摧毁的部件、
+ * 敌机剩余的抗打击能力以及外框，
+ * 坐标和尺寸量化为1/POSITION_SCALE像素的整数；敌机子弹只记录位置，量化为整数像素
+ * 快照相对客户端已确认收到的基准快照做差量编码：只发送新增和改变的实体，每个实体只发送改变的字段，
+ * 数值字段写成与基准的差的变长整数，消失的实体只发送编号；没有基准时相当于与空快照比较
+ * 实体按编号排序，编号由Game在加入Sprite时递增分配，战斗机固定为AIRCRAFT_ID
+ */
+public class NetSnapshot {
+
+    public static final int AIRCRAFT_ID = 1;
+    public static final int FIRST_SPRITE_ID = 2;
+
+    //坐标和尺寸的精度为1/4像素
+    static final int POSITION_SCALE = 4;
+
+    //实体的字段数，编码时改变的字段用掩码表示，第i位对应下标为i的字段
+    private static final int FIELD_COUNT = 11;
+
+    //字段的下标，经常改变的字段在前，掩码通常只占一个字节
+    private static final int X = 0;
+    private static final int Y = 1;
+    private static final int SRC_LEFT = 2;
+    private static final int SRC_TOP = 3;
+    private static final int SRC_RIGHT = 4;
+    private static final int SRC_BOTTOM = 5;
+    private static final int POWER = 6;//敌机剩余的抗打击能力，其他实体为0
+    private static final int TEXTURE = 7;
+    private static final int STATE = 8;//首领被摧毁的部件的位掩码，其他实体为0
+    private static final int WIDTH = 9;
+    private static final int HEIGHT = 10;
+
+    private int sequence = 0;//快照的序号，从1开始
+    private long frame = 0;//主机上的逻辑帧
+    private long score = 0;
+    private long opponentScore = 0;//主机玩家的得分
+    private int bombCount = 0;
+    private int status = Game.STATUS_GAME_STARTED;
+    private int lastInput = 0;//主机已经处理的最后一个输入的序号
+
+    //实体，按编号排序，每个实体FIELD_COUNT个字段
+    private int count = 0;
+    private int[] ids = new int[64];
+    private int[] fields = new int[64 * FIELD_COUNT];
+    private final int[] swap = new int[FIELD_COUNT];//排序时暂存一个实体的字段
+
+    //敌机子弹的位置，x、y交替
+    private int projectileCount = 0;
+    private short[] projectiles = new short[256];
+    private float[] points = null;//绘制敌机子弹时使用
+
+    /*-------------------------------capturing-------------------------------------*/
+
+    //记录游戏当前的状态，只记录会被绘制的实体
+    public void capture(Game game, int sequence, long opponentScore, int lastInput){
+        this.sequence = sequence;
+        this.frame = game.getFrame();
+        this.score = game.getScore();
+        this.opponentScore = opponentScore;
+        this.status = game.getStatus();
+        this.lastInput = lastInput;
+        count = 0;
+        List<Sprite> sprites = game.getSprites();
+        for(int i = 0; i < sprites.size(); i++){
+            addSprite(sprites.get(i));
+        }
+        CombatAircraft combatAircraft = game.getCombatAircraft();
+        bombCount = 0;
+        if(combatAircraft != null){
+            addSprite(combatAircraft);
+            if(!combatAircraft.isDestroyed()){
+                bombCount = combatAircraft.getBombCount();
+            }
+        }
+        sortById();
+
+        EnemyProjectiles enemyProjectiles = game.getEnemyProjectiles();
+        projectileCount = enemyProjectiles.getCount();
+        if(projectiles.length < projectileCount * 2){
+            projectiles = new short[projectileCount * 2];
+        }
+        for(int i = 0; i < projectileCount; i++){
+            projectiles[i * 2] = (short)Math.round(enemyProjectiles.getX(i));
+            projectiles[i * 2 + 1] = (short)Math.round(enemyProjectiles.getY(i));
+        }
+    }
+
+    private void addSprite(Sprite s){
+        Texture texture = s.getTexture();
+        if(s.isDestroyed() || s.isCulled() || !s.getVisibility() || texture == null){
+            return;
+        }
+        int i = addEntity(s.getNetId());
+        int[] f = fields;
+        f[i + TEXTURE] = texture.getId();
+        Animation animation = s.getAnimation();
+        if(animation != null){
+            SpriteSheet sheet = animation.getSpriteSheet();
+            int index = animation.getFrameIndex();
+            f[i + SRC_LEFT] = sheet.getFrameLeft(index);
+            f[i + SRC_TOP] = sheet.getFrameTop(index);
+            f[i + SRC_RIGHT] = sheet.getFrameRight(index);
+            f[i + SRC_BOTTOM] = sheet.getFrameBottom(index);
+        }else if(s instanceof Boss){
+            //首领放大绘制整个纹理
+            f[i + SRC_LEFT] = 0;
+            f[i + SRC_TOP] = 0;
+            f[i + SRC_RIGHT] = texture.getWidth();
+            f[i + SRC_BOTTOM] = texture.getHeight();
+        }else{
+            f[i + SRC_LEFT] = 0;
+            f[i + SRC_TOP] = 0;
+            f[i + SRC_RIGHT] = (int)s.getWidth();
+            f[i + SRC_BOTTOM] = (int)s.getHeight();
+        }
+        f[i + STATE] = s instanceof Boss ? ((Boss)s).getDestroyedPartMask() : 0;
+        f[i + X] = quantize(s.getX());
+        f[i + Y] = quantize(s.getY());
+        f[i + WIDTH] = quantize(s.getWidth());
+        f[i + HEIGHT] = quantize(s.getHeight());
+        f[i + POWER] = s instanceof EnemyPlane ? ((EnemyPlane)s).getPower() : 0;
+    }
+
+    //加入一个实体，返回其字段的起始下标
+    private int addEntity(int id){
+        if(count == ids.length){
+            int[] newIds = new int[count * 2];
+            System.arraycopy(ids, 0, newIds, 0, count);
+            ids = newIds;
+            int[] newFields = new int[count * 2 * FIELD_COUNT];
+            System.arraycopy(fields, 0, newFields, 0, count * FIELD_COUNT);
+            fields = newFields;
+        }
+        ids[count] = id;
+        return count++ * FIELD_COUNT;
+    }
+
+    //Sprite基本按加入的顺序排列，编号几乎有序，插入排序
+    private void sortById(){
+        for(int i = 1; i < count; i++){
+            if(ids[i - 1] <= ids[i]){
+                continue;
+            }
+            int id = ids[i];
+            System.arraycopy(fields, i * FIELD_COUNT, swap, 0, FIELD_COUNT);
+            int j = i;
+            while(j > 0 && ids[j - 1] > id){
+                ids[j] = ids[j - 1];
+                System.arraycopy(fields, (j - 1) * FIELD_COUNT, fields, j * FIELD_COUNT, FIELD_COUNT);
+                j--;
+            }
+            ids[j] = id;
+            System.arraycopy(swap, 0, fields, j * FIELD_COUNT, FIELD_COUNT);
+        }
+    }
+
+    static int quantize(float value){
+        return Math.round(value * POSITION_SCALE);
+    }
+
+    static float dequantize(int value){
+        return value / (float)POSITION_SCALE;
+    }
+
+    /*-------------------------------encoding-------------------------------------*/
+
+    /*
+     * 按baseline做差量编码，baseline为null时编码完整的快照
+     * 写入的敌机子弹不超过maxBytes的剩余空间，超出的部分从快照中删除，返回删除的子弹数
+     */
+    public int write(ByteBuffer out, NetSnapshot baseline, int maxBytes){
+        return write(out, baseline, null, maxBytes);
+    }
+
+    /*
+     * predictFrom为baseline之前的快照时，实体的位置不与baseline比较，而与按两者的差外推的位置比较，
+     * 匀速运动的实体没有改变，不需要写入；解码时必须传入相同的predictFrom
+     * 用于逐帧记录的回放，网络对战中基准与当前快照间隔的帧数不固定，不使用
+     */
+    public int write(ByteBuffer out, NetSnapshot baseline, NetSnapshot predictFrom, int maxBytes){
+        writeVarint(out, sequence);
+        writeVarint(out, baseline != null ? baseline.sequence : 0);
+        writeVarlong(out, frame);
+        writeVarlong(out, score);
+        writeVarlong(out, opponentScore);
+        writeVarint(out, bombCount);
+        writeVarint(out, status);
+        writeVarint(out, lastInput);
+
+        int baseCount = baseline != null ? baseline.count : 0;
+        //消失的实体
+        int removed = 0;
+        for(int i = 0, j = 0; j < baseCount; j++){
+            while(i < count && ids[i] < baseline.ids[j]){
+                i++;
+            }
+            if(i >= count || ids[i] != baseline.ids[j]){
+                removed++;
+            }
+        }
+        writeVarint(out, removed);
+        int previousId = 0;
+        for(int i = 0, j = 0; j < baseCount; j++){
+            while(i < count && ids[i] < baseline.ids[j]){
+                i++;
+            }
+            if(i >= count || ids[i] != baseline.ids[j]){
+                writeVarint(out, baseline.ids[j] - previousId);
+                previousId = baseline.ids[j];
+            }
+        }
+
+        //新增或改变的实体
+        int predictCount = predictFrom != null && baseline != null ? predictFrom.count : 0;
+        int changed = 0;
+        for(int i = 0, j = 0, k = 0; i < count; i++){
+            j = findFrom(baseline, baseCount, j, ids[i]);
+            k = findFrom(predictFrom, predictCount, k, ids[i]);
+            if(getChangedFields(i, baseline, j, predictFrom, k) != 0){
+                changed++;
+            }
+        }
+        writeVarint(out, changed);
+        previousId = 0;
+        for(int i = 0, j = 0, k = 0; i < count; i++){
+            j = findFrom(baseline, baseCount, j, ids[i]);
+            k = findFrom(predictFrom, predictCount, k, ids[i]);
+            int mask = getChangedFields(i, baseline, j, predictFrom, k);
+            if(mask == 0){
+                continue;
+            }
+            writeVarint(out, ids[i] - previousId);
+            previousId = ids[i];
+            writeVarint(out, mask);
+            for(int field = 0; field < FIELD_COUNT; field++){
+                if((mask & (1 << field)) != 0){
+                    writeVarint(out, zigzag(fields[i * FIELD_COUNT + field] - getBase(ids[i], field, baseline, j, predictFrom, k)));
+                }
+            }
+        }
+
+        //敌机子弹，每颗4字节
+        int room = Math.max(0, (maxBytes - out.position() - 5) / 4);
+        int written = Math.min(projectileCount, room);
+        writeVarint(out, written);
+        for(int i = 0; i < written * 2; i++){
+            out.putShort(projectiles[i]);
+        }
+        //与客户端解码的结果保持一致
+        int dropped = projectileCount - written;
+        projectileCount = written;
+        return dropped;
+    }
+
+    //按baseline编码后的最大字节数，用于预留缓冲区
+    int getMaxEncodedSize(NetSnapshot baseline){
+        int baseCount = baseline != null ? baseline.count : 0;
+        return 64 + baseCount * 5 + count * (10 + FIELD_COUNT * 5) + projectileCount * 4;
+    }
+
+    //从下标j开始在baseline中查找编号不小于id的实体，baseCount为0时baseline可以为null
+    private static int findFrom(NetSnapshot baseline, int baseCount, int j, int id){
+        while(j < baseCount && baseline.ids[j] < id){
+            j++;
+        }
+        return j;
+    }
+
+    /*
+     * 编号为id的实体的字段在解码端已知的值：不在baseline中时为0，否则为baseline中的值，
+     * 位置在predictFrom中也存在该实体时按两者的差外推
+     * j、k为findFrom在baseline、predictFrom中的查找结果
+     */
+    private static int getBase(int id, int field, NetSnapshot baseline, int j, NetSnapshot predictFrom, int k){
+        if(baseline == null || j >= baseline.count || baseline.ids[j] != id){
+            return 0;
+        }
+        int base = baseline.fields[j * FIELD_COUNT + field];
+        if((field == X || field == Y) && predictFrom != null && k < predictFrom.count && predictFrom.ids[k] == id){
+            base += base - predictFrom.fields[k * FIELD_COUNT + field];
+        }
+        return base;
+    }
+
+    private int getChangedFields(int i, NetSnapshot baseline, int j, NetSnapshot predictFrom, int k){
+        boolean inBaseline = baseline != null && j < baseline.count && baseline.ids[j] == ids[i];
+        int mask = 0;
+        for(int field = 0; field < FIELD_COUNT; field++){
+            if(fields[i * FIELD_COUNT + field] != getBase(ids[i], field, baseline, j, predictFrom, k)){
+                mask |= 1 << field;
+            }
+        }
+        //新的实体即使所有字段都为0也要发送
+        if(!inBaseline && mask == 0){
+            mask = 1 << TEXTURE;
+        }
+        return mask;
+    }
+
+    //读出快照的序号和基准的序号，之后由read读出其余部分
+    public static int readSequence(ByteBuffer in){
+        return readVarint(in);
+    }
+
+    /*
+     * 在baseline的基础上解码快照，sequence和baselineSequence已由readSequence读出
+     * baseline不能是this
+     */
+    public void read(ByteBuffer in, int sequence, NetSnapshot baseline){
+        read(in, sequence, baseline, null);
+    }
+
+    //predictFrom必须与编码时相同，见write，不能是this
+    public void read(ByteBuffer in, int sequence, NetSnapshot baseline, NetSnapshot predictFrom){
+        this.sequence = sequence;
+        frame = readVarlong(in);
+        score = readVarlong(in);
+        opponentScore = readVarlong(in);
+        bombCount = readVarint(in);
+        status = readVarint(in);
+        lastInput = readVarint(in);
+
+        //复制基准中保留的实体，消失的实体按编号顺序边读边跳过
+        int removedCount = readVarint(in);
+        int removedRead = 0;
+        int removedId = removedCount > 0 ? readVarint(in) : Integer.MAX_VALUE;
+        if(removedCount > 0){
+            removedRead = 1;
+        }
+        count = 0;
+        int baseCount = baseline != null ? baseline.count : 0;
+        for(int j = 0; j < baseCount; j++){
+            while(removedId < baseline.ids[j]){
+                removedId = nextRemoved(in, removedId, removedRead++, removedCount);
+            }
+            if(removedId == baseline.ids[j]){
+                continue;
+            }
+            int i = addEntity(baseline.ids[j]);
+            System.arraycopy(baseline.fields, j * FIELD_COUNT, fields, i, FIELD_COUNT);
+        }
+        //保留的实体按predictFrom外推位置，与编码时的基准相同
+        if(predictFrom != null && baseline != null){
+            for(int i = 0, k = 0; i < count; i++){
+                k = findFrom(predictFrom, predictFrom.count, k, ids[i]);
+                if(k < predictFrom.count && predictFrom.ids[k] == ids[i]){
+                    fields[i * FIELD_COUNT + X] += fields[i * FIELD_COUNT + X] - predictFrom.fields[k * FIELD_COUNT + X];
+                    fields[i * FIELD_COUNT + Y] += fields[i * FIELD_COUNT + Y] - predictFrom.fields[k * FIELD_COUNT + Y];
+                }
+            }
+        }
+        while(removedRead < removedCount){
+            //基准中不存在的编号，正常情况下不会出现
+            removedId = nextRemoved(in, removedId, removedRead++, removedCount);
+        }
+        int keptCount = count;
+
+        //再应用改变的实体，新增的实体加在末尾，最后统一排序
+        int changedCount = readVarint(in);
+        int id = 0;
+        int k = 0;
+        for(int c = 0; c < changedCount; c++){
+            id += readVarint(in);
+            int mask = readVarint(in);
+            while(k < keptCount && ids[k] < id){
+                k++;
+            }
+            int i;
+            if(k < keptCount && ids[k] == id){
+                i = k * FIELD_COUNT;
+            }else{
+                i = addEntity(id);
+                for(int field = 0; field < FIELD_COUNT; field++){
+                    fields[i + field] = 0;
+                }
+            }
+            for(int field = 0; field < FIELD_COUNT; field++){
+                if((mask & (1 << field)) != 0){
+                    fields[i + field] += unzigzag(readVarint(in));
+                }
+            }
+        }
+        sortById();
+
+        projectileCount = readVarint(in);
+        if(projectiles.length < projectileCount * 2){
+            projectiles = new short[projectileCount * 2];
+        }
+        for(int i = 0; i < projectileCount * 2; i++){
+            projectiles[i] = in.getShort();
+        }
+    }
+
+    //读出下一个消失的实体的编号，已经读完时返回Integer.MAX_VALUE
+    private static int nextRemoved(ByteBuffer in, int previousId, int read, int removedCount){
+        return read < removedCount ? previousId + readVarint(in) : Integer.MAX_VALUE;
+    }
+
+    /*-------------------------------varint-------------------------------------*/
+
+    static void writeVarint(ByteBuffer out, int value){
+        while((value & ~0x7f) != 0){
+            out.put((byte)((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte)value);
+    }
+
+    static int readVarint(ByteBuffer in){
+        int value = 0;
+        int shift = 0;
+        while(true){
+            byte b = in.get();
+            value |= (b & 0x7f) << shift;
+            if((b & 0x80) == 0){
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    static void writeVarlong(ByteBuffer out, long value){
+        while((value & ~0x7fL) != 0){
+            out.put((byte)((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte)value);
+    }
+
+    static long readVarlong(ByteBuffer in){
+        long value = 0;
+        int shift = 0;
+        while(true){
+            byte b = in.get();
+            value |= (long)(b & 0x7f) << shift;
+            if((b & 0x80) == 0){
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    //有符号数映射为无符号数，绝对值小的数编码后也短
+    static int zigzag(int value){
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value){
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /*-------------------------------accessors-------------------------------------*/
+
+    public int getSequence(){
+        return sequence;
+    }
+
+    public long getFrame(){
+        return frame;
+    }
+
+    public long getScore(){
+        return score;
+    }
+
+    public long getOpponentScore(){
+        return opponentScore;
+    }
+
+    public int getBombCount(){
+        return bombCount;
+    }
+
+    public int getStatus(){
+        return status;
+    }
+
+    public int getLastInput(){
+        return lastInput;
+    }
+
+    public int getCount(){
+        return count;
+    }
+
+    public int getId(int i){
+        return ids[i];
+    }
+
+    //编号为id的实体的下标，不存在时返回-1，从start开始查找，按编号顺序查找多个实体时传入上次的结果
+    public int indexOf(int id, int start){
+        for(int i = Math.max(0, start); i < count && ids[i] <= id; i++){
+            if(ids[i] == id){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int getTextureId(int i){
+        return fields[i * FIELD_COUNT + TEXTURE];
+    }
+
+    public int getSrcLeft(int i){
+        return fields[i * FIELD_COUNT + SRC_LEFT];
+    }
+
+    public int getSrcTop(int i){
+        return fields[i * FIELD_COUNT + SRC_TOP];
+    }
+
+    public int getSrcRight(int i){
+        return fields[i * FIELD_COUNT + SRC_RIGHT];
+    }
+
+    public int getSrcBottom(int i){
+        return fields[i * FIELD_COUNT + SRC_BOTTOM];
+    }
+
+    public int getState(int i){
+        return fields[i * FIELD_COUNT + STATE];
+    }
+
+    public float getX(int i){
+        return dequantize(fields[i * FIELD_COUNT + X]);
+    }
+
+    public float getY(int i){
+        return dequantize(fields[i * FIELD_COUNT + Y]);
+    }
+
+    public float getWidth(int i){
+        return dequantize(fields[i * FIELD_COUNT + WIDTH]);
+    }
+
+    public float getHeight(int i){
+        return dequantize(fields[i * FIELD_COUNT + HEIGHT]);
+    }
+
+    public int getPower(int i){
+        return fields[i * FIELD_COUNT + POWER];
+    }
+
+    public int getProjectileCount(){
+        return projectileCount;
+    }
+
+    public int getProjectileX(int i){
+        return projectiles[i * 2];
+    }
+
+    public int getProjectileY(int i){
+        return projectiles[i * 2 + 1];
+    }
+
+    /*-------------------------------drawing-------------------------------------*/
+
+    //按Game.draw的顺序绘制：Sprite按加入的顺序（即编号顺序），然后是敌机子弹，最后是战斗机
+    public void draw(Renderer renderer, List<Texture> textures, float projectileSize){
+        int aircraft = -1;
+        for(int i = 0; i < count; i++){
+            if(ids[i] == AIRCRAFT_ID){
+                aircraft = i;
+                continue;
+            }
+            drawEntity(renderer, textures, i, getX(i), getY(i));
+        }
+        drawProjectiles(renderer, projectileSize);
+        if(aircraft >= 0){
+            drawEntity(renderer, textures, aircraft, getX(aircraft), getY(aircraft));
+        }
+    }
+
+    //在(x, y)绘制第i个实体，插值或预测时位置与快照中的不同
+    public void drawEntity(Renderer renderer, List<Texture> textures, int i, float x, float y){
+        int textureId = getTextureId(i);
+        if(textureId < 0 || textureId >= textures.size()){
+            return;
+        }
+        float w = getWidth(i);
+        float h = getHeight(i);
+        renderer.drawTexture(textures.get(textureId), getSrcLeft(i), getSrcTop(i),
+                getSrcRight(i), getSrcBottom(i), x, y, x + w, y + h);
+        if(getState(i) != 0){
+            Boss.drawDestroyedParts(renderer, x, y, w, h, getState(i));
+        }
+    }
+
+    //size为子弹的直径
+    public void drawProjectiles(Renderer renderer, float size){
+        if(projectileCount == 0){
+            return;
+        }
+        if(points == null || points.length < projectileCount * 2){
+            points = new float[Math.max(512, projectileCount * 2)];
+        }
+        for(int i = 0; i < projectileCount * 2; i++){
+            points[i] = projectiles[i];
+        }
+        renderer.drawPoints(points, projectileCount, size, EnemyProjectiles.COLOR);
+    }
+
+    //两个快照的内容是否相同，不比较序号
+    public boolean contentEquals(NetSnapshot other){
+        if(frame != other.frame || score != other.score || opponentScore != other.opponentScore
+                || bombCount != other.bombCount || status != other.status || lastInput != other.lastInput
+                || count != other.count || projectileCount != other.projectileCount){
+            return false;
+        }
+        for(int i = 0; i < count; i++){
+            if(ids[i] != other.ids[i]){
+                return false;
+            }
+        }
+        for(int i = 0; i < count * FIELD_COUNT; i++){
+            if(fields[i] != other.fields[i]){
+                return false;
+            }
+        }
+        for(int i = 0; i < projectileCount * 2; i++){
+            if(projectiles[i] != other.projectiles[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 最近的若干个快照，按序号存放在环形数组中，快照对象重复使用
+     * 主机保存发出的快照作为差量编码的基准，客户端保存收到的快照用于解码和插值
+     */
+    public static class History {
+        private final NetSnapshot[] snapshots;
+
+        public History(int size){
+            snapshots = new NetSnapshot[size];
+            for(int i = 0; i < size; i++){
+                snapshots[i] = new NetSnapshot();
+            }
+        }
+
+        public int getSize(){
+            return snapshots.length;
+        }
+
+        //取得用于存放序号为sequence的快照的对象，会覆盖序号相差size的旧快照
+        public NetSnapshot obtain(int sequence){
+            NetSnapshot snapshot = snapshots[sequence % snapshots.length];
+            snapshot.sequence = sequence;
+            snapshot.count = 0;
+            snapshot.projectileCount = 0;
+            return snapshot;
+        }
+
+        //序号为sequence的快照，已被覆盖或不存在时返回null
+        public NetSnapshot get(int sequence){
+            if(sequence <= 0){
+                return null;
+            }
+            NetSnapshot snapshot = snapshots[sequence % snapshots.length];
+            return snapshot.sequence == sequence ? snapshot : null;
+        }
+    }
+}
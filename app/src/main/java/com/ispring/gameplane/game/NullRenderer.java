@@ -0,0 +1,66 @@
+package com.ispring.gameplane.game;
+
+/**
+ * 不绘制任何内容的Renderer，只提供屏幕尺寸，用于以最快的速度推进游戏逻辑，例如ScoreVerifier
+ */
+public class NullRenderer implements Renderer {
+
+    private final int width;
+    private final int height;
+
+    public NullRenderer(int width, int height){
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void drawTexture(Texture texture, int srcLeft, int srcTop, int srcRight, int srcBottom,
+                            float dstLeft, float dstTop, float dstRight, float dstBottom) {
+    }
+
+    @Override
+    public void drawTexture(Texture texture, float left, float top) {
+    }
+
+    @Override
+    public void fillRect(float left, float top, float right, float bottom, int color) {
+    }
+
+    @Override
+    public void strokeRect(float left, float top, float right, float bottom, int color, float strokeWidth) {
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, int color, float strokeWidth) {
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, float textSize, int color, int align) {
+    }
+
+    @Override
+    public void drawPoints(float[] points, int count, float size, int color) {
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+    }
+
+    @Override
+    public void save() {
+    }
+
+    @Override
+    public void restore() {
+    }
+}
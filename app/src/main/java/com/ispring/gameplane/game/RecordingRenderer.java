@@ -0,0 +1,317 @@
+package com.ispring.gameplane.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 无设备的Renderer实现，将每帧的绘制命令记录到紧凑的命令缓冲区中
+ * 整数参数（操作码、纹理编号、颜色等）存放在ints中，浮点参数存放在floats中，
+ * 缓冲区在容量足够后不再分配内存，可以在JVM上统计绘制次数、估算过度绘制，
+ * 并通过getFrameHash()或dump()做golden-frame比对
+ */
+public class RecordingRenderer implements Renderer {
+
+    public static final int OP_TEXTURE = 1;
+    public static final int OP_FILL_RECT = 2;
+    public static final int OP_STROKE_RECT = 3;
+    public static final int OP_LINE = 4;
+    public static final int OP_TEXT = 5;
+    public static final int OP_TRANSLATE = 6;
+    public static final int OP_SAVE = 7;
+    public static final int OP_RESTORE = 8;
+    public static final int OP_POINTS = 9;
+
+    private int width;
+    private int height;
+
+    private int[] ints = new int[1024];
+    private int intCount = 0;
+    private float[] floats = new float[1024];
+    private int floatCount = 0;
+    private List<String> texts = new ArrayList<String>();
+
+    //当前的平移量，用于将绘制区域换算到屏幕坐标
+    private float translateX = 0;
+    private float translateY = 0;
+    private float[] translateStack = new float[16];
+    private int translateStackSize = 0;
+
+    //当前帧的统计
+    private int commandCount = 0;
+    private int drawCallCount = 0;
+    private int textureDrawCount = 0;
+    private double coveredArea = 0;//纹理和填充矩形覆盖的屏幕面积之和
+
+    public RecordingRenderer(int width, int height){
+        this.width = width;
+        this.height = height;
+    }
+
+    public void setSize(int width, int height){
+        this.width = width;
+        this.height = height;
+    }
+
+    //开始记录新的一帧，清空上一帧的命令
+    public void beginFrame(){
+        intCount = 0;
+        floatCount = 0;
+        texts.clear();
+        translateX = 0;
+        translateY = 0;
+        translateStackSize = 0;
+        commandCount = 0;
+        drawCallCount = 0;
+        textureDrawCount = 0;
+        coveredArea = 0;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void drawTexture(Texture texture, int srcLeft, int srcTop, int srcRight, int srcBottom,
+                            float dstLeft, float dstTop, float dstRight, float dstBottom) {
+        beginCommand(OP_TEXTURE, 5, 4);
+        ints[intCount++] = texture.getId();
+        ints[intCount++] = srcLeft;
+        ints[intCount++] = srcTop;
+        ints[intCount++] = srcRight;
+        ints[intCount++] = srcBottom;
+        putRect(dstLeft, dstTop, dstRight, dstBottom);
+        textureDrawCount++;
+        drawCallCount++;
+        cover(dstLeft, dstTop, dstRight, dstBottom);
+    }
+
+    @Override
+    public void drawTexture(Texture texture, float left, float top) {
+        drawTexture(texture, 0, 0, texture.getWidth(), texture.getHeight(),
+                left, top, left + texture.getWidth(), top + texture.getHeight());
+    }
+
+    @Override
+    public void fillRect(float left, float top, float right, float bottom, int color) {
+        beginCommand(OP_FILL_RECT, 1, 4);
+        ints[intCount++] = color;
+        putRect(left, top, right, bottom);
+        drawCallCount++;
+        cover(left, top, right, bottom);
+    }
+
+    @Override
+    public void strokeRect(float left, float top, float right, float bottom, int color, float strokeWidth) {
+        beginCommand(OP_STROKE_RECT, 1, 5);
+        ints[intCount++] = color;
+        putRect(left, top, right, bottom);
+        floats[floatCount++] = strokeWidth;
+        drawCallCount++;
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, int color, float strokeWidth) {
+        beginCommand(OP_LINE, 1, 5);
+        ints[intCount++] = color;
+        putRect(startX, startY, stopX, stopY);
+        floats[floatCount++] = strokeWidth;
+        drawCallCount++;
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, float textSize, int color, int align) {
+        beginCommand(OP_TEXT, 3, 3);
+        ints[intCount++] = color;
+        ints[intCount++] = align;
+        ints[intCount++] = texts.size();
+        texts.add(text);
+        floats[floatCount++] = x;
+        floats[floatCount++] = y;
+        floats[floatCount++] = textSize;
+        drawCallCount++;
+    }
+
+    @Override
+    public void drawPoints(float[] points, int count, float size, int color) {
+        beginCommand(OP_POINTS, 2, 1 + count * 2);
+        ints[intCount++] = color;
+        ints[intCount++] = count;
+        floats[floatCount++] = size;
+        System.arraycopy(points, 0, floats, floatCount, count * 2);
+        floatCount += count * 2;
+        drawCallCount++;
+        float half = size / 2;
+        for(int i = 0; i < count; i++){
+            float x = points[i * 2];
+            float y = points[i * 2 + 1];
+            cover(x - half, y - half, x + half, y + half);
+        }
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+        beginCommand(OP_TRANSLATE, 0, 2);
+        floats[floatCount++] = dx;
+        floats[floatCount++] = dy;
+        translateX += dx;
+        translateY += dy;
+    }
+
+    @Override
+    public void save() {
+        beginCommand(OP_SAVE, 0, 0);
+        if(translateStackSize + 2 > translateStack.length){
+            float[] newStack = new float[translateStack.length * 2];
+            System.arraycopy(translateStack, 0, newStack, 0, translateStackSize);
+            translateStack = newStack;
+        }
+        translateStack[translateStackSize++] = translateX;
+        translateStack[translateStackSize++] = translateY;
+    }
+
+    @Override
+    public void restore() {
+        beginCommand(OP_RESTORE, 0, 0);
+        if(translateStackSize >= 2){
+            translateY = translateStack[--translateStackSize];
+            translateX = translateStack[--translateStackSize];
+        }
+    }
+
+    private void beginCommand(int op, int intArgs, int floatArgs){
+        if(intCount + intArgs + 1 > ints.length){
+            int[] newInts = new int[Math.max(ints.length * 2, intCount + intArgs + 1)];
+            System.arraycopy(ints, 0, newInts, 0, intCount);
+            ints = newInts;
+        }
+        if(floatCount + floatArgs > floats.length){
+            float[] newFloats = new float[Math.max(floats.length * 2, floatCount + floatArgs)];
+            System.arraycopy(floats, 0, newFloats, 0, floatCount);
+            floats = newFloats;
+        }
+        ints[intCount++] = op;
+        commandCount++;
+    }
+
+    private void putRect(float left, float top, float right, float bottom){
+        floats[floatCount++] = left;
+        floats[floatCount++] = top;
+        floats[floatCount++] = right;
+        floats[floatCount++] = bottom;
+    }
+
+    //累加绘制区域与屏幕相交部分的面积
+    private void cover(float left, float top, float right, float bottom){
+        float l = Math.max(left + translateX, 0);
+        float t = Math.max(top + translateY, 0);
+        float r = Math.min(right + translateX, width);
+        float b = Math.min(bottom + translateY, height);
+        if(l < r && t < b){
+            coveredArea += (r - l) * (b - t);
+        }
+    }
+
+    public int getCommandCount(){
+        return commandCount;
+    }
+
+    //当前帧的绘制调用次数，不含translate、save和restore
+    public int getDrawCallCount(){
+        return drawCallCount;
+    }
+
+    public int getTextureDrawCount(){
+        return textureDrawCount;
+    }
+
+    //过度绘制估算值：被覆盖的面积之和与屏幕面积之比，1表示每个像素平均绘制一次
+    public float getOverdraw(){
+        if(width <= 0 || height <= 0){
+            return 0;
+        }
+        return (float)(coveredArea / ((double)width * height));
+    }
+
+    //当前帧命令缓冲区的哈希值，相同的绘制命令序列得到相同的值
+    public long getFrameHash(){
+        long hash = 0xcbf29ce484222325L;
+        for(int i = 0; i < intCount; i++){
+            hash = (hash ^ ints[i]) * 0x100000001b3L;
+        }
+        for(int i = 0; i < floatCount; i++){
+            hash = (hash ^ Float.floatToIntBits(floats[i])) * 0x100000001b3L;
+        }
+        for(String text : texts){
+            hash = (hash ^ text.hashCode()) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    //将当前帧的命令以文本形式输出，每行一条命令，用于golden-frame文件
+    public String dump(){
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        int f = 0;
+        while(i < intCount){
+            int op = ints[i++];
+            switch (op){
+                case OP_TEXTURE:
+                    sb.append("texture ").append(ints[i]).append(" src=").append(ints[i + 1]).append(',')
+                            .append(ints[i + 2]).append(',').append(ints[i + 3]).append(',').append(ints[i + 4]);
+                    i += 5;
+                    sb.append(" dst=").append(floats[f]).append(',').append(floats[f + 1]).append(',')
+                            .append(floats[f + 2]).append(',').append(floats[f + 3]);
+                    f += 4;
+                    break;
+                case OP_FILL_RECT:
+                    sb.append("fillRect #").append(Integer.toHexString(ints[i++])).append(' ')
+                            .append(floats[f]).append(',').append(floats[f + 1]).append(',')
+                            .append(floats[f + 2]).append(',').append(floats[f + 3]);
+                    f += 4;
+                    break;
+                case OP_STROKE_RECT:
+                case OP_LINE:
+                    sb.append(op == OP_LINE ? "line #" : "strokeRect #").append(Integer.toHexString(ints[i++])).append(' ')
+                            .append(floats[f]).append(',').append(floats[f + 1]).append(',')
+                            .append(floats[f + 2]).append(',').append(floats[f + 3])
+                            .append(" w=").append(floats[f + 4]);
+                    f += 5;
+                    break;
+                case OP_TEXT:
+                    sb.append("text #").append(Integer.toHexString(ints[i])).append(" align=").append(ints[i + 1])
+                            .append(" \"").append(texts.get(ints[i + 2])).append("\" ")
+                            .append(floats[f]).append(',').append(floats[f + 1]).append(" size=").append(floats[f + 2]);
+                    i += 3;
+                    f += 3;
+                    break;
+                case OP_POINTS:
+                    sb.append("points #").append(Integer.toHexString(ints[i])).append(" n=").append(ints[i + 1])
+                            .append(" size=").append(floats[f]);
+                    f += 1 + ints[i + 1] * 2;
+                    i += 2;
+                    break;
+                case OP_TRANSLATE:
+                    sb.append("translate ").append(floats[f]).append(',').append(floats[f + 1]);
+                    f += 2;
+                    break;
+                case OP_SAVE:
+                    sb.append("save");
+                    break;
+                case OP_RESTORE:
+                    sb.append("restore");
+                    break;
+                default:
+                    sb.append("unknown ").append(op);
+                    break;
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
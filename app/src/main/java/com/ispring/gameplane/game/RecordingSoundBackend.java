@@ -0,0 +1,85 @@
+package com.ispring.gameplane.game;
+
+/**
+ * 记录播放请求的音效后端，在JVM上代替SoundPoolBackend
+ * 不发出声音，只统计每种音效播放和停止的次数以及同时播放的最大声音数，
+ * 声音按SoundSynth中的时长在frame推进后结束，用于在HeadlessRunner中检查音效的数量是否受到限制
+ */
+public class RecordingSoundBackend implements SoundEffects.Backend {
+
+    private static final int MAX_VOICES = 64;
+
+    private final long[] playCounts = new long[SoundEffects.SOUND_COUNT];
+    private long stopCount = 0;
+
+    //正在播放的声音
+    private final int[] voiceIds = new int[MAX_VOICES];
+    private final long[] voiceEndFrames = new long[MAX_VOICES];
+    private int nextVoiceId = 1;
+    private long frame = 0;
+    private int maxActiveVoices = 0;
+    private int playsThisFrame = 0;
+    private int maxPlaysPerFrame = 0;
+
+    //当前的帧，在SoundEffects.flush之前设置
+    public void setFrame(long frame){
+        if(frame != this.frame){
+            playsThisFrame = 0;
+        }
+        this.frame = frame;
+    }
+
+    @Override
+    public int play(int sound, float leftVolume, float rightVolume) {
+        playCounts[sound]++;
+        playsThisFrame++;
+        maxPlaysPerFrame = Math.max(maxPlaysPerFrame, playsThisFrame);
+        int id = nextVoiceId++;
+        int durationFrames = (int)(SoundSynth.getDurationMs(sound) * 1000000L / Game.FRAME_NANOS);
+        int active = 0;
+        int slot = -1;
+        for(int i = 0; i < MAX_VOICES; i++){
+            if(voiceIds[i] != 0 && voiceEndFrames[i] <= frame){
+                voiceIds[i] = 0;
+            }
+            if(voiceIds[i] != 0){
+                active++;
+            }else if(slot < 0){
+                slot = i;
+            }
+        }
+        if(slot >= 0){
+            voiceIds[slot] = id;
+            voiceEndFrames[slot] = frame + durationFrames;
+            active++;
+        }
+        maxActiveVoices = Math.max(maxActiveVoices, active);
+        return id;
+    }
+
+    @Override
+    public void stop(int voiceId) {
+        stopCount++;
+        for(int i = 0; i < MAX_VOICES; i++){
+            if(voiceIds[i] == voiceId){
+                voiceIds[i] = 0;
+            }
+        }
+    }
+
+    public long getPlayCount(int sound){
+        return playCounts[sound];
+    }
+
+    public long getStopCount(){
+        return stopCount;
+    }
+
+    public int getMaxActiveVoices(){
+        return maxActiveVoices;
+    }
+
+    public int getMaxPlaysPerFrame(){
+        return maxPlaysPerFrame;
+    }
+}
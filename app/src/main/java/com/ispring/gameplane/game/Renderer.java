@@ -0,0 +1,43 @@
+package com.ispring.gameplane.game;
+
+/**
+ * 绘图接口，Sprite及HUD都通过该接口绘制，而不直接使用Canvas
+ * CanvasRenderer将绘制命令转交给Android的Canvas，
+ * RecordingRenderer将绘制命令记录到命令缓冲区中，用于在JVM上统计和校验绘制结果
+ */
+public interface Renderer {
+
+    int ALIGN_LEFT = 0;
+    int ALIGN_CENTER = 1;
+    int ALIGN_RIGHT = 2;
+
+    //绘制区域的宽度
+    int getWidth();
+
+    //绘制区域的高度
+    int getHeight();
+
+    //将纹理的src区域绘制到dst区域
+    void drawTexture(Texture texture, int srcLeft, int srcTop, int srcRight, int srcBottom,
+                     float dstLeft, float dstTop, float dstRight, float dstBottom);
+
+    //将整个纹理以原尺寸绘制到(left, top)处
+    void drawTexture(Texture texture, float left, float top);
+
+    void fillRect(float left, float top, float right, float bottom, int color);
+
+    void strokeRect(float left, float top, float right, float bottom, int color, float strokeWidth);
+
+    void drawLine(float startX, float startY, float stopX, float stopY, int color, float strokeWidth);
+
+    void drawText(String text, float x, float y, float textSize, int color, int align);
+
+    //一次批量绘制count个直径为size的圆点，points中依次存放每个点的x、y
+    void drawPoints(float[] points, int count, float size, int color);
+
+    void translate(float dx, float dy);
+
+    void save();
+
+    void restore();
+}
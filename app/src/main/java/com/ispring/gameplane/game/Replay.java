@@ -0,0 +1,133 @@
+package com.ispring.gameplane.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 读取ReplayRecorder写入的回放，可以定位到任意一帧
+ * 通过关键帧的索引直接找到目标帧之前最近的关键帧，再应用不超过关键帧间隔的差量，
+ * 定位的开销与回放的长度无关；向后逐帧播放或在同一关键帧区间内向后定位时从当前帧继续解码
+ * 文件通过内存映射读取，只有访问到的部分才会被读入内存
+ */
+public class Replay {
+
+    private final int width;
+    private final int height;
+    private final float density;
+    private final int keyframeInterval;
+    private final int frameCount;
+    private final int[] keyframeOffsets;
+    private final ByteBuffer data;
+
+    //当前帧、上一帧和解码下一帧时使用的快照，轮流使用
+    private NetSnapshot current = new NetSnapshot();
+    private NetSnapshot previous = new NetSnapshot();
+    private NetSnapshot spare = new NetSnapshot();
+    private int currentIndex = -1;//current是第几帧，-1表示还没有解码
+
+    private Replay(ByteBuffer in) throws IOException {
+        if(in.remaining() < 9 * 4 || in.getInt() != ReplayRecorder.MAGIC){
+            throw new IOException("not a replay");
+        }
+        int version = in.getInt();
+        if(version != ReplayRecorder.VERSION){
+            throw new IOException("unsupported replay version " + version);
+        }
+        width = in.getInt();
+        height = in.getInt();
+        density = in.getFloat();
+        keyframeInterval = in.getInt();
+        frameCount = in.getInt();
+        int keyframeCount = in.getInt();
+        int dataLength = in.getInt();
+        if(keyframeInterval <= 0 || frameCount < 0 || dataLength < 0
+                || keyframeCount != (frameCount + keyframeInterval - 1) / keyframeInterval
+                || in.remaining() < keyframeCount * 4 + (long)dataLength){
+            throw new IOException("corrupt replay header");
+        }
+        keyframeOffsets = new int[keyframeCount];
+        for(int i = 0; i < keyframeCount; i++){
+            keyframeOffsets[i] = in.getInt();
+            if(keyframeOffsets[i] < 0 || keyframeOffsets[i] >= dataLength){
+                throw new IOException("corrupt keyframe index");
+            }
+        }
+        in.limit(in.position() + dataLength);
+        data = in.slice();
+    }
+
+    public static Replay open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try{
+            //映射在关闭文件后仍然有效
+            return new Replay(raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()));
+        }finally {
+            raf.close();
+        }
+    }
+
+    public static Replay wrap(ByteBuffer buffer) throws IOException {
+        return new Replay(buffer.duplicate());
+    }
+
+    /*
+     * 定位到第index帧（从0开始），返回该帧的快照
+     * 返回的快照在下次调用seek之前有效
+     */
+    public NetSnapshot seek(int index){
+        if(index < 0 || index >= frameCount){
+            throw new IndexOutOfBoundsException("frame " + index + " of " + frameCount);
+        }
+        int keyframe = index / keyframeInterval;
+        if(currentIndex < 0 || index < currentIndex || currentIndex / keyframeInterval != keyframe){
+            data.position(keyframeOffsets[keyframe]);
+            currentIndex = keyframe * keyframeInterval - 1;
+        }
+        while(currentIndex < index){
+            decodeNext();
+        }
+        return current;
+    }
+
+    //解码data当前位置的一帧，关键帧没有基准，其他帧的基准是current，关键帧之后的第2帧起按previous外推位置
+    private void decodeNext(){
+        int sequence = NetSnapshot.readSequence(data);
+        int baselineSequence = NetSnapshot.readSequence(data);
+        //快照的序号为帧的下标加1
+        if(sequence != currentIndex + 2
+                || (baselineSequence != 0 && baselineSequence != current.getSequence())){
+            currentIndex = -1;
+            throw new IllegalStateException("corrupt replay at frame " + (sequence - 1));
+        }
+        NetSnapshot snapshot = spare;
+        NetSnapshot predictFrom = (sequence - 1) % keyframeInterval >= 2 ? previous : null;
+        snapshot.read(data, sequence, baselineSequence != 0 ? current : null, predictFrom);
+        spare = previous;
+        previous = current;
+        current = snapshot;
+        currentIndex++;
+    }
+
+    public int getFrameCount(){
+        return frameCount;
+    }
+
+    public int getKeyframeInterval(){
+        return keyframeInterval;
+    }
+
+    public int getWidth(){
+        return width;
+    }
+
+    public int getHeight(){
+        return height;
+    }
+
+    public float getDensity(){
+        return density;
+    }
+}
@@ -0,0 +1,154 @@
+package com.ispring.gameplane.game;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 按帧记录游戏状态的回放，可以直接定位到任意一帧而不需要从头重新模拟（见Replay）
+ * 与InputLog不同，回放记录的是每帧的结果，不依赖游戏逻辑的确定性，游戏逻辑修改后旧的回放仍然可以播放
+ * 每帧的状态为一个NetSnapshot：每KEYFRAME_INTERVAL帧写入一个完整的关键帧，
+ * 其余的帧相对上一帧做差量编码，只写入改变的实体和字段（位置、敌机的抗打击能力、爆炸的片段等）的变长整数差值，
+ * 关键帧之后的第2帧起，位置与按前两帧外推的位置比较，匀速运动的实体不需要写入
+ * 记录在内存中进行，游戏结束后由save一次写入文件，可以在其他线程中写入，但写入过程中不能再调用record
+ *
+ * 文件格式（整数为大端序）：
+ * MAGIC、VERSION、屏幕的宽、高、density、关键帧间隔、帧数、关键帧数、数据的长度，
+ * 然后是每个关键帧在数据中的偏移，最后是数据，即依次排列的每帧的NetSnapshot.write的内容
+ */
+public class ReplayRecorder {
+
+    static final int MAGIC = 0x47505231;//"GPR1"
+    static final int VERSION = 1;
+    public static final int KEYFRAME_INTERVAL = 60;//每秒一个关键帧
+
+    private final int keyframeInterval;
+    private int width = 0;//屏幕尺寸，在第一帧时记录
+    private int height = 0;
+    private float density = 1;
+
+    private int frameCount = 0;
+    private long lastFrame = -1;//最后记录的游戏帧
+    private int keyframeCount = 0;
+    private int[] keyframeOffsets = new int[64];
+    private ByteBuffer data = ByteBuffer.allocate(64 * 1024);
+
+    //当前帧、上一帧和再上一帧的快照，轮流使用
+    private NetSnapshot current = new NetSnapshot();
+    private NetSnapshot previous = new NetSnapshot();
+    private NetSnapshot beforePrevious = new NetSnapshot();
+
+    public ReplayRecorder(){
+        this(KEYFRAME_INTERVAL);
+    }
+
+    //关键帧间隔越小定位越快，文件越大
+    public ReplayRecorder(int keyframeInterval){
+        if(keyframeInterval <= 0){
+            throw new IllegalArgumentException("keyframeInterval must be positive");
+        }
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    //在每帧推进游戏之后调用，同一游戏帧只记录一次
+    public void record(Game game, Renderer renderer){
+        if(game.getFrame() == lastFrame){
+            return;
+        }
+        lastFrame = game.getFrame();
+        if(frameCount == 0){
+            width = renderer.getWidth();
+            height = renderer.getHeight();
+            density = game.getDensity();
+        }
+        current.capture(game, frameCount + 1, 0, 0);
+        boolean keyframe = frameCount % keyframeInterval == 0;
+        NetSnapshot baseline = keyframe ? null : previous;
+        //外推只使用同一关键帧区间内的帧，从关键帧开始解码时这些帧都已解码
+        NetSnapshot predictFrom = frameCount % keyframeInterval >= 2 ? beforePrevious : null;
+        ensureCapacity(current.getMaxEncodedSize(baseline));
+        if(keyframe){
+            if(keyframeCount == keyframeOffsets.length){
+                int[] newOffsets = new int[keyframeCount * 2];
+                System.arraycopy(keyframeOffsets, 0, newOffsets, 0, keyframeCount);
+                keyframeOffsets = newOffsets;
+            }
+            keyframeOffsets[keyframeCount++] = data.position();
+        }
+        current.write(data, baseline, predictFrom, Integer.MAX_VALUE);
+        NetSnapshot snapshot = beforePrevious;
+        beforePrevious = previous;
+        previous = current;
+        current = snapshot;
+        frameCount++;
+    }
+
+    private void ensureCapacity(int bytes){
+        if(data.remaining() >= bytes){
+            return;
+        }
+        ByteBuffer newData = ByteBuffer.allocate(Math.max(data.capacity() * 2, data.position() + bytes));
+        data.flip();
+        newData.put(data);
+        data = newData;
+    }
+
+    //最后记录的一帧，没有记录时返回null
+    public NetSnapshot getLastSnapshot(){
+        return frameCount > 0 ? previous : null;
+    }
+
+    public int getFrameCount(){
+        return frameCount;
+    }
+
+    public int getKeyframeCount(){
+        return keyframeCount;
+    }
+
+    //写入文件后的字节数
+    public int getSize(){
+        return getHeaderSize() + data.position();
+    }
+
+    private int getHeaderSize(){
+        return 9 * 4 + keyframeCount * 4;
+    }
+
+    public void write(OutputStream out) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(getHeaderSize());
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(width);
+        header.putInt(height);
+        header.putFloat(density);
+        header.putInt(keyframeInterval);
+        header.putInt(frameCount);
+        header.putInt(keyframeCount);
+        header.putInt(data.position());
+        for(int i = 0; i < keyframeCount; i++){
+            header.putInt(keyframeOffsets[i]);
+        }
+        out.write(header.array(), 0, header.position());
+        out.write(data.array(), 0, data.position());
+    }
+
+    //先写入临时文件再改名，写入过程中中断不会破坏已有的回放
+    public void save(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try{
+            write(out);
+        }finally {
+            out.close();
+        }
+        if(!temp.renameTo(file)){
+            file.delete();
+            if(!temp.renameTo(file)){
+                throw new IOException("cannot rename " + temp + " to " + file);
+            }
+        }
+    }
+}
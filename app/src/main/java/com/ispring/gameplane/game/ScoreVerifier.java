@@ -0,0 +1,183 @@
+package com.ispring.gameplane.game;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 分数校验，在服务器上重新模拟提交的游戏来确认分数
+ * 提交的内容为Session：随机数种子、屏幕尺寸和输入记录（InputLog）、关卡文件、游戏推进的帧数以及声称的分数，
+ * 校验时不绘制（NullRenderer），以最快速度推进Game并在与记录相同的帧上重放输入，最终分数一致才算通过
+ * 每次校验使用独立的Game，互不共享可变状态，所以可以在线程池中并发执行
+ * 纹理（及其碰撞掩码）只读，可以在线程之间共享；使用像素级碰撞时，掩码必须与设备上的一致，见HeadlessRunner.loadCollisionMasks
+ */
+public class ScoreVerifier {
+
+    private static final int SESSION_MAGIC = 0x47505331;//"GPS1"
+
+    //提交的内容不可信，解析时先检查长度再分配：帧数最多1小时，关卡文件最多64KB，超过的直接拒绝
+    public static final long MAX_FRAME_COUNT = 60L * 60 * 60;
+    public static final int MAX_LEVEL_LENGTH = 64 * 1024;
+
+    /**
+     * 一局游戏的提交内容
+     */
+    public static class Session {
+        private final InputLog inputLog;
+        private final String level;//关卡文件的内容，为null表示随机生成敌机
+        private final long frameCount;//游戏推进的逻辑帧数
+        private final long score;//声称的分数
+
+        public Session(InputLog inputLog, String level, long frameCount, long score){
+            this.inputLog = inputLog;
+            this.level = level;
+            this.frameCount = frameCount;
+            this.score = score;
+        }
+
+        //由结束时的Game得到提交内容
+        public static Session fromGame(Game game, String level){
+            return new Session(game.getInputLog(), level, game.getFrame(), game.getScore());
+        }
+
+        public InputLog getInputLog(){
+            return inputLog;
+        }
+
+        public long getFrameCount(){
+            return frameCount;
+        }
+
+        public long getScore(){
+            return score;
+        }
+
+        public byte[] toBytes() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(SESSION_MAGIC);
+            out.writeLong(frameCount);
+            out.writeLong(score);
+            if(level == null){
+                out.writeInt(-1);
+            }else{
+                byte[] levelBytes = level.getBytes("UTF-8");
+                out.writeInt(levelBytes.length);
+                out.write(levelBytes);
+            }
+            inputLog.write(out);
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        public static Session fromBytes(byte[] data) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            if(in.readInt() != SESSION_MAGIC){
+                throw new IOException("not a session");
+            }
+            long frameCount = in.readLong();
+            if(frameCount < 0 || frameCount > MAX_FRAME_COUNT){
+                throw new IOException("invalid frame count " + frameCount);
+            }
+            long score = in.readLong();
+            int levelLength = in.readInt();
+            //-1表示没有关卡文件；长度不能超过上限，也不能超过剩余的数据
+            if(levelLength < -1 || levelLength > MAX_LEVEL_LENGTH || levelLength > in.available()){
+                throw new IOException("invalid level length " + levelLength);
+            }
+            String level = null;
+            if(levelLength >= 0){
+                byte[] levelBytes = new byte[levelLength];
+                in.readFully(levelBytes);
+                level = new String(levelBytes, "UTF-8");
+            }
+            return new Session(InputLog.read(in), level, frameCount, score);
+        }
+    }
+
+    private final List<Texture> textures;
+
+    //textures为与设备相同的纹理尺寸（见HeadlessRunner.createTextures），density应与提交的一致
+    public ScoreVerifier(List<Texture> textures){
+        this.textures = textures;
+    }
+
+    //重新模拟一局游戏，返回得到的分数
+    public long replay(Session session) throws IOException {
+        InputLog log = session.getInputLog();
+        Game game = new Game(textures, log.getDensity(), log.getSeed());
+        if(session.level != null){
+            game.setWaveTimeline(WaveTimeline.compile(new StringReader(session.level)));
+        }
+        game.start();
+        Renderer renderer = new NullRenderer(log.getWidth(), log.getHeight());
+        int next = 0;
+        int count = log.getCount();
+        while(game.getFrame() < session.getFrameCount() && game.getStatus() == Game.STATUS_GAME_STARTED){
+            //在与记录相同的帧上重放输入
+            while(next < count && log.getFrame(next) <= game.getFrame()){
+                if(log.getType(next) == InputLog.TYPE_MOVE){
+                    game.moveCombatAircraftTo(log.getX(next), log.getY(next));
+                }else if(log.getType(next) == InputLog.TYPE_BOMB){
+                    game.bomb();
+                }
+                next++;
+            }
+            game.step(renderer);
+        }
+        return game.getScore();
+    }
+
+    //校验一局游戏，提交的内容无法解析或分数不一致时返回false
+    public boolean verify(byte[] data){
+        try{
+            Session session = Session.fromBytes(data);
+            if(session.getInputLog().getWidth() <= 0 || session.getInputLog().getHeight() <= 0){
+                return false;
+            }
+            return replay(session) == session.getScore();
+        }catch (IOException e){
+            return false;
+        }catch (RuntimeException e){
+            //关卡文件错误或数据被篡改
+            return false;
+        }
+    }
+
+    //在threads个线程中并发校验，返回每局是否通过
+    public boolean[] verifyAll(final List<byte[]> sessions, int threads) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try{
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for(final byte[] data : sessions){
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return verify(data);
+                    }
+                }));
+            }
+            boolean[] results = new boolean[sessions.size()];
+            for(int i = 0; i < results.length; i++){
+                try{
+                    results[i] = futures.get(i).get();
+                }catch (ExecutionException e){
+                    results[i] = false;
+                }
+            }
+            return results;
+        }finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.ispring.gameplane.game;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 一局游戏的统计：得分、时长、各类型击毁数、使用炸弹数以及帧间隔的分布
+ * 游戏过程中监听GameEvents累计，结束时由finish写入得分和帧数，toBytes的结果作为一条记录写入TelemetryLog
+ */
+public class SessionStats implements GameEvents.Listener {
+
+    private static final int VERSION = 1;
+
+    //帧间隔直方图各区间的上限(ms)，最后一个区间为超过100ms
+    private static final int[] FRAME_BUCKET_LIMITS_MS = {8, 12, 17, 20, 25, 34, 50, 100};
+    public static final int FRAME_BUCKET_COUNT = FRAME_BUCKET_LIMITS_MS.length + 1;
+
+    private long seed = 0;
+    private long startTimeMillis = 0;//开始的时间
+    private long durationMillis = 0;//从开始到结束的时间，包括暂停
+    private long frameCount = 0;//推进的逻辑帧数
+    private long score = 0;
+    private boolean completed = false;//战斗机被销毁而结束时为true，中途退出或重新开始时为false
+    private final int[] kills = new int[WaveTimeline.TYPE_COUNT];
+    private int bombsUsed = 0;
+    private int pickups = 0;
+    private int shots = 0;
+    private final int[] frameBuckets = new int[FRAME_BUCKET_COUNT];
+    private long maxFrameNanos = 0;
+    private long lastFrameTimeNanos = -1;
+
+    public SessionStats(long seed, long startTimeMillis){
+        this.seed = seed;
+        this.startTimeMillis = startTimeMillis;
+    }
+
+    private SessionStats(){
+    }
+
+    @Override
+    public void onGameEvent(int type, int arg, long value, float x, float y, long frame) {
+        if(type == GameEvents.TYPE_ENEMY_KILLED){
+            if(arg >= 0 && arg < kills.length){
+                kills[arg]++;
+            }
+        }else if(type == GameEvents.TYPE_BOMB_USED){
+            bombsUsed++;
+        }else if(type == GameEvents.TYPE_AWARD_PICKED_UP){
+            pickups++;
+        }else if(type == GameEvents.TYPE_PLAYER_FIRED){
+            shots++;
+        }
+    }
+
+    /*-------------------------------frame time-------------------------------------*/
+
+    //每次vsync推进游戏时调用，frameTimeNanos为vsync的时间，与上一次的间隔计入直方图
+    public void recordFrame(long frameTimeNanos){
+        if(lastFrameTimeNanos >= 0){
+            long interval = frameTimeNanos - lastFrameTimeNanos;
+            maxFrameNanos = Math.max(maxFrameNanos, interval);
+            frameBuckets[getFrameBucket(interval)]++;
+        }
+        lastFrameTimeNanos = frameTimeNanos;
+    }
+
+    //暂停后重新计时，暂停的时间不计入帧间隔
+    public void resetFrameClock(){
+        lastFrameTimeNanos = -1;
+    }
+
+    private static int getFrameBucket(long intervalNanos){
+        long ms = intervalNanos / 1000000;
+        for(int i = 0; i < FRAME_BUCKET_LIMITS_MS.length; i++){
+            if(ms < FRAME_BUCKET_LIMITS_MS[i]){
+                return i;
+            }
+        }
+        return FRAME_BUCKET_LIMITS_MS.length;
+    }
+
+    //结束统计
+    public void finish(Game game, long endTimeMillis, boolean completed){
+        frameCount = game.getFrame();
+        score = game.getScore();
+        durationMillis = endTimeMillis - startTimeMillis;
+        this.completed = completed;
+    }
+
+    /*-------------------------------serialization-------------------------------------*/
+
+    public byte[] toBytes(){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try{
+            out.writeByte(VERSION);
+            out.writeLong(seed);
+            out.writeLong(startTimeMillis);
+            out.writeLong(durationMillis);
+            out.writeLong(frameCount);
+            out.writeLong(score);
+            out.writeBoolean(completed);
+            out.writeByte(kills.length);
+            for(int kill : kills){
+                out.writeInt(kill);
+            }
+            out.writeInt(bombsUsed);
+            out.writeInt(pickups);
+            out.writeInt(shots);
+            out.writeByte(frameBuckets.length);
+            for(int count : frameBuckets){
+                out.writeInt(count);
+            }
+            out.writeLong(maxFrameNanos);
+        }catch (IOException e){
+            //ByteArrayOutputStream不会抛出IOException
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static SessionStats fromBytes(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        int version = in.readUnsignedByte();
+        if(version != VERSION){
+            throw new IOException("unsupported session stats version " + version);
+        }
+        SessionStats stats = new SessionStats();
+        stats.seed = in.readLong();
+        stats.startTimeMillis = in.readLong();
+        stats.durationMillis = in.readLong();
+        stats.frameCount = in.readLong();
+        stats.score = in.readLong();
+        stats.completed = in.readBoolean();
+        int killCount = in.readUnsignedByte();
+        for(int i = 0; i < killCount; i++){
+            int kill = in.readInt();
+            if(i < stats.kills.length){
+                stats.kills[i] = kill;
+            }
+        }
+        stats.bombsUsed = in.readInt();
+        stats.pickups = in.readInt();
+        stats.shots = in.readInt();
+        int bucketCount = in.readUnsignedByte();
+        for(int i = 0; i < bucketCount; i++){
+            int count = in.readInt();
+            if(i < stats.frameBuckets.length){
+                stats.frameBuckets[i] = count;
+            }
+        }
+        stats.maxFrameNanos = in.readLong();
+        return stats;
+    }
+
+    public long getSeed(){
+        return seed;
+    }
+
+    public long getStartTimeMillis(){
+        return startTimeMillis;
+    }
+
+    public long getDurationMillis(){
+        return durationMillis;
+    }
+
+    public long getFrameCount(){
+        return frameCount;
+    }
+
+    public long getScore(){
+        return score;
+    }
+
+    public boolean isCompleted(){
+        return completed;
+    }
+
+    public int getKills(int type){
+        return kills[type];
+    }
+
+    public int getBombsUsed(){
+        return bombsUsed;
+    }
+
+    public int getPickups(){
+        return pickups;
+    }
+
+    public int getShots(){
+        return shots;
+    }
+
+    public int getFrameBucket(int bucket){
+        return frameBuckets[bucket];
+    }
+
+    public long getMaxFrameNanos(){
+        return maxFrameNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("start=").append(startTimeMillis)
+                .append(" seed=").append(seed)
+                .append(" score=").append(score)
+                .append(" frames=").append(frameCount)
+                .append(" durationMs=").append(durationMillis)
+                .append(" completed=").append(completed)
+                .append(" kills=");
+        for(int i = 0; i < kills.length; i++){
+            sb.append(i == 0 ? "" : "/").append(kills[i]);
+        }
+        sb.append(" bombs=").append(bombsUsed)
+                .append(" pickups=").append(pickups)
+                .append(" shots=").append(shots)
+                .append(" frameMs=");
+        for(int i = 0; i < frameBuckets.length; i++){
+            sb.append(i == 0 ? "" : ",");
+            sb.append(i < FRAME_BUCKET_LIMITS_MS.length ? "<" + FRAME_BUCKET_LIMITS_MS[i]
+                    : ">=" + FRAME_BUCKET_LIMITS_MS[FRAME_BUCKET_LIMITS_MS.length - 1]);
+            sb.append(':').append(frameBuckets[i]);
+        }
+        sb.append(" maxFrameMs=").append(maxFrameNanos / 1000000f);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,193 @@
+package com.ispring.gameplane.game;
+
+/**
+ * 音效，监听GameEvents，把一帧内的事件合并后在帧末统一播放一次，不会在碰撞检测等热点路径中播放声音
+ * 同一帧内同一种音效的多次请求被合并：最多播放MAX_PER_FRAME个声音，请求越多音量越大，声像取请求位置的平均值，
+ * 炸弹同时炸毁20架敌机时也只播放有限的几个爆炸声；
+ * 每种音效同时播放的声音数不超过MAX_VOICES，超出时停止最早的声音
+ * 具体的播放由Backend完成，设备上为SoundPoolBackend，JVM上可以用RecordingSoundBackend代替
+ */
+public class SoundEffects implements GameEvents.Listener {
+
+    //音效
+    public static final int SOUND_SHOT = 0;//战斗机发射子弹
+    public static final int SOUND_EXPLOSION = 1;//小敌机、中敌机爆炸
+    public static final int SOUND_BIG_EXPLOSION = 2;//大敌机、首领及其部件爆炸
+    public static final int SOUND_PICKUP = 3;//拾取奖品
+    public static final int SOUND_BOMB = 4;//使用炸弹
+    public static final int SOUND_PLAYER_HIT = 5;//战斗机被击中
+    public static final int SOUND_COUNT = 6;
+
+    //每种音效同时播放的声音数
+    private static final int[] MAX_VOICES = {2, 4, 2, 2, 1, 1};
+    //每种音效每帧最多开始播放的声音数
+    private static final int[] MAX_PER_FRAME = {1, 2, 1, 1, 1, 1};
+    //每种音效的基础音量
+    private static final float[] VOLUMES = {0.25f, 0.7f, 0.9f, 0.8f, 1.0f, 1.0f};
+
+    /**
+     * 播放声音的后端
+     */
+    public interface Backend {
+        //播放音效，返回声音的编号，音效尚未加载完成等原因无法播放时返回0
+        int play(int sound, float leftVolume, float rightVolume);
+
+        void stop(int voiceId);
+    }
+
+    private final Backend backend;
+    private boolean enabled = true;
+    private float screenWidth = 0;
+
+    //当前帧的请求
+    private final int[] requests = new int[SOUND_COUNT];
+    private final float[] requestXs = new float[SOUND_COUNT];//请求位置x之和，用于声像
+
+    //正在播放的声音，每种音效MAX_VOICES个位置
+    private final int[][] voiceIds = new int[SOUND_COUNT][];
+    private final long[][] voiceEndFrames = new long[SOUND_COUNT][];
+    private final long[] durationFrames = new long[SOUND_COUNT];
+
+    //统计
+    private long requestedCount = 0;//请求次数
+    private long playedCount = 0;//实际播放的声音数
+    private long mergedCount = 0;//被合并而没有单独播放的请求数
+    private long stolenCount = 0;//因超出同时播放的数量而停止的声音数
+
+    public SoundEffects(Backend backend){
+        this.backend = backend;
+        for(int i = 0; i < SOUND_COUNT; i++){
+            voiceIds[i] = new int[MAX_VOICES[i]];
+            voiceEndFrames[i] = new long[MAX_VOICES[i]];
+            durationFrames[i] = (SoundSynth.getDurationMs(i) * 1000000L + Game.FRAME_NANOS - 1) / Game.FRAME_NANOS;
+        }
+    }
+
+    public void setEnabled(boolean enabled){
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    //屏幕宽度，用于按x计算声像，为0时居中
+    public void setScreenWidth(float screenWidth){
+        this.screenWidth = screenWidth;
+    }
+
+    /*-------------------------------requesting-------------------------------------*/
+
+    @Override
+    public void onGameEvent(int type, int arg, long value, float x, float y, long frame) {
+        if(type == GameEvents.TYPE_PLAYER_FIRED){
+            request(SOUND_SHOT, x);
+        }else if(type == GameEvents.TYPE_ENEMY_KILLED){
+            boolean big = arg == WaveTimeline.TYPE_BIG || arg == WaveTimeline.TYPE_BOSS;
+            request(big ? SOUND_BIG_EXPLOSION : SOUND_EXPLOSION, x);
+        }else if(type == GameEvents.TYPE_BOSS_PART_DESTROYED){
+            request(SOUND_BIG_EXPLOSION, x);
+        }else if(type == GameEvents.TYPE_AWARD_PICKED_UP){
+            request(SOUND_PICKUP, x);
+        }else if(type == GameEvents.TYPE_BOMB_USED){
+            request(SOUND_BOMB, x);
+        }else if(type == GameEvents.TYPE_PLAYER_HIT){
+            request(SOUND_PLAYER_HIT, x);
+        }
+    }
+
+    public void request(int sound, float x){
+        requests[sound]++;
+        requestXs[sound] += x;
+        requestedCount++;
+    }
+
+    /*-------------------------------playing-------------------------------------*/
+
+    //播放当前帧的请求，由GameView每帧在Game.step之后调用一次，返回开始播放的声音数
+    public int flush(long frame){
+        int played = 0;
+        for(int sound = 0; sound < SOUND_COUNT; sound++){
+            int count = requests[sound];
+            if(count == 0){
+                continue;
+            }
+            float x = requestXs[sound] / count;
+            requests[sound] = 0;
+            requestXs[sound] = 0;
+            if(!enabled){
+                continue;
+            }
+            int voices = Math.min(count, MAX_PER_FRAME[sound]);
+            mergedCount += count - voices;
+            //合并的请求越多音量越大，但不超过1
+            float volume = Math.min(1, VOLUMES[sound] * (1 + 0.15f * (count - voices)));
+            float pan = screenWidth > 0 ? Math.max(0, Math.min(1, x / screenWidth)) : 0.5f;
+            //等功率声像
+            float left = volume * (float)Math.cos(pan * Math.PI / 2);
+            float right = volume * (float)Math.sin(pan * Math.PI / 2);
+            for(int v = 0; v < voices; v++){
+                if(play(sound, left, right, frame)){
+                    played++;
+                }
+            }
+        }
+        playedCount += played;
+        return played;
+    }
+
+    private boolean play(int sound, float left, float right, long frame){
+        int[] ids = voiceIds[sound];
+        long[] ends = voiceEndFrames[sound];
+        //优先使用已经播放完的位置，否则停止最早结束的声音
+        int slot = 0;
+        for(int i = 0; i < ids.length; i++){
+            if(ids[i] == 0 || ends[i] <= frame){
+                slot = i;
+                break;
+            }
+            if(ends[i] < ends[slot]){
+                slot = i;
+            }
+        }
+        if(ids[slot] != 0 && ends[slot] > frame){
+            backend.stop(ids[slot]);
+            stolenCount++;
+        }
+        int id = backend.play(sound, left, right);
+        ids[slot] = id;
+        ends[slot] = frame + durationFrames[sound];
+        return id != 0;
+    }
+
+    //停止所有声音，并丢弃未播放的请求
+    public void stopAll(){
+        for(int sound = 0; sound < SOUND_COUNT; sound++){
+            requests[sound] = 0;
+            requestXs[sound] = 0;
+            for(int i = 0; i < voiceIds[sound].length; i++){
+                if(voiceIds[sound][i] != 0){
+                    backend.stop(voiceIds[sound][i]);
+                    voiceIds[sound][i] = 0;
+                }
+                voiceEndFrames[sound][i] = 0;
+            }
+        }
+    }
+
+    public long getRequestedCount(){
+        return requestedCount;
+    }
+
+    public long getPlayedCount(){
+        return playedCount;
+    }
+
+    public long getMergedCount(){
+        return mergedCount;
+    }
+
+    public long getStolenCount(){
+        return stolenCount;
+    }
+}
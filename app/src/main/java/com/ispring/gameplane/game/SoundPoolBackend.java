@@ -0,0 +1,125 @@
+package com.ispring.gameplane.game;
+
+import android.annotation.TargetApi;
+import android.media.AudioAttributes;
+import android.media.AudioManager;
+import android.media.SoundPool;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * 基于SoundPool的音效后端
+ * load在后台线程中合成所有音效（见SoundSynth），写入缓存目录后加载到SoundPool，
+ * 游戏过程中play只是把已经解码好的采样交给SoundPool，不做任何I/O或解码；加载完成前请求的音效直接跳过
+ */
+public class SoundPoolBackend implements SoundEffects.Backend {
+
+    private static final String TAG = "SoundPoolBackend";
+
+    //所有音效同时播放的声音数，各音效的上限见SoundEffects
+    private static final int MAX_STREAMS = 8;
+
+    //合成参数改变时增加版本号，缓存目录中旧的WAV文件不再使用
+    private static final int SYNTH_VERSION = 1;
+
+    private final SoundPool soundPool;
+    private final int[] sampleIds = new int[SoundEffects.SOUND_COUNT];
+    private final boolean[] loaded = new boolean[SoundEffects.SOUND_COUNT];
+
+    public SoundPoolBackend(){
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP){
+            soundPool = createSoundPool();
+        }else{
+            soundPool = createLegacySoundPool();
+        }
+        soundPool.setOnLoadCompleteListener(new SoundPool.OnLoadCompleteListener() {
+            @Override
+            public void onLoadComplete(SoundPool soundPool, int sampleId, int status) {
+                onLoaded(sampleId, status);
+            }
+        });
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static SoundPool createSoundPool(){
+        AudioAttributes attributes = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_GAME)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build();
+        return new SoundPool.Builder().setMaxStreams(MAX_STREAMS).setAudioAttributes(attributes).build();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static SoundPool createLegacySoundPool(){
+        return new SoundPool(MAX_STREAMS, AudioManager.STREAM_MUSIC, 0);
+    }
+
+    //合成音效并加载到SoundPool，在后台线程中调用，dir为保存WAV文件的缓存目录
+    public void load(File dir){
+        for(int sound = 0; sound < SoundEffects.SOUND_COUNT; sound++){
+            File file = new File(dir, "sfx_" + SYNTH_VERSION + "_" + sound + ".wav");
+            try{
+                if(!file.exists()){
+                    writeFile(file, SoundSynth.toWav(SoundSynth.synthesize(sound)));
+                }
+                int sampleId = soundPool.load(file.getAbsolutePath(), 1);
+                synchronized (this){
+                    sampleIds[sound] = sampleId;
+                }
+            }catch (IOException e){
+                Log.w(TAG, "failed to create sound " + sound, e);
+            }
+        }
+    }
+
+    private static void writeFile(File file, byte[] data) throws IOException {
+        //先写入临时文件再改名，中途退出时不会留下不完整的文件
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try{
+            out.write(data);
+        }finally {
+            out.close();
+        }
+        if(!temp.renameTo(file)){
+            throw new IOException("failed to rename " + temp);
+        }
+    }
+
+    private synchronized void onLoaded(int sampleId, int status){
+        for(int sound = 0; sound < SoundEffects.SOUND_COUNT; sound++){
+            if(sampleIds[sound] == sampleId){
+                loaded[sound] = status == 0;
+            }
+        }
+    }
+
+    @Override
+    public synchronized int play(int sound, float leftVolume, float rightVolume) {
+        if(!loaded[sound]){
+            return 0;
+        }
+        return soundPool.play(sampleIds[sound], leftVolume, rightVolume, 1, 0, 1);
+    }
+
+    @Override
+    public void stop(int voiceId) {
+        soundPool.stop(voiceId);
+    }
+
+    public void pause(){
+        soundPool.autoPause();
+    }
+
+    public void resume(){
+        soundPool.autoResume();
+    }
+
+    public void release(){
+        soundPool.release();
+    }
+}
@@ -0,0 +1,144 @@
+package com.ispring.gameplane.game;
+
+import java.util.Random;
+
+/**
+ * 程序合成的音效，游戏没有音频资源，加载时按固定的参数生成16位单声道PCM，再写成WAV交给SoundPool
+ * 每种音效的时长固定，SoundEffects按时长计算声音何时播放结束，以限制同时播放的数量
+ * 噪声使用固定的种子，每次生成的音效完全相同
+ */
+public class SoundSynth {
+
+    public static final int SAMPLE_RATE = 22050;
+
+    //每种音效的时长(ms)，下标为SoundEffects中的SOUND_*
+    private static final int[] DURATIONS_MS = {70, 350, 700, 200, 1000, 500};
+
+    public static int getDurationMs(int sound){
+        return DURATIONS_MS[sound];
+    }
+
+    //生成音效的采样
+    public static short[] synthesize(int sound){
+        int count = SAMPLE_RATE * DURATIONS_MS[sound] / 1000;
+        float[] samples = new float[count];
+        Random random = new Random(sound + 1);
+        if(sound == SoundEffects.SOUND_SHOT){
+            //音调快速下降的方波
+            sweep(samples, 1800, 900, true);
+            envelope(samples, 30);
+        }else if(sound == SoundEffects.SOUND_EXPLOSION){
+            noise(samples, random, 0.25f, 0.02f);
+            envelope(samples, 6);
+        }else if(sound == SoundEffects.SOUND_BIG_EXPLOSION){
+            noise(samples, random, 0.15f, 0.01f);
+            envelope(samples, 4);
+        }else if(sound == SoundEffects.SOUND_PICKUP){
+            //依次上升的三个音
+            float[] notes = {880, 1175, 1568};
+            int length = count / notes.length;
+            for(int n = 0; n < notes.length; n++){
+                for(int i = 0; i < length; i++){
+                    samples[n * length + i] = (float)Math.sin(2 * Math.PI * notes[n] * i / SAMPLE_RATE) * 0.6f;
+                }
+            }
+            envelope(samples, 3);
+        }else if(sound == SoundEffects.SOUND_BOMB){
+            //低沉的噪声加上60Hz的正弦
+            noise(samples, random, 0.06f, 0.005f);
+            for(int i = 0; i < count; i++){
+                samples[i] = samples[i] * 0.8f + (float)Math.sin(2 * Math.PI * 60 * i / SAMPLE_RATE) * 0.4f;
+            }
+            envelope(samples, 3);
+        }else{
+            //下降的锯齿波加上噪声
+            sweep(samples, 400, 80, false);
+            for(int i = 0; i < count; i++){
+                samples[i] = samples[i] * 0.7f + (random.nextFloat() * 2 - 1) * 0.2f;
+            }
+            envelope(samples, 4);
+        }
+        short[] pcm = new short[count];
+        for(int i = 0; i < count; i++){
+            float v = Math.max(-1, Math.min(1, samples[i]));
+            pcm[i] = (short)(v * 32767 * 0.8f);
+        }
+        return pcm;
+    }
+
+    //频率从from线性变化到to，square为true时为方波，否则为锯齿波
+    private static void sweep(float[] samples, float from, float to, boolean square){
+        double phase = 0;
+        for(int i = 0; i < samples.length; i++){
+            float frequency = from + (to - from) * i / samples.length;
+            phase += frequency / SAMPLE_RATE;
+            double fraction = phase - Math.floor(phase);
+            samples[i] = square ? (fraction < 0.5 ? 0.5f : -0.5f) : (float)(fraction * 2 - 1) * 0.6f;
+        }
+    }
+
+    //低通滤波的噪声，截止系数从start衰减到end，声音越来越沉闷
+    private static void noise(float[] samples, Random random, float start, float end){
+        float value = 0;
+        for(int i = 0; i < samples.length; i++){
+            float k = start + (end - start) * i / samples.length;
+            value += k * ((random.nextFloat() * 2 - 1) - value);
+            samples[i] = value * 3;
+        }
+    }
+
+    //指数衰减的包络，rate越大衰减越快，开头2ms淡入避免爆音
+    private static void envelope(float[] samples, float rate){
+        int attack = SAMPLE_RATE / 500;
+        for(int i = 0; i < samples.length; i++){
+            float t = (float)i / samples.length;
+            float gain = (float)Math.exp(-rate * t);
+            if(i < attack){
+                gain *= (float)i / attack;
+            }
+            samples[i] *= gain;
+        }
+    }
+
+    //16位单声道PCM的WAV文件内容
+    public static byte[] toWav(short[] pcm){
+        int dataLength = pcm.length * 2;
+        byte[] wav = new byte[44 + dataLength];
+        writeAscii(wav, 0, "RIFF");
+        writeInt(wav, 4, 36 + dataLength);
+        writeAscii(wav, 8, "WAVE");
+        writeAscii(wav, 12, "fmt ");
+        writeInt(wav, 16, 16);
+        writeShort(wav, 20, 1);//PCM
+        writeShort(wav, 22, 1);//单声道
+        writeInt(wav, 24, SAMPLE_RATE);
+        writeInt(wav, 28, SAMPLE_RATE * 2);
+        writeShort(wav, 32, 2);
+        writeShort(wav, 34, 16);
+        writeAscii(wav, 36, "data");
+        writeInt(wav, 40, dataLength);
+        for(int i = 0; i < pcm.length; i++){
+            writeShort(wav, 44 + i * 2, pcm[i]);
+        }
+        return wav;
+    }
+
+    private static void writeAscii(byte[] b, int offset, String s){
+        for(int i = 0; i < s.length(); i++){
+            b[offset + i] = (byte)s.charAt(i);
+        }
+    }
+
+    //小端序
+    private static void writeInt(byte[] b, int offset, int value){
+        b[offset] = (byte)value;
+        b[offset + 1] = (byte)(value >> 8);
+        b[offset + 2] = (byte)(value >> 16);
+        b[offset + 3] = (byte)(value >> 24);
+    }
+
+    private static void writeShort(byte[] b, int offset, int value){
+        b[offset] = (byte)value;
+        b[offset + 1] = (byte)(value >> 8);
+    }
+}
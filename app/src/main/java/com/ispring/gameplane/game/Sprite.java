@@ -1,12 +1,5 @@
 package com.ispring.gameplane.game;
 
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Paint;
-import android.graphics.Point;
-import android.graphics.Rect;
-import android.graphics.RectF;
-
 /**
  * 精灵类，所有其他用于绘制的类的基类
  */
@@ -15,16 +8,32 @@ public class Sprite {
     private float x = 0;
     private float y = 0;
     private float collideOffset = 0;
-    private Bitmap bitmap = null;
+    private Texture texture = null;
+    private Animation animation = null;//帧动画，为null时绘制整个纹理
     private boolean destroyed = false;
+    private boolean culled = false;//是否位于视口之外，由ViewportCuller设置
+    private boolean entered = false;//是否进入过视口，只有进入过视口的Sprite离开后才会被销毁
     private int frame = 0;//绘制的次数
+    private SpritePool<?> pool = null;//Sprite所属的对象池，销毁并移除后回收到该池中
+    private boolean waveHolder = false;//是否为首领，首领被销毁前波次时间线暂停，见WaveTimeline
+    private String traceName = null;//在Tracer中显示的名字，即类名
+    private int netId = 0;//在网络快照中的编号，加入Game时分配，见NetSnapshot
+
+    public Sprite(Texture texture){
+        this.texture = texture;
+    }
+
+    public Texture getTexture(){
+        return texture;
+    }
 
-    public Sprite(Bitmap bitmap){
-        this.bitmap = bitmap;
+    //设置帧动画，animation的精灵图应当基于该Sprite的纹理
+    public void setAnimation(Animation animation){
+        this.animation = animation;
     }
 
-    public Bitmap getBitmap(){
-        return bitmap;
+    public Animation getAnimation(){
+        return animation;
     }
 
     public void setVisibility(boolean visible){
@@ -52,15 +61,21 @@ public class Sprite {
     }
 
     public float getWidth(){
-        if(bitmap != null){
-            return bitmap.getWidth();
+        if(animation != null){
+            return animation.getSpriteSheet().getFrameWidth();
+        }
+        if(texture != null){
+            return texture.getWidth();
         }
         return 0;
     }
 
     public float getHeight(){
-        if(bitmap != null){
-            return bitmap.getHeight();
+        if(animation != null){
+            return animation.getSpriteSheet().getFrameHeight();
+        }
+        if(texture != null){
+            return texture.getHeight();
         }
         return 0;
     }
@@ -82,75 +97,183 @@ public class Sprite {
         y = centerY - h / 2;
     }
 
-    public RectF getRectF(){
-        float left = x;
-        float top = y;
-        float right = left + getWidth();
-        float bottom = top + getHeight();
-        RectF rectF = new RectF(left, top, right, bottom);
-        return rectF;
-    }
-
-    public Rect getBitmapSrcRec(){
-        Rect rect = new Rect();
-        rect.left = 0;
-        rect.top = 0;
-        rect.right = (int)getWidth();
-        rect.bottom = (int)getHeight();
-        return rect;
-    }
-
-    public RectF getCollideRectF(){
-        RectF rectF = getRectF();
-        rectF.left -= collideOffset;
-        rectF.right += collideOffset;
-        rectF.top -= collideOffset;
-        rectF.bottom += collideOffset;
-        return rectF;
-    }
-
-    public Point getCollidePointWithOther(Sprite s){
-        Point p = null;
-        RectF rectF1 = getCollideRectF();
-        RectF rectF2 = s.getCollideRectF();
-        RectF rectF = new RectF();
-        boolean isIntersect = rectF.setIntersect(rectF1, rectF2);
-        if(isIntersect){
-            p = new Point(Math.round(rectF.centerX()), Math.round(rectF.centerY()));
+    public float getRight(){
+        return x + getWidth();
+    }
+
+    public float getBottom(){
+        return y + getHeight();
+    }
+
+    //判断两个Sprite的碰撞区域是否相交，只做浮点比较，不创建对象
+    public boolean isCollideWith(Sprite s){
+        float left = Math.max(x - collideOffset, s.x - s.collideOffset);
+        float right = Math.min(getRight() + collideOffset, s.getRight() + s.collideOffset);
+        if(left >= right){
+            return false;
         }
-        return p;
+        float top = Math.max(y - collideOffset, s.y - s.collideOffset);
+        float bottom = Math.min(getBottom() + collideOffset, s.getBottom() + s.collideOffset);
+        return top < bottom;
     }
 
-    public final void draw(Canvas canvas, Paint paint, GameView gameView){
+    //像素级碰撞的掩码，只有按原尺寸绘制整个纹理时才可用，否则返回null
+    public CollisionMask getCollisionMask(){
+        if(animation != null || texture == null){
+            return null;
+        }
+        return texture.getCollisionMask();
+    }
+
+    //外框相交后，如果双方都有碰撞掩码，再检查不透明的像素是否重叠
+    public boolean isPixelCollideWith(Sprite s){
+        if(!isCollideWith(s)){
+            return false;
+        }
+        CollisionMask mask = getCollisionMask();
+        CollisionMask otherMask = s.getCollisionMask();
+        if(mask == null || otherMask == null){
+            return true;
+        }
+        return CollisionMask.overlaps(mask, Math.round(x), Math.round(y), otherMask, Math.round(s.x), Math.round(s.y));
+    }
+
+    public final void draw(Renderer renderer, Game game){
+        beginDraw(renderer, game);
+        onDraw(renderer, game);
+        endDraw(renderer, game);
+    }
+
+    //Game分阶段绘制所有Sprite：先对所有Sprite调用beginDraw，统一剔除后调用onDraw，最后调用endDraw
+    final void beginDraw(Renderer renderer, Game game){
         frame++;
-        beforeDraw(canvas, paint, gameView);
-        onDraw(canvas, paint, gameView);
-        afterDraw(canvas, paint, gameView);
+        beforeDraw(renderer, game);
+    }
+
+    final void endDraw(Renderer renderer, Game game){
+        //当前帧绘制完成后动画才前进，这样第一帧绘制的是动画的第一帧
+        if(animation != null){
+            animation.advance(Game.FRAME_NANOS);
+        }
+        afterDraw(renderer, game);
     }
 
-    protected void beforeDraw(Canvas canvas, Paint paint, GameView gameView){}
+    protected void beforeDraw(Renderer renderer, Game game){}
 
-    public void onDraw(Canvas canvas, Paint paint, GameView gameView){
-        if(!destroyed && this.bitmap != null && getVisibility()){
-            //将Sprite绘制到Canvas上
-            Rect srcRef = getBitmapSrcRec();
-            RectF dstRecF = getRectF();
-            //canvas.drawBitmap(this.bitmap, x, y, paint);
-            canvas.drawBitmap(bitmap, srcRef, dstRecF, paint);
+    public void onDraw(Renderer renderer, Game game){
+        if(!destroyed && !culled && this.texture != null && getVisibility()){
+            //将Sprite绘制到Renderer上
+            float w = getWidth();
+            float h = getHeight();
+            if(animation != null){
+                //从精灵图中绘制动画的当前帧
+                SpriteSheet sheet = animation.getSpriteSheet();
+                int index = animation.getFrameIndex();
+                renderer.drawTexture(texture, sheet.getFrameLeft(index), sheet.getFrameTop(index),
+                        sheet.getFrameRight(index), sheet.getFrameBottom(index), x, y, x + w, y + h);
+            }else{
+                renderer.drawTexture(texture, 0, 0, (int)w, (int)h, x, y, x + w, y + h);
+            }
         }
     }
 
-    protected void afterDraw(Canvas canvas, Paint paint, GameView gameView){}
+    protected void afterDraw(Renderer renderer, Game game){}
 
     public void destroy(){
-        bitmap = null;
+        texture = null;
         destroyed = true;
     }
 
+    //对象池复用已销毁的Sprite时调用，将其恢复为刚创建时的状态
+    void reset(Texture texture){
+        this.texture = texture;
+        visible = true;
+        x = 0;
+        y = 0;
+        destroyed = false;
+        culled = false;
+        entered = false;
+        frame = 0;
+        waveHolder = false;
+        if(animation != null){
+            animation.reset();
+        }
+        onReset();
+    }
+
+    //子类在此恢复自己的状态
+    protected void onReset(){}
+
+    //被Game.addSprite接受后调用，子类在此安排自己的定时器；超出数量上限而被丢弃的Sprite不会调用
+    protected void onAdded(Game game){}
+
+    void setEntered(){
+        entered = true;
+    }
+
+    public boolean hasEntered(){
+        return entered;
+    }
+
+    void setPool(SpritePool<?> pool){
+        this.pool = pool;
+    }
+
+    SpritePool<?> getPool(){
+        return pool;
+    }
+
+    void setWaveHolder(boolean waveHolder){
+        this.waveHolder = waveHolder;
+    }
+
+    boolean isWaveHolder(){
+        return waveHolder;
+    }
+
+    void setNetId(int netId){
+        this.netId = netId;
+    }
+
+    public int getNetId(){
+        return netId;
+    }
+
     public boolean isDestroyed(){
         return destroyed;
     }
 
+    void setCulled(boolean culled){
+        this.culled = culled;
+    }
+
+    public boolean isCulled(){
+        return culled;
+    }
+
+    //离开视口后是否由ViewportCuller销毁
+    public boolean isDespawnOffscreen(){
+        return false;
+    }
+
+    //所在的碰撞层，见CollisionSystem，默认不参与碰撞
+    public int getCollisionLayer(){
+        return CollisionSystem.LAYER_NONE;
+    }
+
+    //数量上限的类型，见EntityBudget，默认不受限制
+    public int getBudgetCategory(){
+        return EntityBudget.CATEGORY_NONE;
+    }
+
+    //第一次使用时取得类名，之后不再分配内存
+    public String getTraceName(){
+        if(traceName == null){
+            traceName = getClass().getSimpleName();
+        }
+        return traceName;
+    }
+
     public int getFrame(){
         return frame;
     }
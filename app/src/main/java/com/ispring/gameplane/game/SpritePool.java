@@ -0,0 +1,68 @@
+package com.ispring.gameplane.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sprite对象池，被销毁的Sprite在从Game中移除后回收到池中，再次生成时复用，
+ * 这样大量生成敌机、子弹和爆炸效果时不会频繁创建对象
+ */
+public class SpritePool<T extends Sprite> {
+
+    public interface Factory<T> {
+        T create(Texture texture);
+    }
+
+    private final Factory<T> factory;
+    private final List<T> freeSprites = new ArrayList<T>();
+    private long createdCount = 0;//累计创建的对象数
+    private long reusedCount = 0;//累计复用的对象数
+
+    public SpritePool(Factory<T> factory){
+        this.factory = factory;
+    }
+
+    //获取一个可用的Sprite，优先复用池中的对象
+    public T obtain(Texture texture){
+        T sprite;
+        int size = freeSprites.size();
+        if(size > 0){
+            sprite = freeSprites.remove(size - 1);
+            sprite.reset(texture);
+            reusedCount++;
+        }else{
+            sprite = factory.create(texture);
+            createdCount++;
+        }
+        sprite.setPool(this);
+        return sprite;
+    }
+
+    //预先创建count个对象放入池中，避免在游戏过程中集中创建
+    public void prewarm(Texture texture, int count){
+        while(freeSprites.size() < count){
+            T sprite = factory.create(texture);
+            sprite.destroy();
+            freeSprites.add(sprite);
+            createdCount++;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void recycle(Sprite sprite){
+        sprite.setPool(null);
+        freeSprites.add((T)sprite);
+    }
+
+    public int getFreeCount(){
+        return freeSprites.size();
+    }
+
+    public long getCreatedCount(){
+        return createdCount;
+    }
+
+    public long getReusedCount(){
+        return reusedCount;
+    }
+}
@@ -0,0 +1,71 @@
+package com.ispring.gameplane.game;
+
+/**
+ * 精灵图，将一张纹理按网格切分为多个大小相同的动画帧
+ * 所有帧的区域在创建时一次性计算好，之后不可变，绘制时只需按下标读取，不创建任何对象
+ */
+public class SpriteSheet {
+    private final Texture texture;
+    private final int frameWidth;
+    private final int frameHeight;
+    private final int frameCount;
+    //每帧4个值：left, top, right, bottom
+    private final int[] frameRects;
+
+    //水平排列的精灵图，例如explosion.png由14帧从左到右排列
+    public SpriteSheet(Texture texture, int frameCount){
+        this(texture, frameCount, 1, frameCount);
+    }
+
+    //columns * rows的网格，帧按从左到右、从上到下的顺序排列，共frameCount帧
+    public SpriteSheet(Texture texture, int columns, int rows, int frameCount){
+        if(columns <= 0 || rows <= 0 || frameCount <= 0 || frameCount > columns * rows){
+            throw new IllegalArgumentException("invalid sprite sheet: " + columns + "x" + rows + ", " + frameCount + " frames");
+        }
+        this.texture = texture;
+        this.frameWidth = texture.getWidth() / columns;
+        this.frameHeight = texture.getHeight() / rows;
+        this.frameCount = frameCount;
+        frameRects = new int[frameCount * 4];
+        for(int i = 0; i < frameCount; i++){
+            int left = (i % columns) * frameWidth;
+            int top = (i / columns) * frameHeight;
+            frameRects[i * 4] = left;
+            frameRects[i * 4 + 1] = top;
+            frameRects[i * 4 + 2] = left + frameWidth;
+            frameRects[i * 4 + 3] = top + frameHeight;
+        }
+    }
+
+    public Texture getTexture(){
+        return texture;
+    }
+
+    public int getFrameWidth(){
+        return frameWidth;
+    }
+
+    public int getFrameHeight(){
+        return frameHeight;
+    }
+
+    public int getFrameCount(){
+        return frameCount;
+    }
+
+    public int getFrameLeft(int index){
+        return frameRects[index * 4];
+    }
+
+    public int getFrameTop(int index){
+        return frameRects[index * 4 + 1];
+    }
+
+    public int getFrameRight(int index){
+        return frameRects[index * 4 + 2];
+    }
+
+    public int getFrameBottom(int index){
+        return frameRects[index * 4 + 3];
+    }
+}
@@ -0,0 +1,349 @@
+package com.ispring.gameplane.game;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 只追加的记录日志，游戏结束时的统计（SessionStats）等记录由后台线程写入文件，UI线程只把记录放入内存队列
+ * 文件格式：文件头MAGIC，之后每条记录为[长度(int)][CRC32(int)][内容]
+ * 写入线程每次取出队列中所有的记录，一次write后fsync（组提交），多条记录只同步一次磁盘
+ * 队列中的字节数超过maxPendingBytes时新的记录被丢弃并计数，append不会阻塞UI线程
+ * 进程在写入过程中被杀死时文件末尾可能留下不完整的记录，读取时在第一条不完整或校验失败的记录处停止，
+ * 写入线程打开文件时截掉这部分；已经fsync的记录不会丢失
+ * 文件超过maxFileBytes时在打开时压缩为最近的keepRecords条记录
+ * 读取和压缩不依赖Android，可以在JVM上用TelemetryLogTool处理从设备上取出的文件
+ */
+public class TelemetryLog {
+
+    private static final int MAGIC = 0x47505431;//"GPT1"
+    private static final int HEADER_LENGTH = 4;
+    private static final int RECORD_HEADER_LENGTH = 8;
+    //单条记录的最大长度，读取时长度超过该值视为损坏
+    public static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    public static final int DEFAULT_MAX_PENDING_BYTES = 64 * 1024;
+    public static final long DEFAULT_MAX_FILE_BYTES = 1024 * 1024;
+    public static final int DEFAULT_KEEP_RECORDS = 1000;
+
+    private final File file;
+    private final int maxPendingBytes;
+    private final long maxFileBytes;
+    private final int keepRecords;
+
+    //等待写入的记录，由UI线程放入，写入线程整批取出
+    private List<byte[]> pending = new ArrayList<byte[]>();
+    private int pendingBytes = 0;
+    private boolean closed = false;
+    private Thread writerThread = null;
+
+    //统计
+    private long appendedCount = 0;//放入队列的记录数
+    private long droppedCount = 0;//队列已满而丢弃的记录数
+    private long writtenCount = 0;//已经写入并同步的记录数
+    private long commitCount = 0;//同步的次数
+    private long failedCount = 0;//写入失败的记录数
+
+    public TelemetryLog(File file){
+        this(file, DEFAULT_MAX_PENDING_BYTES, DEFAULT_MAX_FILE_BYTES, DEFAULT_KEEP_RECORDS);
+    }
+
+    public TelemetryLog(File file, int maxPendingBytes, long maxFileBytes, int keepRecords){
+        this.file = file;
+        this.maxPendingBytes = maxPendingBytes;
+        this.maxFileBytes = maxFileBytes;
+        this.keepRecords = keepRecords;
+    }
+
+    public File getFile(){
+        return file;
+    }
+
+    //启动写入线程，关闭后不能再次启动
+    public synchronized void start(){
+        if(writerThread != null || closed){
+            return;
+        }
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "TelemetryLog");
+        writerThread.setDaemon(true);
+        writerThread.setPriority(Thread.MIN_PRIORITY);
+        writerThread.start();
+    }
+
+    /*-------------------------------appending-------------------------------------*/
+
+    //把记录放入队列，立即返回，队列已满或已关闭时返回false；之后不能再修改record
+    public synchronized boolean append(byte[] record){
+        if(closed || record.length > MAX_RECORD_LENGTH
+                || pendingBytes + record.length + RECORD_HEADER_LENGTH > maxPendingBytes){
+            droppedCount++;
+            return false;
+        }
+        pending.add(record);
+        pendingBytes += record.length + RECORD_HEADER_LENGTH;
+        appendedCount++;
+        notifyAll();
+        return true;
+    }
+
+    //等待队列中的记录全部写入，超时、未启动或写入线程已经结束时返回false，close之后也可以调用
+    public synchronized boolean flush(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while(writtenCount + failedCount < appendedCount){
+            long wait = deadline - System.currentTimeMillis();
+            if(wait <= 0 || writerThread == null || !writerThread.isAlive()){
+                return false;
+            }
+            wait(wait);
+        }
+        return true;
+    }
+
+    //写入队列中剩余的记录后结束写入线程，之后的append被丢弃；不等待写入完成，可以在UI线程调用
+    public synchronized void close(){
+        closed = true;
+        notifyAll();
+    }
+
+    //close之后等待写入线程写完剩余的记录并结束，超时返回false；未启动时直接返回true
+    public boolean awaitClosed(long timeoutMillis) throws InterruptedException {
+        Thread thread;
+        synchronized (this){
+            thread = writerThread;
+        }
+        if(thread == null){
+            return true;
+        }
+        thread.join(timeoutMillis);
+        return !thread.isAlive();
+    }
+
+    /*-------------------------------writing-------------------------------------*/
+
+    private void writeLoop(){
+        FileOutputStream out = null;
+        try{
+            out = open();
+            while(true){
+                List<byte[]> batch;
+                synchronized (this){
+                    while(pending.isEmpty() && !closed){
+                        wait();
+                    }
+                    if(pending.isEmpty()){
+                        return;
+                    }
+                    batch = pending;
+                    pending = new ArrayList<byte[]>();
+                    pendingBytes = 0;
+                }
+                boolean ok = out != null && commit(out, batch);
+                if(!ok){
+                    //写入了一部分的记录会使之后的记录无法读取，重新打开文件把它截掉
+                    closeQuietly(out);
+                    out = open();
+                }
+                synchronized (this){
+                    if(ok){
+                        writtenCount += batch.size();
+                        commitCount++;
+                    }else{
+                        failedCount += batch.size();
+                    }
+                    notifyAll();
+                }
+            }
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }finally {
+            closeQuietly(out);
+        }
+    }
+
+    //截掉不完整的记录，必要时压缩，然后以追加方式打开文件，失败时返回null，之后的记录都计为失败
+    private FileOutputStream open(){
+        try{
+            long validLength = recover(file);
+            if(validLength > maxFileBytes){
+                compact(file, keepRecords);
+            }
+            return new FileOutputStream(file, true);
+        }catch (IOException e){
+            return null;
+        }
+    }
+
+    //把一批记录一次写入并同步到磁盘
+    private static boolean commit(FileOutputStream out, List<byte[]> batch){
+        try{
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            for(byte[] record : batch){
+                writeRecord(buffer, record);
+            }
+            buffer.writeTo(out);
+            out.getFD().sync();
+            return true;
+        }catch (IOException e){
+            return false;
+        }
+    }
+
+    private static void writeRecord(ByteArrayOutputStream buffer, byte[] record){
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        writeInt(buffer, record.length);
+        writeInt(buffer, (int)crc.getValue());
+        buffer.write(record, 0, record.length);
+    }
+
+    private static void writeInt(ByteArrayOutputStream buffer, int value){
+        buffer.write(value >>> 24);
+        buffer.write(value >>> 16);
+        buffer.write(value >>> 8);
+        buffer.write(value);
+    }
+
+    /*-------------------------------reading-------------------------------------*/
+
+    //读取文件中所有完整的记录，文件不存在时返回空列表
+    public static List<byte[]> readAll(File file) throws IOException {
+        List<byte[]> records = new ArrayList<byte[]>();
+        scan(file, records);
+        return records;
+    }
+
+    //扫描文件，返回完整的记录所占的长度，records不为null时同时读出记录
+    static long scan(File file, List<byte[]> records) throws IOException {
+        if(!file.exists()){
+            return 0;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try{
+            long length;
+            try{
+                if(in.readInt() != MAGIC){
+                    throw new IOException("not a telemetry log: " + file);
+                }
+            }catch (EOFException e){
+                return 0;
+            }
+            length = HEADER_LENGTH;
+            CRC32 crc = new CRC32();
+            while(true){
+                byte[] record;
+                int checksum;
+                try{
+                    int recordLength = in.readInt();
+                    if(recordLength < 0 || recordLength > MAX_RECORD_LENGTH){
+                        return length;
+                    }
+                    checksum = in.readInt();
+                    record = new byte[recordLength];
+                    in.readFully(record);
+                }catch (EOFException e){
+                    return length;
+                }
+                crc.reset();
+                crc.update(record, 0, record.length);
+                if((int)crc.getValue() != checksum){
+                    return length;
+                }
+                if(records != null){
+                    records.add(record);
+                }
+                length += RECORD_HEADER_LENGTH + record.length;
+            }
+        }finally {
+            in.close();
+        }
+    }
+
+    //截掉文件末尾不完整的记录，文件不存在或为空时写入文件头，返回文件的长度
+    public static long recover(File file) throws IOException {
+        long validLength = scan(file, null);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try{
+            if(validLength == 0){
+                raf.setLength(0);
+                raf.writeInt(MAGIC);
+                raf.getFD().sync();
+                return HEADER_LENGTH;
+            }
+            if(raf.length() != validLength){
+                raf.setLength(validLength);
+                raf.getFD().sync();
+            }
+            return validLength;
+        }finally {
+            raf.close();
+        }
+    }
+
+    //只保留最近的keepRecords条记录，先写入临时文件再改名，不能与写入线程同时对同一文件调用，返回删除的记录数
+    public static int compact(File file, int keepRecords) throws IOException {
+        List<byte[]> records = readAll(file);
+        int removed = Math.max(0, records.size() - keepRecords);
+        File temp = new File(file.getPath() + ".compact");
+        FileOutputStream out = new FileOutputStream(temp);
+        try{
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            writeInt(buffer, MAGIC);
+            for(int i = removed; i < records.size(); i++){
+                writeRecord(buffer, records.get(i));
+            }
+            buffer.writeTo(out);
+            out.getFD().sync();
+        }finally {
+            out.close();
+        }
+        //Android上renameTo会覆盖已存在的文件，其他平台上先删除
+        if(!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))){
+            throw new IOException("failed to replace " + file);
+        }
+        return removed;
+    }
+
+    private static void closeQuietly(FileOutputStream out){
+        if(out != null){
+            try{
+                out.close();
+            }catch (IOException e){
+                //ignore
+            }
+        }
+    }
+
+    public synchronized long getAppendedCount(){
+        return appendedCount;
+    }
+
+    public synchronized long getDroppedCount(){
+        return droppedCount;
+    }
+
+    public synchronized long getWrittenCount(){
+        return writtenCount;
+    }
+
+    public synchronized long getCommitCount(){
+        return commitCount;
+    }
+
+    public synchronized long getFailedCount(){
+        return failedCount;
+    }
+}
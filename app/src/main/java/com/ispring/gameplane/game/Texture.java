@@ -0,0 +1,54 @@
+package com.ispring.gameplane.game;
+
+/**
+ * 纹理句柄，代表一张游戏图片
+ * Sprite只通过纹理的编号和尺寸绘制，具体的图片数据由Renderer的实现持有，
+ * 这样游戏逻辑不依赖android.graphics.Bitmap，可以在JVM上无设备运行
+ */
+public class Texture {
+
+    //延迟生成碰撞掩码，见LazyBitmap，第一次取掩码时调用，可以等待掩码生成完成
+    public interface CollisionMaskLoader {
+        CollisionMask loadCollisionMask();
+    }
+
+    private final int id;//纹理编号，即图片在GameView.start传入数组中的下标
+    private final int width;
+    private final int height;
+    private CollisionMask collisionMask = null;//由图片的alpha通道生成，为null时按外框检测碰撞
+    private CollisionMaskLoader collisionMaskLoader = null;
+
+    public Texture(int id, int width, int height){
+        this.id = id;
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getId(){
+        return id;
+    }
+
+    public int getWidth(){
+        return width;
+    }
+
+    public int getHeight(){
+        return height;
+    }
+
+    public void setCollisionMask(CollisionMask collisionMask){
+        this.collisionMask = collisionMask;
+    }
+
+    public void setCollisionMaskLoader(CollisionMaskLoader collisionMaskLoader){
+        this.collisionMaskLoader = collisionMaskLoader;
+    }
+
+    public CollisionMask getCollisionMask(){
+        if(collisionMask == null && collisionMaskLoader != null){
+            collisionMask = collisionMaskLoader.loadCollisionMask();
+            collisionMaskLoader = null;
+        }
+        return collisionMask;
+    }
+}
@@ -0,0 +1,213 @@
+package com.ispring.gameplane.game;
+
+/**
+ * 哈希时间轮，用于延时和周期性的游戏动作，例如战斗机每隔一段时间发射子弹、被击中后闪烁、双发子弹到期等
+ * 时间以纳秒计，按tickNanos划分为刻度，每个刻度对应一个槽，到期时间相同的定时器位于同一个槽的双向链表中，
+ * 超过一圈的定时器记录还需要经过的圈数，所以安排和取消定时器都是O(1)的，
+ * advanceTo只访问经过的刻度对应的槽，不需要每帧检查每个Sprite的计数器
+ * 同一刻度到期的定时器按安排的先后顺序执行
+ *
+ * 时间由调用方推进，游戏中为Game.getTimeNanos()，即按固定的逻辑帧计算的时间，所以在回放和校验中是确定的
+ */
+public class TimerWheel {
+
+    /**
+     * 定时器，子类在onTimer中执行到期的动作
+     * 一个定时器同时只能安排一次，再次安排时会先取消之前的安排
+     */
+    public static abstract class Timer {
+        private TimerWheel wheel = null;//已安排时所在的时间轮
+        private int slot = -1;//所在的槽，firingSlot表示本刻度即将执行
+        private Timer prev = null;
+        private Timer next = null;
+        private int rounds = 0;//还需要经过的圈数
+        private long deadlineNanos = 0;
+        private long periodNanos = 0;//大于0时为周期性的定时器
+
+        protected abstract void onTimer();
+
+        public boolean isScheduled(){
+            return wheel != null;
+        }
+
+        public void cancel(){
+            if(wheel != null){
+                wheel.cancel(this);
+            }
+        }
+
+        public long getDeadlineNanos(){
+            return deadlineNanos;
+        }
+    }
+
+    private final long tickNanos;
+    private final int mask;
+    private final int firingSlot;
+    //每个槽的链表头尾，最后一个槽存放当前刻度到期、等待执行的定时器
+    private final Timer[] heads;
+    private final Timer[] tails;
+    private long currentTick = 0;//已经处理过的刻度
+    private long timeNanos = 0;
+
+    private int scheduledCount = 0;
+    private long firedCount = 0;
+
+    //slotCount为槽的数量，必须为2的幂，大于一圈的延时通过圈数处理
+    public TimerWheel(long tickNanos, int slotCount){
+        if(tickNanos <= 0 || slotCount <= 0 || (slotCount & (slotCount - 1)) != 0){
+            throw new IllegalArgumentException("invalid timer wheel: " + tickNanos + "ns x " + slotCount);
+        }
+        this.tickNanos = tickNanos;
+        mask = slotCount - 1;
+        firingSlot = slotCount;
+        heads = new Timer[slotCount + 1];
+        tails = new Timer[slotCount + 1];
+    }
+
+    //在delayNanos之后执行一次
+    public void schedule(Timer timer, long delayNanos){
+        scheduleAt(timer, timeNanos + delayNanos, 0);
+    }
+
+    //在delayNanos之后执行，之后每隔periodNanos执行一次，直到取消
+    public void schedulePeriodic(Timer timer, long delayNanos, long periodNanos){
+        if(periodNanos <= 0){
+            throw new IllegalArgumentException("periodNanos must be positive");
+        }
+        scheduleAt(timer, timeNanos + delayNanos, periodNanos);
+    }
+
+    //在时间deadlineNanos执行，已经过去的时间在下一个刻度执行，periodNanos为0表示只执行一次
+    public void scheduleAt(Timer timer, long deadlineNanos, long periodNanos){
+        if(timer.wheel != null){
+            timer.wheel.cancel(timer);
+        }
+        timer.deadlineNanos = deadlineNanos;
+        timer.periodNanos = periodNanos;
+        //到期时间所在的刻度，向上取整，不早于deadlineNanos执行
+        long deadlineTick = deadlineNanos <= 0 ? 0 : (deadlineNanos + tickNanos - 1) / tickNanos;
+        long ticks = Math.max(1, deadlineTick - currentTick);
+        timer.rounds = (int)Math.min(Integer.MAX_VALUE, (ticks - 1) / (mask + 1));
+        link(timer, (int)((currentTick + ticks) & mask));
+        timer.wheel = this;
+        scheduledCount++;
+    }
+
+    public void cancel(Timer timer){
+        if(timer.wheel != this){
+            return;
+        }
+        unlink(timer);
+        timer.wheel = null;
+        scheduledCount--;
+    }
+
+    //推进到timeNanos，按刻度依次执行到期的定时器
+    public void advanceTo(long timeNanos){
+        long targetTick = timeNanos / tickNanos;
+        while(currentTick < targetTick){
+            currentTick++;
+            this.timeNanos = currentTick * tickNanos;
+            collect((int)(currentTick & mask));
+            fire();
+        }
+        this.timeNanos = Math.max(this.timeNanos, timeNanos);
+    }
+
+    //将槽中本圈到期的定时器按顺序移到执行队列中，其余的圈数减1
+    private void collect(int slot){
+        Timer timer = heads[slot];
+        while(timer != null){
+            Timer next = timer.next;
+            if(timer.rounds > 0){
+                timer.rounds--;
+            }else{
+                unlink(timer);
+                link(timer, firingSlot);
+            }
+            timer = next;
+        }
+    }
+
+    //周期性的定时器在执行前重新安排，onTimer中可以取消或重新安排
+    private void fire(){
+        Timer timer;
+        while((timer = heads[firingSlot]) != null){
+            unlink(timer);
+            timer.wheel = null;
+            scheduledCount--;
+            if(timer.periodNanos > 0){
+                scheduleAt(timer, timer.deadlineNanos + timer.periodNanos, timer.periodNanos);
+            }
+            firedCount++;
+            timer.onTimer();
+        }
+    }
+
+    private void link(Timer timer, int slot){
+        timer.slot = slot;
+        timer.next = null;
+        timer.prev = tails[slot];
+        if(tails[slot] != null){
+            tails[slot].next = timer;
+        }else{
+            heads[slot] = timer;
+        }
+        tails[slot] = timer;
+    }
+
+    private void unlink(Timer timer){
+        int slot = timer.slot;
+        if(timer.prev != null){
+            timer.prev.next = timer.next;
+        }else{
+            heads[slot] = timer.next;
+        }
+        if(timer.next != null){
+            timer.next.prev = timer.prev;
+        }else{
+            tails[slot] = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.slot = -1;
+    }
+
+    //取消所有定时器，时间设为timeNanos，用于重新开始游戏
+    public void reset(long timeNanos){
+        for(int slot = 0; slot < heads.length; slot++){
+            Timer timer = heads[slot];
+            while(timer != null){
+                Timer next = timer.next;
+                timer.prev = null;
+                timer.next = null;
+                timer.slot = -1;
+                timer.wheel = null;
+                timer = next;
+            }
+            heads[slot] = null;
+            tails[slot] = null;
+        }
+        scheduledCount = 0;
+        currentTick = timeNanos / tickNanos;
+        this.timeNanos = timeNanos;
+    }
+
+    public long getTimeNanos(){
+        return timeNanos;
+    }
+
+    public long getTickNanos(){
+        return tickNanos;
+    }
+
+    //已安排而尚未执行的定时器数量
+    public int getScheduledCount(){
+        return scheduledCount;
+    }
+
+    public long getFiredCount(){
+        return firedCount;
+    }
+}
@@ -0,0 +1,324 @@
+package com.ispring.gameplane.game;
+
+import java.util.Arrays;
+
+/**
+ * 触摸位置预测，根据最近的带时间戳的触摸采样估计手指在画面显示时的位置，减少战斗机落后于手指的距离
+ * 触摸事件从采样到战斗机出现在屏幕上要经过一帧以上，直接移动到最后的采样位置，战斗机总是落后于手指
+ * 对最近WINDOW_NANOS内的采样按时间做二次多项式的最小二乘拟合，得到速度和加速度，从最后一个采样外推，
+ * 加速度的噪声较大，只按一半计入；外推的时长不超过MAX_HORIZON_NANOS，
+ * 最后一个采样太旧时（手指停住了，不再产生ACTION_MOVE）不外推，结果限制在屏幕内
+ *
+ * 测量模式下记录每次预测，等到覆盖预测时刻的真实采样到达后，按前后两个采样插值得到手指的实际位置，
+ * 统计预测的误差以及不预测（即使用最后的采样）的误差，
+ * 由两者的比值估算节省的延迟：预测完全准确时节省全部外推时长，与不预测一样差时为0
+ */
+public class TouchPredictor {
+
+    private static final int MAX_SAMPLES = 16;
+    static final long WINDOW_NANOS = 50000000L;//拟合最近50毫秒的采样
+    static final long MAX_HORIZON_NANOS = 50000000L;//最多外推50毫秒
+    private static final float ACCELERATION_WEIGHT = 0.5f;
+    private static final int MAX_PENDING = 64;
+
+    private float width = Float.MAX_VALUE;
+    private float height = Float.MAX_VALUE;
+
+    //最近的采样，环形数组，count为有效的个数
+    private final long[] times = new long[MAX_SAMPLES];
+    private final float[] xs = new float[MAX_SAMPLES];
+    private final float[] ys = new float[MAX_SAMPLES];
+    private int count = 0;
+    private int newest = -1;
+
+    private float predictedX = 0;
+    private float predictedY = 0;
+
+    //测量模式
+    private boolean measuring = false;
+    private final long[] pendingTimes = new long[MAX_PENDING];//预测的时刻
+    private final long[] pendingHorizons = new long[MAX_PENDING];//外推的时长
+    private final float[] pendingXs = new float[MAX_PENDING];//预测的位置
+    private final float[] pendingYs = new float[MAX_PENDING];
+    private final float[] pendingLastXs = new float[MAX_PENDING];//预测时最后的采样，即不预测时的位置
+    private final float[] pendingLastYs = new float[MAX_PENDING];
+    private int pendingCount = 0;
+    private long measuredCount = 0;
+    private double errorSum = 0;
+    private double baselineErrorSum = 0;
+    private float maxError = 0;
+    private float maxBaselineError = 0;
+    private double horizonSum = 0;
+    private final float[] errors = new float[1024];//最近的误差，用于统计95百分位
+    private int errorCount = 0;
+
+    //预测结果限制在[0, width]和[0, height]内
+    public void setBounds(float width, float height){
+        this.width = width;
+        this.height = height;
+    }
+
+    public void setMeasuring(boolean measuring){
+        this.measuring = measuring;
+        pendingCount = 0;
+    }
+
+    public boolean isMeasuring(){
+        return measuring;
+    }
+
+    //手指按下、抬起时调用，之前的采样不再参与预测，尚未测量的预测被丢弃
+    public void reset(){
+        count = 0;
+        newest = -1;
+        pendingCount = 0;
+    }
+
+    public boolean hasSamples(){
+        return count > 0;
+    }
+
+    //timeNanos为采样的时间，与预测时传入的时间使用同一时钟，必须不早于上一个采样
+    public void addSample(long timeNanos, float x, float y){
+        if(count > 0 && timeNanos <= times[newest]){
+            if(timeNanos < times[newest]){
+                return;
+            }
+            //同一时刻的采样，用新的位置代替
+            xs[newest] = x;
+            ys[newest] = y;
+            return;
+        }
+        if(measuring && count > 0){
+            resolvePending(times[newest], xs[newest], ys[newest], timeNanos, x, y);
+        }
+        newest = (newest + 1) % MAX_SAMPLES;
+        times[newest] = timeNanos;
+        xs[newest] = x;
+        ys[newest] = y;
+        if(count < MAX_SAMPLES){
+            count++;
+        }
+    }
+
+    /*
+     * 预测手指在targetNanos时的位置，结果由getPredictedX、getPredictedY得到
+     * 没有采样时返回false
+     */
+    public boolean predict(long targetNanos){
+        if(count == 0){
+            return false;
+        }
+        float lastX = xs[newest];
+        float lastY = ys[newest];
+        long horizon = targetNanos - times[newest];
+        predictedX = lastX;
+        predictedY = lastY;
+        if(horizon > 0 && horizon <= MAX_HORIZON_NANOS){
+            extrapolate(horizon);
+        }else{
+            //预测的时刻早于最后的采样，或者最后的采样太旧（手指已经停住），不外推
+            horizon = 0;
+        }
+        predictedX = Math.max(0, Math.min(width, predictedX));
+        predictedY = Math.max(0, Math.min(height, predictedY));
+        if(measuring && horizon > 0){
+            addPending(targetNanos, horizon, lastX, lastY);
+        }
+        return true;
+    }
+
+    public float getPredictedX(){
+        return predictedX;
+    }
+
+    public float getPredictedY(){
+        return predictedY;
+    }
+
+    /*
+     * 以最后一个采样的时间为0，对窗口内的采样按x = a + b * t + c * t * t做最小二乘拟合，
+     * 速度为b，加速度为2c；只有2个采样时按直线拟合，时间以毫秒计以免数值过大
+     */
+    private void extrapolate(long horizon){
+        long newestTime = times[newest];
+        int n = 0;
+        double s1 = 0, s2 = 0, s3 = 0, s4 = 0;
+        double sx = 0, stx = 0, st2x = 0;
+        double sy = 0, sty = 0, st2y = 0;
+        for(int k = 0; k < count; k++){
+            int i = (newest - k + MAX_SAMPLES) % MAX_SAMPLES;
+            long age = newestTime - times[i];
+            if(age > WINDOW_NANOS){
+                break;
+            }
+            double t = -age / 1e6;
+            double t2 = t * t;
+            n++;
+            s1 += t;
+            s2 += t2;
+            s3 += t2 * t;
+            s4 += t2 * t2;
+            sx += xs[i];
+            stx += t * xs[i];
+            st2x += t2 * xs[i];
+            sy += ys[i];
+            sty += t * ys[i];
+            st2y += t2 * ys[i];
+        }
+        if(n < 2){
+            return;
+        }
+        double h = horizon / 1e6;
+        double vx, vy, ax = 0, ay = 0;
+        if(n == 2){
+            double d = n * s2 - s1 * s1;
+            if(d == 0){
+                return;
+            }
+            vx = (n * stx - s1 * sx) / d;
+            vy = (n * sty - s1 * sy) / d;
+        }else{
+            //正规方程[n s1 s2; s1 s2 s3; s2 s3 s4] * [a b c] = [sx stx st2x]，按克拉默法则求b、c
+            double det = n * (s2 * s4 - s3 * s3) - s1 * (s1 * s4 - s3 * s2) + s2 * (s1 * s3 - s2 * s2);
+            if(Math.abs(det) < 1e-9){
+                return;
+            }
+            vx = (n * (stx * s4 - s3 * st2x) - sx * (s1 * s4 - s3 * s2) + s2 * (s1 * st2x - stx * s2)) / det;
+            vy = (n * (sty * s4 - s3 * st2y) - sy * (s1 * s4 - s3 * s2) + s2 * (s1 * st2y - sty * s2)) / det;
+            double cx = (n * (s2 * st2x - stx * s3) - s1 * (s1 * st2x - stx * s2) + sx * (s1 * s3 - s2 * s2)) / det;
+            double cy = (n * (s2 * st2y - sty * s3) - s1 * (s1 * st2y - sty * s2) + sy * (s1 * s3 - s2 * s2)) / det;
+            ax = 2 * cx * ACCELERATION_WEIGHT;
+            ay = 2 * cy * ACCELERATION_WEIGHT;
+        }
+        predictedX += (float)(vx * h + 0.5 * ax * h * h);
+        predictedY += (float)(vy * h + 0.5 * ay * h * h);
+    }
+
+    /*-------------------------------measuring-------------------------------------*/
+
+    private void addPending(long targetNanos, long horizon, float lastX, float lastY){
+        if(pendingCount == MAX_PENDING){
+            //手指停住后不再有采样，最旧的预测无法测量
+            System.arraycopy(pendingTimes, 1, pendingTimes, 0, MAX_PENDING - 1);
+            System.arraycopy(pendingHorizons, 1, pendingHorizons, 0, MAX_PENDING - 1);
+            System.arraycopy(pendingXs, 1, pendingXs, 0, MAX_PENDING - 1);
+            System.arraycopy(pendingYs, 1, pendingYs, 0, MAX_PENDING - 1);
+            System.arraycopy(pendingLastXs, 1, pendingLastXs, 0, MAX_PENDING - 1);
+            System.arraycopy(pendingLastYs, 1, pendingLastYs, 0, MAX_PENDING - 1);
+            pendingCount--;
+        }
+        int i = pendingCount++;
+        pendingTimes[i] = targetNanos;
+        pendingHorizons[i] = horizon;
+        pendingXs[i] = predictedX;
+        pendingYs[i] = predictedY;
+        pendingLastXs[i] = lastX;
+        pendingLastYs[i] = lastY;
+    }
+
+    //新的采样(t1, x1, y1)到达，上一个采样为(t0, x0, y0)，测量时刻在两者之间的预测
+    private void resolvePending(long t0, float x0, float y0, long t1, float x1, float y1){
+        int remaining = 0;
+        for(int i = 0; i < pendingCount; i++){
+            long t = pendingTimes[i];
+            if(t > t1){
+                pendingTimes[remaining] = t;
+                pendingHorizons[remaining] = pendingHorizons[i];
+                pendingXs[remaining] = pendingXs[i];
+                pendingYs[remaining] = pendingYs[i];
+                pendingLastXs[remaining] = pendingLastXs[i];
+                pendingLastYs[remaining] = pendingLastYs[i];
+                remaining++;
+                continue;
+            }
+            if(t < t0){
+                //两个采样的间隔太大，无法可靠地插值
+                continue;
+            }
+            float f = (t - t0) / (float)(t1 - t0);
+            float actualX = x0 + (x1 - x0) * f;
+            float actualY = y0 + (y1 - y0) * f;
+            float error = distance(pendingXs[i], pendingYs[i], actualX, actualY);
+            float baselineError = distance(pendingLastXs[i], pendingLastYs[i], actualX, actualY);
+            measuredCount++;
+            errorSum += error;
+            baselineErrorSum += baselineError;
+            maxError = Math.max(maxError, error);
+            maxBaselineError = Math.max(maxBaselineError, baselineError);
+            horizonSum += pendingHorizons[i];
+            errors[errorCount++ % errors.length] = error;
+        }
+        pendingCount = remaining;
+    }
+
+    private static float distance(float x0, float y0, float x1, float y1){
+        float dx = x1 - x0;
+        float dy = y1 - y0;
+        return (float)Math.sqrt(dx * dx + dy * dy);
+    }
+
+    public long getMeasuredCount(){
+        return measuredCount;
+    }
+
+    //预测位置与实际位置的平均距离，像素
+    public float getAverageError(){
+        return measuredCount > 0 ? (float)(errorSum / measuredCount) : 0;
+    }
+
+    //不预测时的平均距离，像素
+    public float getAverageBaselineError(){
+        return measuredCount > 0 ? (float)(baselineErrorSum / measuredCount) : 0;
+    }
+
+    public float getMaxError(){
+        return maxError;
+    }
+
+    public float getMaxBaselineError(){
+        return maxBaselineError;
+    }
+
+    //最近1024次测量的误差的95百分位
+    public float getError95(){
+        int n = Math.min(errorCount, errors.length);
+        if(n == 0){
+            return 0;
+        }
+        float[] sorted = new float[n];
+        System.arraycopy(errors, 0, sorted, 0, n);
+        Arrays.sort(sorted);
+        return sorted[n * 95 / 100];
+    }
+
+    //平均外推的时长，毫秒
+    public float getAverageHorizonMillis(){
+        return measuredCount > 0 ? (float)(horizonSum / measuredCount / 1e6) : 0;
+    }
+
+    //估算节省的延迟，毫秒
+    public float getLatencySavedMillis(){
+        if(measuredCount == 0 || baselineErrorSum == 0){
+            return 0;
+        }
+        return (float)(getAverageHorizonMillis() * (1 - errorSum / baselineErrorSum));
+    }
+
+    public void resetStats(){
+        measuredCount = 0;
+        errorSum = 0;
+        baselineErrorSum = 0;
+        maxError = 0;
+        maxBaselineError = 0;
+        horizonSum = 0;
+        errorCount = 0;
+    }
+
+    @Override
+    public String toString(){
+        return "measured=" + measuredCount + " avgError=" + getAverageError() + " avgBaselineError=" + getAverageBaselineError()
+                + " error95=" + getError95() + " maxError=" + maxError + " maxBaselineError=" + maxBaselineError
+                + " avgHorizonMs=" + getAverageHorizonMillis() + " latencySavedMs=" + getLatencySavedMillis();
+    }
+}
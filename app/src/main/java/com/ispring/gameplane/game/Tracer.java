@@ -0,0 +1,261 @@
+package com.ispring.gameplane.game;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 轻量的性能追踪，记录游戏循环中各阶段的开始时间和耗时，导出为Chrome Trace Event格式的JSON，
+ * 可以在Perfetto（ui.perfetto.dev）或chrome://tracing中按时间线查看每一帧，而不只是平均值
+ * 事件保存在预先分配的环形缓冲区中，满了以后覆盖最旧的事件，记录时不分配内存；未开启时begin、end只检查一个标记
+ * 用法：long t = tracer.begin(); ...; tracer.end("name", t); 名字应使用字符串常量
+ *
+ * 只有一个线程（游戏循环所在的UI线程）记录事件，记录时不加锁：先写入事件，再更新volatile的publishedCount发布；
+ * 导出可以在其他线程中进行，复制已发布的事件后重新读取publishedCount，丢弃复制期间可能被覆盖的事件
+ */
+public class Tracer {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    //事件类型
+    private static final byte TYPE_COMPLETE = 0;//有开始时间和耗时的阶段
+    private static final byte TYPE_INSTANT = 1;//瞬时事件
+    private static final byte TYPE_COUNTER = 2;//计数器，如Sprite的数量
+
+    private static final int MAX_THREADS = 16;
+
+    private final int capacity;
+    private final byte[] types;
+    private final String[] names;
+    private final long[] starts;//开始时间(ns)
+    private final long[] durations;//耗时(ns)，计数器为数值
+    private final long[] frames;//事件所在的逻辑帧
+    private final long[] threadIds;
+    private int next = 0;//下一个事件的位置，只由记录的线程访问
+    private volatile long publishedCount = 0;//已发布的事件总数，超过capacity的部分已被覆盖
+    private volatile long clearedCount = 0;//clear时的publishedCount，之前的事件不再导出
+
+    //出现过的线程，导出时作为线程名
+    private final long[] knownThreadIds = new long[MAX_THREADS];
+    private final String[] knownThreadNames = new String[MAX_THREADS];
+    private volatile int knownThreadCount = 0;//先写入线程名再增加，导出的线程读到的数量对应的线程名一定已经写入
+
+    private volatile boolean enabled = false;
+    private boolean detailed = false;//是否记录每个Sprite的绘制
+    private volatile long frame = 0;
+
+    public Tracer(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    public Tracer(int capacity){
+        this.capacity = capacity;
+        types = new byte[capacity];
+        names = new String[capacity];
+        starts = new long[capacity];
+        durations = new long[capacity];
+        frames = new long[capacity];
+        threadIds = new long[capacity];
+    }
+
+    public void setEnabled(boolean enabled){
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    //开启后每个Sprite的beforeDraw、onDraw、afterDraw都会以Sprite的类名记录为一个事件，事件数量多，缓冲区能保存的帧数相应减少
+    public void setDetailed(boolean detailed){
+        this.detailed = detailed;
+    }
+
+    public boolean isDetailed(){
+        return enabled && detailed;
+    }
+
+    //之后记录的事件都属于该逻辑帧，由Game每帧设置
+    public void setFrame(long frame){
+        this.frame = frame;
+    }
+
+    /*-------------------------------recording-------------------------------------*/
+
+    //阶段开始，返回开始时间，未开启时返回0
+    public long begin(){
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    //阶段结束，beginNanos为begin的返回值
+    public void end(String name, long beginNanos){
+        if(!enabled || beginNanos == 0){
+            return;
+        }
+        record(TYPE_COMPLETE, name, beginNanos, System.nanoTime() - beginNanos);
+    }
+
+    //结束从beginNanos开始的阶段，并返回下一个阶段的开始时间，用于连续的多个阶段
+    public long split(String name, long beginNanos){
+        if(!enabled || beginNanos == 0){
+            return 0;
+        }
+        long now = System.nanoTime();
+        record(TYPE_COMPLETE, name, beginNanos, now - beginNanos);
+        return now;
+    }
+
+    public void instant(String name){
+        if(enabled){
+            record(TYPE_INSTANT, name, System.nanoTime(), 0);
+        }
+    }
+
+    public void counter(String name, long value){
+        if(enabled){
+            record(TYPE_COUNTER, name, System.nanoTime(), value);
+        }
+    }
+
+    //只在记录的线程中调用
+    private void record(byte type, String name, long start, long duration){
+        int i = next;
+        types[i] = type;
+        names[i] = name;
+        starts[i] = start;
+        durations[i] = duration;
+        frames[i] = frame;
+        Thread thread = Thread.currentThread();
+        long threadId = thread.getId();
+        threadIds[i] = threadId;
+        if(knownThreadCount < MAX_THREADS && !isKnownThread(threadId)){
+            knownThreadIds[knownThreadCount] = threadId;
+            knownThreadNames[knownThreadCount] = thread.getName();
+            knownThreadCount = knownThreadCount + 1;
+        }
+        next = i + 1 == capacity ? 0 : i + 1;
+        //写入事件之后再发布，导出的线程读到新的publishedCount时一定能看到该事件
+        publishedCount = publishedCount + 1;
+    }
+
+    private boolean isKnownThread(long threadId){
+        for(int i = 0; i < knownThreadCount; i++){
+            if(knownThreadIds[i] == threadId){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //之后导出时不包含已经记录的事件
+    public void clear(){
+        clearedCount = publishedCount;
+    }
+
+    //缓冲区中的事件数
+    public int getEventCount(){
+        long published = publishedCount;
+        return (int)Math.min(published - clearedCount, capacity);
+    }
+
+    //被覆盖的事件数
+    public long getOverwrittenCount(){
+        return Math.max(0, publishedCount - clearedCount - capacity);
+    }
+
+    /*-------------------------------exporting-------------------------------------*/
+
+    //按Chrome Trace Event格式导出缓冲区中的事件，时间从最旧的事件开始计，可以在记录的同时在其他线程中调用
+    public void writeJson(Writer out) throws IOException {
+        //复制已发布的事件，复制时记录的线程可能正在覆盖最旧的事件
+        long end = publishedCount;
+        long first = Math.max(clearedCount, end - capacity);
+        int count = (int)(end - first);
+        byte[] copyTypes = new byte[count];
+        String[] copyNames = new String[count];
+        long[] copyStarts = new long[count];
+        long[] copyDurations = new long[count];
+        long[] copyFrames = new long[count];
+        long[] copyThreadIds = new long[count];
+        for(int n = 0; n < count; n++){
+            int i = (int)((first + n) % capacity);
+            copyTypes[n] = types[i];
+            copyNames[n] = names[i];
+            copyStarts[n] = starts[i];
+            copyDurations[n] = durations[i];
+            copyFrames[n] = frames[i];
+            copyThreadIds[n] = threadIds[i];
+        }
+        int threadCount = knownThreadCount;
+        //复制期间写入的事件以及正在写入的下一个事件所在的位置，其中原来的事件可能已被部分覆盖，丢弃
+        int skip = (int)Math.max(0, Math.min(count, publishedCount - capacity + 1 - first));
+
+        long origin = Long.MAX_VALUE;
+        for(int n = skip; n < count; n++){
+            origin = Math.min(origin, copyStarts[n]);
+        }
+        out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+        out.write("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"tid\":0,\"args\":{\"name\":\"GamePlane\"}}");
+        for(int i = 0; i < threadCount; i++){
+            out.write(",\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":");
+            out.write(Long.toString(knownThreadIds[i]));
+            out.write(",\"args\":{\"name\":");
+            writeString(out, knownThreadNames[i]);
+            out.write("}}");
+        }
+        for(int i = skip; i < count; i++){
+            out.write(",\n{\"name\":");
+            writeString(out, copyNames[i]);
+            out.write(",\"pid\":1,\"tid\":");
+            out.write(Long.toString(copyThreadIds[i]));
+            out.write(",\"ts\":");
+            writeMicros(out, copyStarts[i] - origin);
+            if(copyTypes[i] == TYPE_COMPLETE){
+                out.write(",\"ph\":\"X\",\"dur\":");
+                writeMicros(out, copyDurations[i]);
+                out.write(",\"args\":{\"frame\":");
+                out.write(Long.toString(copyFrames[i]));
+                out.write("}}");
+            }else if(copyTypes[i] == TYPE_INSTANT){
+                out.write(",\"ph\":\"i\",\"s\":\"t\",\"args\":{\"frame\":");
+                out.write(Long.toString(copyFrames[i]));
+                out.write("}}");
+            }else{
+                out.write(",\"ph\":\"C\",\"args\":{\"value\":");
+                out.write(Long.toString(copyDurations[i]));
+                out.write("}}");
+            }
+        }
+        out.write("\n]}\n");
+        out.flush();
+    }
+
+    //纳秒换算为带3位小数的微秒，不依赖Locale
+    private static void writeMicros(Writer out, long nanos) throws IOException {
+        out.write(Long.toString(nanos / 1000));
+        long fraction = nanos % 1000;
+        out.write('.');
+        if(fraction < 100){
+            out.write('0');
+        }
+        if(fraction < 10){
+            out.write('0');
+        }
+        out.write(Long.toString(fraction));
+    }
+
+    private static void writeString(Writer out, String s) throws IOException {
+        out.write('"');
+        for(int i = 0; i < s.length(); i++){
+            char c = s.charAt(i);
+            if(c == '"' || c == '\\'){
+                out.write('\\');
+                out.write(c);
+            }else if(c < 0x20){
+                out.write(' ');
+            }else{
+                out.write(c);
+            }
+        }
+        out.write('"');
+    }
+}
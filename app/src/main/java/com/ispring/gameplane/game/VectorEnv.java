@@ -0,0 +1,381 @@
+package com.ispring.gameplane.game;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 供自动玩家（训练和评估机器人）使用的无界面环境，同时推进N个互相独立的Game
+ * 每次step为每个环境输入一个动作，推进frameSkip帧，然后将观测、奖励和是否结束写入预先分配的数组，不创建对象：
+ * 动作为ACTION_SIZE个float：战斗机在x、y方向的移动（-1到1，乘以MOVE_SPEED），以及大于0.5时使用炸弹（见CombatAircraft.bomb）
+ * 观测为OBSERVATION_SIZE个float，位置相对于战斗机的中心并除以屏幕的宽、高：
+ * 战斗机（x、y、是否可以行动、炸弹数、是否双发子弹），最近的NEAREST_ENEMIES架敌机（存在、dx、dy、宽、高、抗打击能力），
+ * 最近的NEAREST_AWARDS个奖品（存在、dx、dy、是否为炸弹）和最近的NEAREST_PROJECTILES颗敌机的子弹（存在、dx、dy），
+ * 不足的部分填0；
+ * 奖励为这一步中得分（Game.addScore）的增加量除以REWARD_SCALE
+ * 游戏结束或达到maxEpisodeFrames帧的环境标记为结束，并立即换一个种子重新开始，返回的观测是新一局的第一个观测
+ *
+ * 每个Game只在一个线程中推进，环境按下标分成连续的若干片，由线程池中的线程各自推进一片，纹理只读，可以共享
+ * 每个环境的种子只与其下标和局数有关，所以结果与线程数无关
+ */
+public class VectorEnv {
+
+    //动作
+    public static final int ACTION_MOVE_X = 0;
+    public static final int ACTION_MOVE_Y = 1;
+    public static final int ACTION_BOMB = 2;
+    public static final int ACTION_SIZE = 3;
+    public static final float MOVE_SPEED = 8;//每帧最多移动的dp
+
+    //观测
+    public static final int NEAREST_ENEMIES = 8;
+    public static final int NEAREST_AWARDS = 2;
+    public static final int NEAREST_PROJECTILES = 8;
+    public static final int AIRCRAFT_SIZE = 5;
+    public static final int ENEMY_SIZE = 6;
+    public static final int AWARD_SIZE = 4;
+    public static final int PROJECTILE_SIZE = 3;
+    public static final int OFFSET_ENEMIES = AIRCRAFT_SIZE;
+    public static final int OFFSET_AWARDS = OFFSET_ENEMIES + NEAREST_ENEMIES * ENEMY_SIZE;
+    public static final int OFFSET_PROJECTILES = OFFSET_AWARDS + NEAREST_AWARDS * AWARD_SIZE;
+    public static final int OBSERVATION_SIZE = OFFSET_PROJECTILES + NEAREST_PROJECTILES * PROJECTILE_SIZE;
+
+    public static final float REWARD_SCALE = 1000;//小敌机的得分
+
+    //一个环境，只在一个线程中访问
+    private static class Env {
+        final Game game;
+        final Renderer renderer;
+        final int index;
+        long seed;
+        long lastScore = 0;
+        int episodeFrames = 0;
+        long frames = 0;//累计推进的帧数
+        //选出最近的若干个Sprite时使用，按距离从近到远排列
+        final int[] nearest = new int[Math.max(NEAREST_ENEMIES, Math.max(NEAREST_AWARDS, NEAREST_PROJECTILES))];
+        final float[] nearestDistances = new float[nearest.length];
+
+        Env(Game game, Renderer renderer, int index, long seed){
+            this.game = game;
+            this.renderer = renderer;
+            this.index = index;
+            this.seed = seed;
+        }
+    }
+
+    private final Env[] envs;
+    private final int width;
+    private final int height;
+    private final float density;
+    private final float[] observations;
+    private final float[] rewards;
+    private final boolean[] dones;
+    private final long[] episodeScores;//每个环境上一局结束时的得分，还没有结束过的为-1
+
+    private int frameSkip = 1;
+    private int maxEpisodeFrames = 36000;
+    private float[] actions = null;//当前step的动作
+    private boolean started = false;//是否已经调用过reset，之前各个Game还没有开始，不能step
+
+    //线程池及每个线程推进的一片环境
+    private final ExecutorService executor;
+    private final List<Callable<Void>> shards = new ArrayList<Callable<Void>>();
+
+    private long episodeCount = 0;//累计结束的局数
+
+    /*
+     * count个环境，第i个环境第一局的种子为seed + i，之后每局加count
+     * level为关卡文件的内容，为null时随机生成敌机，threads为推进环境的线程数
+     */
+    public VectorEnv(List<Texture> textures, float density, int width, int height, int count, long seed,
+                     String level, int threads) throws IOException {
+        if(count <= 0 || threads <= 0){
+            throw new IllegalArgumentException("count and threads must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.density = density;
+        envs = new Env[count];
+        for(int i = 0; i < count; i++){
+            Game game = new Game(textures, density, seed + i);
+            if(level != null){
+                game.setWaveTimeline(WaveTimeline.compile(new StringReader(level)));
+            }
+            envs[i] = new Env(game, new NullRenderer(width, height), i, seed + i);
+        }
+        observations = new float[count * OBSERVATION_SIZE];
+        rewards = new float[count];
+        dones = new boolean[count];
+        episodeScores = new long[count];
+        for(int i = 0; i < count; i++){
+            episodeScores[i] = -1;
+        }
+
+        int shardCount = Math.min(threads, count);
+        for(int s = 0; s < shardCount; s++){
+            final int from = count * s / shardCount;
+            final int to = count * (s + 1) / shardCount;
+            shards.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for(int i = from; i < to; i++){
+                        stepEnv(envs[i]);
+                    }
+                    return null;
+                }
+            });
+        }
+        executor = shardCount > 1 ? Executors.newFixedThreadPool(shardCount) : null;
+    }
+
+    //每个动作重复的帧数，炸弹只在第一帧使用
+    public void setFrameSkip(int frameSkip){
+        if(frameSkip <= 0){
+            throw new IllegalArgumentException("frameSkip must be positive");
+        }
+        this.frameSkip = frameSkip;
+    }
+
+    public void setMaxEpisodeFrames(int maxEpisodeFrames){
+        this.maxEpisodeFrames = maxEpisodeFrames;
+    }
+
+    //所有环境重新开始，返回观测
+    public float[] reset(){
+        for(Env env : envs){
+            restart(env);
+            rewards[env.index] = 0;
+            dones[env.index] = false;
+        }
+        started = true;
+        return observations;
+    }
+
+    /*
+     * 每个环境执行actions中对应的动作并推进frameSkip帧，结果见getObservations、getRewards和getDones
+     * actions的长度为getCount() * ACTION_SIZE，第一次调用前必须先调用reset
+     */
+    public void step(float[] actions) throws InterruptedException {
+        if(!started){
+            throw new IllegalStateException("reset must be called before step");
+        }
+        if(actions.length < envs.length * ACTION_SIZE){
+            throw new IllegalArgumentException("expected " + envs.length * ACTION_SIZE + " actions");
+        }
+        this.actions = actions;
+        if(executor == null){
+            for(Env env : envs){
+                stepEnv(env);
+            }
+        }else{
+            List<Future<Void>> futures = executor.invokeAll(shards);
+            for(Future<Void> future : futures){
+                try{
+                    future.get();
+                }catch (ExecutionException e){
+                    throw new IllegalStateException("env step failed", e.getCause());
+                }
+            }
+        }
+        this.actions = null;
+        for(int i = 0; i < envs.length; i++){
+            if(dones[i]){
+                episodeCount++;
+            }
+        }
+    }
+
+    private void stepEnv(Env env){
+        Game game = env.game;
+        int i = env.index;
+        int a = i * ACTION_SIZE;
+        float dx = clamp(actions[a + ACTION_MOVE_X]) * MOVE_SPEED * density;
+        float dy = clamp(actions[a + ACTION_MOVE_Y]) * MOVE_SPEED * density;
+        boolean done = false;
+        for(int f = 0; f < frameSkip && !done; f++){
+            CombatAircraft aircraft = game.getCombatAircraft();
+            if(dx != 0 || dy != 0){
+                game.moveCombatAircraftTo(aircraft.getX() + aircraft.getWidth() / 2 + dx,
+                        aircraft.getY() + aircraft.getHeight() / 2 + dy);
+            }
+            if(f == 0 && actions[a + ACTION_BOMB] > 0.5f){
+                game.bomb();
+            }
+            game.step(env.renderer);
+            env.episodeFrames++;
+            env.frames++;
+            done = game.getStatus() != Game.STATUS_GAME_STARTED || env.episodeFrames >= maxEpisodeFrames;
+        }
+        long score = game.getScore();
+        rewards[i] = (score - env.lastScore) / REWARD_SCALE;
+        dones[i] = done;
+        if(done){
+            episodeScores[i] = score;
+            env.seed += envs.length;
+            restart(env);
+        }else{
+            env.lastScore = score;
+            observe(env);
+        }
+    }
+
+    private static float clamp(float value){
+        return value < -1 ? -1 : value > 1 ? 1 : value;
+    }
+
+    private void restart(Env env){
+        Game game = env.game;
+        game.destroy();
+        game.setSeed(env.seed);
+        game.start();
+        //与GameView相同，第一帧将战斗机放在屏幕底部中间
+        game.step(env.renderer);
+        env.lastScore = game.getScore();
+        env.episodeFrames = 1;
+        observe(env);
+    }
+
+    //将env的观测写入observations
+    private void observe(Env env){
+        Game game = env.game;
+        float[] o = observations;
+        int base = env.index * OBSERVATION_SIZE;
+        for(int k = base; k < base + OBSERVATION_SIZE; k++){
+            o[k] = 0;
+        }
+        CombatAircraft aircraft = game.getCombatAircraft();
+        if(aircraft == null){
+            return;
+        }
+        float cx = aircraft.getX() + aircraft.getWidth() / 2;
+        float cy = aircraft.getY() + aircraft.getHeight() / 2;
+        o[base] = cx / width;
+        o[base + 1] = cy / height;
+        o[base + 2] = aircraft.isCollide() || aircraft.isDestroyed() ? 0 : 1;
+        o[base + 3] = aircraft.getBombCount();
+        o[base + 4] = aircraft.isSingle() ? 0 : 1;
+
+        List<Sprite> sprites = game.getSprites();
+        //敌机
+        int found = 0;
+        for(int i = 0, size = sprites.size(); i < size; i++){
+            Sprite s = sprites.get(i);
+            if(s instanceof EnemyPlane && !s.isDestroyed()){
+                found = insertNearest(env, found, NEAREST_ENEMIES, i, distance(s, cx, cy));
+            }
+        }
+        for(int k = 0; k < found; k++){
+            EnemyPlane enemy = (EnemyPlane)sprites.get(env.nearest[k]);
+            int p = base + OFFSET_ENEMIES + k * ENEMY_SIZE;
+            o[p] = 1;
+            o[p + 1] = (enemy.getX() + enemy.getWidth() / 2 - cx) / width;
+            o[p + 2] = (enemy.getY() + enemy.getHeight() / 2 - cy) / height;
+            o[p + 3] = enemy.getWidth() / width;
+            o[p + 4] = enemy.getHeight() / height;
+            o[p + 5] = enemy.getPower();
+        }
+        //奖品
+        found = 0;
+        for(int i = 0, size = sprites.size(); i < size; i++){
+            Sprite s = sprites.get(i);
+            if(s instanceof Award && !s.isDestroyed()){
+                found = insertNearest(env, found, NEAREST_AWARDS, i, distance(s, cx, cy));
+            }
+        }
+        for(int k = 0; k < found; k++){
+            Sprite award = sprites.get(env.nearest[k]);
+            int p = base + OFFSET_AWARDS + k * AWARD_SIZE;
+            o[p] = 1;
+            o[p + 1] = (award.getX() + award.getWidth() / 2 - cx) / width;
+            o[p + 2] = (award.getY() + award.getHeight() / 2 - cy) / height;
+            o[p + 3] = award instanceof BombAward ? 1 : 0;
+        }
+        //敌机的子弹
+        EnemyProjectiles projectiles = game.getEnemyProjectiles();
+        found = 0;
+        for(int i = 0, count = projectiles.getCount(); i < count; i++){
+            float dx = projectiles.getX(i) - cx;
+            float dy = projectiles.getY(i) - cy;
+            found = insertNearest(env, found, NEAREST_PROJECTILES, i, dx * dx + dy * dy);
+        }
+        for(int k = 0; k < found; k++){
+            int p = base + OFFSET_PROJECTILES + k * PROJECTILE_SIZE;
+            o[p] = 1;
+            o[p + 1] = (projectiles.getX(env.nearest[k]) - cx) / width;
+            o[p + 2] = (projectiles.getY(env.nearest[k]) - cy) / height;
+        }
+    }
+
+    private static float distance(Sprite s, float cx, float cy){
+        float dx = s.getX() + s.getWidth() / 2 - cx;
+        float dy = s.getY() + s.getHeight() / 2 - cy;
+        return dx * dx + dy * dy;
+    }
+
+    //将下标index按距离插入env.nearest的前found个中，最多保留limit个，返回插入后的数量
+    private static int insertNearest(Env env, int found, int limit, int index, float distance){
+        int[] nearest = env.nearest;
+        float[] distances = env.nearestDistances;
+        if(found == limit && distance >= distances[limit - 1]){
+            return found;
+        }
+        int k = found < limit ? found++ : limit - 1;
+        while(k > 0 && distances[k - 1] > distance){
+            nearest[k] = nearest[k - 1];
+            distances[k] = distances[k - 1];
+            k--;
+        }
+        nearest[k] = index;
+        distances[k] = distance;
+        return found;
+    }
+
+    public float[] getObservations(){
+        return observations;
+    }
+
+    public float[] getRewards(){
+        return rewards;
+    }
+
+    public boolean[] getDones(){
+        return dones;
+    }
+
+    public long[] getEpisodeScores(){
+        return episodeScores;
+    }
+
+    public int getCount(){
+        return envs.length;
+    }
+
+    public Game getGame(int index){
+        return envs[index].game;
+    }
+
+    //所有环境累计推进的帧数
+    public long getFrameCount(){
+        long frames = 0;
+        for(Env env : envs){
+            frames += env.frames;
+        }
+        return frames;
+    }
+
+    public long getEpisodeCount(){
+        return episodeCount;
+    }
+
+    public void close(){
+        if(executor != null){
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ispring.gameplane.game;
+
+import java.util.List;
+
+/**
+ * 视口剔除，每帧对所有Sprite统一执行一次
+ * 视口的边界在每帧开始时缓存，判断时只做浮点比较，不创建任何对象
+ * 完全位于视口之外的Sprite不绘制；对于离开视口后应当销毁的Sprite（见Sprite.isDespawnOffscreen），直接销毁
+ */
+public class ViewportCuller {
+
+    private float viewportRight = 0;
+    private float viewportBottom = 0;
+
+    //上一帧的统计
+    private int culledCount = 0;//被剔除而不绘制的Sprite数量
+    private int despawnedCount = 0;//因离开视口而销毁的Sprite数量
+    //累计的统计
+    private long totalCulledCount = 0;
+    private long totalDespawnedCount = 0;
+
+    public void setViewport(int width, int height){
+        viewportRight = width;
+        viewportBottom = height;
+    }
+
+    //对sprites执行剔除，设置每个Sprite的culled标记，并销毁离开视口的Sprite
+    public void cull(List<Sprite> sprites){
+        float right = viewportRight;
+        float bottom = viewportBottom;
+        int culled = 0;
+        int despawned = 0;
+        for(int i = 0, size = sprites.size(); i < size; i++){
+            Sprite s = sprites.get(i);
+            if(s.isDestroyed()){
+                continue;
+            }
+            float x = s.getX();
+            float y = s.getY();
+            boolean inside = x < right && x + s.getWidth() > 0 && y < bottom && y + s.getHeight() > 0;
+            if(inside){
+                s.setCulled(false);
+                s.setEntered();
+            }else if(s.isDespawnOffscreen() && s.hasEntered()){
+                //从视口之外进入的Sprite（如队形中靠后的敌机）在进入之前不销毁
+                s.destroy();
+                despawned++;
+            }else{
+                s.setCulled(true);
+                culled++;
+            }
+        }
+        culledCount = culled;
+        despawnedCount = despawned;
+        totalCulledCount += culled;
+        totalDespawnedCount += despawned;
+    }
+
+    public int getCulledCount(){
+        return culledCount;
+    }
+
+    public int getDespawnedCount(){
+        return despawnedCount;
+    }
+
+    public long getTotalCulledCount(){
+        return totalCulledCount;
+    }
+
+    public long getTotalDespawnedCount(){
+        return totalDespawnedCount;
+    }
+}
@@ -0,0 +1,365 @@
+package com.ispring.gameplane.game;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 敌机波次的时间线，由关卡文件在加载时编译而成
+ * 编译后每个生成事件按帧排序，存放在并列的数组中，游戏过程中只需移动游标，每帧的开销为O(1)
+ *
+ * 关卡文件每行一条命令，#之后为注释，时间单位为帧（60帧/秒），x为水平位置的比例（0为最左，1为最右）：
+ * <frame> single <type> <x> <speed> [path]                       单个敌机
+ * <frame> line <type> <count> <x0> <x1> <speed> [path]           count个敌机从x0到x1一字排开
+ * <frame> v <type> <count> <x> <spacing> <speed> [path]          count个敌机组成以x为顶点的V字队形
+ * <frame> burst <type> <count> <interval> <x> <dx> <speed> [path] 每隔interval帧生成一个敌机，每次水平偏移dx
+ * <frame> award <bomb|bullet> <x>                                奖励道具
+ * <frame> boss <x> <speed>                                      首领阶段（见Boss），直到首领被销毁后时间线才继续
+ * <frame> loop                                                   时间线到达该帧后从头开始
+ * type为small、middle或big
+ * path为移动路径（见MovePath），可以是straight（默认）、sine、dive、curveLeft或curveRight，
+ * line和v队形中的敌机在同一路径上依次错开PATH_PHASE_STEP帧，正弦路径下形成蛇形
+ */
+public class WaveTimeline {
+
+    public static final int TYPE_SMALL = 0;
+    public static final int TYPE_MIDDLE = 1;
+    public static final int TYPE_BIG = 2;
+    public static final int TYPE_BOMB_AWARD = 3;
+    public static final int TYPE_BULLET_AWARD = 4;
+    public static final int TYPE_BOSS = 5;
+    public static final int TYPE_COUNT = 6;
+
+    //生成事件的标记：首领，时间线要等待其被销毁
+    public static final int FLAG_HOLD = 1;
+
+    //预热对象池时统计的时间窗口，约为一个敌机飞过屏幕的时间
+    private static final int PREWARM_WINDOW_FRAMES = 300;
+
+    //队形中相邻敌机在路径上错开的帧数
+    private static final int PATH_PHASE_STEP = 10;
+
+    private final int[] frames;
+    private final byte[] types;
+    private final float[] xs;
+    private final float[] yOffsets;//在sprite高度之上额外向上偏移的倍数，用于V字队形
+    private final float[] speeds;
+    private final byte[] flags;
+    private final byte[] paths;//MovePath中的路径类型
+    private final int[] pathPhases;//在路径上的起始下标
+    private final int loopFrame;//<=0表示不循环
+    private final int[] prewarmCounts = new int[TYPE_COUNT];
+
+    private int cursor = 0;//下一个要生成的事件
+    private long frameOffset = 0;//循环时已经过去的帧数
+
+    private WaveTimeline(int[] frames, byte[] types, float[] xs, float[] yOffsets, float[] speeds, byte[] flags,
+                         byte[] paths, int[] pathPhases, int loopFrame){
+        this.frames = frames;
+        this.types = types;
+        this.xs = xs;
+        this.yOffsets = yOffsets;
+        this.speeds = speeds;
+        this.flags = flags;
+        this.paths = paths;
+        this.pathPhases = pathPhases;
+        this.loopFrame = loopFrame;
+        computePrewarmCounts();
+    }
+
+    /*-------------------------------playing-------------------------------------*/
+
+    //时间线回到开头
+    public void rewind(){
+        cursor = 0;
+        frameOffset = 0;
+    }
+
+    //是否有不晚于waveFrame的事件等待生成
+    public boolean hasDue(long waveFrame){
+        if(cursor >= frames.length){
+            if(loopFrame > 0 && waveFrame - frameOffset >= loopFrame){
+                frameOffset += loopFrame;
+                cursor = 0;
+            }else{
+                return false;
+            }
+        }
+        return cursor < frames.length && frames[cursor] + frameOffset <= waveFrame;
+    }
+
+    //取出下一个事件的下标，需先调用hasDue
+    public int next(){
+        return cursor++;
+    }
+
+    //不晚于untilWaveFrame的待生成事件中出现的类型，第type位表示该类型，用于提前预取图片，不考虑循环
+    public int getTypesDue(long untilWaveFrame){
+        int mask = 0;
+        for(int i = cursor; i < frames.length && frames[i] + frameOffset <= untilWaveFrame; i++){
+            mask |= 1 << types[i];
+        }
+        return mask;
+    }
+
+    //下一个事件的类型，不取出该事件，需先调用hasDue
+    public int peekType(){
+        return types[cursor];
+    }
+
+    public int getType(int index){
+        return types[index];
+    }
+
+    public float getX(int index){
+        return xs[index];
+    }
+
+    public float getYOffset(int index){
+        return yOffsets[index];
+    }
+
+    public float getSpeed(int index){
+        return speeds[index];
+    }
+
+    public int getPath(int index){
+        return paths[index];
+    }
+
+    public int getPathPhase(int index){
+        return pathPhases[index];
+    }
+
+    public boolean isHold(int index){
+        return (flags[index] & FLAG_HOLD) != 0;
+    }
+
+    public int getEventCount(){
+        return frames.length;
+    }
+
+    //对象池应当预先准备的对象数，为PREWARM_WINDOW_FRAMES帧内生成该类型的最大数量
+    public int getPrewarmCount(int type){
+        return prewarmCounts[type];
+    }
+
+    private void computePrewarmCounts(){
+        for(int type = 0; type < TYPE_COUNT; type++){
+            int max = 0;
+            int begin = 0;
+            int count = 0;
+            for(int i = 0; i < frames.length; i++){
+                if(types[i] != type){
+                    continue;
+                }
+                count++;
+                while(frames[i] - frames[begin] >= PREWARM_WINDOW_FRAMES || types[begin] != type){
+                    if(types[begin] == type){
+                        count--;
+                    }
+                    begin++;
+                }
+                max = Math.max(max, count);
+            }
+            prewarmCounts[type] = max;
+        }
+    }
+
+    /*-------------------------------compiling-------------------------------------*/
+
+    //编译关卡文件，格式错误时抛出IllegalArgumentException，并指出行号
+    public static WaveTimeline compile(Reader reader) throws IOException {
+        Builder builder = new Builder();
+        BufferedReader bufferedReader = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while((line = bufferedReader.readLine()) != null){
+            lineNumber++;
+            int commentIndex = line.indexOf('#');
+            if(commentIndex >= 0){
+                line = line.substring(0, commentIndex);
+            }
+            line = line.trim();
+            if(line.length() == 0){
+                continue;
+            }
+            try{
+                builder.parseLine(line.split("\\s+"));
+            }catch (RuntimeException e){
+                throw new IllegalArgumentException("level line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return builder.build();
+    }
+
+    private static class Builder {
+        private List<float[]> events = new ArrayList<float[]>();//frame, type, x, yOffset, speed, flags, path, pathPhase
+        private int loopFrame = 0;
+
+        void parseLine(String[] tokens){
+            int frame = Integer.parseInt(tokens[0]);
+            if(frame < 0){
+                throw new IllegalArgumentException("negative frame " + frame);
+            }
+            String command = tokens[1];
+            if("single".equals(command)){
+                int path = expectPath(tokens, 5);
+                add(frame, parseType(tokens[2]), parseFloat(tokens[3]), 0, parseFloat(tokens[4]), 0, path, 0);
+            }else if("line".equals(command)){
+                int path = expectPath(tokens, 7);
+                int type = parseType(tokens[2]);
+                int count = parseCount(tokens[3]);
+                float x0 = parseFloat(tokens[4]);
+                float x1 = parseFloat(tokens[5]);
+                float speed = parseFloat(tokens[6]);
+                for(int i = 0; i < count; i++){
+                    float x = count == 1 ? x0 : x0 + (x1 - x0) * i / (count - 1);
+                    add(frame, type, x, 0, speed, 0, path, i * PATH_PHASE_STEP);
+                }
+            }else if("v".equals(command)){
+                int path = expectPath(tokens, 7);
+                int type = parseType(tokens[2]);
+                int count = parseCount(tokens[3]);
+                float x = parseFloat(tokens[4]);
+                float spacing = parseFloat(tokens[5]);
+                float speed = parseFloat(tokens[6]);
+                for(int i = 0; i < count; i++){
+                    //0号在顶点，之后左右交替排在更靠后的位置
+                    int rank = (i + 1) / 2;
+                    float side = i % 2 == 1 ? -1 : 1;
+                    add(frame, type, x + side * rank * spacing, rank * 0.6f, speed, 0, path, rank * PATH_PHASE_STEP);
+                }
+            }else if("burst".equals(command)){
+                int path = expectPath(tokens, 8);
+                int type = parseType(tokens[2]);
+                int count = parseCount(tokens[3]);
+                int interval = Integer.parseInt(tokens[4]);
+                float x = parseFloat(tokens[5]);
+                float dx = parseFloat(tokens[6]);
+                float speed = parseFloat(tokens[7]);
+                for(int i = 0; i < count; i++){
+                    add(frame + i * interval, type, x + i * dx, 0, speed, 0, path, 0);
+                }
+            }else if("award".equals(command)){
+                expect(tokens, 4);
+                int type;
+                if("bomb".equals(tokens[2])){
+                    type = TYPE_BOMB_AWARD;
+                }else if("bullet".equals(tokens[2])){
+                    type = TYPE_BULLET_AWARD;
+                }else{
+                    throw new IllegalArgumentException("unknown award " + tokens[2]);
+                }
+                //与随机生成时相同，奖品以速度2落下
+                add(frame, type, parseFloat(tokens[3]), 0, 2, 0, MovePath.PATH_STRAIGHT, 0);
+            }else if("boss".equals(command)){
+                //首领按自己的路径入场并停留在屏幕上方
+                expect(tokens, 4);
+                add(frame, TYPE_BOSS, parseFloat(tokens[2]), 0, parseFloat(tokens[3]), FLAG_HOLD, MovePath.PATH_STRAIGHT, 0);
+            }else if("loop".equals(command)){
+                expect(tokens, 2);
+                loopFrame = frame;
+            }else{
+                throw new IllegalArgumentException("unknown command " + command);
+            }
+        }
+
+        private void add(int frame, int type, float x, float yOffset, float speed, int flags, int path, int pathPhase){
+            events.add(new float[]{frame, type, clamp(x), yOffset, speed, flags, path, pathPhase});
+        }
+
+        WaveTimeline build(){
+            int count = events.size();
+            //按帧排序，同一帧的事件保持文件中的顺序
+            long[] keys = new long[count];
+            for(int i = 0; i < count; i++){
+                keys[i] = ((long)events.get(i)[0] << 32) | i;
+            }
+            Arrays.sort(keys);
+            int[] frames = new int[count];
+            byte[] types = new byte[count];
+            float[] xs = new float[count];
+            float[] yOffsets = new float[count];
+            float[] speeds = new float[count];
+            byte[] flags = new byte[count];
+            byte[] paths = new byte[count];
+            int[] pathPhases = new int[count];
+            for(int i = 0; i < count; i++){
+                float[] event = events.get((int)keys[i]);
+                frames[i] = (int)event[0];
+                types[i] = (byte)event[1];
+                xs[i] = event[2];
+                yOffsets[i] = event[3];
+                speeds[i] = event[4];
+                flags[i] = (byte)event[5];
+                paths[i] = (byte)event[6];
+                pathPhases[i] = (int)event[7];
+            }
+            if(loopFrame > 0 && count > 0 && loopFrame <= frames[count - 1]){
+                throw new IllegalArgumentException("loop frame " + loopFrame + " must be after the last event");
+            }
+            return new WaveTimeline(frames, types, xs, yOffsets, speeds, flags, paths, pathPhases, loopFrame);
+        }
+
+        private static void expect(String[] tokens, int count){
+            if(tokens.length != count){
+                throw new IllegalArgumentException("command " + tokens[1] + " expects " + (count - 2) + " arguments");
+            }
+        }
+
+        //命令的最后可以附加路径名，返回路径类型
+        private static int expectPath(String[] tokens, int count){
+            if(tokens.length == count + 1){
+                return parsePath(tokens[count]);
+            }
+            expect(tokens, count);
+            return MovePath.PATH_STRAIGHT;
+        }
+
+        private static int parsePath(String token){
+            if("straight".equals(token)){
+                return MovePath.PATH_STRAIGHT;
+            }else if("sine".equals(token)){
+                return MovePath.PATH_SINE;
+            }else if("dive".equals(token)){
+                return MovePath.PATH_DIVE;
+            }else if("curveLeft".equals(token)){
+                return MovePath.PATH_CURVE_LEFT;
+            }else if("curveRight".equals(token)){
+                return MovePath.PATH_CURVE_RIGHT;
+            }
+            throw new IllegalArgumentException("unknown path " + token);
+        }
+
+        private static int parseType(String token){
+            if("small".equals(token)){
+                return TYPE_SMALL;
+            }else if("middle".equals(token)){
+                return TYPE_MIDDLE;
+            }else if("big".equals(token)){
+                return TYPE_BIG;
+            }
+            throw new IllegalArgumentException("unknown enemy type " + token);
+        }
+
+        private static int parseCount(String token){
+            int count = Integer.parseInt(token);
+            if(count <= 0){
+                throw new IllegalArgumentException("count must be positive");
+            }
+            return count;
+        }
+
+        private static float parseFloat(String token){
+            return Float.parseFloat(token);
+        }
+
+        private static float clamp(float x){
+            return Math.max(0, Math.min(1, x));
+        }
+    }
+}
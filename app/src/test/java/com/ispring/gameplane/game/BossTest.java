@@ -0,0 +1,137 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BossTest {
+
+    private static final float DENSITY = 2;
+
+    //部件的序号，见Boss中部件的布局
+    private static final int LEFT_TURRET = 0;
+    private static final int RIGHT_TURRET = 1;
+    private static final int LEFT_WING = 2;
+    private static final int RIGHT_WING = 3;
+    private static final int CORE = 4;
+
+    private Game game;
+    private Boss boss;
+    private CollisionSystem collisions;
+
+    @Before
+    public void createBoss(){
+        game = new Game(HeadlessRunner.createTextures(DENSITY), DENSITY, 5);
+        game.start();
+        //战斗机不参与本测试
+        game.getCombatAircraft().centerTo(-1000, -1000);
+        boss = new Boss(game.getTexture(6));
+        boss.moveTo(40, 60);
+        game.getSprites().add(boss);
+        collisions = new CollisionSystem();
+    }
+
+    //在部件的中心放一颗子弹并执行一次碰撞检测
+    private Bullet shootAt(float x, float y){
+        Bullet bullet = game.obtainBullet(game.getYellowBulletTexture());
+        bullet.centerTo(x, y);
+        game.getSprites().add(bullet);
+        collisions.update(game);
+        game.getSprites().remove(bullet);
+        return bullet;
+    }
+
+    private Bullet shootAt(int part){
+        return shootAt((boss.getPartLeft(part) + boss.getPartRight(part)) / 2,
+                (boss.getPartTop(part) + boss.getPartBottom(part)) / 2);
+    }
+
+    private void assertPowers(int... powers){
+        for(int i = 0; i < powers.length; i++){
+            assertEquals("part " + i, powers[i], boss.getPartPower(i));
+        }
+    }
+
+    @Test
+    public void layout(){
+        assertEquals(5, boss.getPartCount());
+        assertEquals(Boss.PART_TURRET, boss.getPartType(LEFT_TURRET));
+        assertEquals(Boss.PART_TURRET, boss.getPartType(RIGHT_TURRET));
+        assertEquals(Boss.PART_WING, boss.getPartType(LEFT_WING));
+        assertEquals(Boss.PART_WING, boss.getPartType(RIGHT_WING));
+        assertEquals(Boss.PART_CORE, boss.getPartType(CORE));
+        //子弹能完全放进炮塔，下面的测试才只打中一个部件
+        Bullet bullet = game.obtainBullet(game.getYellowBulletTexture());
+        assertTrue(bullet.getWidth() < boss.getPartRight(LEFT_TURRET) - boss.getPartLeft(LEFT_TURRET));
+        assertTrue(bullet.getHeight() < boss.getPartBottom(LEFT_TURRET) - boss.getPartTop(LEFT_TURRET));
+    }
+
+    @Test
+    public void bulletOnTurretDamagesOnlyTheTurret(){
+        Bullet bullet = shootAt(LEFT_TURRET);
+        assertTrue(bullet.isDestroyed());
+        assertEquals(1, collisions.getHitCount());
+        //炮塔位于机翼上，但只有炮塔受到伤害
+        assertPowers(11, 12, 25, 25, 60);
+        assertEquals(0, boss.getDestroyedPartMask());
+        assertFalse(boss.isDestroyed());
+
+        shootAt(CORE);
+        assertPowers(11, 12, 25, 25, 59);
+    }
+
+    @Test
+    public void bulletOutsideEveryPartPassesThrough(){
+        //外框的左上角不属于任何部件
+        Bullet bullet = shootAt(boss.getX() + boss.getWidth() * 0.05f, boss.getY() + boss.getHeight() * 0.05f);
+        assertFalse(bullet.isDestroyed());
+        assertEquals(0, collisions.getHitCount());
+        assertPowers(12, 12, 25, 25, 60);
+    }
+
+    @Test
+    public void destroyedTurretIsMaskedAndExposesTheWing(){
+        for(int i = 0; i < 12; i++){
+            shootAt(RIGHT_TURRET);
+        }
+        assertTrue(boss.isPartDestroyed(RIGHT_TURRET));
+        assertEquals(1 << RIGHT_TURRET, boss.getDestroyedPartMask());
+        assertEquals(8000, game.getScore());
+        //同一位置的子弹现在打中炮塔下面的机翼
+        shootAt(RIGHT_TURRET);
+        assertPowers(12, 0, 25, 24, 60);
+        assertFalse(boss.isDestroyed());
+    }
+
+    @Test
+    public void destroyedWingTakesItsTurret(){
+        //从炮塔之外的位置打机翼
+        float x = (boss.getPartLeft(LEFT_WING) + boss.getPartLeft(LEFT_TURRET)) / 2;
+        float y = (boss.getPartTop(LEFT_WING) + boss.getPartTop(LEFT_TURRET)) / 2;
+        for(int i = 0; i < 25; i++){
+            shootAt(x, y);
+        }
+        assertEquals((1 << LEFT_WING) | (1 << LEFT_TURRET), boss.getDestroyedPartMask());
+        assertEquals(12, boss.getPartPower(LEFT_TURRET));
+        assertEquals(12000 + 8000, game.getScore());
+        //被摧毁的部件不再挡住子弹
+        Bullet bullet = shootAt(LEFT_TURRET);
+        assertFalse(bullet.isDestroyed());
+        assertFalse(boss.isDestroyed());
+    }
+
+    @Test
+    public void destroyedCoreDestroysTheBoss(){
+        for(int i = 0; i < 60; i++){
+            assertFalse(boss.isDestroyed());
+            shootAt(CORE);
+        }
+        assertTrue(boss.isDestroyed());
+        assertTrue(boss.isPartDestroyed(CORE));
+        assertEquals(1 << CORE, boss.getDestroyedPartMask());
+        assertPowers(12, 12, 25, 25, 0);
+    }
+}
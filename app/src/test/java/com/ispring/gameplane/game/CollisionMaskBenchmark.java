@@ -0,0 +1,79 @@
+package com.ispring.gameplane.game;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+/**
+ * 测量CollisionMask窄相检测的耗时，并与逐像素比较对比
+ */
+public class CollisionMaskBenchmark {
+
+    /*
+     * 用法：CollisionMaskBenchmark [drawableDir] [density]
+     * 以big.png和plane.png（默认目录为app/src/main/res/drawable，缩放到density倍）生成掩码，
+     * 对大量外框相交的随机位置测量窄相检测的耗时，并与逐像素比较对比
+     */
+    public static void main(String[] args) throws IOException {
+        String dir = args.length > 0 ? args[0] : "app/src/main/res/drawable";
+        float density = args.length > 1 ? Float.parseFloat(args[1]) : 2;
+        CollisionMask big = load(dir + "/big.png", 62, 90, density);
+        CollisionMask plane = load(dir + "/plane.png", 60, 76, density);
+        int pairs = 200000;
+        int[] offsets = new int[pairs * 2];
+        Random random = new Random(1);
+        for(int i = 0; i < pairs; i++){
+            //plane相对big的位置，保证外框相交
+            offsets[i * 2] = random.nextInt(big.getWidth() + plane.getWidth() - 1) - plane.getWidth() + 1;
+            offsets[i * 2 + 1] = random.nextInt(big.getHeight() + plane.getHeight() - 1) - plane.getHeight() + 1;
+        }
+        int mismatches = 0;
+        for(int i = 0; i < pairs; i += 97){
+            if(CollisionMask.overlaps(big, 0, 0, plane, offsets[i * 2], offsets[i * 2 + 1])
+                    != CollisionMask.overlapsPerPixel(big, 0, 0, plane, offsets[i * 2], offsets[i * 2 + 1])){
+                mismatches++;
+            }
+        }
+        int hits = 0;
+        int pixelHits = 0;
+        long maskNanos = 0;
+        long pixelNanos = 0;
+        for(int round = 0; round < 5; round++){
+            //第一轮用于JIT预热
+            hits = 0;
+            long t0 = System.nanoTime();
+            for(int i = 0; i < pairs; i++){
+                if(CollisionMask.overlaps(big, 0, 0, plane, offsets[i * 2], offsets[i * 2 + 1])){
+                    hits++;
+                }
+            }
+            long t1 = System.nanoTime();
+            pixelHits = 0;
+            for(int i = 0; i < pairs; i += 10){
+                if(CollisionMask.overlapsPerPixel(big, 0, 0, plane, offsets[i * 2], offsets[i * 2 + 1])){
+                    pixelHits++;
+                }
+            }
+            long t2 = System.nanoTime();
+            if(round > 0){
+                maskNanos += t1 - t0;
+                pixelNanos += (t2 - t1) * 10;
+            }
+        }
+        System.out.println("big=" + big.getWidth() + "x" + big.getHeight() + " plane=" + plane.getWidth() + "x" + plane.getHeight()
+                + " pairs=" + pairs + " rectHitsRejected=" + (pairs - hits) + " sampledPixelHits=" + pixelHits
+                + " maskNsPerPair=" + (maskNanos / 4f / pairs)
+                + " perPixelNsPerPair=" + (pixelNanos / 4f / pairs)
+                + " mismatches=" + mismatches);
+    }
+
+    private static CollisionMask load(String path, int width, int height, float density) throws IOException {
+        InputStream in = new FileInputStream(path);
+        try{
+            return CollisionMask.fromPng(in, (int)(width * density + 0.5f), (int)(height * density + 0.5f), CollisionMask.DEFAULT_ALPHA_THRESHOLD);
+        }finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CollisionMaskTest {
+
+    private static CollisionMask load(String name, int width, int height) throws IOException {
+        InputStream in = new FileInputStream(new File(HeadlessRunner.getResDir(), "drawable/" + name));
+        try{
+            return CollisionMask.fromPng(in, width, height, CollisionMask.DEFAULT_ALPHA_THRESHOLD);
+        }finally {
+            in.close();
+        }
+    }
+
+    //b相对a的所有外框相交的位置上，按位比较与逐像素比较的结果相同
+    private static int assertSameAsPerPixel(CollisionMask a, CollisionMask b, int step){
+        int hits = 0;
+        for(int dy = -b.getHeight() + 1; dy < a.getHeight(); dy += step){
+            for(int dx = -b.getWidth() + 1; dx < a.getWidth(); dx += step){
+                boolean expected = CollisionMask.overlapsPerPixel(a, 0, 0, b, dx, dy);
+                assertEquals("dx=" + dx + " dy=" + dy, expected, CollisionMask.overlaps(a, 0, 0, b, dx, dy));
+                //平移两者不影响结果
+                assertEquals(expected, CollisionMask.overlaps(a, 37, -11, b, dx + 37, dy - 11));
+                if(expected){
+                    hits++;
+                }
+            }
+        }
+        return hits;
+    }
+
+    @Test
+    public void matchesPerPixelForSprites() throws IOException {
+        CollisionMask big = load("big.png", 124, 180);
+        CollisionMask plane = load("plane.png", 120, 152);
+        CollisionMask small = load("small.png", 64, 46);
+        int hits = assertSameAsPerPixel(big, plane, 3) + assertSameAsPerPixel(plane, small, 1);
+        assertTrue(hits > 0);
+    }
+
+    @Test
+    public void matchesPerPixelForRandomMasks(){
+        Random random = new Random(1);
+        //宽度跨过64位的边界
+        int[] widths = {1, 7, 63, 64, 65, 130};
+        for(int wa : widths){
+            for(int wb : widths){
+                CollisionMask a = randomMask(random, wa, 9);
+                CollisionMask b = randomMask(random, wb, 5);
+                assertSameAsPerPixel(a, b, 1);
+            }
+        }
+    }
+
+    @Test
+    public void transparentPixelsDoNotCollide(){
+        int[] argb = new int[4 * 4];
+        argb[0] = 0xff000000;//左上角不透明
+        argb[15] = 0x20ffffff;//右下角低于阈值
+        CollisionMask a = CollisionMask.fromArgb(argb, 4, 4, 4, 4, CollisionMask.DEFAULT_ALPHA_THRESHOLD);
+        assertTrue(a.get(0, 0));
+        assertFalse(a.get(3, 3));
+        CollisionMask dot = CollisionMask.fromArgb(new int[]{0xff000000}, 1, 1, 1, 1, CollisionMask.DEFAULT_ALPHA_THRESHOLD);
+        assertTrue(CollisionMask.overlaps(a, 0, 0, dot, 0, 0));
+        assertFalse(CollisionMask.overlaps(a, 0, 0, dot, 3, 3));
+        assertFalse(CollisionMask.overlaps(a, 0, 0, dot, 4, 0));
+    }
+
+    private static CollisionMask randomMask(Random random, int width, int height){
+        CollisionMask mask = new CollisionMask(width, height);
+        for(int y = 0; y < height; y++){
+            for(int x = 0; x < width; x++){
+                if(random.nextInt(6) == 0){
+                    mask.set(x, y);
+                }
+            }
+        }
+        return mask;
+    }
+}
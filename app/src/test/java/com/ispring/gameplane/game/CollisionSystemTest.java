@@ -0,0 +1,155 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CollisionSystemTest {
+
+    private static final float DENSITY = 2;
+    //所有Sprite都放在同一个中心点上，外框一定相交
+    private static final float CENTER_X = 300;
+    private static final float CENTER_Y = 500;
+
+    private Game game;
+    private CollisionSystem collisions;
+
+    @Before
+    public void startGame(){
+        game = new Game(HeadlessRunner.createTextures(DENSITY), DENSITY, 3);
+        game.start();
+        game.getCombatAircraft().centerTo(CENTER_X, CENTER_Y);
+        collisions = new CollisionSystem();
+        //只检查层矩阵，不受纹理掩码的影响
+        collisions.setPixelAccurate(false);
+    }
+
+    //战斗机离开中心点，不与其他Sprite相交
+    private void moveAircraftAway(){
+        game.getCombatAircraft().centerTo(-CENTER_X, -CENTER_Y);
+    }
+
+    private <T extends Sprite> T place(T sprite){
+        sprite.centerTo(CENTER_X, CENTER_Y);
+        game.getSprites().add(sprite);
+        return sprite;
+    }
+
+    private EnemyPlane placeEnemy(int power){
+        EnemyPlane enemy = place(new SmallEnemyPlane(game.getTexture(4)));
+        enemy.setPower(power);
+        return enemy;
+    }
+
+    private Bullet placeBullet(){
+        return place(game.obtainBullet(game.getYellowBulletTexture()));
+    }
+
+    private Award placeAward(){
+        return place(new BombAward(game.getTexture(7)));
+    }
+
+    @Test
+    public void defaultMatrix(){
+        assertTrue(collisions.isEnabled(CollisionSystem.LAYER_PLAYER_BULLET, CollisionSystem.LAYER_ENEMY));
+        assertTrue(collisions.isEnabled(CollisionSystem.LAYER_ENEMY, CollisionSystem.LAYER_PLAYER_BULLET));
+        assertTrue(collisions.isEnabled(CollisionSystem.LAYER_PLAYER, CollisionSystem.LAYER_ENEMY));
+        assertTrue(collisions.isEnabled(CollisionSystem.LAYER_PLAYER, CollisionSystem.LAYER_AWARD));
+        assertTrue(collisions.isEnabled(CollisionSystem.LAYER_PLAYER, CollisionSystem.LAYER_ENEMY_BULLET));
+        assertFalse(collisions.isEnabled(CollisionSystem.LAYER_PLAYER_BULLET, CollisionSystem.LAYER_AWARD));
+        assertFalse(collisions.isEnabled(CollisionSystem.LAYER_ENEMY, CollisionSystem.LAYER_ENEMY));
+        assertFalse(collisions.isEnabled(CollisionSystem.LAYER_ENEMY, CollisionSystem.LAYER_AWARD));
+    }
+
+    @Test
+    public void layersOutsideTheMatrixAreNeverTested(){
+        //子弹与奖品、敌机与敌机、敌机与奖品重叠，但都不在矩阵中；关闭其余的层后一次检测都不做
+        placeEnemy(5);
+        placeEnemy(5);
+        Bullet bullet = placeBullet();
+        Award award = placeAward();
+        collisions.disable(CollisionSystem.LAYER_PLAYER_BULLET, CollisionSystem.LAYER_ENEMY);
+        collisions.disable(CollisionSystem.LAYER_PLAYER, CollisionSystem.LAYER_ENEMY);
+        collisions.disable(CollisionSystem.LAYER_PLAYER, CollisionSystem.LAYER_AWARD);
+        collisions.disable(CollisionSystem.LAYER_PLAYER, CollisionSystem.LAYER_ENEMY_BULLET);
+        collisions.update(game);
+        assertEquals(0, collisions.getPairTestCount());
+        assertEquals(0, collisions.getHitCount());
+        assertFalse(bullet.isDestroyed());
+        assertFalse(award.isDestroyed());
+        assertFalse(game.getCombatAircraft().isCollide());
+    }
+
+    @Test
+    public void bulletHitsEnemyOnlyWhenEnabled(){
+        moveAircraftAway();
+        EnemyPlane enemy = placeEnemy(5);
+        Bullet bullet = placeBullet();
+
+        collisions.disable(CollisionSystem.LAYER_PLAYER_BULLET, CollisionSystem.LAYER_ENEMY);
+        assertFalse(collisions.isEnabled(CollisionSystem.LAYER_ENEMY, CollisionSystem.LAYER_PLAYER_BULLET));
+        collisions.update(game);
+        assertEquals(0, collisions.getHitCount());
+        assertFalse(bullet.isDestroyed());
+        assertEquals(5, enemy.getPower());
+
+        collisions.enable(CollisionSystem.LAYER_ENEMY, CollisionSystem.LAYER_PLAYER_BULLET);
+        collisions.update(game);
+        assertEquals(1, collisions.getHitCount());
+        assertTrue(bullet.isDestroyed());
+        assertEquals(4, enemy.getPower());
+    }
+
+    @Test
+    public void enemyHitsPlayerOnlyWhenEnabled(){
+        CombatAircraft aircraft = game.getCombatAircraft();
+        placeEnemy(5);
+
+        collisions.disable(CollisionSystem.LAYER_PLAYER, CollisionSystem.LAYER_ENEMY);
+        collisions.update(game);
+        assertEquals(0, collisions.getHitCount());
+        assertFalse(aircraft.isCollide());
+
+        collisions.enable(CollisionSystem.LAYER_PLAYER, CollisionSystem.LAYER_ENEMY);
+        collisions.update(game);
+        assertEquals(1, collisions.getHitCount());
+        assertTrue(aircraft.isCollide());
+    }
+
+    @Test
+    public void projectileHitsPlayerOnlyWhenEnabled(){
+        CombatAircraft aircraft = game.getCombatAircraft();
+        game.getEnemyProjectiles().fire(CENTER_X, CENTER_Y, 0, 0);
+
+        collisions.disable(CollisionSystem.LAYER_ENEMY_BULLET, CollisionSystem.LAYER_PLAYER);
+        collisions.update(game);
+        assertEquals(0, collisions.getHitCount());
+        assertFalse(aircraft.isCollide());
+
+        collisions.enable(CollisionSystem.LAYER_PLAYER, CollisionSystem.LAYER_ENEMY_BULLET);
+        collisions.update(game);
+        assertEquals(1, collisions.getHitCount());
+        assertTrue(aircraft.isCollide());
+    }
+
+    @Test
+    public void playerPicksAwardOnlyWhenEnabled(){
+        CombatAircraft aircraft = game.getCombatAircraft();
+        Award award = placeAward();
+
+        collisions.disable(CollisionSystem.LAYER_AWARD, CollisionSystem.LAYER_PLAYER);
+        collisions.update(game);
+        assertEquals(0, collisions.getHitCount());
+        assertFalse(award.isDestroyed());
+        assertEquals(0, aircraft.getBombCount());
+
+        collisions.enable(CollisionSystem.LAYER_PLAYER, CollisionSystem.LAYER_AWARD);
+        collisions.update(game);
+        assertEquals(1, collisions.getHitCount());
+        assertTrue(award.isDestroyed());
+        assertEquals(1, aircraft.getBombCount());
+    }
+}
@@ -0,0 +1,196 @@
+package com.ispring.gameplane.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 估计把Sprite类层次换成组件数组（ECS）后每帧能节省多少时间，只比较数据布局，不实现游戏逻辑
+ * Sprite一边是Game中真实的子弹和小中大三种敌机，放在同一个List<Sprite>中，按Game.step的顺序调用beginDraw、onDraw、endDraw，
+ * 每个实体都要经过多态的beforeDraw和多次取字段；
+ * 数组一边把同样的实体存放在按字段排列的基本类型数组中（位置、速度、尺寸、纹理），用一个循环完成移动和绘制
+ * 两边都只做直线移动和绘制，不做剔除、碰撞和移除，实体的数量在测量过程中不变
+ * 每帧检查两边绘制的内容（与顺序无关的校验和）和绘制次数完全相同，保证比较的是同样的工作
+ * Game仍然使用Sprite类层次，本类只用于衡量迁移的收益
+ */
+public class EcsBenchmark {
+
+    //实体的组成：子弹的比例，其余为敌机
+    private static final float BULLET_SHARE = 0.5f;
+
+    //记录drawTexture的次数和与顺序无关的校验和
+    private static class ChecksumRenderer extends NullRenderer {
+        long checksum = 0;
+        int drawCount = 0;
+
+        ChecksumRenderer(int width, int height){
+            super(width, height);
+        }
+
+        void reset(){
+            checksum = 0;
+            drawCount = 0;
+        }
+
+        @Override
+        public void drawTexture(Texture texture, int srcLeft, int srcTop, int srcRight, int srcBottom,
+                                float dstLeft, float dstTop, float dstRight, float dstBottom) {
+            long h = texture.getId();
+            h = h * 31 + srcLeft;
+            h = h * 31 + srcTop;
+            h = h * 31 + srcRight;
+            h = h * 31 + srcBottom;
+            h = h * 0x100000001b3L ^ Float.floatToIntBits(dstLeft);
+            h = h * 0x100000001b3L ^ Float.floatToIntBits(dstTop);
+            h = h * 0x100000001b3L ^ Float.floatToIntBits(dstRight);
+            h = h * 0x100000001b3L ^ Float.floatToIntBits(dstBottom);
+            //混合后求和，与绘制的顺序无关
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            checksum += h;
+            drawCount++;
+        }
+    }
+
+    private final Game game;
+
+    //Sprite类层次
+    private final List<Sprite> sprites = new ArrayList<Sprite>();
+    private final ChecksumRenderer spriteRenderer;
+
+    //组件数组，下标为实体
+    private final int count;
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] dys;//每帧在y轴方向移动的像素数
+    private final float[] widths;
+    private final float[] heights;
+    private final Texture[] textures;
+    private final ChecksumRenderer arrayRenderer;
+
+    //耗时，单位纳秒
+    long spriteNanos = 0;
+    long arrayNanos = 0;
+    int mismatches = 0;
+
+    EcsBenchmark(float density, int count, long seed){
+        int width = (int)(360 * density);
+        int height = (int)(640 * density);
+        List<Texture> textureList = HeadlessRunner.createTextures(density);
+        game = new Game(textureList, density);
+        spriteRenderer = new ChecksumRenderer(width, height);
+        arrayRenderer = new ChecksumRenderer(width, height);
+        this.count = count;
+        xs = new float[count];
+        ys = new float[count];
+        dys = new float[count];
+        widths = new float[count];
+        heights = new float[count];
+        textures = new Texture[count];
+
+        Random random = new Random(seed);
+        int bulletCount = (int)(count * BULLET_SHARE);
+        for(int i = 0; i < count; i++){
+            AutoSprite sprite;
+            if(i < bulletCount){
+                sprite = new Bullet(textureList.get(2));
+            }else{
+                int type = random.nextInt(3);
+                if(type == 0){
+                    sprite = new SmallEnemyPlane(textureList.get(4));
+                }else if(type == 1){
+                    sprite = new MiddleEnemyPlane(textureList.get(5));
+                }else{
+                    sprite = new BigEnemyPlane(textureList.get(6));
+                }
+                sprite.setSpeed(2 + random.nextInt(4));
+            }
+            sprite.moveTo(random.nextInt(width), random.nextInt(height));
+            sprites.add(sprite);
+            xs[i] = sprite.getX();
+            ys[i] = sprite.getY();
+            dys[i] = sprite.getSpeed() * density;
+            widths[i] = sprite.getWidth();
+            heights[i] = sprite.getHeight();
+            textures[i] = sprite.getTexture();
+        }
+        //两边的绘制顺序不同，校验和与顺序无关
+        Collections.shuffle(sprites, random);
+    }
+
+    void step(){
+        //Sprite类层次，顺序与Game.step相同
+        spriteRenderer.reset();
+        long t = System.nanoTime();
+        int size = sprites.size();
+        for(int i = 0; i < size; i++){
+            Sprite s = sprites.get(i);
+            if(!s.isDestroyed()){
+                s.beginDraw(spriteRenderer, game);
+            }
+        }
+        for(int i = 0; i < size; i++){
+            Sprite s = sprites.get(i);
+            if(!s.isDestroyed()){
+                s.onDraw(spriteRenderer, game);
+            }
+        }
+        for(int i = 0; i < size; i++){
+            Sprite s = sprites.get(i);
+            if(!s.isDestroyed()){
+                s.endDraw(spriteRenderer, game);
+            }
+        }
+        long t1 = System.nanoTime();
+        spriteNanos += t1 - t;
+
+        //组件数组
+        arrayRenderer.reset();
+        t = System.nanoTime();
+        for(int i = 0; i < count; i++){
+            float x = xs[i];
+            float y = ys[i] + dys[i];
+            ys[i] = y;
+            float w = widths[i];
+            float h = heights[i];
+            arrayRenderer.drawTexture(textures[i], 0, 0, (int)w, (int)h, x, y, x + w, y + h);
+        }
+        arrayNanos += System.nanoTime() - t;
+
+        if(spriteRenderer.checksum != arrayRenderer.checksum || spriteRenderer.drawCount != arrayRenderer.drawCount){
+            mismatches++;
+        }
+    }
+
+    /*
+     * 用法：EcsBenchmark [counts] [frames]
+     * counts为逗号分隔的实体数量（默认100,1000,10000），frames为每种数量测量的帧数，默认为600000/数量且不少于60帧
+     * 每种数量先运行相同的帧数预热，输出两边每帧的耗时以及每个实体的耗时
+     */
+    public static void main(String[] args){
+        String[] counts = (args.length > 0 ? args[0] : "100,1000,10000").split(",");
+        for(String c : counts){
+            int count = Integer.parseInt(c.trim());
+            int frames = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(60, 600000 / count);
+            EcsBenchmark benchmark = new EcsBenchmark(2, count, count);
+            for(int frame = 0; frame < frames; frame++){
+                benchmark.step();
+            }
+            benchmark.spriteNanos = 0;
+            benchmark.arrayNanos = 0;
+            for(int frame = 0; frame < frames; frame++){
+                benchmark.step();
+            }
+            float sprite = benchmark.spriteNanos / 1000f / frames;
+            float array = benchmark.arrayNanos / 1000f / frames;
+            System.out.println("entities=" + count + " frames=" + frames
+                    + " spriteUs=" + sprite + " arrayUs=" + array
+                    + " speedup=" + (sprite / array)
+                    + " spriteNsPerEntity=" + (sprite * 1000 / count)
+                    + " arrayNsPerEntity=" + (array * 1000 / count)
+                    + " mismatches=" + benchmark.mismatches);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.ispring.gameplane.game;
+
+/**
+ * 测量EnemyProjectiles在大量子弹时每帧的耗时
+ */
+public class EnemyProjectilesBenchmark {
+
+    /*
+     * 用法：EnemyProjectilesBenchmark [count]
+     * 在720x1280的屏幕上保持count颗子弹（默认1000），测量每帧update和战斗机碰撞检测的耗时
+     */
+    public static void main(String[] args){
+        int target = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        float density = 2;
+        int width = 720;
+        int height = 1280;
+        EnemyProjectiles projectiles = new EnemyProjectiles(density, Math.max(EnemyProjectiles.DEFAULT_CAPACITY, target * 2));
+        RecordingRenderer renderer = new RecordingRenderer(width, height);
+        //战斗机位于屏幕下方中央，碰撞盒取机身中部
+        float hitLeft = 340;
+        float hitTop = 1150;
+        float hitRight = 380;
+        float hitBottom = 1200;
+        int frames = 20000;
+        int spiral = 0;
+        long updateNanos = 0;
+        long hitNanos = 0;
+        long drawNanos = 0;
+        long hits = 0;
+        for(int frame = 0; frame < frames; frame++){
+            //多个螺旋发射点持续补充子弹，保持子弹数量
+            while(projectiles.getCount() < target){
+                float x = (spiral * 97) % width;
+                projectiles.fireRadial(x, height / 3, spiral, 1.5f, 16);
+                spiral += 7;
+            }
+            long t0 = System.nanoTime();
+            projectiles.update(width, height);
+            long t1 = System.nanoTime();
+            if(projectiles.hitTest(hitLeft, hitTop, hitRight, hitBottom)){
+                hits++;
+            }
+            long t2 = System.nanoTime();
+            renderer.beginFrame();
+            projectiles.draw(renderer);
+            long t3 = System.nanoTime();
+            //前1/4帧用于JIT预热，不计入统计
+            if(frame >= frames / 4){
+                updateNanos += t1 - t0;
+                hitNanos += t2 - t1;
+                drawNanos += t3 - t2;
+            }
+        }
+        int measured = frames - frames / 4;
+        System.out.println("projectiles=" + projectiles.getCount()
+                + " updateUs=" + (updateNanos / 1000f / measured)
+                + " hitTestUs=" + (hitNanos / 1000f / measured)
+                + " recordDrawUs=" + (drawNanos / 1000f / measured)
+                + " drawCalls=" + renderer.getDrawCallCount()
+                + " hits=" + hits);
+    }
+}
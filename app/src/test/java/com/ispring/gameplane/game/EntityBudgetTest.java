@@ -0,0 +1,184 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EntityBudgetTest {
+
+    private static final float DENSITY = 2;
+    private final Renderer renderer = new NullRenderer(720, 1280);
+
+    private Game game;
+    private EntityBudget budget;
+
+    @Before
+    public void createGame(){
+        game = new Game(HeadlessRunner.createTextures(DENSITY), DENSITY, 11);
+        budget = game.getEntityBudget();
+    }
+
+    private Bullet addBullet(){
+        Bullet bullet = game.obtainBullet(game.getYellowBulletTexture());
+        game.addSprite(bullet);
+        return bullet;
+    }
+
+    private Explosion addExplosion(){
+        Explosion explosion = game.obtainExplosion();
+        game.addSprite(explosion);
+        return explosion;
+    }
+
+    private EnemyPlane addEnemy(){
+        EnemyPlane enemy = new SmallEnemyPlane(game.getTexture(4));
+        game.addSprite(enemy);
+        return enemy;
+    }
+
+    @Test
+    public void oldestBulletIsRecycledForANewOne(){
+        game.start();
+        budget.setLimit(EntityBudget.CATEGORY_BULLET, 3);
+        Bullet first = addBullet();
+        Bullet second = addBullet();
+        Bullet third = addBullet();
+        Bullet fourth = addBullet();
+        assertTrue(first.isDestroyed());
+        assertFalse(second.isDestroyed());
+        assertFalse(third.isDestroyed());
+        assertFalse(fourth.isDestroyed());
+        assertEquals(3, budget.getCount(EntityBudget.CATEGORY_BULLET));
+        assertEquals(1, budget.getRecycledBulletCount());
+
+        addBullet();
+        assertTrue(second.isDestroyed());
+        assertFalse(third.isDestroyed());
+        assertEquals(2, budget.getRecycledBulletCount());
+    }
+
+    @Test
+    public void newExplosionIsDroppedWhenFull(){
+        game.start();
+        budget.setLimit(EntityBudget.CATEGORY_EXPLOSION, 2);
+        Explosion first = addExplosion();
+        Explosion second = addExplosion();
+        Explosion third = addExplosion();
+        //已有的爆炸继续播放，新的被丢弃
+        assertFalse(first.isDestroyed());
+        assertFalse(second.isDestroyed());
+        assertTrue(third.isDestroyed());
+        assertEquals(2, budget.getCount(EntityBudget.CATEGORY_EXPLOSION));
+        assertEquals(1, budget.getDroppedExplosionCount());
+        assertEquals(0, budget.getRecycledExplosionCount());
+    }
+
+    @Test
+    public void totalLimitRecyclesExplosionsThenBullets(){
+        game.start();
+        budget.setTotalLimit(4);
+        Bullet bullet1 = addBullet();
+        Explosion explosion1 = addExplosion();
+        Bullet bullet2 = addBullet();
+        Explosion explosion2 = addExplosion();
+        assertEquals(4, budget.getTotalCount());
+
+        //新的爆炸不会挤掉其他Sprite
+        Explosion dropped = addExplosion();
+        assertTrue(dropped.isDestroyed());
+        assertFalse(explosion1.isDestroyed());
+        assertEquals(1, budget.getDroppedExplosionCount());
+
+        //先回收最旧的爆炸，再回收最旧的子弹
+        EnemyPlane enemy1 = addEnemy();
+        assertTrue(explosion1.isDestroyed());
+        assertFalse(explosion2.isDestroyed());
+        assertFalse(bullet1.isDestroyed());
+        addEnemy();
+        assertTrue(explosion2.isDestroyed());
+        assertFalse(bullet1.isDestroyed());
+        addEnemy();
+        assertTrue(bullet1.isDestroyed());
+        assertFalse(bullet2.isDestroyed());
+        EnemyPlane enemy4 = addEnemy();
+        assertTrue(bullet2.isDestroyed());
+        assertEquals(2, budget.getRecycledExplosionCount());
+        assertEquals(2, budget.getRecycledBulletCount());
+
+        //只剩敌机，新的敌机不能加入，已有的敌机不受影响
+        EnemyPlane rejected = addEnemy();
+        assertTrue(rejected.isDestroyed());
+        assertFalse(enemy1.isDestroyed());
+        assertFalse(enemy4.isDestroyed());
+        assertEquals(4, budget.getCount(EntityBudget.CATEGORY_ENEMY));
+        assertEquals(4, budget.getTotalCount());
+    }
+
+    @Test
+    public void enemySpawnIsDeferredAndHoldsTheTimeline() throws IOException {
+        //第二个敌机与奖品相隔两帧
+        game.setWaveTimeline(WaveTimeline.compile(new StringReader(
+                "0 single small 0.2 1\n"
+                + "10 single small 0.8 1\n"
+                + "12 award bomb 0.5\n")));
+        game.start();
+        budget.setLimit(EntityBudget.CATEGORY_ENEMY, 1);
+        game.step(renderer);
+        //战斗机移到右下角，不会打中敌机
+        game.moveCombatAircraftTo(renderer.getWidth(), renderer.getHeight());
+        for(int i = 0; i < 60; i++){
+            game.step(renderer);
+        }
+        assertEquals(1, game.getAliveEnemyPlanes().size());
+        EnemyPlane first = game.getAliveEnemyPlanes().get(0);
+        assertTrue(first.getX() < renderer.getWidth() / 2);
+        assertTrue(budget.getDeferredSpawnCount() > 0);
+        //奖品的帧早已过去，但时间线停在第二个敌机上，奖品还没有生成
+        assertEquals(0, budget.getCount(EntityBudget.CATEGORY_AWARD));
+
+        //有空位后第二个敌机在下一帧生成，时间线继续
+        first.destroy();
+        long deferred = budget.getDeferredSpawnCount();
+        game.step(renderer);
+        assertEquals(deferred, budget.getDeferredSpawnCount());
+        assertEquals(1, budget.getCount(EntityBudget.CATEGORY_ENEMY));
+        game.step(renderer);
+        assertEquals(0, budget.getCount(EntityBudget.CATEGORY_AWARD));
+        game.step(renderer);
+        assertEquals(1, budget.getCount(EntityBudget.CATEGORY_AWARD));
+        game.step(renderer);
+        //第一个敌机在左边，第二个在右边（对象池可能复用同一个对象）
+        EnemyPlane second = game.getAliveEnemyPlanes().get(0);
+        assertTrue(second.getX() > renderer.getWidth() / 2);
+        assertEquals(1, game.getAliveBombAwards().size());
+    }
+
+    @Test
+    public void awardSpawnIsDeferredUntilThereIsRoom() throws IOException {
+        game.setWaveTimeline(WaveTimeline.compile(new StringReader(
+                "0 award bullet 0.5\n"
+                + "1 single small 0.5 1\n")));
+        game.start();
+        budget.setLimit(EntityBudget.CATEGORY_AWARD, 0);
+        for(int i = 0; i < 20; i++){
+            game.step(renderer);
+        }
+        //奖品之后的敌机也在等待
+        assertEquals(0, budget.getCount(EntityBudget.CATEGORY_AWARD));
+        assertEquals(0, budget.getCount(EntityBudget.CATEGORY_ENEMY));
+        assertEquals(20, budget.getDeferredSpawnCount());
+
+        budget.setLimit(EntityBudget.CATEGORY_AWARD, 1);
+        game.step(renderer);
+        assertEquals(1, budget.getCount(EntityBudget.CATEGORY_AWARD));
+        game.step(renderer);
+        assertEquals(1, budget.getCount(EntityBudget.CATEGORY_ENEMY));
+        assertEquals(1, game.getAliveBulletAwards().size());
+    }
+}
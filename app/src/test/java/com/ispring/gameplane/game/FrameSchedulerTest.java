@@ -0,0 +1,61 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrameSchedulerTest {
+
+    private static final long SECOND_NANOS = 1000000000L;
+    private static final long JITTER_NANOS = 50000;
+
+    //以refreshRate的vsync（带±50微秒的抖动）驱动seconds秒，返回每秒推进的逻辑帧数
+    private static double ticksPerSecond(float refreshRate, int seconds, long seed){
+        FrameScheduler scheduler = new FrameScheduler(null, refreshRate);
+        Random random = new Random(seed);
+        long period = scheduler.getRefreshPeriodNanos();
+        long start = 5 * SECOND_NANOS;
+        int ticks = 0;
+        for(long vsync = 0; vsync * period <= seconds * SECOND_NANOS; vsync++){
+            long jitter = (long)((random.nextDouble() * 2 - 1) * JITTER_NANOS);
+            int frameTicks = scheduler.advance(start + vsync * period + jitter);
+            assertTrue(frameTicks == 0 || frameTicks == 1);
+            ticks += frameTicks;
+        }
+        return ticks / (double)seconds;
+    }
+
+    @Test
+    public void ticksAt60HzOnHighRefreshDisplays(){
+        float[] refreshRates = {60, 90, 120, 144, 165};
+        for(float refreshRate : refreshRates){
+            for(long seed = 1; seed <= 3; seed++){
+                assertEquals("refreshRate=" + refreshRate, 60, ticksPerSecond(refreshRate, 60, seed), 0.5);
+            }
+        }
+    }
+
+    @Test
+    public void doesNotCatchUpAfterStall(){
+        FrameScheduler scheduler = new FrameScheduler(null, 120);
+        long period = scheduler.getRefreshPeriodNanos();
+        long time = 0;
+        for(int i = 0; i < 120; i++){
+            scheduler.advance(time);
+            time += period;
+        }
+        //卡顿半秒后恢复，每次vsync最多推进一帧，卡顿的时间被丢弃
+        time += SECOND_NANOS / 2;
+        assertEquals(1, scheduler.advance(time));
+        long ticks = scheduler.getTickCount();
+        for(int i = 0; i < 120; i++){
+            time += period;
+            scheduler.advance(time);
+        }
+        assertEquals(60, scheduler.getTickCount() - ticks, 1);
+        assertTrue(scheduler.getJankFrameCount() >= 1);
+    }
+}
@@ -0,0 +1,89 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GameTimersTest {
+
+    private static final float DENSITY = 2;
+    private final Renderer renderer = new NullRenderer(720, 1280);
+
+    private static Game startGame(){
+        Game game = new Game(HeadlessRunner.createTextures(DENSITY), DENSITY, 7);
+        game.start();
+        return game;
+    }
+
+    private void step(Game game, int frames){
+        for(int i = 0; i < frames; i++){
+            assertEquals(Game.STATUS_GAME_STARTED, game.getStatus());
+            game.step(renderer);
+        }
+    }
+
+    //加入后播放完整的爆炸效果，之后被销毁
+    private void assertPlayedFromNow(Game game, Explosion explosion){
+        int frames = (int)(explosion.getDurationNanos() / Game.FRAME_NANOS);
+        step(game, frames - 1);
+        assertFalse(explosion.isDestroyed());
+        step(game, 1);
+        assertTrue(explosion.isDestroyed());
+    }
+
+    @Test
+    public void explosionTimerStartsWhenAdded(){
+        Game game = startGame();
+        int scheduled = game.getTimers().getScheduledCount();
+        Explosion explosion = game.obtainExplosion();
+        assertEquals(scheduled, game.getTimers().getScheduledCount());
+        step(game, 10);
+        assertFalse(explosion.isDestroyed());
+        game.addSprite(explosion);
+        assertPlayedFromNow(game, explosion);
+    }
+
+    @Test
+    public void explosionObtainedBeforeResetIsPlayedAfterIt(){
+        Game game = startGame();
+        step(game, 5);
+        Explosion explosion = game.obtainExplosion();
+        //游戏重新开始，定时器全部清除
+        game.destroy();
+        game.start();
+        step(game, 20);
+        game.addSprite(explosion);
+        assertPlayedFromNow(game, explosion);
+    }
+
+    @Test
+    public void recycledExplosionIsNotDestroyedByItsOldTimer(){
+        Game game = startGame();
+        Explosion explosion = game.obtainExplosion();
+        game.addSprite(explosion);
+        step(game, 5);
+        //重新开始时回收到对象池，下一次取出的是同一个对象
+        game.destroy();
+        game.start();
+        Explosion reused = game.obtainExplosion();
+        assertTrue(reused == explosion);
+        step(game, 20);
+        game.addSprite(reused);
+        assertPlayedFromNow(game, reused);
+    }
+
+    @Test
+    public void doubleBulletEndsWithoutStartFiring(){
+        Game game = startGame();
+        CombatAircraft aircraft = new CombatAircraft(game.getTextures().get(0));
+        aircraft.startDoubleBullet(game);
+        assertFalse(aircraft.isSingle());
+        TimerWheel timers = game.getTimers();
+        timers.advanceTo(CombatAircraft.DOUBLE_BULLET_NANOS - Game.FRAME_NANOS);
+        assertFalse(aircraft.isSingle());
+        timers.advanceTo(CombatAircraft.DOUBLE_BULLET_NANOS);
+        assertTrue(aircraft.isSingle());
+    }
+}
@@ -0,0 +1,244 @@
+package com.ispring.gameplane.game;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 无设备运行游戏，每帧的绘制命令由RecordingRenderer记录
+ * 纹理尺寸与res/drawable中的图片一致，按density缩放，与BitmapFactory.decodeResource的结果相同
+ * 可以在普通的JVM上统计绘制次数、过度绘制，并通过帧哈希做golden-frame比对
+ */
+public class HeadlessRunner {
+
+    //res/drawable中图片的尺寸，顺序与GameActivity中传给GameView.start的顺序一致
+    private static final int[][] TEXTURE_SIZES = {
+            {60, 76},//0:combatAircraft
+            {896, 64},//1:explosion
+            {4, 10},//2:yellowBullet
+            {4, 10},//3:blueBullet
+            {32, 23},//4:smallEnemyPlane
+            {38, 49},//5:middleEnemyPlane
+            {62, 90},//6:bigEnemyPlane
+            {37, 48},//7:bombAward
+            {37, 59},//8:bulletAward
+            {29, 30},//9:pause1
+            {29, 30},//10:pause2
+            {42, 45}//11:bomb
+    };
+
+    //纹理对应的res/drawable中的图片
+    private static final String[] TEXTURE_FILES = {
+            "plane.png", "explosion.png", "yellow_bullet.png", "blue_bullet.png", "small.png", "middle.png",
+            "big.png", "bomb_award.png", "bullet_award.png", "pause1.png", "pause2.png", "bomb.png"
+    };
+
+    //TextPaint的默认字体大小
+    private static final float DEFAULT_TEXT_SIZE = 12;
+
+    private Game game;
+    private Hud hud;
+    private RecordingRenderer renderer;
+
+    public HeadlessRunner(int width, int height, float density){
+        game = new Game(createTextures(density), density);
+        hud = new Hud(density, DEFAULT_TEXT_SIZE * density);
+        renderer = new RecordingRenderer(width, height);
+    }
+
+    public static List<Texture> createTextures(float density){
+        List<Texture> textures = new ArrayList<Texture>();
+        for(int i = 0; i < TEXTURE_SIZES.length; i++){
+            int width = (int)(TEXTURE_SIZES[i][0] * density + 0.5f);
+            int height = (int)(TEXTURE_SIZES[i][1] * density + 0.5f);
+            textures.add(new Texture(i, width, height));
+        }
+        return textures;
+    }
+
+    //从res/drawable目录读取图片的alpha通道，为纹理生成像素级碰撞的掩码，见CollisionMask
+    public static void loadCollisionMasks(List<Texture> textures, String drawableDir) throws IOException {
+        for(int i = 0; i < textures.size(); i++){
+            Texture texture = textures.get(i);
+            InputStream in = new FileInputStream(drawableDir + "/" + TEXTURE_FILES[i]);
+            try{
+                texture.setCollisionMask(CollisionMask.fromPng(in, texture.getWidth(), texture.getHeight(),
+                        CollisionMask.DEFAULT_ALPHA_THRESHOLD));
+            }finally {
+                in.close();
+            }
+        }
+    }
+
+    //工程中的res目录，测试可能在app目录（Gradle）或工程根目录中运行
+    public static File getResDir(){
+        File dir = new File("src/main/res");
+        return dir.isDirectory() ? dir : new File("app/src/main/res");
+    }
+
+    //读取UTF-8编码的文本文件，例如关卡文件
+    public static String readFile(String path) throws IOException {
+        InputStream in = new FileInputStream(path);
+        try{
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while((n = in.read(buffer)) > 0){
+                bytes.write(buffer, 0, n);
+            }
+            return new String(bytes.toByteArray(), "UTF-8");
+        }finally {
+            in.close();
+        }
+    }
+
+    public void start(){
+        game.destroy();
+        game.start();
+    }
+
+    //推进并绘制一帧，与GameView在STATUS_GAME_STARTED状态下的绘制相同，返回游戏是否仍在进行
+    public boolean stepFrame(){
+        renderer.beginFrame();
+        if(game.getStatus() == Game.STATUS_GAME_STARTED){
+            Tracer tracer = game.getTracer();
+            long t = tracer.begin();
+            hud.drawScoreAndBombs(renderer, game);
+            tracer.end("Hud.drawScoreAndBombs", t);
+            game.step(renderer);
+        }
+        return game.getStatus() == Game.STATUS_GAME_STARTED;
+    }
+
+    public Game getGame(){
+        return game;
+    }
+
+    public Hud getHud(){
+        return hud;
+    }
+
+    public RecordingRenderer getRenderer(){
+        return renderer;
+    }
+
+    /*
+     * 用法：HeadlessRunner [frames] [dumpFrame] [level] [drawableDir] [traceFile]
+     * 运行指定帧数，输出每帧平均绘制次数、过度绘制和最后一帧的哈希，
+     * 指定dumpFrame时输出该帧的绘制命令，指定level时按该关卡文件生成敌机（如res/raw/level1.txt，"-"表示不使用），
+     * 指定drawableDir时由其中的图片生成碰撞掩码，做像素级碰撞检测（"-"表示不使用），
+     * 指定traceFile时记录每个Sprite的绘制并导出Chrome Trace Event格式的时间线，同时输出最慢的一帧
+     */
+    public static void main(String[] args) throws IOException {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 3600;
+        int dumpFrame = args.length > 1 ? Integer.parseInt(args[1]) : -1;
+        float density = 2;
+        HeadlessRunner runner = new HeadlessRunner((int)(360 * density), (int)(640 * density), density);
+        if(args.length > 3 && !"-".equals(args[3])){
+            loadCollisionMasks(runner.getGame().getTextures(), args[3]);
+        }
+        if(args.length > 2 && !"-".equals(args[2])){
+            Reader reader = new InputStreamReader(new FileInputStream(args[2]), "UTF-8");
+            try{
+                runner.getGame().setWaveTimeline(WaveTimeline.compile(reader));
+            }finally {
+                reader.close();
+            }
+        }
+        Tracer tracer = runner.getGame().getTracer();
+        if(args.length > 4){
+            tracer.setEnabled(true);
+            tracer.setDetailed(true);
+        }
+        //像统计服务一样统计游戏事件
+        final long[] kills = new long[WaveTimeline.TYPE_COUNT];
+        final long[] eventCounts = new long[GameEvents.TYPE_GAME_OVER + 1];
+        runner.getGame().getEvents().addListener(new GameEvents.Listener() {
+            @Override
+            public void onGameEvent(int type, int arg, long value, float x, float y, long frame) {
+                eventCounts[type]++;
+                if(type == GameEvents.TYPE_ENEMY_KILLED){
+                    kills[arg]++;
+                }
+            }
+        });
+        //音效只记录不播放，检查同时播放的声音数
+        RecordingSoundBackend soundBackend = new RecordingSoundBackend();
+        SoundEffects soundEffects = new SoundEffects(soundBackend);
+        runner.getGame().getEvents().addListener(soundEffects);
+        runner.start();
+        RecordingRenderer renderer = runner.getRenderer();
+        soundEffects.setScreenWidth(renderer.getWidth());
+        long drawCalls = 0;
+        int maxDrawCalls = 0;
+        double overdraw = 0;
+        float maxOverdraw = 0;
+        long pairTests = 0;
+        long maskTests = 0;
+        int frame = 0;
+        long slowestFrameNanos = 0;
+        int slowestFrame = 0;
+        long begin = System.nanoTime();
+        while(frame < frames){
+            long frameBegin = System.nanoTime();
+            boolean running = runner.stepFrame();
+            soundBackend.setFrame(runner.getGame().getFrame());
+            soundEffects.flush(runner.getGame().getFrame());
+            long frameNanos = System.nanoTime() - frameBegin;
+            if(frameNanos > slowestFrameNanos){
+                slowestFrameNanos = frameNanos;
+                slowestFrame = frame;
+            }
+            frame++;
+            drawCalls += renderer.getDrawCallCount();
+            maxDrawCalls = Math.max(maxDrawCalls, renderer.getDrawCallCount());
+            overdraw += renderer.getOverdraw();
+            maxOverdraw = Math.max(maxOverdraw, renderer.getOverdraw());
+            pairTests += runner.getGame().getCollisionSystem().getPairTestCount();
+            maskTests += runner.getGame().getCollisionSystem().getMaskTestCount();
+            if(frame == dumpFrame){
+                System.out.print(renderer.dump());
+            }
+            if(!running){
+                break;
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+        EntityBudget budget = runner.getGame().getEntityBudget();
+        System.out.println("frames=" + frame + " score=" + runner.getGame().getScore()
+                + " avgDrawCalls=" + (drawCalls / (float)frame) + " maxDrawCalls=" + maxDrawCalls
+                + " avgOverdraw=" + (float)(overdraw / frame) + " maxOverdraw=" + maxOverdraw
+                + " culled=" + runner.getGame().getCuller().getTotalCulledCount()
+                + " despawned=" + runner.getGame().getCuller().getTotalDespawnedCount()
+                + " avgPairTests=" + (pairTests / (float)frame) + " maskTests=" + maskTests
+                + " peakSprites=" + budget.getPeakTotalCount() + " recycledBullets=" + budget.getRecycledBulletCount()
+                + " droppedExplosions=" + budget.getDroppedExplosionCount() + " deferredSpawns=" + budget.getDeferredSpawnCount()
+                + " kills=" + kills[WaveTimeline.TYPE_SMALL] + "/" + kills[WaveTimeline.TYPE_MIDDLE] + "/" + kills[WaveTimeline.TYPE_BIG]
+                + "/" + kills[WaveTimeline.TYPE_BOSS] + " pickups=" + eventCounts[GameEvents.TYPE_AWARD_PICKED_UP]
+                + " events=" + runner.getGame().getEvents().getPublishedCount()
+                + " sounds=" + soundEffects.getPlayedCount() + "/" + soundEffects.getRequestedCount()
+                + " maxVoices=" + soundBackend.getMaxActiveVoices() + " maxSoundsPerFrame=" + soundBackend.getMaxPlaysPerFrame()
+                + " lastFrameHash=" + Long.toHexString(renderer.getFrameHash())
+                + " usPerFrame=" + (elapsed / 1000f / frame)
+                + " slowestFrame=" + slowestFrame + " slowestFrameUs=" + (slowestFrameNanos / 1000f));
+        if(args.length > 4){
+            Writer writer = new OutputStreamWriter(new FileOutputStream(args[4]), "UTF-8");
+            try{
+                tracer.writeJson(writer);
+            }finally {
+                writer.close();
+            }
+            System.out.println("trace=" + args[4] + " events=" + tracer.getEventCount()
+                    + " overwritten=" + tracer.getOverwrittenCount());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+
+public class HeadlessRunnerTest {
+
+    //运行最多frames帧，返回实际运行的帧数
+    private static int run(HeadlessRunner runner, int frames){
+        runner.start();
+        int frame = 0;
+        while(frame < frames){
+            boolean running = runner.stepFrame();
+            frame++;
+            if(!running){
+                break;
+            }
+        }
+        return frame;
+    }
+
+    @Test
+    public void level1MatchesGoldenFrame() throws IOException {
+        File res = HeadlessRunner.getResDir();
+        HeadlessRunner runner = new HeadlessRunner(720, 1280, 2);
+        HeadlessRunner.loadCollisionMasks(runner.getGame().getTextures(), new File(res, "drawable").getPath());
+        String level = HeadlessRunner.readFile(new File(res, "raw/level1.txt").getPath());
+        runner.getGame().setWaveTimeline(WaveTimeline.compile(new StringReader(level)));
+        assertEquals(453, run(runner, 600));
+        assertEquals(2000, runner.getGame().getScore());
+        assertEquals("b879b565a85d9a8f", Long.toHexString(runner.getRenderer().getFrameHash()));
+    }
+
+    @Test
+    public void randomSpawnsMatchGoldenFrame(){
+        HeadlessRunner runner = new HeadlessRunner(720, 1280, 2);
+        assertEquals(374, run(runner, 5000));
+        assertEquals(1000, runner.getGame().getScore());
+        assertEquals("268828266b51caa5", Long.toHexString(runner.getRenderer().getFrameHash()));
+    }
+
+    @Test
+    public void restartReplaysTheSameGame(){
+        HeadlessRunner runner = new HeadlessRunner(720, 1280, 2);
+        run(runner, 300);
+        long hash = runner.getRenderer().getFrameHash();
+        run(runner, 300);
+        assertEquals(hash, runner.getRenderer().getFrameHash());
+    }
+}
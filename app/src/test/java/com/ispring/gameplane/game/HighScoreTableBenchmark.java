@@ -0,0 +1,47 @@
+package com.ispring.gameplane.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * 打印HighScoreTable中的排行榜，测量记录和读取的耗时
+ */
+public class HighScoreTableBenchmark {
+
+    /*
+     * 打印排行榜并测试记录和读取的耗时
+     * HighScoreTableBenchmark <file> [updates]
+     */
+    public static void main(String[] args) throws IOException {
+        File file = new File(args.length > 0 ? args[0] : "highscores.bin");
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        HighScoreTable table = HighScoreTable.open(file);
+        if(updates > 0){
+            int[] profiles = {table.getProfile("player"), table.getProfile("guest")};
+            Random random = new Random(1);
+            long maxRecordNanos = 0;
+            long begin = System.nanoTime();
+            for(int i = 0; i < updates; i++){
+                long t = System.nanoTime();
+                table.record(profiles[i & 1], random.nextInt(1000000), System.currentTimeMillis());
+                maxRecordNanos = Math.max(maxRecordNanos, System.nanoTime() - t);
+            }
+            long recordNanos = (System.nanoTime() - begin) / updates;
+            begin = System.nanoTime();
+            long checksum = 0;
+            for(int i = 0; i < updates; i++){
+                for(int rank = 0; rank < table.getCount(); rank++){
+                    checksum += table.getScore(rank) + table.getProfileOf(rank);
+                }
+            }
+            long readNanos = (System.nanoTime() - begin) / updates;
+            System.out.println("nsPerRecord=" + recordNanos + " maxRecordUs=" + (maxRecordNanos / 1000f)
+                    + " nsPerBoardRead=" + readNanos + " checksum=" + checksum);
+        }
+        for(int rank = 0; rank < table.getCount(); rank++){
+            System.out.println((rank + 1) + " " + table.getScore(rank) + " " + table.getProfileName(table.getProfileOf(rank))
+                    + " " + table.getTime(rank));
+        }
+    }
+}
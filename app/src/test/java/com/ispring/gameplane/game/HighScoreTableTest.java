@@ -0,0 +1,140 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class HighScoreTableTest {
+
+    private static final int CAPACITY = 4;
+    private static final int MAX_PROFILES = 2;
+    //与HighScoreTable中的文件布局一致
+    private static final int OFFSET_GENERATION = 16;
+    private static final int GLOBAL_OFFSET = 32 + MAX_PROFILES * (HighScoreTable.NAME_LENGTH * 2 + 8 + CAPACITY * 16);
+    private static final int GLOBAL_ENTRY_SIZE = 24;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static long[] globalScores(HighScoreTable table){
+        long[] scores = new long[table.getCount()];
+        for(int rank = 0; rank < scores.length; rank++){
+            scores[rank] = table.getScore(rank);
+        }
+        return scores;
+    }
+
+    private static String toString(long[] scores){
+        return Arrays.toString(scores);
+    }
+
+    @Test
+    public void keepsBestScoresInOrder() throws Exception {
+        File file = folder.newFile("highscores.bin");
+        HighScoreTable table = HighScoreTable.open(file, CAPACITY, MAX_PROFILES);
+        int player = table.getProfile("player");
+        int guest = table.getProfile("guest");
+        assertEquals(0, table.record(player, 300, 1));
+        assertEquals(0, table.record(guest, 500, 2));
+        assertEquals(2, table.record(player, 100, 3));
+        assertEquals(2, table.record(player, 300, 4));//分数相同时先到的在前
+        assertEquals(-1, table.record(guest, 50, 5));
+        assertEquals("[500, 300, 300, 100]", toString(globalScores(table)));
+        assertEquals(1L, table.getTime(1));
+        assertEquals(guest, table.getProfileOf(0));
+        assertEquals(3, table.getGames(player));
+        assertEquals(2, table.getCount(guest));
+
+        table = HighScoreTable.open(file, CAPACITY, MAX_PROFILES);
+        assertEquals("[500, 300, 300, 100]", toString(globalScores(table)));
+        assertEquals("guest", table.getProfileName(table.getProfileOf(0)));
+    }
+
+    @Test
+    public void rejectsEmptyProfileName() throws Exception {
+        HighScoreTable table = HighScoreTable.open(folder.newFile("highscores.bin"), CAPACITY, MAX_PROFILES);
+        int player = table.getProfile("player");
+        for(String name : new String[]{"", "\0guest"}){
+            try{
+                table.getProfile(name);
+                fail("accepted " + name);
+            }catch (IllegalArgumentException e){
+                //空的玩家名会被当作空位，不能占用
+            }
+        }
+        //之前的空名字不会占用空位，另一个玩家仍然可以加入
+        int guest = table.getProfile("guest");
+        assertEquals(1 - player, guest);
+        assertEquals(player, table.getProfile("player"));
+    }
+
+    @Test
+    public void repairsInterruptedWrite() throws Exception {
+        File file = folder.newFile("highscores.bin");
+        HighScoreTable table = HighScoreTable.open(file, CAPACITY, MAX_PROFILES);
+        int player = table.getProfile("player");
+        table.record(player, 500, 1);
+        table.record(player, 300, 2);
+        table.record(player, 200, 3);
+        table.record(player, 100, 4);
+        table.force();
+
+        //记录400分时进程被杀死：generation已经加1，总榜的第3条和第2条已经依次后移，还没有写入新的记录
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(OFFSET_GENERATION);
+        int generation = raf.readInt();
+        raf.seek(OFFSET_GENERATION);
+        raf.writeInt(generation + 1);
+        copyGlobalEntry(raf, 2, 3);
+        copyGlobalEntry(raf, 1, 2);
+        raf.close();
+
+        table = HighScoreTable.open(file, CAPACITY, MAX_PROFILES);
+        assertEquals("[500, 300, 200]", toString(globalScores(table)));
+        raf = new RandomAccessFile(file, "r");
+        raf.seek(OFFSET_GENERATION);
+        assertEquals(0, raf.readInt() & 1);
+        raf.close();
+        assertEquals(1, table.record(player, 400, 5));
+        assertEquals("[500, 400, 300, 200]", toString(globalScores(table)));
+    }
+
+    private static void copyGlobalEntry(RandomAccessFile raf, int from, int to) throws IOException {
+        byte[] entry = new byte[GLOBAL_ENTRY_SIZE];
+        raf.seek(GLOBAL_OFFSET + 8 + from * GLOBAL_ENTRY_SIZE);
+        raf.readFully(entry);
+        raf.seek(GLOBAL_OFFSET + 8 + to * GLOBAL_ENTRY_SIZE);
+        raf.write(entry);
+    }
+
+    @Test
+    public void discardsEntriesOutOfOrder() throws Exception {
+        File file = folder.newFile("highscores.bin");
+        HighScoreTable table = HighScoreTable.open(file, CAPACITY, MAX_PROFILES);
+        int player = table.getProfile("player");
+        table.record(player, 500, 1);
+        table.record(player, 300, 2);
+        table.force();
+
+        //中断的写入在第2条留下了比第1条更高的分数
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(OFFSET_GENERATION);
+        int generation = raf.readInt();
+        raf.seek(OFFSET_GENERATION);
+        raf.writeInt(generation + 1);
+        raf.seek(GLOBAL_OFFSET + 8 + GLOBAL_ENTRY_SIZE);
+        raf.writeLong(900);
+        raf.close();
+
+        table = HighScoreTable.open(file, CAPACITY, MAX_PROFILES);
+        assertEquals("[500]", toString(globalScores(table)));
+    }
+}
@@ -0,0 +1,41 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HudTest {
+
+    private static final float DENSITY = 2;
+    private static final int WIDTH = (int)(360 * DENSITY);
+    private static final int HEIGHT = (int)(640 * DENSITY);
+
+    //对话框按钮所在的行
+    private static final float BUTTON_Y = (150 + 60 + 124 + 76 / 2) / 558f * HEIGHT;
+
+    private static Game createGame(){
+        return new Game(HeadlessRunner.createTextures(DENSITY), DENSITY, 1);
+    }
+
+    @Test
+    public void replayButtonIsNextToRestart(){
+        Hud hud = new Hud(DENSITY, 12 * DENSITY);
+        RecordingRenderer renderer = new RecordingRenderer(WIDTH, HEIGHT);
+        renderer.beginFrame();
+        hud.drawScoreDialog(renderer, createGame(), "restart", "replay");
+        float left = WIDTH * 0.35f;
+        float right = WIDTH * 0.65f;
+        assertTrue(hud.isClickContinueButton(left, BUTTON_Y));
+        assertFalse(hud.isClickReplayButton(left, BUTTON_Y));
+        assertTrue(hud.isClickReplayButton(right, BUTTON_Y));
+        assertFalse(hud.isClickContinueButton(right, BUTTON_Y));
+        assertFalse(hud.isClickReplayButton(WIDTH / 2, BUTTON_Y));
+        assertFalse(hud.isClickContinueButton(WIDTH / 2, BUTTON_Y));
+
+        //暂停时的对话框只有继续按钮
+        hud.drawScoreDialog(renderer, createGame(), "continue");
+        assertTrue(hud.isClickContinueButton(WIDTH / 2, BUTTON_Y));
+        assertFalse(hud.isClickReplayButton(right, BUTTON_Y));
+    }
+}
@@ -0,0 +1,177 @@
+package com.ispring.gameplane.game;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 在一个JVM中通过本机UDP运行网络对战：主机玩家和远程玩家的两个Game，以及显示远程玩家画面的NetClient，
+ * 两名玩家都由机器人操作
+ * 每帧检查客户端解码出的快照与主机发送的快照是否完全相同，统计双向的带宽、完整快照的比例以及输入的确认延迟
+ */
+public class NetLoopback {
+
+    //左右来回移动、偶尔上下移动、偶尔使用炸弹的机器人
+    private static class Bot {
+        private final Random random;
+        private final float density;
+        private final int width;
+        private final int height;
+        private float x;
+        private float y;
+        private int frame = 0;
+
+        Bot(long seed, float density, int width, int height){
+            random = new Random(seed);
+            this.density = density;
+            this.width = width;
+            this.height = height;
+            x = width / 2;
+            y = height * 0.85f;
+        }
+
+        //返回0表示不操作，1表示移动到(x, y)，2表示使用炸弹
+        int next(){
+            frame++;
+            if(random.nextInt(600) == 0){
+                return InputLog.TYPE_BOMB;
+            }
+            if(frame % 4 != 0){
+                return 0;
+            }
+            x += (random.nextFloat() - 0.5f) * 24 * density;
+            x = Math.max(0, Math.min(width, x));
+            if(random.nextInt(20) == 0){
+                y = height * (0.6f + random.nextFloat() * 0.3f);
+            }
+            return InputLog.TYPE_MOVE;
+        }
+    }
+
+    private static Game createGame(List<Texture> textures, float density, long seed, String levelFile) throws IOException {
+        Game game = new Game(textures, density, seed);
+        if(levelFile != null){
+            Reader reader = new InputStreamReader(new FileInputStream(levelFile), "UTF-8");
+            try{
+                game.setWaveTimeline(WaveTimeline.compile(reader));
+            }finally {
+                reader.close();
+            }
+        }
+        game.start();
+        return game;
+    }
+
+    /*
+     * 用法：NetLoopback [frames] [lossPercent] [level] [realtime]
+     * 运行frames帧（默认3600），双向按lossPercent模拟丢包，指定level时按该关卡文件生成敌机（"-"表示不使用），
+     * realtime为1时按每秒60帧运行，延迟以毫秒计才有意义，否则以最快速度运行，延迟只看帧数
+     */
+    public static void main(String[] args) throws Exception {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 3600;
+        float loss = args.length > 1 ? Float.parseFloat(args[1]) / 100 : 0;
+        String level = args.length > 2 && !"-".equals(args[2]) ? args[2] : null;
+        boolean realtime = args.length > 3 && "1".equals(args[3]);
+        float density = 2;
+        int width = (int)(360 * density);
+        int height = (int)(640 * density);
+        long seed = 42;
+
+        List<Texture> textures = HeadlessRunner.createTextures(density);
+        Game hostGame = createGame(textures, density, seed, level);
+        Game remoteGame = createGame(textures, density, seed, level);
+        NetHost host = new NetHost(remoteGame, 0);
+        host.setLossRate(loss);
+        NetClient client = new NetClient(new InetSocketAddress("127.0.0.1", host.getPort()), width, height, density);
+        client.setLossRate(loss);
+
+        Renderer hostRenderer = new NullRenderer(width, height);
+        RecordingRenderer clientRenderer = new RecordingRenderer(width, height);
+        Bot hostBot = new Bot(1, density, width, height);
+        Bot clientBot = new Bot(2, density, width, height);
+        long checked = 0;
+        long mismatches = 0;
+        int lastChecked = 0;
+        //远程玩家的游戏结束前的帧数和主机发送的字节数，游戏结束后的快照几乎没有变化
+        int activeFrames = 0;
+        long activeBytes = 0;
+        long begin = System.nanoTime();
+        for(int frame = 0; frame < frames; frame++){
+            long frameBegin = System.nanoTime();
+            //主机玩家
+            if(host.isConnected() && hostGame.getStatus() == Game.STATUS_GAME_STARTED){
+                int action = hostBot.next();
+                if(action == InputLog.TYPE_MOVE){
+                    hostGame.moveCombatAircraftTo(hostBot.x, hostBot.y);
+                }else if(action == InputLog.TYPE_BOMB){
+                    hostGame.bomb();
+                }
+                hostGame.step(hostRenderer);
+            }
+            //远程玩家
+            if(client.isConnected()){
+                int action = clientBot.next();
+                if(action == InputLog.TYPE_MOVE){
+                    client.moveTo(clientBot.x, clientBot.y);
+                }else if(action == InputLog.TYPE_BOMB){
+                    client.bomb();
+                }
+            }
+            client.update();
+            host.setOpponentScore(hostGame.getScore());
+            host.step();
+            if(remoteGame.getStatus() == Game.STATUS_GAME_STARTED){
+                activeFrames = frame + 1;
+                activeBytes = host.getBytesSent() + host.getPacketsSent() * 28;
+            }
+
+            //客户端解码的快照必须与主机发送的相同
+            NetSnapshot received = client.getLatestSnapshot();
+            if(received != null && received.getSequence() != lastChecked){
+                lastChecked = received.getSequence();
+                NetSnapshot sent = host.getSentSnapshot(lastChecked);
+                if(sent != null){
+                    checked++;
+                    if(!sent.contentEquals(received)){
+                        mismatches++;
+                    }
+                }
+            }
+            clientRenderer.beginFrame();
+            client.draw(clientRenderer, textures);
+
+            if(realtime){
+                long sleep = Game.FRAME_NANOS - (System.nanoTime() - frameBegin);
+                if(sleep > 0){
+                    Thread.sleep(sleep / 1000000, (int)(sleep % 1000000));
+                }
+            }
+        }
+        double seconds = frames / 60.0;
+        long elapsed = System.nanoTime() - begin;
+        //UDP和IPv4的包头共28字节
+        long hostBytes = host.getBytesSent() + host.getPacketsSent() * 28;
+        long clientBytes = client.getBytesSent() + client.getPacketsSent() * 28;
+        System.out.println("frames=" + frames + " loss=" + loss
+                + " hostScore=" + hostGame.getScore() + " remoteScore=" + remoteGame.getScore()
+                + " snapshots=" + host.getPacketsSent() + " received=" + client.getSnapshotsReceived()
+                + " full=" + host.getFullSnapshotCount()
+                + " avgSnapshotBytes=" + (host.getBytesSent() / (float)Math.max(1, host.getPacketsSent()))
+                + " oversized=" + host.getOversizedCount() + " droppedProjectiles=" + host.getDroppedProjectileCount()
+                + " downKBps=" + (float)(hostBytes / seconds / 1024) + " upKBps=" + (float)(clientBytes / seconds / 1024)
+                + " activeFrames=" + activeFrames + " activeDownKBps=" + (float)(activeBytes / (Math.max(1, activeFrames) / 60.0) / 1024)
+                + " undecodable=" + client.getUndecodableSnapshotCount() + " stale=" + client.getStaleSnapshotCount()
+                + " checked=" + checked + " mismatches=" + mismatches
+                + " inputLatencyFrames=" + client.getAverageLatencyFrames() + "/" + client.getMaxLatencyFrames()
+                + " inputLatencyMs=" + client.getAverageLatencyMillis() + "/" + client.getMaxLatencyMillis()
+                + " interpolationDelayMs=" + (NetClient.INTERPOLATION_FRAMES * 1000 / 60)
+                + " clientDrawCalls=" + clientRenderer.getDrawCallCount()
+                + " usPerFrame=" + (elapsed / 1000f / frames));
+        client.close();
+        host.close();
+    }
+}
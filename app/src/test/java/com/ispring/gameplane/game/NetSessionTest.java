@@ -0,0 +1,105 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NetSessionTest {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private interface Condition {
+        boolean holds();
+    }
+
+    private static void waitUntil(String what, Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while(!condition.holds()){
+            assertTrue("timed out waiting for " + what, System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void clientPlaysTheGameRunByTheHost() throws Exception {
+        float density = 2;
+        int width = (int)(360 * density);
+        int height = (int)(640 * density);
+        List<Texture> textures = HeadlessRunner.createTextures(density);
+        Game remoteGame = new Game(textures, density, 42);
+        remoteGame.start();
+        final NetSession host = NetSession.host(remoteGame, 0);
+        waitUntil("host socket", new Condition() {
+            @Override
+            public boolean holds() {
+                return host.getPort() > 0;
+            }
+        });
+        assertTrue(host.isHost());
+        assertFalse(host.isConnected());
+
+        final NetSession client = NetSession.join("127.0.0.1", host.getPort(), width, height, density);
+        try{
+            waitUntil("first snapshot", new Condition() {
+                @Override
+                public boolean holds() {
+                    return client.isConnected();
+                }
+            });
+            assertTrue(host.isConnected());
+            host.setOpponentScore(1234);
+            waitUntil("host score", new Condition() {
+                @Override
+                public boolean holds() {
+                    return client.getHostScore() == 1234;
+                }
+            });
+
+            //客户端的输入在主机的Game中生效
+            final float x = width / 4;
+            client.moveTo(x, height * 0.8f);
+            final Game game = remoteGame;
+            waitUntil("aircraft moved", new Condition() {
+                @Override
+                public boolean holds() {
+                    synchronized (host){
+                        CombatAircraft aircraft = game.getCombatAircraft();
+                        return aircraft.getX() + aircraft.getWidth() / 2 == x;
+                    }
+                }
+            });
+
+            RecordingRenderer renderer = new RecordingRenderer(width, height);
+            renderer.beginFrame();
+            client.draw(renderer, textures);
+            assertTrue(renderer.getDrawCallCount() > 0);
+            assertEquals(Game.STATUS_GAME_STARTED, client.getStatus());
+            assertNull(client.getError());
+            assertNull(host.getError());
+        }finally {
+            client.close();
+            host.close();
+        }
+    }
+
+    @Test
+    public void unknownHostIsReported() throws Exception {
+        final NetSession client = NetSession.join("no-such-host.invalid", NetSession.DEFAULT_PORT, 100, 100, 1);
+        try{
+            waitUntil("error", new Condition() {
+                @Override
+                public boolean holds() {
+                    return client.getError() != null;
+                }
+            });
+            assertFalse(client.isConnected());
+        }finally {
+            client.close();
+        }
+    }
+}
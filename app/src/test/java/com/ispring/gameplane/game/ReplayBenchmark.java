@@ -0,0 +1,124 @@
+package com.ispring.gameplane.game;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 测量Replay的文件大小、随机定位和逐帧播放的耗时
+ */
+public class ReplayBenchmark {
+
+    /*
+     * 用法：ReplayBenchmark [frames] [level] [file]
+     * 录制frames帧（默认3600）的回放，游戏结束后换一个种子重新开始，继续录制到同一个回放中，
+     * 指定level时按该关卡文件生成敌机（"-"表示不使用），指定file时写入该文件，否则写入临时文件
+     * 输出每分钟的文件大小（与只写关键帧相比），随机定位和逐帧播放的耗时，
+     * 并检查每一帧解码后绘制的结果与录制时相同
+     */
+    public static void main(String[] args) throws IOException {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 3600;
+        String level = args.length > 1 && !"-".equals(args[1]) ? args[1] : null;
+        File file = args.length > 2 ? new File(args[2]) : File.createTempFile("replay", ".bin");
+        float density = 2;
+        HeadlessRunner runner = new HeadlessRunner((int)(360 * density), (int)(640 * density), density);
+        Game game = runner.getGame();
+        if(level != null){
+            Reader reader = new InputStreamReader(new FileInputStream(level), "UTF-8");
+            try{
+                game.setWaveTimeline(WaveTimeline.compile(reader));
+            }finally {
+                reader.close();
+            }
+        }
+        List<Texture> textures = game.getTextures();
+        float projectileSize = EnemyProjectiles.RADIUS * density * 2;
+        RecordingRenderer check = new RecordingRenderer(runner.getRenderer().getWidth(), runner.getRenderer().getHeight());
+
+        ReplayRecorder recorder = new ReplayRecorder();
+        ReplayRecorder keyframesOnly = new ReplayRecorder(1);
+        long[] hashes = new long[frames];
+        long recordNanos = 0;
+        int games = 1;
+        runner.start();
+        for(int frame = 0; frame < frames; frame++){
+            if(!runner.stepFrame()){
+                game.setSeed(games++);
+                runner.start();
+                runner.stepFrame();
+            }
+            long t = System.nanoTime();
+            recorder.record(game, runner.getRenderer());
+            recordNanos += System.nanoTime() - t;
+            keyframesOnly.record(game, runner.getRenderer());
+            check.beginFrame();
+            recorder.getLastSnapshot().draw(check, textures, projectileSize);
+            hashes[frame] = check.getFrameHash();
+        }
+        recorder.save(file);
+        Replay replay = Replay.open(file);
+        if(replay.getFrameCount() != frames){
+            throw new IllegalStateException("frameCount=" + replay.getFrameCount());
+        }
+
+        //逐帧播放
+        int mismatches = 0;
+        long t = System.nanoTime();
+        for(int frame = 0; frame < frames; frame++){
+            replay.seek(frame);
+        }
+        long playNanos = System.nanoTime() - t;
+        for(int frame = 0; frame < frames; frame++){
+            check.beginFrame();
+            replay.seek(frame).draw(check, textures, projectileSize);
+            if(check.getFrameHash() != hashes[frame]){
+                mismatches++;
+            }
+        }
+
+        //随机定位，先预热一遍
+        int seeks = 2000;
+        Random random = new Random(2);
+        for(int i = 0; i < seeks; i++){
+            replay.seek(random.nextInt(frames));
+        }
+        random = new Random(1);
+        long[] seekNanos = new long[seeks];
+        for(int i = 0; i < seeks; i++){
+            int frame = random.nextInt(frames);
+            t = System.nanoTime();
+            NetSnapshot snapshot = replay.seek(frame);
+            seekNanos[i] = System.nanoTime() - t;
+            check.beginFrame();
+            snapshot.draw(check, textures, projectileSize);
+            if(check.getFrameHash() != hashes[frame]){
+                mismatches++;
+            }
+        }
+        Arrays.sort(seekNanos);
+        long seekSum = 0;
+        for(long nanos : seekNanos){
+            seekSum += nanos;
+        }
+        double minutes = frames / 3600.0;
+        System.out.println("frames=" + frames + " games=" + games + " file=" + file
+                + " bytes=" + file.length() + " keyframes=" + recorder.getKeyframeCount()
+                + " bytesPerMinute=" + (long)(file.length() / minutes)
+                + " keyframesOnlyBytesPerMinute=" + (long)(keyframesOnly.getSize() / minutes)
+                + " avgBytesPerFrame=" + (file.length() / (float)frames)
+                + " recordUsPerFrame=" + (recordNanos / 1000f / frames)
+                + " playUsPerFrame=" + (playNanos / 1000f / frames)
+                + " seekUsAvg=" + (seekSum / 1000f / seeks)
+                + " seekUsP99=" + (seekNanos[seeks * 99 / 100] / 1000f)
+                + " seekUsMax=" + (seekNanos[seeks - 1] / 1000f)
+                + " mismatches=" + mismatches);
+        if(args.length <= 2){
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReplayTest {
+
+    private static final int FRAMES = 500;
+    private static final float DENSITY = 2;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    //录制FRAMES帧，游戏结束后换一个种子继续录制，hashes中为每一帧录制的快照绘制的结果
+    private Replay record(int keyframeInterval, long[] hashes) throws Exception {
+        HeadlessRunner runner = new HeadlessRunner(720, 1280, DENSITY);
+        Game game = runner.getGame();
+        RecordingRenderer check = new RecordingRenderer(720, 1280);
+        ReplayRecorder recorder = new ReplayRecorder(keyframeInterval);
+        int games = 1;
+        runner.start();
+        for(int frame = 0; frame < FRAMES; frame++){
+            if(!runner.stepFrame()){
+                game.setSeed(games++);
+                runner.start();
+                runner.stepFrame();
+            }
+            recorder.record(game, runner.getRenderer());
+            hashes[frame] = draw(recorder.getLastSnapshot(), game.getTextures(), check);
+        }
+        File file = folder.newFile();
+        recorder.save(file);
+        return Replay.open(file);
+    }
+
+    private static long draw(NetSnapshot snapshot, List<Texture> textures, RecordingRenderer renderer){
+        renderer.beginFrame();
+        snapshot.draw(renderer, textures, EnemyProjectiles.RADIUS * DENSITY * 2);
+        return renderer.getFrameHash();
+    }
+
+    @Test
+    public void seekMatchesSequentialDecode() throws Exception {
+        long[] recorded = new long[FRAMES];
+        Replay replay = record(ReplayRecorder.KEYFRAME_INTERVAL, recorded);
+        assertEquals(FRAMES, replay.getFrameCount());
+        List<Texture> textures = HeadlessRunner.createTextures(DENSITY);
+        RecordingRenderer renderer = new RecordingRenderer(720, 1280);
+
+        //逐帧顺序解码
+        long[] sequential = new long[FRAMES];
+        long[] frames = new long[FRAMES];
+        for(int i = 0; i < FRAMES; i++){
+            NetSnapshot snapshot = replay.seek(i);
+            sequential[i] = draw(snapshot, textures, renderer);
+            frames[i] = snapshot.getFrame();
+            assertEquals("frame " + i, recorded[i], sequential[i]);
+        }
+
+        //向后、跨关键帧和随机定位得到的结果与顺序解码相同
+        for(int i = FRAMES - 1; i >= 0; i -= 7){
+            assertEquals("frame " + i, sequential[i], draw(replay.seek(i), textures, renderer));
+        }
+        Random random = new Random(1);
+        for(int n = 0; n < 300; n++){
+            int i = random.nextInt(FRAMES);
+            NetSnapshot snapshot = replay.seek(i);
+            assertEquals("frame " + i, frames[i], snapshot.getFrame());
+            assertEquals("frame " + i, sequential[i], draw(snapshot, textures, renderer));
+        }
+    }
+
+    @Test
+    public void keyframesOnlyDecodeTheSame() throws Exception {
+        long[] recorded = new long[FRAMES];
+        Replay replay = record(1, recorded);
+        List<Texture> textures = HeadlessRunner.createTextures(DENSITY);
+        RecordingRenderer renderer = new RecordingRenderer(720, 1280);
+        for(int i = FRAMES - 1; i >= 0; i--){
+            assertEquals("frame " + i, recorded[i], draw(replay.seek(i), textures, renderer));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.ispring.gameplane.game;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 由机器人生成提交内容，测量ScoreVerifier并发校验的速度
+ */
+public class ScoreVerifierBenchmark {
+
+    //用固定规则操作战斗机的机器人玩一局，生成提交内容
+    static ScoreVerifier.Session playBot(List<Texture> textures, float density, int width, int height, long seed,
+                                                String level, int maxFrames) throws IOException {
+        Game game = new Game(textures, density, seed);
+        if(level != null){
+            game.setWaveTimeline(WaveTimeline.compile(new StringReader(level)));
+        }
+        game.start();
+        Renderer renderer = new NullRenderer(width, height);
+        Random bot = new Random(seed ^ 0x5deece66dL);
+        float x = width / 2;
+        float y = height * 0.85f;
+        while(game.getFrame() < maxFrames && game.getStatus() == Game.STATUS_GAME_STARTED){
+            if(game.getFrame() > 0 && game.getFrame() % 4 == 0){
+                //左右来回移动，偶尔上下移动
+                x += (bot.nextFloat() - 0.5f) * 24 * density;
+                x = Math.max(0, Math.min(width, x));
+                if(bot.nextInt(20) == 0){
+                    y = height * (0.6f + bot.nextFloat() * 0.3f);
+                }
+                game.moveCombatAircraftTo(x, y);
+            }
+            if(bot.nextInt(600) == 0){
+                game.bomb();
+            }
+            game.step(renderer);
+        }
+        return ScoreVerifier.Session.fromGame(game, level);
+    }
+
+    /*
+     * 用法：ScoreVerifierBenchmark [sessions] [threads] [drawableDir] [level]
+     * 由机器人生成sessions局游戏（其中每10局篡改一次分数），然后在threads个线程中并发校验，
+     * 输出每秒校验的局数以及折合到每个核的速度；指定drawableDir时使用像素级碰撞，"-"表示不使用
+     */
+    public static void main(String[] args) throws Exception {
+        int sessionCount = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : cores;
+        float density = 2;
+        int width = (int)(360 * density);
+        int height = (int)(640 * density);
+        List<Texture> textures = HeadlessRunner.createTextures(density);
+        if(args.length > 2 && !"-".equals(args[2])){
+            HeadlessRunner.loadCollisionMasks(textures, args[2]);
+        }
+        String level = null;
+        if(args.length > 3){
+            level = HeadlessRunner.readFile(args[3]);
+        }
+
+        //生成提交内容
+        List<byte[]> sessions = new ArrayList<byte[]>();
+        boolean[] expected = new boolean[sessionCount];
+        long totalFrames = 0;
+        for(int i = 0; i < sessionCount; i++){
+            ScoreVerifier.Session session = playBot(textures, density, width, height, 1000 + i, level, 36000);
+            totalFrames += session.getFrameCount();
+            expected[i] = i % 10 != 9;
+            if(!expected[i]){
+                session = new ScoreVerifier.Session(session.getInputLog(), level, session.getFrameCount(), session.getScore() + 1000);
+            }
+            sessions.add(session.toBytes());
+        }
+
+        ScoreVerifier verifier = new ScoreVerifier(textures);
+        //预热JIT
+        verifier.verifyAll(sessions.subList(0, Math.min(sessions.size(), threads)), threads);
+        long begin = System.nanoTime();
+        boolean[] results = verifier.verifyAll(sessions, threads);
+        long elapsed = System.nanoTime() - begin;
+
+        int passed = 0;
+        int wrong = 0;
+        for(int i = 0; i < sessionCount; i++){
+            if(results[i]){
+                passed++;
+            }
+            if(results[i] != expected[i]){
+                wrong++;
+            }
+        }
+        double seconds = elapsed / 1e9;
+        double perSecond = sessionCount / seconds;
+        System.out.println("sessions=" + sessionCount + " threads=" + threads + " cores=" + cores
+                + " passed=" + passed + " rejected=" + (sessionCount - passed) + " unexpected=" + wrong
+                + " avgFrames=" + (totalFrames / sessionCount)
+                + " seconds=" + (float)seconds
+                + " verificationsPerSec=" + (float)perSecond
+                + " verificationsPerSecPerCore=" + (float)(perSecond / Math.min(threads, cores))
+                + " framesPerSec=" + (float)(totalFrames / seconds));
+    }
+}
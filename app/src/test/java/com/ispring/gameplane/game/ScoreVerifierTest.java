@@ -0,0 +1,84 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScoreVerifierTest {
+
+    private static final float DENSITY = 2;
+    private static final int WIDTH = (int)(360 * DENSITY);
+    private static final int HEIGHT = (int)(640 * DENSITY);
+    //Session.toBytes中各字段的位置，没有关卡文件
+    private static final int OFFSET_FRAME_COUNT = 4;
+    private static final int OFFSET_LEVEL_LENGTH = 20;
+    private static final int OFFSET_SEED = 28;
+
+    private List<Texture> textures;
+    private ScoreVerifier verifier;
+    private ScoreVerifier.Session session;
+    private byte[] data;
+
+    @Before
+    public void playSession() throws Exception {
+        textures = HeadlessRunner.createTextures(DENSITY);
+        verifier = new ScoreVerifier(textures);
+        session = ScoreVerifierBenchmark.playBot(textures, DENSITY, WIDTH, HEIGHT, 1000, null, 1200);
+        assertTrue("the bot should score", session.getScore() > 0);
+        data = session.toBytes();
+    }
+
+    private static byte[] copy(byte[] data, int length){
+        byte[] copy = new byte[length];
+        System.arraycopy(data, 0, copy, 0, Math.min(length, data.length));
+        return copy;
+    }
+
+    @Test
+    public void acceptsHonestSession(){
+        assertTrue(verifier.verify(data));
+    }
+
+    @Test
+    public void rejectsChangedScore() throws Exception {
+        ScoreVerifier.Session tampered = new ScoreVerifier.Session(session.getInputLog(), null,
+                session.getFrameCount(), session.getScore() + 100);
+        assertFalse(verifier.verify(tampered.toBytes()));
+    }
+
+    @Test
+    public void rejectsTruncatedOrCorruptedBytes(){
+        assertFalse(verifier.verify(copy(data, data.length - 1)));
+        assertFalse(verifier.verify(copy(data, OFFSET_SEED)));
+        assertFalse(verifier.verify(new byte[0]));
+
+        byte[] corrupted = copy(data, data.length);
+        corrupted[0] ^= 1;
+        assertFalse(verifier.verify(corrupted));
+
+        //换一个种子，敌机完全不同，重放的分数不一致
+        corrupted = copy(data, data.length);
+        corrupted[OFFSET_SEED + 7] ^= 1;
+        assertFalse(verifier.verify(corrupted));
+    }
+
+    @Test
+    public void rejectsHugeLengthsWithoutAllocating(){
+        byte[] corrupted = copy(data, data.length);
+        ByteBuffer.wrap(corrupted).putInt(OFFSET_LEVEL_LENGTH, Integer.MAX_VALUE);
+        assertFalse(verifier.verify(corrupted));
+
+        corrupted = copy(data, data.length);
+        ByteBuffer.wrap(corrupted).putInt(OFFSET_LEVEL_LENGTH, -2);
+        assertFalse(verifier.verify(corrupted));
+
+        corrupted = copy(data, data.length);
+        ByteBuffer.wrap(corrupted).putLong(OFFSET_FRAME_COUNT, Long.MAX_VALUE);
+        assertFalse(verifier.verify(corrupted));
+    }
+}
@@ -0,0 +1,118 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TelemetryLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] record(int i){
+        byte[] record = new byte[10 + i];
+        for(int j = 0; j < record.length; j++){
+            record[j] = (byte)(i * 31 + j);
+        }
+        return record;
+    }
+
+    private static void write(File file, int from, int to) throws InterruptedException {
+        TelemetryLog log = new TelemetryLog(file);
+        log.start();
+        for(int i = from; i < to; i++){
+            assertTrue(log.append(record(i)));
+        }
+        assertTrue(log.flush(10000));
+        log.close();
+        assertEquals(to - from, log.getWrittenCount());
+    }
+
+    private static void assertRecords(File file, int count) throws IOException {
+        List<byte[]> records = TelemetryLog.readAll(file);
+        assertEquals(count, records.size());
+        for(int i = 0; i < count; i++){
+            assertArrayEquals(record(i), records.get(i));
+        }
+    }
+
+    @Test
+    public void appendsAcrossSessions() throws Exception {
+        File file = folder.newFile("sessions.log");
+        write(file, 0, 20);
+        write(file, 20, 25);
+        assertRecords(file, 25);
+    }
+
+    @Test
+    public void closeWritesPendingRecords() throws Exception {
+        File file = folder.newFile("sessions.log");
+        TelemetryLog log = new TelemetryLog(file);
+        log.start();
+        for(int i = 0; i < 50; i++){
+            assertTrue(log.append(record(i)));
+        }
+        log.close();
+        assertFalse(log.append(record(50)));
+        assertTrue(log.flush(10000));
+        assertTrue(log.awaitClosed(10000));
+        assertEquals(50, log.getWrittenCount());
+        assertRecords(file, 50);
+    }
+
+    @Test
+    public void recoversFromTruncatedTail() throws Exception {
+        File file = new File(folder.getRoot(), "sessions.log");
+        write(file, 0, 5);
+        long length = file.length();
+        //进程在写入第6条记录时被杀死：只写了记录头和一部分内容
+        write(file, 5, 6);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(file.length() - 3);
+        raf.close();
+        assertRecords(file, 5);
+
+        assertEquals(length, TelemetryLog.recover(file));
+        assertEquals(length, file.length());
+        //写入线程打开文件时同样会截掉不完整的记录，之后的记录可以正常读出
+        write(file, 5, 8);
+        assertRecords(file, 8);
+    }
+
+    @Test
+    public void recoversFromCorruptTail() throws Exception {
+        File file = new File(folder.getRoot(), "sessions.log");
+        write(file, 0, 3);
+        long length = file.length();
+        FileOutputStream out = new FileOutputStream(file, true);
+        //长度合法但校验和错误的记录
+        out.write(new byte[]{0, 0, 0, 4, 1, 2, 3, 4, 9, 9, 9, 9});
+        out.close();
+        assertRecords(file, 3);
+        write(file, 3, 4);
+        assertEquals(length + 8 + record(3).length, file.length());
+        assertRecords(file, 4);
+    }
+
+    @Test
+    public void compactKeepsNewestRecords() throws Exception {
+        File file = new File(folder.getRoot(), "sessions.log");
+        write(file, 0, 10);
+        assertEquals(6, TelemetryLog.compact(file, 4));
+        List<byte[]> records = TelemetryLog.readAll(file);
+        assertEquals(4, records.size());
+        assertArrayEquals(record(6), records.get(0));
+        assertArrayEquals(record(9), records.get(3));
+    }
+}
@@ -0,0 +1,66 @@
+package com.ispring.gameplane.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * TelemetryLog的命令行工具
+ */
+public class TelemetryLogTool {
+
+    /*
+     * 在JVM上读取或压缩从设备上取出的日志（adb pull /data/data/<package>/files/sessions.log）
+     * dump <file>：打印所有记录
+     * compact <file> <keepRecords>：只保留最近的记录
+     * bench <file> [records] [recordBytes]：测试追加的速度和组提交的批量
+     */
+    public static void main(String[] args) throws Exception {
+        if(args.length < 2){
+            System.out.println("usage: TelemetryLogTool dump <file> | compact <file> <keepRecords> | bench <file> [records] [recordBytes]");
+            return;
+        }
+        File file = new File(args[1]);
+        if("dump".equals(args[0])){
+            List<byte[]> records = TelemetryLog.readAll(file);
+            long validLength = TelemetryLog.scan(file, null);
+            for(byte[] record : records){
+                try{
+                    System.out.println(SessionStats.fromBytes(record));
+                }catch (IOException e){
+                    System.out.println("<" + record.length + " bytes: " + e.getMessage() + ">");
+                }
+            }
+            System.out.println("records=" + records.size() + " bytes=" + validLength
+                    + " tornBytes=" + (file.length() - validLength));
+        }else if("compact".equals(args[0])){
+            int keep = Integer.parseInt(args[2]);
+            int removed = TelemetryLog.compact(file, keep);
+            System.out.println("removed=" + removed + " bytes=" + file.length());
+        }else if("bench".equals(args[0])){
+            int records = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+            int recordBytes = args.length > 3 ? Integer.parseInt(args[3]) : 128;
+            TelemetryLog log = new TelemetryLog(file, TelemetryLog.DEFAULT_MAX_PENDING_BYTES, Long.MAX_VALUE, TelemetryLog.DEFAULT_KEEP_RECORDS);
+            log.start();
+            long retries = 0;
+            long begin = System.nanoTime();
+            for(int i = 0; i < records; i++){
+                byte[] record = new byte[recordBytes];
+                record[0] = (byte)i;
+                while(!log.append(record)){
+                    //队列已满时稍后重试，游戏中不会这样做
+                    retries++;
+                    Thread.sleep(1);
+                }
+            }
+            log.flush(60000);
+            long elapsed = System.nanoTime() - begin;
+            log.close();
+            System.out.println("records=" + log.getWrittenCount() + " commits=" + log.getCommitCount()
+                    + " recordsPerCommit=" + (log.getWrittenCount() / (float)Math.max(1, log.getCommitCount()))
+                    + " recordsPerSecond=" + (long)(log.getWrittenCount() * 1e9 / elapsed)
+                    + " fullQueueRetries=" + retries
+                    + " fileRecords=" + TelemetryLog.readAll(file).size());
+        }
+    }
+}
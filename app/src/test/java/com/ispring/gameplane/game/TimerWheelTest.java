@@ -0,0 +1,129 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimerWheelTest {
+
+    private static final long TICK = 10;
+
+    //执行时记录名字和时间
+    private static class NamedTimer extends TimerWheel.Timer {
+        final String name;
+        final TimerWheel wheel;
+        final List<String> log;
+
+        NamedTimer(String name, TimerWheel wheel, List<String> log){
+            this.name = name;
+            this.wheel = wheel;
+            this.log = log;
+        }
+
+        @Override
+        protected void onTimer() {
+            log.add(name + "@" + wheel.getTimeNanos() / TICK);
+        }
+    }
+
+    private final List<String> log = new ArrayList<String>();
+    private final TimerWheel wheel = new TimerWheel(TICK, 8);
+
+    private NamedTimer timer(String name){
+        return new NamedTimer(name, wheel, log);
+    }
+
+    @Test
+    public void firesByDeadlineThenInScheduleOrder(){
+        wheel.schedule(timer("a"), 3 * TICK);
+        wheel.schedule(timer("b"), TICK);
+        wheel.schedule(timer("c"), 3 * TICK);
+        wheel.schedule(timer("d"), 2 * TICK + 1);//向上取整到第3个刻度
+        wheel.advanceTo(10 * TICK);
+        assertEquals("[b@1, a@3, c@3, d@3]", log.toString());
+        assertEquals(0, wheel.getScheduledCount());
+    }
+
+    @Test
+    public void delaysLongerThanOneRoundWaitForTheirRound(){
+        wheel.schedule(timer("a"), 20 * TICK);
+        wheel.schedule(timer("b"), 4 * TICK);
+        wheel.schedule(timer("c"), 12 * TICK);
+        //a、b、c位于同一个槽
+        for(long t = 1; t <= 30; t++){
+            wheel.advanceTo(t * TICK);
+        }
+        assertEquals("[b@4, c@12, a@20]", log.toString());
+    }
+
+    @Test
+    public void periodicTimersKeepTheirPhase(){
+        NamedTimer timer = timer("p");
+        wheel.schedulePeriodic(timer, 2 * TICK, 5 * TICK);
+        wheel.advanceTo(4 * TICK);
+        wheel.advanceTo(23 * TICK);
+        assertEquals("[p@2, p@7, p@12, p@17, p@22]", log.toString());
+        assertTrue(timer.isScheduled());
+        timer.cancel();
+        wheel.advanceTo(40 * TICK);
+        assertEquals(5, log.size());
+    }
+
+    @Test
+    public void cancelInsideCallback(){
+        final NamedTimer later = timer("later");
+        final NamedTimer sameTick = timer("same");
+        NamedTimer canceller = new NamedTimer("cancel", wheel, log) {
+            @Override
+            protected void onTimer() {
+                super.onTimer();
+                sameTick.cancel();
+                later.cancel();
+                cancel();//周期性的定时器在执行前已重新安排，可以在回调中取消自己
+            }
+        };
+        wheel.schedulePeriodic(canceller, 2 * TICK, TICK);
+        wheel.schedule(sameTick, 2 * TICK);
+        wheel.schedule(later, 5 * TICK);
+        wheel.advanceTo(10 * TICK);
+        assertEquals("[cancel@2]", log.toString());
+        assertFalse(canceller.isScheduled());
+        assertEquals(0, wheel.getScheduledCount());
+    }
+
+    @Test
+    public void rescheduleInsideCallback(){
+        NamedTimer timer = new NamedTimer("r", wheel, log) {
+            @Override
+            protected void onTimer() {
+                super.onTimer();
+                if(log.size() < 3){
+                    wheel.schedule(this, 9 * TICK);
+                }
+            }
+        };
+        wheel.schedule(timer, TICK);
+        wheel.advanceTo(100 * TICK);
+        assertEquals("[r@1, r@10, r@19]", log.toString());
+    }
+
+    @Test
+    public void resetCancelsEverything(){
+        NamedTimer a = timer("a");
+        wheel.schedule(a, 3 * TICK);
+        wheel.schedulePeriodic(timer("p"), TICK, TICK);
+        wheel.reset(0);
+        assertFalse(a.isScheduled());
+        assertEquals(0, wheel.getScheduledCount());
+        wheel.advanceTo(10 * TICK);
+        assertTrue(log.isEmpty());
+        wheel.schedule(a, TICK);
+        wheel.advanceTo(11 * TICK);
+        assertEquals("[a@11]", log.toString());
+    }
+}
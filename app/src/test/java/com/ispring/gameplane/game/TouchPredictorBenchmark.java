@@ -0,0 +1,60 @@
+package com.ispring.gameplane.game;
+
+import java.util.Random;
+
+/**
+ * 用合成的手指轨迹测量TouchPredictor的预测误差
+ */
+public class TouchPredictorBenchmark {
+
+    /*
+     * 用法：TouchPredictorBenchmark [sampleHz] [leadMs] [noisePx]
+     * 用合成的手指轨迹测量预测的效果：触摸按sampleHz（默认120）采样，带±noisePx（默认0.5）的抖动，
+     * 每个60Hz的vsync预测leadMs（默认25）之后的位置，分别输出画圆、左右来回和快速甩动后停住三种轨迹的结果
+     */
+    public static void main(String[] args){
+        float sampleHz = args.length > 0 ? Float.parseFloat(args[0]) : 120;
+        long lead = (long)((args.length > 1 ? Float.parseFloat(args[1]) : 25) * 1e6);
+        float noise = args.length > 2 ? Float.parseFloat(args[2]) : 0.5f;
+        float width = 720;
+        float height = 1280;
+        for(int path = 0; path < 3; path++){
+            TouchPredictor predictor = new TouchPredictor();
+            predictor.setBounds(width, height);
+            predictor.setMeasuring(true);
+            Random random = new Random(path);
+            long sampleInterval = (long)(1e9 / sampleHz);
+            long nextSample = 0;
+            for(long frame = 0; frame < 600; frame++){
+                long frameTime = frame * Game.FRAME_NANOS;
+                //这一帧之前到达的采样
+                while(nextSample <= frameTime){
+                    float[] p = fingerAt(path, nextSample);
+                    predictor.addSample(nextSample, p[0] + (random.nextFloat() * 2 - 1) * noise,
+                            p[1] + (random.nextFloat() * 2 - 1) * noise);
+                    nextSample += sampleInterval;
+                }
+                predictor.predict(frameTime + lead);
+            }
+            String name = path == 0 ? "circle" : path == 1 ? "zigzag" : "flick";
+            System.out.println(name + " " + predictor);
+        }
+    }
+
+    //合成的手指位置，像素
+    private static float[] fingerAt(int path, long timeNanos){
+        double t = timeNanos / 1e9;
+        if(path == 0){
+            //半径200像素，每秒一圈
+            return new float[]{(float)(360 + 200 * Math.cos(2 * Math.PI * t)), (float)(900 + 200 * Math.sin(2 * Math.PI * t))};
+        }else if(path == 1){
+            //左右来回，频率在1到2Hz之间变化
+            return new float[]{(float)(360 + 300 * Math.sin(2 * Math.PI * (t + 0.05 * t * t))), 1000};
+        }
+        //每秒一次：0.25秒内从左甩到右并减速停住，停0.25秒，再甩回来
+        double phase = t % 1;
+        double f = phase < 0.25 ? Math.sin(phase / 0.25 * Math.PI / 2) : 1;
+        double x = ((long)t % 2 == 0) ? 100 + 500 * f : 600 - 500 * f;
+        return new float[]{(float)x, 1000};
+    }
+}
@@ -0,0 +1,86 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TracerTest {
+
+    private static final Pattern FRAME = Pattern.compile("\"name\":\"phase\".*?\"frame\":(\\d+)");
+
+    private static String export(Tracer tracer) throws IOException {
+        StringWriter writer = new StringWriter();
+        tracer.writeJson(writer);
+        return writer.toString();
+    }
+
+    //导出的阶段事件按帧递增，返回事件数
+    private static int assertFramesInOrder(String json){
+        Matcher matcher = FRAME.matcher(json);
+        long last = -1;
+        int count = 0;
+        while(matcher.find()){
+            long frame = Long.parseLong(matcher.group(1));
+            assertTrue(frame + " after " + last, frame > last);
+            last = frame;
+            count++;
+        }
+        assertTrue(json.endsWith("\n]}\n"));
+        return count;
+    }
+
+    @Test
+    public void keepsNewestEventsWhenFull() throws IOException {
+        Tracer tracer = new Tracer(64);
+        tracer.setEnabled(true);
+        for(int frame = 0; frame < 1000; frame++){
+            tracer.setFrame(frame);
+            tracer.end("phase", tracer.begin());
+        }
+        assertEquals(64, tracer.getEventCount());
+        assertEquals(1000 - 64, tracer.getOverwrittenCount());
+        //缓冲区满时最旧的一个位置可能正在被覆盖，导出时不包含
+        String json = export(tracer);
+        assertEquals(63, assertFramesInOrder(json));
+        assertTrue(json.contains("\"frame\":999}"));
+        assertTrue(json.contains("\"frame\":937}"));
+
+        tracer.clear();
+        assertEquals(0, tracer.getEventCount());
+        assertEquals(0, assertFramesInOrder(export(tracer)));
+        tracer.end("phase", tracer.begin());
+        assertEquals(1, tracer.getEventCount());
+    }
+
+    @Test
+    public void exportsWhileRecording() throws Exception {
+        final Tracer tracer = new Tracer(256);
+        tracer.setEnabled(true);
+        final long frames = 2000000;
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for(long frame = 0; frame < frames; frame++){
+                    tracer.setFrame(frame);
+                    tracer.end("phase", tracer.begin());
+                }
+            }
+        });
+        writer.start();
+        int exports = 0;
+        while(writer.isAlive()){
+            int count = assertFramesInOrder(export(tracer));
+            assertTrue(count <= 256);
+            exports++;
+        }
+        writer.join();
+        assertEquals(255, assertFramesInOrder(export(tracer)));
+        assertTrue(exports > 0);
+    }
+}
@@ -0,0 +1,95 @@
+package com.ispring.gameplane.game;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 测量VectorEnv在1个和多个线程中推进的速度，并检查结果与线程数无关
+ */
+public class VectorEnvBenchmark {
+
+    //随机动作：移动方向每隔一段时间改变，偶尔使用炸弹；返回观测和奖励的校验和
+    private static double run(VectorEnv env, int steps, long seed, float[] actions) throws InterruptedException {
+        Random random = new Random(seed);
+        int count = env.getCount();
+        double checksum = 0;
+        for(int step = 0; step < steps; step++){
+            for(int i = 0; i < count; i++){
+                int a = i * VectorEnv.ACTION_SIZE;
+                if(random.nextInt(8) == 0){
+                    actions[a + VectorEnv.ACTION_MOVE_X] = random.nextFloat() * 2 - 1;
+                    actions[a + VectorEnv.ACTION_MOVE_Y] = random.nextFloat() * 2 - 1;
+                }
+                actions[a + VectorEnv.ACTION_BOMB] = random.nextInt(300) == 0 ? 1 : 0;
+            }
+            env.step(actions);
+            float[] observations = env.getObservations();
+            float[] rewards = env.getRewards();
+            for(int i = 0; i < count; i++){
+                checksum = checksum * 31 % 1e12 + rewards[i] + observations[i * VectorEnv.OBSERVATION_SIZE];
+            }
+        }
+        return checksum;
+    }
+
+    /*
+     * 用法：VectorEnvBenchmark [envs] [steps] [threads] [frameSkip] [level]
+     * envs个环境（默认64），随机动作推进steps步（默认2000），先用1个线程再用threads个线程（默认为核数）各运行一遍，
+     * 输出每秒的环境步数和游戏帧数，并检查两遍的结果相同
+     */
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : cores;
+        int frameSkip = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        String level = args.length > 4 ? HeadlessRunner.readFile(args[4]) : null;
+        float density = 2;
+        int width = (int)(360 * density);
+        int height = (int)(640 * density);
+        List<Texture> textures = HeadlessRunner.createTextures(density);
+
+        //预热JIT，否则先运行的一遍会慢很多
+        VectorEnv warmup = new VectorEnv(textures, density, width, height, count, 1000, level, 1);
+        warmup.setFrameSkip(frameSkip);
+        warmup.reset();
+        run(warmup, 1000, 7, new float[count * VectorEnv.ACTION_SIZE]);
+        warmup.close();
+
+        double[] checksums = new double[2];
+        int[] threadCounts = {1, threads};
+        for(int run = 0; run < threadCounts.length; run++){
+            VectorEnv env = new VectorEnv(textures, density, width, height, count, 1, level, threadCounts[run]);
+            env.setFrameSkip(frameSkip);
+            float[] actions = new float[count * VectorEnv.ACTION_SIZE];
+            env.reset();
+            long frames = env.getFrameCount();
+            long episodes = env.getEpisodeCount();
+            long begin = System.nanoTime();
+            checksums[run] = run(env, steps, 1, actions);
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            long scoreSum = 0;
+            int finished = 0;
+            for(long score : env.getEpisodeScores()){
+                if(score >= 0){
+                    scoreSum += score;
+                    finished++;
+                }
+            }
+            System.out.println("envs=" + count + " threads=" + threadCounts[run] + " cores=" + cores
+                    + " frameSkip=" + frameSkip + " steps=" + steps
+                    + " episodes=" + (env.getEpisodeCount() - episodes)
+                    + " avgEpisodeScore=" + (finished > 0 ? scoreSum / finished : 0)
+                    + " seconds=" + (float)seconds
+                    + " envStepsPerSec=" + (float)((long)count * steps / seconds)
+                    + " framesPerSec=" + (float)((env.getFrameCount() - frames) / seconds)
+                    + " vectorStepsPerSec=" + (float)(steps / seconds));
+            env.close();
+            if(threads == 1){
+                checksums[1] = checksums[0];
+                break;
+            }
+        }
+        System.out.println("deterministic=" + (checksums[0] == checksums[1]));
+    }
+}
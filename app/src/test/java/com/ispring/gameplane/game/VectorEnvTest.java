@@ -0,0 +1,69 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class VectorEnvTest {
+
+    private static final float DENSITY = 2;
+    private static final int WIDTH = (int)(360 * DENSITY);
+    private static final int HEIGHT = (int)(640 * DENSITY);
+    private static final int COUNT = 7;
+
+    private static VectorEnv createEnv(List<Texture> textures, int threads) throws Exception {
+        VectorEnv env = new VectorEnv(textures, DENSITY, WIDTH, HEIGHT, COUNT, 100, null, threads);
+        env.setFrameSkip(4);
+        env.setMaxEpisodeFrames(400);
+        return env;
+    }
+
+    @Test
+    public void stepBeforeResetIsRejected() throws Exception {
+        VectorEnv env = createEnv(HeadlessRunner.createTextures(DENSITY), 1);
+        try{
+            env.step(new float[COUNT * VectorEnv.ACTION_SIZE]);
+            fail("step before reset");
+        }catch (IllegalStateException e){
+            //expected
+        }finally {
+            env.close();
+        }
+    }
+
+    @Test
+    public void resultsDoNotDependOnThreadCount() throws Exception {
+        List<Texture> textures = HeadlessRunner.createTextures(DENSITY);
+        VectorEnv single = createEnv(textures, 1);
+        VectorEnv parallel = createEnv(textures, 3);
+        try{
+            assertArrayEquals(single.reset(), parallel.reset(), 0);
+            Random random = new Random(5);
+            float[] actions = new float[COUNT * VectorEnv.ACTION_SIZE];
+            long episodes = 0;
+            for(int step = 0; step < 300; step++){
+                for(int i = 0; i < actions.length; i++){
+                    actions[i] = random.nextFloat() * 2 - 1;
+                }
+                single.step(actions);
+                parallel.step(actions);
+                assertArrayEquals("observations at step " + step, single.getObservations(), parallel.getObservations(), 0);
+                assertArrayEquals("rewards at step " + step, single.getRewards(), parallel.getRewards(), 0);
+                assertTrue("dones at step " + step, Arrays.equals(single.getDones(), parallel.getDones()));
+                episodes = single.getEpisodeCount();
+            }
+            assertArrayEquals(single.getEpisodeScores(), parallel.getEpisodeScores());
+            //每个环境至少结束过一局，重新开始的路径也被比较
+            assertTrue(episodes >= COUNT);
+        }finally {
+            single.close();
+            parallel.close();
+        }
+    }
+}
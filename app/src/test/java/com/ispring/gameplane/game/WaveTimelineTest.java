@@ -0,0 +1,78 @@
+package com.ispring.gameplane.game;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WaveTimelineTest {
+
+    private static WaveTimeline compile(String level) throws IOException {
+        return WaveTimeline.compile(new StringReader(level));
+    }
+
+    //编译应当失败，并在错误信息中指出行号和原因
+    private static void assertRejected(String level, int line, String reason) throws IOException {
+        try{
+            compile(level);
+            fail("accepted: " + level);
+        }catch (IllegalArgumentException e){
+            assertTrue(e.getMessage(), e.getMessage().startsWith("level line " + line + ": "));
+            assertTrue(e.getMessage(), e.getMessage().contains(reason));
+        }
+    }
+
+    @Test
+    public void compilesEventsInFrameOrder() throws IOException {
+        WaveTimeline timeline = compile("# comment\n"
+                + "120 single big 0.5 2\n"
+                + "\n"
+                + "60 line small 3 0 1 4 sine  # trailing comment\n"
+                + "200 award bomb 0.2\n"
+                + "300 loop\n");
+        assertEquals(5, timeline.getEventCount());
+        assertEquals(WaveTimeline.TYPE_SMALL, timeline.getType(0));
+        assertEquals(MovePath.PATH_SINE, timeline.getPath(0));
+        assertEquals(0.5f, timeline.getX(1), 0);
+        assertEquals(WaveTimeline.TYPE_BIG, timeline.getType(3));
+        assertEquals(WaveTimeline.TYPE_BOMB_AWARD, timeline.getType(4));
+    }
+
+    @Test
+    public void rejectsUnknownCommandsAndNames() throws IOException {
+        assertRejected("10 single small 0.5 2\n20 circle small 3\n", 2, "unknown command circle");
+        assertRejected("10 single huge 0.5 2\n", 1, "unknown enemy type huge");
+        assertRejected("10 single small 0.5 2 zigzag\n", 1, "unknown path zigzag");
+        assertRejected("10 award coin 0.5\n", 1, "unknown award coin");
+    }
+
+    @Test
+    public void rejectsWrongArgumentCounts() throws IOException {
+        assertRejected("10 single small 0.5\n", 1, "command single expects 3 arguments");
+        assertRejected("10 boss 0.5 1 2\n", 1, "command boss expects 2 arguments");
+        assertRejected("10 loop now\n", 1, "command loop expects 0 arguments");
+        assertRejected("# only a frame\n10\n", 2, "");
+    }
+
+    @Test
+    public void rejectsBadNumbers() throws IOException {
+        assertRejected("-5 single small 0.5 2\n", 1, "negative frame -5");
+        assertRejected("10 line small 0 0 1 2\n", 1, "count must be positive");
+        assertRejected("ten single small 0.5 2\n", 1, "ten");
+        assertRejected("10 single small left 2\n", 1, "left");
+    }
+
+    @Test
+    public void rejectsLoopBeforeLastEvent() throws IOException {
+        try{
+            compile("100 loop\n200 single small 0.5 2\n");
+            fail();
+        }catch (IllegalArgumentException e){
+            assertEquals("loop frame 100 must be after the last event", e.getMessage());
+        }
+    }
+}